@@ -0,0 +1,77 @@
+package com.malitrans.transport.benchmark;
+
+import com.malitrans.transport.MaliTransApplication;
+import com.malitrans.transport.model.Role;
+import com.malitrans.transport.model.UserStatus;
+import com.malitrans.transport.model.Utilisateur;
+import com.malitrans.transport.repository.UtilisateurRepository;
+import com.malitrans.transport.security.CustomUserDetailsService;
+import com.malitrans.transport.security.JwtAuthenticationFilter;
+import com.malitrans.transport.security.JwtTokenUtil;
+import com.malitrans.transport.util.PhoneUtil;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.List;
+
+/**
+ * Contexte Spring partagé par les benchmarks d'authentification.
+ * Démarre l'application avec le profil de test (H2 en mémoire, src/test/resources/application.properties)
+ * et crée un utilisateur de référence.
+ */
+@State(Scope.Benchmark)
+public class AuthBenchmarkContext {
+
+    static final String USERNAME = "+22370000001";
+    static final String ROLE = Role.CLIENT.name();
+
+    ConfigurableApplicationContext context;
+    JwtTokenUtil jwtTokenUtil;
+    JwtAuthenticationFilter jwtAuthenticationFilter;
+    CustomUserDetailsService userDetailsService;
+    PhoneUtil phoneUtil;
+    String validToken;
+
+    @Setup(Level.Trial)
+    public void start() {
+        context = new SpringApplicationBuilder(MaliTransApplication.class)
+                .properties(
+                        "server.port=0",
+                        "spring.main.banner-mode=off",
+                        "logging.level.root=WARN",
+                        "app.rate-limit.auth.enabled=false")
+                .run();
+
+        jwtTokenUtil = context.getBean(JwtTokenUtil.class);
+        jwtAuthenticationFilter = context.getBean(JwtAuthenticationFilter.class);
+        userDetailsService = context.getBean(CustomUserDetailsService.class);
+        phoneUtil = context.getBean(PhoneUtil.class);
+
+        UtilisateurRepository repository = context.getBean(UtilisateurRepository.class);
+        if (!repository.existsByUsername(USERNAME)) {
+            Utilisateur user = new Utilisateur();
+            user.setUsername(USERNAME);
+            user.setPhone(USERNAME);
+            // Hash BCrypt précalculé : le hachage n'est pas mesuré ici
+            user.setPassword("$2a$10$7EqJtq98hPqEX7fNZaFWoOhi5BWX4Z3ZzFQJ6dG5Y1t9nI1nJXxG.");
+            user.setRole(Role.CLIENT);
+            user.setStatus(UserStatus.ACTIVE);
+            user.setEnabled(true);
+            repository.save(user);
+        }
+
+        validToken = jwtTokenUtil.generateToken(USERNAME, List.of(ROLE));
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() {
+        if (context != null) {
+            context.close();
+        }
+    }
+}
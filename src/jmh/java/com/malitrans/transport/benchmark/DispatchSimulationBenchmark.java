@@ -0,0 +1,144 @@
+package com.malitrans.transport.benchmark;
+
+import com.malitrans.transport.util.HashedTimingWheel;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Simulation du dispatch d'une course prête, diffusion à tous (BROADCAST) contre offres exclusives (EXCLUSIVE) :
+ * les compteurs auxiliaires comparent les appels assignDriver, les appels perdus (course déjà prise) et les
+ * écritures d'offre ; les échéances des offres passent par la vraie HashedTimingWheel sur une horloge virtuelle.
+ * EXCLUSIVE_OPEN_LIST simule une liste des courses prêtes qui montre aussi les courses offertes à un autre
+ * chauffeur : les non-détenteurs qui la voient appellent assignDriver en pure perte (nonHolderAssignCalls).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+public class DispatchSimulationBenchmark {
+
+    private static final long WINDOW_MILLIS = 20_000;
+    private static final long TICK_MILLIS = 250;
+    private static final int MAX_CANDIDATES = 10;
+    // Réponse d'un chauffeur à une course : acceptation, refus, sinon aucune réponse (l'offre expire)
+    private static final double ACCEPT = 0.3;
+    private static final double DECLINE = 0.3;
+
+    @Param({"BROADCAST", "EXCLUSIVE", "EXCLUSIVE_OPEN_LIST"})
+    public String mode;
+
+    @Param({"50", "500"})
+    public int drivers;
+
+    private SplittableRandom random;
+    private HashedTimingWheel<Integer> wheel;
+    private long clock;
+
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class Calls {
+        public long assignCalls;
+        public long wastedAssignCalls;
+        public long nonHolderAssignCalls;
+        public long offerWrites;
+        public long broadcastFallbacks;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            assignCalls = 0;
+            wastedAssignCalls = 0;
+            nonHolderAssignCalls = 0;
+            offerWrites = 0;
+            broadcastFallbacks = 0;
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        random = new SplittableRandom(42);
+        wheel = new HashedTimingWheel<>(512, TICK_MILLIS, 0);
+        clock = 0;
+    }
+
+    @Benchmark
+    public boolean dispatchOneRide(Calls calls) {
+        return "BROADCAST".equals(mode) ? broadcast(drivers, calls) : exclusive("EXCLUSIVE_OPEN_LIST".equals(mode), calls);
+    }
+
+    /**
+     * Chaque chauffeur intéressé appelle assignDriver ; seul le premier à obtenir la ligne gagne.
+     */
+    private boolean broadcast(int audience, Calls calls) {
+        int attempts = 0;
+        for (int i = 0; i < audience; i++) {
+            if (random.nextDouble() < ACCEPT) {
+                attempts++;
+            }
+        }
+        calls.assignCalls += attempts;
+        if (attempts == 0) {
+            return false;
+        }
+        calls.wastedAssignCalls += attempts - 1;
+        return true;
+    }
+
+    /**
+     * Un candidat à la fois. Candidats épuisés : diffusion aux chauffeurs restants.
+     * @param openList Liste des courses prêtes non filtrée sur le détenteur : pendant une offre, chaque autre
+     *                 chauffeur l'accepte depuis la liste avec une probabilité proportionnelle à la durée de l'offre
+     */
+    private boolean exclusive(boolean openList, Calls calls) {
+        int candidates = Math.min(MAX_CANDIDATES, drivers);
+        for (int index = 0; index < candidates; index++) {
+            calls.offerWrites++;
+            long offeredAt = clock;
+            HashedTimingWheel.Timeout<Integer> timeout = wheel.schedule(index, WINDOW_MILLIS, clock);
+            double answer = random.nextDouble();
+            if (answer < ACCEPT + DECLINE) {
+                clock += random.nextLong(WINDOW_MILLIS);
+                wheel.cancel(timeout);
+                wheel.advance(clock);
+            } else {
+                List<Integer> expired;
+                do {
+                    clock += TICK_MILLIS;
+                    expired = wheel.advance(clock);
+                } while (expired.isEmpty());
+            }
+            if (openList) {
+                nonHolderAttempts(ACCEPT * (clock - offeredAt) / WINDOW_MILLIS, calls);
+            }
+            if (answer < ACCEPT) {
+                calls.assignCalls++;
+                return true;
+            }
+        }
+        calls.broadcastFallbacks++;
+        return broadcast(drivers - candidates, calls);
+    }
+
+    /**
+     * Acceptations depuis la liste par les chauffeurs qui ne détiennent pas l'offre : toutes rejetées.
+     */
+    private void nonHolderAttempts(double probability, Calls calls) {
+        for (int i = 1; i < drivers; i++) {
+            if (random.nextDouble() < probability) {
+                calls.assignCalls++;
+                calls.wastedAssignCalls++;
+                calls.nonHolderAssignCalls++;
+            }
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.malitrans.transport.benchmark;
+
+import jakarta.servlet.FilterChain;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Chemin complet de JwtAuthenticationFilter (validation du token, rôles, chargement de l'utilisateur en base H2)
+ * contre une chaîne de filtres vide.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class JwtAuthenticationFilterBenchmark {
+
+    private static final FilterChain NO_OP_CHAIN = (request, response) -> {
+    };
+
+    @Benchmark
+    public Authentication validBearerToken(AuthBenchmarkContext ctx) throws Exception {
+        return filter(ctx, "Bearer " + ctx.validToken);
+    }
+
+    @Benchmark
+    public Authentication invalidBearerToken(AuthBenchmarkContext ctx) throws Exception {
+        return filter(ctx, "Bearer not-a-jwt");
+    }
+
+    @Benchmark
+    public Authentication anonymousRequest(AuthBenchmarkContext ctx) throws Exception {
+        return filter(ctx, null);
+    }
+
+    private Authentication filter(AuthBenchmarkContext ctx, String authorization) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/ride/chauffeur/active");
+        if (authorization != null) {
+            request.addHeader("Authorization", authorization);
+        }
+        try {
+            ctx.jwtAuthenticationFilter.doFilter(request, new MockHttpServletResponse(), NO_OP_CHAIN);
+            return SecurityContextHolder.getContext().getAuthentication();
+        } finally {
+            SecurityContextHolder.clearContext();
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package com.malitrans.transport.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Coût unitaire des opérations JWT exécutées à chaque requête authentifiée.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class JwtTokenUtilBenchmark {
+
+    private static final List<String> ROLES = List.of(AuthBenchmarkContext.ROLE);
+
+    @Benchmark
+    public String generateToken(AuthBenchmarkContext ctx) {
+        return ctx.jwtTokenUtil.generateToken(AuthBenchmarkContext.USERNAME, ROLES);
+    }
+
+    @Benchmark
+    public boolean validateToken(AuthBenchmarkContext ctx) {
+        return ctx.jwtTokenUtil.validateToken(ctx.validToken);
+    }
+
+    @Benchmark
+    public List<String> getRolesFromToken(AuthBenchmarkContext ctx) {
+        return ctx.jwtTokenUtil.getRolesFromToken(ctx.validToken);
+    }
+}
@@ -0,0 +1,26 @@
+package com.malitrans.transport.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Normalisation des numéros (login, inscription, vérification OTP).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class PhoneUtilBenchmark {
+
+    @Benchmark
+    public String localNumber(AuthBenchmarkContext ctx) {
+        return ctx.phoneUtil.toInternational("70 12 34 56");
+    }
+
+    @Benchmark
+    public String internationalNumber(AuthBenchmarkContext ctx) {
+        return ctx.phoneUtil.toInternational("+223 70 12 34 56");
+    }
+}
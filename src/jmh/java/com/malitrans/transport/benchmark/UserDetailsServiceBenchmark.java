@@ -0,0 +1,23 @@
+package com.malitrans.transport.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * CustomUserDetailsService.loadUserByUsername contre la base H2 en mémoire (appelé par JwtAuthenticationFilter
+ * à chaque requête authentifiée).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class UserDetailsServiceBenchmark {
+
+    @Benchmark
+    public UserDetails loadUserByUsername(AuthBenchmarkContext ctx) {
+        return ctx.userDetailsService.loadUserByUsername(AuthBenchmarkContext.USERNAME);
+    }
+}
@@ -2,8 +2,10 @@ package com.malitrans.transport;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
+@EnableScheduling
 public class MaliTransApplication {
     public static void main(String[] args) {
         SpringApplication.run(MaliTransApplication.class, args);
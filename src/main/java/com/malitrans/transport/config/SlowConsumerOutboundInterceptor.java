@@ -0,0 +1,160 @@
+package com.malitrans.transport.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.context.event.EventListener;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessageHandler;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.support.ExecutorChannelInterceptor;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.messaging.SessionConnectedEvent;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Contre-pression sur clientOutboundChannel, par session WebSocket :
+ * - seule la position la plus récente d'un abonnement /topic/ride/{id} ou /topic/ride/{id}/bin est écrite ; une trame de position
+ *   dépassée par une plus récente avant son envoi est abandonnée (une position périmée n'a pas de valeur),
+ * - au-delà de max-pending-frames-per-session trames en attente, les nouvelles positions pour cette session
+ *   sont abandonnées au lieu de s'accumuler dans la file du pool.
+ * Les autres trames (CONNECTED, RECEIPT, ERROR, événements /topic/ride/{id}/destination ou /arrival...) ne sont jamais abandonnées. Un client trop lent malgré tout
+ * est déconnecté par les limites de tampon / délai d'envoi (configureWebSocketTransport).
+ */
+@Component
+public class SlowConsumerOutboundInterceptor implements ExecutorChannelInterceptor {
+
+    private static final String LOCATION_DESTINATION_PREFIX = "/topic/ride/";
+    private static final String BINARY_LOCATION_SUFFIX = "/bin";
+
+    private final int maxPendingFramesPerSession;
+    private final Map<String, SessionBacklog> sessions = new ConcurrentHashMap<>();
+
+    private final Counter droppedSuperseded;
+    private final Counter droppedBacklog;
+
+    public SlowConsumerOutboundInterceptor(TrackingOutboundProperties properties, MeterRegistry meterRegistry) {
+        this.maxPendingFramesPerSession = properties.getMaxPendingFramesPerSession();
+        this.droppedSuperseded = droppedCounter(meterRegistry, "superseded");
+        this.droppedBacklog = droppedCounter(meterRegistry, "backlog");
+        Gauge.builder("tracking.outbound.sessions", sessions, Map::size).register(meterRegistry);
+        Gauge.builder("tracking.outbound.pending_frames.max", this, SlowConsumerOutboundInterceptor::maxPendingFrames)
+                .register(meterRegistry);
+    }
+
+    @EventListener
+    public void onConnected(SessionConnectedEvent event) {
+        String sessionId = SimpMessageHeaderAccessor.getSessionId(event.getMessage().getHeaders());
+        if (sessionId != null) {
+            sessions.putIfAbsent(sessionId, new SessionBacklog());
+        }
+    }
+
+    @EventListener
+    public void onDisconnected(SessionDisconnectEvent event) {
+        sessions.remove(event.getSessionId());
+    }
+
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        MessageHeaders headers = message.getHeaders();
+        SessionBacklog backlog = backlogOf(headers);
+        if (backlog == null) {
+            return message;
+        }
+        String subscriptionId = locationSubscriptionId(headers);
+        if (subscriptionId != null) {
+            if (backlog.pending.get() >= maxPendingFramesPerSession) {
+                droppedBacklog.increment();
+                return null;
+            }
+            backlog.latestLocationFrames.put(subscriptionId, message);
+        }
+        backlog.pending.incrementAndGet();
+        return message;
+    }
+
+    @Override
+    public void afterSendCompletion(Message<?> message, MessageChannel channel, boolean sent, Exception ex) {
+        if (!sent || ex != null) {
+            // Refus du pool (file pleine) : la trame ne sera jamais traitée
+            release(message.getHeaders());
+        }
+    }
+
+    @Override
+    public Message<?> beforeHandle(Message<?> message, MessageChannel channel, MessageHandler handler) {
+        MessageHeaders headers = message.getHeaders();
+        SessionBacklog backlog = backlogOf(headers);
+        String subscriptionId = backlog != null ? locationSubscriptionId(headers) : null;
+        if (subscriptionId != null) {
+            // Comparaison par identité : les messages du broker n'ont pas d'en-tête id
+            Message<?> latest = backlog.latestLocationFrames.get(subscriptionId);
+            if (latest != null && latest != message) {
+                droppedSuperseded.increment();
+                backlog.pending.decrementAndGet();
+                return null;
+            }
+        }
+        return message;
+    }
+
+    @Override
+    public void afterMessageHandled(Message<?> message, MessageChannel channel, MessageHandler handler, Exception ex) {
+        release(message.getHeaders());
+    }
+
+    int maxPendingFrames() {
+        int max = 0;
+        for (SessionBacklog backlog : sessions.values()) {
+            max = Math.max(max, backlog.pending.get());
+        }
+        return max;
+    }
+
+    private void release(MessageHeaders headers) {
+        SessionBacklog backlog = backlogOf(headers);
+        if (backlog != null) {
+            backlog.pending.decrementAndGet();
+        }
+    }
+
+    private SessionBacklog backlogOf(MessageHeaders headers) {
+        String sessionId = SimpMessageHeaderAccessor.getSessionId(headers);
+        return sessionId != null ? sessions.get(sessionId) : null;
+    }
+
+    private static String locationSubscriptionId(MessageHeaders headers) {
+        if (SimpMessageHeaderAccessor.getMessageType(headers) != SimpMessageType.MESSAGE) {
+            return null;
+        }
+        String destination = SimpMessageHeaderAccessor.getDestination(headers);
+        return isLocationDestination(destination) ? SimpMessageHeaderAccessor.getSubscriptionId(headers) : null;
+    }
+
+    static boolean isLocationDestination(String destination) {
+        if (destination == null || !destination.startsWith(LOCATION_DESTINATION_PREFIX)) {
+            return false;
+        }
+        int slash = destination.indexOf('/', LOCATION_DESTINATION_PREFIX.length());
+        return slash < 0 || destination.substring(slash).equals(BINARY_LOCATION_SUFFIX);
+    }
+
+    private static Counter droppedCounter(MeterRegistry registry, String reason) {
+        return Counter.builder("tracking.outbound.dropped")
+                .tag("reason", reason)
+                .register(registry);
+    }
+
+    private static final class SessionBacklog {
+        private final AtomicInteger pending = new AtomicInteger();
+        private final Map<String, Message<?>> latestLocationFrames = new ConcurrentHashMap<>();
+    }
+}
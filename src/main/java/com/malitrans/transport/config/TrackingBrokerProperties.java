@@ -0,0 +1,56 @@
+package com.malitrans.transport.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Broker des positions : "simple" (en mémoire, un seul nœud) ou "relay" (broker STOMP externe, multi-nœuds).
+ */
+@Component
+public class TrackingBrokerProperties {
+
+    private final String mode;
+    private final String host;
+    private final int port;
+    private final String login;
+    private final String passcode;
+    private final String virtualHost;
+
+    public TrackingBrokerProperties(@Value("${app.tracking.broker.mode:simple}") String mode,
+                                    @Value("${app.tracking.broker.relay.host:localhost}") String host,
+                                    @Value("${app.tracking.broker.relay.port:61613}") int port,
+                                    @Value("${app.tracking.broker.relay.login:guest}") String login,
+                                    @Value("${app.tracking.broker.relay.passcode:guest}") String passcode,
+                                    @Value("${app.tracking.broker.relay.virtual-host:}") String virtualHost) {
+        this.mode = mode;
+        this.host = host;
+        this.port = port;
+        this.login = login;
+        this.passcode = passcode;
+        this.virtualHost = virtualHost != null ? virtualHost.trim() : "";
+    }
+
+    public boolean isRelay() {
+        return "relay".equalsIgnoreCase(mode);
+    }
+
+    public String getHost() {
+        return host;
+    }
+
+    public int getPort() {
+        return port;
+    }
+
+    public String getLogin() {
+        return login;
+    }
+
+    public String getPasscode() {
+        return passcode;
+    }
+
+    public String getVirtualHost() {
+        return virtualHost;
+    }
+}
@@ -0,0 +1,64 @@
+package com.malitrans.transport.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Limites du canal sortant WebSocket : pool d'envoi borné, tampon et délai d'envoi par session,
+ * nombre de trames en attente au-delà duquel les positions d'un client lent sont abandonnées.
+ */
+@Component
+public class TrackingOutboundProperties {
+
+    private final int corePoolSize;
+    private final int maxPoolSize;
+    private final int queueCapacity;
+    private final int sendTimeLimitMillis;
+    private final int sendBufferSizeLimitBytes;
+    private final int messageSizeLimitBytes;
+    private final int maxPendingFramesPerSession;
+
+    public TrackingOutboundProperties(@Value("${app.tracking.outbound.core-pool-size:8}") int corePoolSize,
+                                      @Value("${app.tracking.outbound.max-pool-size:16}") int maxPoolSize,
+                                      @Value("${app.tracking.outbound.queue-capacity:10000}") int queueCapacity,
+                                      @Value("${app.tracking.outbound.send-time-limit-ms:10000}") int sendTimeLimitMillis,
+                                      @Value("${app.tracking.outbound.send-buffer-size-limit-bytes:131072}") int sendBufferSizeLimitBytes,
+                                      @Value("${app.tracking.outbound.message-size-limit-bytes:65536}") int messageSizeLimitBytes,
+                                      @Value("${app.tracking.outbound.max-pending-frames-per-session:50}") int maxPendingFramesPerSession) {
+        this.corePoolSize = corePoolSize;
+        this.maxPoolSize = Math.max(corePoolSize, maxPoolSize);
+        this.queueCapacity = queueCapacity;
+        this.sendTimeLimitMillis = sendTimeLimitMillis;
+        this.sendBufferSizeLimitBytes = sendBufferSizeLimitBytes;
+        this.messageSizeLimitBytes = messageSizeLimitBytes;
+        this.maxPendingFramesPerSession = maxPendingFramesPerSession;
+    }
+
+    public int getCorePoolSize() {
+        return corePoolSize;
+    }
+
+    public int getMaxPoolSize() {
+        return maxPoolSize;
+    }
+
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    public int getSendTimeLimitMillis() {
+        return sendTimeLimitMillis;
+    }
+
+    public int getSendBufferSizeLimitBytes() {
+        return sendBufferSizeLimitBytes;
+    }
+
+    public int getMessageSizeLimitBytes() {
+        return messageSizeLimitBytes;
+    }
+
+    public int getMaxPendingFramesPerSession() {
+        return maxPendingFramesPerSession;
+    }
+}
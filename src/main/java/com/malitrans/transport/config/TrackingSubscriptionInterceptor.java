@@ -0,0 +1,93 @@
+package com.malitrans.transport.config;
+
+import com.malitrans.transport.service.FleetSubscriptions;
+import com.malitrans.transport.service.TrackingSubscriptions;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessageDeliveryException;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.stereotype.Component;
+import org.springframework.util.MimeTypeUtils;
+
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Négociation du format des positions par abonnement : un SUBSCRIBE sur /topic/ride/{id} portant
+ * l'en-tête "accept: application/octet-stream" est redirigé vers /topic/ride/{id}/bin (trames LocationFrameCodec).
+ * Le binaire n'est accepté que sur l'endpoint WebSocket natif (attribut de session BINARY_FRAMES_ATTRIBUTE).
+ * Tient aussi à jour les compteurs d'abonnés de TrackingSubscriptions et FleetSubscriptions (/topic/fleet/{id}).
+ */
+@Component
+public class TrackingSubscriptionInterceptor implements ChannelInterceptor {
+
+    public static final String BINARY_FRAMES_ATTRIBUTE = "tracking.binaryFrames";
+    private static final Pattern RIDE_TOPIC = Pattern.compile("^/topic/ride/(\\d+)(/bin)?$");
+    private static final Pattern FLEET_TOPIC = Pattern.compile("^/topic/fleet/(\\d+)$");
+
+    private final TrackingSubscriptions subscriptions;
+    private final FleetSubscriptions fleetSubscriptions;
+
+    public TrackingSubscriptionInterceptor(TrackingSubscriptions subscriptions, FleetSubscriptions fleetSubscriptions) {
+        this.subscriptions = subscriptions;
+        this.fleetSubscriptions = fleetSubscriptions;
+    }
+
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        // Lecture des en-têtes sans copie : les SEND de positions (chemin chaud) ne font que traverser
+        MessageHeaders headers = message.getHeaders();
+        SimpMessageType type = SimpMessageHeaderAccessor.getMessageType(headers);
+        if (type == SimpMessageType.UNSUBSCRIBE) {
+            String sessionId = SimpMessageHeaderAccessor.getSessionId(headers);
+            String subscriptionId = SimpMessageHeaderAccessor.getSubscriptionId(headers);
+            subscriptions.unsubscribed(sessionId, subscriptionId);
+            fleetSubscriptions.unsubscribed(sessionId, subscriptionId);
+        } else if (type == SimpMessageType.DISCONNECT) {
+            String sessionId = SimpMessageHeaderAccessor.getSessionId(headers);
+            subscriptions.disconnected(sessionId);
+            fleetSubscriptions.disconnected(sessionId);
+        } else if (type == SimpMessageType.SUBSCRIBE) {
+            String destination = SimpMessageHeaderAccessor.getDestination(headers);
+            Matcher matcher = destination != null ? RIDE_TOPIC.matcher(destination) : null;
+            if (matcher != null && matcher.matches()) {
+                return subscribe(message, StompHeaderAccessor.wrap(message), Long.parseLong(matcher.group(1)),
+                        matcher.group(2) != null);
+            }
+            Matcher fleet = destination != null ? FLEET_TOPIC.matcher(destination) : null;
+            if (fleet != null && fleet.matches()) {
+                fleetSubscriptions.subscribed(SimpMessageHeaderAccessor.getSessionId(headers),
+                        SimpMessageHeaderAccessor.getSubscriptionId(headers), Long.parseLong(fleet.group(1)));
+            }
+        }
+        return message;
+    }
+
+    private Message<?> subscribe(Message<?> message, StompHeaderAccessor accessor, long rideId, boolean binaryTopic) {
+        String accept = accessor.getFirstNativeHeader("accept");
+        boolean binary = binaryTopic
+                || (accept != null && accept.contains(MimeTypeUtils.APPLICATION_OCTET_STREAM_VALUE));
+        if (binary && !binaryCapable(accessor)) {
+            throw new MessageDeliveryException(message,
+                    "Binary location frames require the native WebSocket endpoint (/ws-tracking-native)");
+        }
+
+        subscriptions.subscribed(accessor.getSessionId(), accessor.getSubscriptionId(), rideId, binary);
+        if (!binary || binaryTopic) {
+            return message;
+        }
+        accessor.setDestination("/topic/ride/" + rideId + "/bin");
+        return MessageBuilder.createMessage(message.getPayload(), accessor.getMessageHeaders());
+    }
+
+    private boolean binaryCapable(StompHeaderAccessor accessor) {
+        Map<String, Object> attributes = accessor.getSessionAttributes();
+        return attributes != null && Boolean.TRUE.equals(attributes.get(BINARY_FRAMES_ATTRIBUTE));
+    }
+}
@@ -1,28 +1,126 @@
 package com.malitrans.transport.config;
 
+import com.malitrans.transport.security.StompAuthChannelInterceptor;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.messaging.simp.config.ChannelRegistration;
 import org.springframework.messaging.simp.config.MessageBrokerRegistry;
+import org.springframework.messaging.simp.config.StompBrokerRelayRegistration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.web.socket.WebSocketHandler;
 import org.springframework.web.socket.config.annotation.EnableWebSocketMessageBroker;
 import org.springframework.web.socket.config.annotation.StompEndpointRegistry;
 import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerConfigurer;
+import org.springframework.web.socket.config.annotation.WebSocketTransportRegistration;
+import org.springframework.web.socket.server.HandshakeInterceptor;
+
+import java.util.Map;
 
 @Configuration
 @EnableWebSocketMessageBroker
 public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
 
+    private final StompAuthChannelInterceptor stompAuthChannelInterceptor;
+    private final TrackingSubscriptionInterceptor trackingSubscriptionInterceptor;
+    private final TrackingBrokerProperties brokerProperties;
+    private final SlowConsumerOutboundInterceptor slowConsumerOutboundInterceptor;
+    private final TrackingOutboundProperties outboundProperties;
+    private final MeterRegistry meterRegistry;
+
+    public WebSocketConfig(StompAuthChannelInterceptor stompAuthChannelInterceptor,
+                           TrackingSubscriptionInterceptor trackingSubscriptionInterceptor,
+                           TrackingBrokerProperties brokerProperties,
+                           SlowConsumerOutboundInterceptor slowConsumerOutboundInterceptor,
+                           TrackingOutboundProperties outboundProperties,
+                           MeterRegistry meterRegistry) {
+        this.stompAuthChannelInterceptor = stompAuthChannelInterceptor;
+        this.trackingSubscriptionInterceptor = trackingSubscriptionInterceptor;
+        this.brokerProperties = brokerProperties;
+        this.slowConsumerOutboundInterceptor = slowConsumerOutboundInterceptor;
+        this.outboundProperties = outboundProperties;
+        this.meterRegistry = meterRegistry;
+    }
+
     @Override
     public void registerStompEndpoints(StompEndpointRegistry registry) {
         // Enregistrement de l'endpoint websocket
         registry.addEndpoint("/ws-tracking")
                 .setAllowedOriginPatterns("*")
                 .withSockJS();
+        // WebSocket natif (sans SockJS) : seul transport capable de trames binaires
+        registry.addEndpoint("/ws-tracking-native")
+                .setAllowedOriginPatterns("*")
+                .addInterceptors(new BinaryFramesHandshakeInterceptor());
     }
 
     @Override
     public void configureMessageBroker(MessageBrokerRegistry registry) {
-        // Activation d'un broker simple en mémoire pour les abonnements
-        registry.enableSimpleBroker("/topic");
+        if (brokerProperties.isRelay()) {
+            // Broker STOMP externe (RabbitMQ, ActiveMQ Artemis...) partagé par tous les nœuds
+            StompBrokerRelayRegistration relay = registry.enableStompBrokerRelay("/topic")
+                    .setRelayHost(brokerProperties.getHost())
+                    .setRelayPort(brokerProperties.getPort())
+                    .setClientLogin(brokerProperties.getLogin())
+                    .setClientPasscode(brokerProperties.getPasscode())
+                    .setSystemLogin(brokerProperties.getLogin())
+                    .setSystemPasscode(brokerProperties.getPasscode());
+            if (!brokerProperties.getVirtualHost().isBlank()) {
+                relay.setVirtualHost(brokerProperties.getVirtualHost());
+            }
+        } else {
+            // Activation d'un broker simple en mémoire pour les abonnements (nœud unique)
+            registry.enableSimpleBroker("/topic");
+        }
         // Les messages envoyés au serveur doivent commencer par /app
         registry.setApplicationDestinationPrefixes("/app");
     }
+
+    @Override
+    public void configureClientInboundChannel(ChannelRegistration registration) {
+        // Authentification / limitation d'abord : un message refusé n'atteint ni les contrôleurs ni le broker
+        registration.interceptors(stompAuthChannelInterceptor, trackingSubscriptionInterceptor);
+    }
+
+    @Override
+    public void configureClientOutboundChannel(ChannelRegistration registration) {
+        // Pool d'envoi et file bornés (par défaut : file non bornée, un client lent peut remplir le heap)
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setThreadNamePrefix("ws-outbound-");
+        executor.setCorePoolSize(outboundProperties.getCorePoolSize());
+        executor.setMaxPoolSize(outboundProperties.getMaxPoolSize());
+        executor.setQueueCapacity(outboundProperties.getQueueCapacity());
+        registration.taskExecutor(executor);
+        registration.interceptors(slowConsumerOutboundInterceptor);
+
+        Gauge.builder("tracking.outbound.executor.queue", executor, ThreadPoolTaskExecutor::getQueueSize)
+                .register(meterRegistry);
+        Gauge.builder("tracking.outbound.executor.active", executor, ThreadPoolTaskExecutor::getActiveCount)
+                .register(meterRegistry);
+    }
+
+    @Override
+    public void configureWebSocketTransport(WebSocketTransportRegistration registration) {
+        // Au-delà du tampon ou du délai d'envoi, la session du client lent est fermée
+        registration.setSendTimeLimit(outboundProperties.getSendTimeLimitMillis())
+                .setSendBufferSizeLimit(outboundProperties.getSendBufferSizeLimitBytes())
+                .setMessageSizeLimit(outboundProperties.getMessageSizeLimitBytes());
+    }
+
+    private static final class BinaryFramesHandshakeInterceptor implements HandshakeInterceptor {
+
+        @Override
+        public boolean beforeHandshake(ServerHttpRequest request, ServerHttpResponse response,
+                                       WebSocketHandler wsHandler, Map<String, Object> attributes) {
+            attributes.put(TrackingSubscriptionInterceptor.BINARY_FRAMES_ATTRIBUTE, Boolean.TRUE);
+            return true;
+        }
+
+        @Override
+        public void afterHandshake(ServerHttpRequest request, ServerHttpResponse response,
+                                   WebSocketHandler wsHandler, Exception exception) {
+        }
+    }
 }
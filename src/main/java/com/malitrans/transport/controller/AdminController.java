@@ -2,6 +2,7 @@ package com.malitrans.transport.controller;
 
 import com.malitrans.transport.dto.DriverValidationDTO;
 import com.malitrans.transport.service.AdminService;
+import com.malitrans.transport.service.DestinationBackfillService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
@@ -20,9 +21,11 @@ import java.util.Map;
 public class AdminController {
 
     private final AdminService adminService;
+    private final DestinationBackfillService destinationBackfillService;
 
-    public AdminController(AdminService adminService) {
+    public AdminController(AdminService adminService, DestinationBackfillService destinationBackfillService) {
         this.adminService = adminService;
+        this.destinationBackfillService = destinationBackfillService;
     }
 
     @Operation(summary = "Vue d'ensemble globale du systÃ¨me",
@@ -79,6 +82,34 @@ public class AdminController {
         return ResponseEntity.ok(adminService.getRides(status, safeLimit));
     }
 
+    @Operation(summary = "Lancer le géocodage des anciennes destinations",
+               description = "Rattrapage en arrière-plan des courses dont la destination est restée en coordonnées, " +
+                           "repris au dernier point de reprise (restart=true pour repartir du début).")
+    @PostMapping("/backfill/destinations")
+    public ResponseEntity<Map<String, Object>> startDestinationBackfill(
+            @RequestParam(defaultValue = "false") boolean restart) {
+        if (!destinationBackfillService.start(restart)) {
+            Map<String, Object> error = new HashMap<>();
+            error.put("error", "Destination backfill is already running");
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(error);
+        }
+        return ResponseEntity.accepted().body(destinationBackfillService.status());
+    }
+
+    @Operation(summary = "Arrêter le géocodage des anciennes destinations",
+               description = "Arrêt après le lot en cours ; le point de reprise est conservé.")
+    @PostMapping("/backfill/destinations/stop")
+    public ResponseEntity<Map<String, Object>> stopDestinationBackfill() {
+        destinationBackfillService.stop();
+        return ResponseEntity.ok(destinationBackfillService.status());
+    }
+
+    @Operation(summary = "Avancement du géocodage des anciennes destinations")
+    @GetMapping("/backfill/destinations")
+    public ResponseEntity<Map<String, Object>> getDestinationBackfillStatus() {
+        return ResponseEntity.ok(destinationBackfillService.status());
+    }
+
     @Operation(summary = "Suspendre un utilisateur",
                description = "Suspend un utilisateur non-admin et désactive son compte.")
     @PostMapping("/users/{userId}/suspend")
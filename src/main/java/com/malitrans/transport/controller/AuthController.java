@@ -5,6 +5,8 @@ import com.malitrans.transport.dto.LoginRequest;
 import com.malitrans.transport.dto.RefreshTokenRequest;
 import com.malitrans.transport.dto.RegisterDTO;
 import com.malitrans.transport.dto.VerifyRegistrationDTO;
+import com.malitrans.transport.exception.OtpDeliveryException;
+import com.malitrans.transport.exception.PasswordHashingOverloadedException;
 import com.malitrans.transport.exception.TokenRefreshException;
 import com.malitrans.transport.model.Utilisateur;
 import com.malitrans.transport.security.SecurityUtil;
@@ -15,6 +17,7 @@ import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.authentication.BadCredentialsException;
@@ -57,7 +60,8 @@ public class AuthController {
                              "Étape 2 : appeler POST /auth/verify-registration avec le téléphone et le code reçu.")
     @ApiResponses({
         @ApiResponse(responseCode = "200", description = "Compte créé, OTP envoyé (vérifier la console en mode mock)"),
-        @ApiResponse(responseCode = "400", description = "Username ou phone déjà existant, ou données invalides")
+        @ApiResponse(responseCode = "400", description = "Username ou phone déjà existant, ou données invalides"),
+        @ApiResponse(responseCode = "503", description = "Compte créé mais OTP non envoyé : redemander un code via POST /auth/resend-registration-otp")
     })
     @PostMapping("/register")
     public ResponseEntity<Map<String, String>> register(@RequestBody RegisterDTO registerDTO) {
@@ -67,6 +71,10 @@ public class AuthController {
             response.put("message", "User registered. Check your phone for the OTP to verify your account.");
             response.put("username", registerDTO.getUsername());
             return ResponseEntity.ok(response);
+        } catch (PasswordHashingOverloadedException e) {
+            return serviceUnavailable();
+        } catch (OtpDeliveryException e) {
+            return otpNotSent();
         } catch (IllegalArgumentException e) {
             Map<String, String> error = new HashMap<>();
             error.put("error", e.getMessage());
@@ -97,6 +105,30 @@ public class AuthController {
         }
     }
 
+    @Operation(summary = "Renvoi du code d'inscription",
+               description = "Envoie un nouveau code OTP par SMS si le compte de ce numéro attend encore sa vérification " +
+                             "(SMS d'inscription non reçu ou code expiré). La réponse est la même que le numéro soit inscrit ou non.")
+    @ApiResponses({
+        @ApiResponse(responseCode = "200", description = "Code renvoyé si un compte est en attente de vérification"),
+        @ApiResponse(responseCode = "400", description = "Numéro invalide"),
+        @ApiResponse(responseCode = "503", description = "Code non envoyé, réessayer plus tard")
+    })
+    @PostMapping("/resend-registration-otp")
+    public ResponseEntity<Map<String, String>> resendRegistrationOtp(@RequestBody Map<String, String> request) {
+        try {
+            authService.resendRegistrationOtp(request.get("phone"));
+            Map<String, String> response = new HashMap<>();
+            response.put("message", "If an account is awaiting verification for this phone, a new OTP has been sent.");
+            return ResponseEntity.ok(response);
+        } catch (OtpDeliveryException e) {
+            return otpNotSent();
+        } catch (IllegalArgumentException e) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", e.getMessage());
+            return ResponseEntity.badRequest().body(error);
+        }
+    }
+
     @Operation(summary = "Connexion d'un utilisateur", 
                description = "Authentifie un utilisateur et retourne un access token JWT et un refresh token avec userId et role pour l'app mobile.")
     @ApiResponses({
@@ -108,6 +140,8 @@ public class AuthController {
         try {
             AuthResponse authResponse = authService.login(loginRequest.getUsername(), loginRequest.getPassword());
             return ResponseEntity.ok(authResponse);
+        } catch (PasswordHashingOverloadedException e) {
+            return serviceUnavailable();
         } catch (Exception e) {
             Map<String, String> error = new HashMap<>();
             error.put("error", "Invalid username or password");
@@ -127,6 +161,8 @@ public class AuthController {
             String idToken = request.get("idToken");
             logger.info("Google login endpoint reached. idToken present: {}", idToken != null && !idToken.isBlank());
             return ResponseEntity.ok(googleAuthService.authenticate(idToken));
+        } catch (PasswordHashingOverloadedException e) {
+            return serviceUnavailable();
         } catch (BadCredentialsException | IllegalArgumentException e) {
             logger.warn("Google login rejected: {}", e.getMessage());
             Map<String, String> error = new HashMap<>();
@@ -162,5 +198,18 @@ public class AuthController {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(error);
         }
     }
-}
 
+    private ResponseEntity<Map<String, String>> otpNotSent() {
+        Map<String, String> error = new HashMap<>();
+        error.put("error", "The verification code could not be sent. Request a new one via POST /auth/resend-registration-otp.");
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(error);
+    }
+
+    private ResponseEntity<Map<String, String>> serviceUnavailable() {
+        Map<String, String> error = new HashMap<>();
+        error.put("error", "Service temporarily overloaded. Please retry in a moment.");
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(error);
+    }
+}
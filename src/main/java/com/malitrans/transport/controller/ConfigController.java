@@ -11,7 +11,7 @@ import java.util.Map;
 @RequestMapping("/config")
 public class ConfigController {
 
-    @Value("${google.maps.api-key}")
+    @Value("${google.maps.api-key:}")
     private String googleMapsApiKey;
 
     @GetMapping("/maps-key")
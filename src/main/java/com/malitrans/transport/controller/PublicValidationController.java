@@ -1,37 +1,44 @@
 package com.malitrans.transport.controller;
 
-import com.malitrans.transport.dto.LocationMessage;
 import com.malitrans.transport.model.RideRequest;
-import com.malitrans.transport.model.ValidationStatus;
+import com.malitrans.transport.service.PublicRideSnapshotService;
 import com.malitrans.transport.service.RideRequestService;
-import com.malitrans.transport.service.TrackingService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.DeferredResult;
 
-import java.util.HashMap;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 
 @RestController
 @RequestMapping("/public/validate")
-@CrossOrigin(origins = "*")
+@CrossOrigin(origins = "*", exposedHeaders = HttpHeaders.ETAG)
 public class PublicValidationController {
 
     private final RideRequestService rideRequestService;
-    private final TrackingService trackingService;
+    private final PublicRideSnapshotService snapshotService;
+    private final long maxLongPollMillis;
 
-    public PublicValidationController(RideRequestService rideRequestService, TrackingService trackingService) {
+    public PublicValidationController(RideRequestService rideRequestService,
+                                      PublicRideSnapshotService snapshotService,
+                                      @Value("${app.public-tracking.long-poll-max-wait-ms:30000}") long maxLongPollMillis) {
         this.rideRequestService = rideRequestService;
-        this.trackingService = trackingService;
+        this.snapshotService = snapshotService;
+        this.maxLongPollMillis = maxLongPollMillis;
     }
 
     @GetMapping("/{token}")
     public ResponseEntity<?> getPublicRideInfo(@PathVariable String token) {
-        try {
-            return ResponseEntity.ok(rideRequestService.getRecipientValidationInfo(token));
-        } catch (RideRequestService.LinkExpiredException e) {
-            return expiredLinkResponse(e);
+        Optional<PublicRideSnapshotService.Snapshot> snapshot = snapshotService.findByToken(token);
+        if (snapshot.isEmpty() || !snapshot.get().isRecipientLinkUsable()) {
+            return expiredLinkResponse(new RideRequestService.LinkExpiredException());
         }
+        return ResponseEntity.ok(snapshot.get().recipientValidationInfo());
     }
 
     @PostMapping("/{token}")
@@ -45,7 +52,7 @@ public class PublicValidationController {
                     token,
                     payload.getLatitude(),
                     payload.getLongitude());
-            return ResponseEntity.ok(toPublicRideInfo(request));
+            return ResponseEntity.ok(snapshotService.publicInfo(snapshotService.snapshotOf(request)));
         } catch (RideRequestService.LinkExpiredException e) {
             return expiredLinkResponse(e);
         } catch (IllegalArgumentException e) {
@@ -58,100 +65,68 @@ public class PublicValidationController {
     }
 
     @GetMapping("/{token}/tracking")
-    public ResponseEntity<?> getPublicTrackingInfo(@PathVariable String token) {
-        try {
-            rideRequestService.getRecipientValidationInfo(token);
-        } catch (RideRequestService.LinkExpiredException e) {
-            return expiredLinkResponse(e);
-        }
-
-        Optional<RideRequest> requestOpt = rideRequestService.getRideRequestByValidationToken(token);
-        if (requestOpt.isEmpty()) {
-            return ResponseEntity.status(404).body(Map.of("error", "Lien de validation invalide ou expire."));
+    public ResponseEntity<?> getPublicTrackingInfo(@PathVariable String token,
+                                                   @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        Optional<PublicRideSnapshotService.Snapshot> snapshot = snapshotService.findByToken(token);
+        if (snapshot.isEmpty() || !snapshot.get().isRecipientLinkUsable()) {
+            return expiredLinkResponse(new RideRequestService.LinkExpiredException());
         }
-
-        return ResponseEntity.ok(toPublicRideInfo(requestOpt.get()));
+        return conditionalResponse(snapshot.get(), ifNoneMatch);
     }
 
     @GetMapping("/tracking/{rideId}")
-    public ResponseEntity<?> getPublicTrackingInfoByCode(@PathVariable Long rideId, @RequestParam String code) {
-        Optional<RideRequest> requestOpt = rideRequestService.getRideRequestEntityById(rideId);
-
-        if (requestOpt.isEmpty()) {
+    public ResponseEntity<?> getPublicTrackingInfoByCode(@PathVariable Long rideId, @RequestParam String code,
+                                                         @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        Optional<PublicRideSnapshotService.Snapshot> snapshot = snapshotService.findByRideId(rideId);
+        if (snapshot.isEmpty()) {
             return ResponseEntity.status(404).body(Map.of("error", "Course introuvable."));
         }
-
-        RideRequest request = requestOpt.get();
-        if (request.getQrCodeDelivery() == null || !request.getQrCodeDelivery().equals(code)) {
+        if (!snapshot.get().matchesTrackingCode(code)) {
             return ResponseEntity.status(403).body(Map.of("error", "Acces au suivi refuse."));
         }
-
-        return ResponseEntity.ok(toPublicRideInfo(request));
+        return conditionalResponse(snapshot.get(), ifNoneMatch);
     }
 
-    private ResponseEntity<?> expiredLinkResponse(RideRequestService.LinkExpiredException e) {
-        return ResponseEntity.status(410).body(Map.of(
-                "error", "LINK_EXPIRED",
-                "message", e.getMessage()));
-    }
-
-    private Map<String, Object> toPublicRideInfo(RideRequest request) {
-        ValidationStatus status = request.getValidationStatus();
-        boolean waitingForRecipient = status == ValidationStatus.WAITING_RECIPIENT_VALIDATION;
-        boolean terminal = status == ValidationStatus.COMPLETED || status == ValidationStatus.CANCELED;
-
-        Map<String, Object> response = new HashMap<>();
-        response.put("rideId", request.getId());
-        response.put("validationStatus", status != null ? status.name() : null);
-        response.put("canValidateLocation", waitingForRecipient);
-        response.put("trackingEnabled", !waitingForRecipient && !terminal);
-        response.put("driverAssigned", request.getChauffeur() != null);
-        response.put("price", request.getPrice());
-        response.put("packageDescription", request.getPackageDescription() != null
-                ? request.getPackageDescription()
-                : "Colis sans description");
-        response.put("origin", request.getOrigin());
-        response.put("destination", request.getDestination());
-        response.put("senderName", resolveSenderName(request));
-        response.put("recipientName", resolveRecipientName(request));
-        response.put("qrCodeDelivery", request.getQrCodeDelivery());
-        response.put("trackingToken", request.getQrCodeDelivery());
-
-        trackingService.getLastLocation(request.getId()).ifPresent(location ->
-                response.put("lastLocation", toLocationMap(location)));
-
-        return response;
-    }
+    /**
+     * Long-polling : si l'ETag envoyé est toujours courant, la réponse est retenue jusqu'au prochain
+     * changement (statut ou position) ou jusqu'à l'expiration de l'attente (304).
+     */
+    @GetMapping(value = "/tracking/{rideId}", params = "wait")
+    public DeferredResult<ResponseEntity<?>> awaitPublicTrackingInfo(@PathVariable Long rideId, @RequestParam String code,
+                                                                     @RequestParam("wait") long waitSeconds,
+                                                                     @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        long timeoutMillis = Math.min(Math.max(0, waitSeconds) * 1000, maxLongPollMillis);
+        DeferredResult<ResponseEntity<?>> result = new DeferredResult<>(timeoutMillis + 5000);
+
+        ResponseEntity<?> current = getPublicTrackingInfoByCode(rideId, code, ifNoneMatch);
+        if (current.getStatusCode() != HttpStatus.NOT_MODIFIED || timeoutMillis == 0) {
+            result.setResult(current);
+            return result;
+        }
 
-    private String resolveSenderName(RideRequest request) {
-        if (Boolean.FALSE.equals(request.getIsSenderClient())) {
-            if (request.getOtherPartyName() != null && !request.getOtherPartyName().isBlank()) {
-                return request.getOtherPartyName();
-            }
-            if (request.getSupplier() != null) {
-                return request.getSupplier().getFullName();
+        CompletableFuture<Void> change = snapshotService.awaitChange(rideId, current.getHeaders().getETag());
+        change.orTimeout(timeoutMillis, TimeUnit.MILLISECONDS).whenCompleteAsync((ignored, error) -> {
+            if (!result.isSetOrExpired()) {
+                result.setResult(error != null ? current : getPublicTrackingInfoByCode(rideId, code, ifNoneMatch));
             }
-        }
-        return request.getClient() != null ? request.getClient().getFullName() : "Woyo Client";
+        }, snapshotService.longPollExecutor());
+        result.onTimeout(() -> result.setResult(current));
+        result.onCompletion(() -> change.complete(null));
+        return result;
     }
 
-    private String resolveRecipientName(RideRequest request) {
-        if (Boolean.TRUE.equals(request.getIsSenderClient())) {
-            if (request.getOtherPartyName() != null && !request.getOtherPartyName().isBlank()) {
-                return request.getOtherPartyName();
-            }
-            return "Destinataire";
+    private ResponseEntity<?> conditionalResponse(PublicRideSnapshotService.Snapshot snapshot, String ifNoneMatch) {
+        String etag = snapshotService.etag(snapshot);
+        if (etag.equals(ifNoneMatch)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
         }
-        return request.getClient() != null ? request.getClient().getFullName() : "Destinataire";
+        return ResponseEntity.ok().eTag(etag).body(snapshotService.publicInfo(snapshot));
     }
 
-    private Map<String, Object> toLocationMap(LocationMessage location) {
-        Map<String, Object> map = new HashMap<>();
-        map.put("rideId", location.getRideId());
-        map.put("latitude", location.getLatitude());
-        map.put("longitude", location.getLongitude());
-        map.put("timestamp", location.getTimestamp());
-        return map;
+    private ResponseEntity<?> expiredLinkResponse(RideRequestService.LinkExpiredException e) {
+        return ResponseEntity.status(410).body(Map.of(
+                "error", "LINK_EXPIRED",
+                "message", e.getMessage()));
     }
 
     public static class LocationPayload {
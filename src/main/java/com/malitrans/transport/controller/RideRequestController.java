@@ -46,6 +46,8 @@ public class RideRequestController {
 
     @Operation(summary = "Lister les demandes prêtes pour la collecte", 
                description = "Retourne les demandes avec ValidationStatus READY_FOR_PICKUP. " +
+                             "Avec lat/lng, seules les demandes dont le point de collecte est à moins de radiusKm " +
+                             "(5 par défaut, 50 au plus) sont renvoyées, les plus proches d'abord. " +
                              "Réservé aux chauffeurs dont le compte est entièrement validé (UserStatus = ACTIVE). " +
                              "Un chauffeur en PENDING_COMPANY_VERIFICATION ou PENDING_ADMIN_APPROVAL ne peut ni voir ni accepter les courses.")
     @ApiResponses({
@@ -54,7 +56,9 @@ public class RideRequestController {
     })
     @PreAuthorize("hasAuthority('CHAUFFEUR')")
     @GetMapping("/ready")
-    public ResponseEntity<?> getReadyForPickup() {
+    public ResponseEntity<?> getReadyForPickup(@RequestParam(required = false) Double lat,
+                                               @RequestParam(required = false) Double lng,
+                                               @RequestParam(defaultValue = "5") double radiusKm) {
         com.malitrans.transport.model.Utilisateur currentUser = SecurityUtil.getCurrentUser();
         if (currentUser.getRole() != com.malitrans.transport.model.Role.CHAUFFEUR) {
             throw new AccessDeniedException("Only drivers can view available rides");
@@ -64,7 +68,17 @@ public class RideRequestController {
             return ResponseEntity.status(403).body(
                 java.util.Map.of("error", "Driver account must be fully validated (ACTIVE) to view available rides. Current status: " + status));
         }
-        return ResponseEntity.ok(service.getReadyForPickupRequests());
+        if (lat != null || lng != null) {
+            if (lat == null || lng == null) {
+                return ResponseEntity.badRequest().body(java.util.Map.of("error", "lat and lng must be provided together"));
+            }
+            try {
+                return ResponseEntity.ok(service.getReadyForPickupRequestsNear(currentUser.getId(), lat, lng, Math.min(radiusKm, 50)));
+            } catch (IllegalArgumentException e) {
+                return ResponseEntity.badRequest().body(java.util.Map.of("error", e.getMessage()));
+            }
+        }
+        return ResponseEntity.ok(service.getReadyForPickupRequests(currentUser.getId()));
     }
 
     @GetMapping("/validate-info")
@@ -150,6 +164,25 @@ public class RideRequestController {
         }
     }
 
+    @Operation(summary = "Refuser une offre exclusive (Chauffeur)",
+               description = "En mode de dispatch exclusif, refuse la course proposée au chauffeur authentifié : " +
+                           "l'offre passe immédiatement au chauffeur suivant. driverId est extrait du JWT.")
+    @ApiResponses({
+        @ApiResponse(responseCode = "204", description = "Offre refusée"),
+        @ApiResponse(responseCode = "409", description = "Aucune offre en cours pour ce chauffeur"),
+        @ApiResponse(responseCode = "403", description = "Accès refusé - doit être un chauffeur")
+    })
+    @PreAuthorize("hasAuthority('CHAUFFEUR')")
+    @PostMapping("/{id}/offer/decline")
+    public ResponseEntity<?> declineOffer(@PathVariable Long id) {
+        try {
+            service.declineOffer(id, SecurityUtil.getCurrentUserId());
+            return ResponseEntity.noContent().build();
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(409).body(java.util.Map.of("error", e.getMessage()));
+        }
+    }
+
     @Operation(summary = "Valider une demande (Client ou Supplier)", 
                description = "Valide une demande en attente. " +
                            "Change le statut à READY_FOR_PICKUP, génère les QR codes, et notifie tous les chauffeurs. " +
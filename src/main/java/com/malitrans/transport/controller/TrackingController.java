@@ -1,29 +1,70 @@
 package com.malitrans.transport.controller;
 
+import com.malitrans.transport.dto.DriverLocationMessage;
 import com.malitrans.transport.dto.LocationMessage;
+import com.malitrans.transport.security.SecurityUtil;
+import com.malitrans.transport.service.ActiveRideIndex;
+import com.malitrans.transport.service.RideRequestService;
+import com.malitrans.transport.service.RideTrailService;
 import com.malitrans.transport.service.TrackingService;
 import org.springframework.messaging.handler.annotation.MessageMapping;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.Authentication;
 import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseBody;
 
+import java.security.Principal;
 import java.util.Map;
 
 @Controller
 public class TrackingController {
 
+    private static final int MAX_TRAIL_POINTS = 5000;
+
     private final TrackingService trackingService;
+    private final RideTrailService rideTrailService;
+    private final ActiveRideIndex activeRideIndex;
+    private final RideRequestService rideRequestService;
 
-    public TrackingController(TrackingService trackingService) {
+    public TrackingController(TrackingService trackingService, RideTrailService rideTrailService,
+                              ActiveRideIndex activeRideIndex, RideRequestService rideRequestService) {
         this.trackingService = trackingService;
+        this.rideTrailService = rideTrailService;
+        this.activeRideIndex = activeRideIndex;
+        this.rideRequestService = rideRequestService;
     }
 
+    /**
+     * Authentification, propriété de la course et débit contrôlés en amont par StompAuthChannelInterceptor.
+     */
     @MessageMapping("/driver/location")
-    public void handleDriverLocation(LocationMessage message) {
-        trackingService.publishDriverLocation(message);
+    public void handleDriverLocation(LocationMessage message, Principal principal) {
+        trackingService.publishDriverLocation(driverId(principal), message);
+    }
+
+    /**
+     * Variante binaire (WebSocket natif, content-type application/octet-stream) : trame LocationFrameCodec de 22 octets.
+     */
+    @MessageMapping("/driver/location.bin")
+    public void handleDriverLocationFrame(byte[] frame, Principal principal) {
+        trackingService.publishDriverFrame(driverId(principal), frame);
+    }
+
+    /**
+     * Position chauffeur sans course, diffusée sur toutes ses courses actives (session STOMP authentifiée).
+     */
+    @MessageMapping("/driver/position")
+    public void handleDriverPosition(DriverLocationMessage message, Principal principal) {
+        Long driverId = driverId(principal);
+        if (driverId != null) {
+            trackingService.publishDriverFix(driverId, message);
+        }
     }
 
     @PostMapping("/tracking/location")
@@ -33,8 +74,51 @@ public class TrackingController {
         if (message == null || message.getRideId() == null) {
             return ResponseEntity.badRequest().body(Map.of("error", "rideId obligatoire"));
         }
+        if (!activeRideIndex.isActiveRide(SecurityUtil.getCurrentUserId(), message.getRideId())) {
+            return ResponseEntity.status(403).body(Map.of("error", "Course non assignée à ce chauffeur"));
+        }
 
-        trackingService.publishDriverLocation(message);
+        trackingService.publishDriverLocation(SecurityUtil.getCurrentUserId(), message);
         return ResponseEntity.ok(Map.of("status", "ok"));
     }
+
+    /**
+     * Une seule position pour toutes les courses actives du chauffeur authentifié.
+     */
+    @PostMapping("/tracking/driver/location")
+    @ResponseBody
+    @PreAuthorize("hasAuthority('CHAUFFEUR')")
+    public ResponseEntity<?> publishDriverFixHttp(@RequestBody DriverLocationMessage message) {
+        if (message == null) {
+            return ResponseEntity.badRequest().body(Map.of("error", "Position obligatoire"));
+        }
+
+        int rides = trackingService.publishDriverFix(SecurityUtil.getCurrentUserId(), message);
+        return ResponseEntity.ok(Map.of("status", "ok", "rides", rides));
+    }
+
+    /**
+     * Trace de la course simplifiée (Douglas-Peucker) à au plus maxPoints points.
+     * Réservée aux participants de la course, aux administrateurs et au manager de l'entreprise du chauffeur.
+     */
+    @GetMapping("/tracking/{rideId}/trail")
+    @ResponseBody
+    @PreAuthorize("isAuthenticated()")
+    public ResponseEntity<?> getTrail(@PathVariable Long rideId,
+                                      @RequestParam(defaultValue = "200") int maxPoints,
+                                      @RequestParam(defaultValue = "0") double toleranceMeters) {
+        if (!rideRequestService.canViewTracking(rideId, SecurityUtil.getCurrentUser())) {
+            return ResponseEntity.status(403).body(Map.of("error", "Accès refusé à la trace de cette course"));
+        }
+        int budget = Math.max(2, Math.min(maxPoints, MAX_TRAIL_POINTS));
+        return ResponseEntity.ok(rideTrailService.getTrail(rideId, budget, toleranceMeters));
+    }
+
+    /**
+     * Identifiant du chauffeur de la session STOMP (posé par StompAuthChannelInterceptor), ou null.
+     */
+    private static Long driverId(Principal principal) {
+        return principal instanceof Authentication authentication && authentication.getDetails() instanceof Long id
+                ? id : null;
+    }
 }
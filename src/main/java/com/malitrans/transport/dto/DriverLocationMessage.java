@@ -0,0 +1,43 @@
+package com.malitrans.transport.dto;
+
+/**
+ * Position d'un chauffeur, sans course : diffusée sur toutes ses courses actives.
+ */
+public class DriverLocationMessage {
+    private double latitude;
+    private double longitude;
+    private String timestamp;
+
+    public DriverLocationMessage() {
+    }
+
+    public DriverLocationMessage(double latitude, double longitude, String timestamp) {
+        this.latitude = latitude;
+        this.longitude = longitude;
+        this.timestamp = timestamp;
+    }
+
+    public double getLatitude() {
+        return latitude;
+    }
+
+    public void setLatitude(double latitude) {
+        this.latitude = latitude;
+    }
+
+    public double getLongitude() {
+        return longitude;
+    }
+
+    public void setLongitude(double longitude) {
+        this.longitude = longitude;
+    }
+
+    public String getTimestamp() {
+        return timestamp;
+    }
+
+    public void setTimestamp(String timestamp) {
+        this.timestamp = timestamp;
+    }
+}
@@ -0,0 +1,64 @@
+package com.malitrans.transport.dto;
+
+/**
+ * Instantané agrégé de la flotte d'une entreprise, publié sur /topic/fleet/{companyId} :
+ * une entrée par cellule occupée (centroïde des chauffeurs et effectif), tableaux parallèles.
+ * Chaque message décrit les chauffeurs connus d'un seul nœud (champ node) et compte au plus
+ * app.tracking.fleet.max-cells cellules.
+ * Contrat côté client :
+ * - broker simple (un seul nœud) : chaque message remplace le précédent ;
+ * - broker relay (plusieurs nœuds) : chaque nœud publie à chaque tick, écouté ou non, l'instantané partiel
+ *   des chauffeurs qu'il reçoit. Le client garde le dernier message par node, remplace celui-ci à chaque
+ *   réception, oublie un node silencieux depuis plus de quelques ticks, et affiche l'union des cellules
+ *   (les pas cellDegrees peuvent différer d'un node à l'autre ; un chauffeur n'est compté que par le
+ *   nœud qui reçoit ses positions). La vue fusionnée compte donc au plus max-cells cellules par nœud.
+ */
+public class FleetSnapshotDTO {
+    private Long companyId;
+    private String node; // Nœud émetteur : avec le broker relay, chaque nœud publie les chauffeurs qu'il reçoit
+    private String timestamp;
+    private double cellDegrees; // Pas de la grille après regroupement
+    private int drivers;
+    private double[] latitudes;
+    private double[] longitudes;
+    private int[] counts;
+
+    public FleetSnapshotDTO() {
+    }
+
+    public FleetSnapshotDTO(Long companyId, String node, String timestamp, double cellDegrees, int drivers,
+                            double[] latitudes, double[] longitudes, int[] counts) {
+        this.companyId = companyId;
+        this.node = node;
+        this.timestamp = timestamp;
+        this.cellDegrees = cellDegrees;
+        this.drivers = drivers;
+        this.latitudes = latitudes;
+        this.longitudes = longitudes;
+        this.counts = counts;
+    }
+
+    public Long getCompanyId() { return companyId; }
+    public void setCompanyId(Long companyId) { this.companyId = companyId; }
+
+    public String getNode() { return node; }
+    public void setNode(String node) { this.node = node; }
+
+    public String getTimestamp() { return timestamp; }
+    public void setTimestamp(String timestamp) { this.timestamp = timestamp; }
+
+    public double getCellDegrees() { return cellDegrees; }
+    public void setCellDegrees(double cellDegrees) { this.cellDegrees = cellDegrees; }
+
+    public int getDrivers() { return drivers; }
+    public void setDrivers(int drivers) { this.drivers = drivers; }
+
+    public double[] getLatitudes() { return latitudes; }
+    public void setLatitudes(double[] latitudes) { this.latitudes = latitudes; }
+
+    public double[] getLongitudes() { return longitudes; }
+    public void setLongitudes(double[] longitudes) { this.longitudes = longitudes; }
+
+    public int[] getCounts() { return counts; }
+    public void setCounts(int[] counts) { this.counts = counts; }
+}
@@ -1,10 +1,16 @@
 package com.malitrans.transport.dto;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+
 public class LocationMessage {
     private Long rideId;
     private double latitude;
     private double longitude;
     private String timestamp;
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Integer etaSeconds; // Estimation serveur (absente si destination inconnue)
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Integer remainingMeters;
 
     public LocationMessage() {
     }
@@ -47,4 +53,20 @@ public class LocationMessage {
     public void setTimestamp(String timestamp) {
         this.timestamp = timestamp;
     }
+
+    public Integer getEtaSeconds() {
+        return etaSeconds;
+    }
+
+    public void setEtaSeconds(Integer etaSeconds) {
+        this.etaSeconds = etaSeconds;
+    }
+
+    public Integer getRemainingMeters() {
+        return remainingMeters;
+    }
+
+    public void setRemainingMeters(Integer remainingMeters) {
+        this.remainingMeters = remainingMeters;
+    }
 }
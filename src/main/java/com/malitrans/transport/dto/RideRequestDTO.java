@@ -6,6 +6,10 @@ public class RideRequestDTO {
     private Long id;
     private String origin;
     private String destination;
+    private Double originLatitude;
+    private Double originLongitude;
+    private Double destinationLatitude;
+    private Double destinationLongitude;
     private Long clientId;
     private Long supplierId;
     private Long chauffeurId;
@@ -19,6 +23,9 @@ public class RideRequestDTO {
     private String packageDescription; // Description du colis à livrer
     private Boolean isSenderClient; // true si le Client envoie, false si le Client reçoit
     private LocalDateTime createdAt;
+    private Integer travelledMeters; // Distance parcourue, connue une fois la course terminée
+    private Long offeredDriverId; // Chauffeur détenant l'offre exclusive en cours (mode exclusive)
+    private LocalDateTime offerExpiresAt; // Échéance de l'offre exclusive
 
     public Long getId() {
         return id;
@@ -44,6 +51,38 @@ public class RideRequestDTO {
         this.destination = destination;
     }
 
+    public Double getOriginLatitude() {
+        return originLatitude;
+    }
+
+    public void setOriginLatitude(Double originLatitude) {
+        this.originLatitude = originLatitude;
+    }
+
+    public Double getOriginLongitude() {
+        return originLongitude;
+    }
+
+    public void setOriginLongitude(Double originLongitude) {
+        this.originLongitude = originLongitude;
+    }
+
+    public Double getDestinationLatitude() {
+        return destinationLatitude;
+    }
+
+    public void setDestinationLatitude(Double destinationLatitude) {
+        this.destinationLatitude = destinationLatitude;
+    }
+
+    public Double getDestinationLongitude() {
+        return destinationLongitude;
+    }
+
+    public void setDestinationLongitude(Double destinationLongitude) {
+        this.destinationLongitude = destinationLongitude;
+    }
+
     public Long getClientId() {
         return clientId;
     }
@@ -139,4 +178,28 @@ public class RideRequestDTO {
     public void setCreatedAt(LocalDateTime createdAt) {
         this.createdAt = createdAt;
     }
+
+    public Integer getTravelledMeters() {
+        return travelledMeters;
+    }
+
+    public void setTravelledMeters(Integer travelledMeters) {
+        this.travelledMeters = travelledMeters;
+    }
+
+    public Long getOfferedDriverId() {
+        return offeredDriverId;
+    }
+
+    public void setOfferedDriverId(Long offeredDriverId) {
+        this.offeredDriverId = offeredDriverId;
+    }
+
+    public LocalDateTime getOfferExpiresAt() {
+        return offerExpiresAt;
+    }
+
+    public void setOfferExpiresAt(LocalDateTime offerExpiresAt) {
+        this.offerExpiresAt = offerExpiresAt;
+    }
 }
@@ -0,0 +1,27 @@
+package com.malitrans.transport.dto;
+
+import java.util.List;
+
+public class RideTrailDTO {
+    private Long rideId;
+    private int totalPoints; // Nombre de points enregistrés avant simplification
+    private List<TrailPointDTO> points;
+
+    public RideTrailDTO() {
+    }
+
+    public RideTrailDTO(Long rideId, int totalPoints, List<TrailPointDTO> points) {
+        this.rideId = rideId;
+        this.totalPoints = totalPoints;
+        this.points = points;
+    }
+
+    public Long getRideId() { return rideId; }
+    public void setRideId(Long rideId) { this.rideId = rideId; }
+
+    public int getTotalPoints() { return totalPoints; }
+    public void setTotalPoints(int totalPoints) { this.totalPoints = totalPoints; }
+
+    public List<TrailPointDTO> getPoints() { return points; }
+    public void setPoints(List<TrailPointDTO> points) { this.points = points; }
+}
@@ -0,0 +1,25 @@
+package com.malitrans.transport.dto;
+
+public class TrailPointDTO {
+    private double latitude;
+    private double longitude;
+    private long timestamp; // epoch ms du fix GPS
+
+    public TrailPointDTO() {
+    }
+
+    public TrailPointDTO(double latitude, double longitude, long timestamp) {
+        this.latitude = latitude;
+        this.longitude = longitude;
+        this.timestamp = timestamp;
+    }
+
+    public double getLatitude() { return latitude; }
+    public void setLatitude(double latitude) { this.latitude = latitude; }
+
+    public double getLongitude() { return longitude; }
+    public void setLongitude(double longitude) { this.longitude = longitude; }
+
+    public long getTimestamp() { return timestamp; }
+    public void setTimestamp(long timestamp) { this.timestamp = timestamp; }
+}
@@ -0,0 +1,11 @@
+package com.malitrans.transport.exception;
+
+/**
+ * Levée lorsque le code OTP d'inscription n'a pas pu être enregistré ou envoyé après la création du compte.
+ * Le compte reste en attente de vérification : le client peut redemander un code (POST /auth/resend-registration-otp).
+ */
+public class OtpDeliveryException extends RuntimeException {
+    public OtpDeliveryException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
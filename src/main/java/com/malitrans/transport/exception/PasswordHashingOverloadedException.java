@@ -0,0 +1,11 @@
+package com.malitrans.transport.exception;
+
+/**
+ * Levée lorsque le pool de hachage des mots de passe est saturé (file pleine ou délai d'attente dépassé).
+ * Traduite en HTTP 503 : le client doit réessayer plus tard.
+ */
+public class PasswordHashingOverloadedException extends RuntimeException {
+    public PasswordHashingOverloadedException(String message) {
+        super(message);
+    }
+}
@@ -34,6 +34,9 @@ public interface RideRequestMapper {
     @Mapping(target = "validationToken", ignore = true) // Generated in service
     @Mapping(target = "validationTokenCreatedAt", ignore = true) // Managed by validation-link lifecycle
     @Mapping(target = "validationTokenUsedAt", ignore = true) // Managed by validation-link lifecycle
+    @Mapping(target = "travelledMeters", ignore = true) // Recorded from the location stream on completion
+    @Mapping(target = "offeredDriverId", ignore = true) // Managed by exclusive dispatch
+    @Mapping(target = "offerExpiresAt", ignore = true) // Managed by exclusive dispatch
     RideRequest toEntity(RideRequestDTO dto);
     
     default String map(FlowType flowType) {
@@ -0,0 +1,77 @@
+package com.malitrans.transport.model;
+
+import jakarta.persistence.*;
+import java.time.Instant;
+
+/**
+ * Point de reprise d'un traitement de rattrapage parcouru par identifiant croissant :
+ * le traitement reprend après lastId, y compris après un redémarrage.
+ */
+@Entity
+@Table(name = "backfill_checkpoint")
+public class BackfillCheckpoint {
+
+    @Id
+    @Column(name = "job_name", length = 64)
+    private String jobName;
+
+    @Column(name = "last_id", nullable = false)
+    private long lastId;
+
+    @Column(nullable = false)
+    private long scanned;
+
+    @Column(nullable = false)
+    private long updated;
+
+    @Column(name = "updated_at", nullable = false)
+    private Instant updatedAt;
+
+    public BackfillCheckpoint() {
+    }
+
+    public BackfillCheckpoint(String jobName) {
+        this.jobName = jobName;
+        this.updatedAt = Instant.now();
+    }
+
+    public String getJobName() {
+        return jobName;
+    }
+
+    public void setJobName(String jobName) {
+        this.jobName = jobName;
+    }
+
+    public long getLastId() {
+        return lastId;
+    }
+
+    public void setLastId(long lastId) {
+        this.lastId = lastId;
+    }
+
+    public long getScanned() {
+        return scanned;
+    }
+
+    public void setScanned(long scanned) {
+        this.scanned = scanned;
+    }
+
+    public long getUpdated() {
+        return updated;
+    }
+
+    public void setUpdated(long updated) {
+        this.updated = updated;
+    }
+
+    public Instant getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(Instant updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+}
@@ -0,0 +1,56 @@
+package com.malitrans.transport.model;
+
+import jakarta.persistence.*;
+import java.time.Instant;
+
+/**
+ * Adresse résolue pour une cellule de coordonnées arrondies (cache persistant du géocodage inverse).
+ * La clé encode la précision et les coordonnées arrondies, ex. "4:126400:-80000".
+ */
+@Entity
+@Table(name = "geocode_cache")
+public class GeocodeCacheEntry {
+
+    @Id
+    @Column(name = "cell_key", length = 64)
+    private String cellKey;
+
+    @Column(nullable = false, length = 512)
+    private String address;
+
+    @Column(name = "resolved_at", nullable = false)
+    private Instant resolvedAt;
+
+    public GeocodeCacheEntry() {
+    }
+
+    public GeocodeCacheEntry(String cellKey, String address, Instant resolvedAt) {
+        this.cellKey = cellKey;
+        this.address = address;
+        this.resolvedAt = resolvedAt;
+    }
+
+    public String getCellKey() {
+        return cellKey;
+    }
+
+    public void setCellKey(String cellKey) {
+        this.cellKey = cellKey;
+    }
+
+    public String getAddress() {
+        return address;
+    }
+
+    public void setAddress(String address) {
+        this.address = address;
+    }
+
+    public Instant getResolvedAt() {
+        return resolvedAt;
+    }
+
+    public void setResolvedAt(Instant resolvedAt) {
+        this.resolvedAt = resolvedAt;
+    }
+}
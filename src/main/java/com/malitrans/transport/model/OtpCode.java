@@ -6,9 +6,12 @@ import java.time.Instant;
 /**
  * Code OTP à usage unique, lié à un utilisateur.
  * Utilisé pour la vérification d'inscription (type REGISTRATION).
+ * Un seul code actif par (téléphone, type) : la vérification se fait par un accès indexé sur cette clé.
  */
 @Entity
-@Table(name = "otp_code")
+@Table(name = "otp_code",
+        uniqueConstraints = @UniqueConstraint(name = "uk_otp_code_phone_type", columnNames = {"phone", "type"}),
+        indexes = @Index(name = "idx_otp_code_expiry_date", columnList = "expiry_date"))
 public class OtpCode {
 
     @Id
@@ -18,13 +21,16 @@ public class OtpCode {
     @Column(nullable = false, length = 6)
     private String code;
 
-    @Column(nullable = false)
+    @Column(name = "expiry_date", nullable = false)
     private Instant expiryDate;
 
     @Enumerated(EnumType.STRING)
-    @Column(nullable = false, length = 20)
+    @Column(name = "type", nullable = false, length = 20)
     private OtpType type;
 
+    @Column(name = "phone", length = 32)
+    private String phone; // Téléphone de l'utilisateur au format international (clé de recherche)
+
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "user_id", nullable = false)
     private Utilisateur user;
@@ -61,6 +67,14 @@ public class OtpCode {
         this.type = type;
     }
 
+    public String getPhone() {
+        return phone;
+    }
+
+    public void setPhone(String phone) {
+        this.phone = phone;
+    }
+
     public Utilisateur getUser() {
         return user;
     }
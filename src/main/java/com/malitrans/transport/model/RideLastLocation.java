@@ -0,0 +1,70 @@
+package com.malitrans.transport.model;
+
+import jakarta.persistence.*;
+import java.time.Instant;
+
+/**
+ * Dernière position connue d'une course, partagée entre les nœuds (mode multi-nœuds, broker relay).
+ * Une ligne par course, écrite en différé par SharedLastLocationStore.
+ */
+@Entity
+@Table(name = "ride_last_location",
+        indexes = @Index(name = "idx_ride_last_location_updated_at", columnList = "updated_at"))
+public class RideLastLocation {
+
+    @Id
+    @Column(name = "ride_id")
+    private Long rideId;
+
+    @Column(nullable = false)
+    private double latitude;
+
+    @Column(nullable = false)
+    private double longitude;
+
+    @Column(name = "fix_at", nullable = false)
+    private Instant fixAt;
+
+    @Column(name = "updated_at", nullable = false)
+    private Instant updatedAt;
+
+    public Long getRideId() {
+        return rideId;
+    }
+
+    public void setRideId(Long rideId) {
+        this.rideId = rideId;
+    }
+
+    public double getLatitude() {
+        return latitude;
+    }
+
+    public void setLatitude(double latitude) {
+        this.latitude = latitude;
+    }
+
+    public double getLongitude() {
+        return longitude;
+    }
+
+    public void setLongitude(double longitude) {
+        this.longitude = longitude;
+    }
+
+    public Instant getFixAt() {
+        return fixAt;
+    }
+
+    public void setFixAt(Instant fixAt) {
+        this.fixAt = fixAt;
+    }
+
+    public Instant getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(Instant updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+}
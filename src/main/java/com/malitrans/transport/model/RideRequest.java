@@ -2,8 +2,14 @@ package com.malitrans.transport.model;
 
 import jakarta.persistence.*;
 import java.time.LocalDateTime;
+import java.util.Locale;
 
 @Entity
+@Table(indexes = {
+        // Liste des courses prêtes (statut + destination exploitable) et recherche par zone de collecte
+        @Index(name = "idx_ride_status_destination_resolved", columnList = "validation_status, destination_resolved"),
+        @Index(name = "idx_ride_status_origin_position", columnList = "validation_status, origin_latitude, origin_longitude")
+})
 public class RideRequest {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -12,6 +18,20 @@ public class RideRequest {
     private String origin;
     private String destination;
 
+    // Coordonnées structurées (nullables) du point de collecte et de livraison
+    @Column(name = "origin_latitude")
+    private Double originLatitude;
+    @Column(name = "origin_longitude")
+    private Double originLongitude;
+    @Column(name = "destination_latitude")
+    private Double destinationLatitude;
+    @Column(name = "destination_longitude")
+    private Double destinationLongitude;
+
+    // Destination exploitable par un chauffeur, calculée à l'écriture (null : ancienne ligne, à calculer)
+    @Column(name = "destination_resolved")
+    private Boolean destinationResolved;
+
     @ManyToOne
     private Utilisateur client;
 
@@ -45,6 +65,16 @@ public class RideRequest {
 
     private LocalDateTime createdAt;
 
+    // Distance parcourue (compteur du flux de positions), enregistrée au passage en COMPLETED
+    @Column(name = "travelled_meters")
+    private Integer travelledMeters;
+
+    // Offre exclusive en cours (mode de dispatch exclusive) : seul ce chauffeur peut accepter avant l'échéance
+    @Column(name = "offered_driver_id")
+    private Long offeredDriverId;
+    @Column(name = "offer_expires_at")
+    private LocalDateTime offerExpiresAt;
+
     @PrePersist
     protected void onCreate() {
         if (createdAt == null) {
@@ -56,6 +86,46 @@ public class RideRequest {
         if (validationTokenCreatedAt == null) {
             validationTokenCreatedAt = createdAt;
         }
+        destinationResolved = hasUsableDestination();
+    }
+
+    @PreUpdate
+    protected void onUpdate() {
+        destinationResolved = hasUsableDestination();
+    }
+
+    /**
+     * Destination exploitable : coordonnées structurées connues, ou texte qui n'est pas un libellé d'attente.
+     * Le résultat est mémorisé dans destination_resolved et invalidé quand la destination change.
+     */
+    public boolean hasUsableDestination() {
+        if (destinationResolved == null) {
+            destinationResolved = (destinationLatitude != null && destinationLongitude != null)
+                    || isUsableDestinationText(destination);
+        }
+        return destinationResolved;
+    }
+
+    public static boolean isUsableDestinationText(String destination) {
+        if (destination == null) {
+            return false;
+        }
+        String value = destination.trim();
+        if (value.isEmpty()) {
+            return false;
+        }
+        String lower = value.toLowerCase(Locale.ROOT);
+        return !lower.equals("...")
+                && !lower.equals("-")
+                && !lower.equals("null")
+                && !lower.contains("a confirmer")
+                && !lower.contains("à confirmer")
+                && !lower.contains("destination non renseignee")
+                && !lower.contains("destination non renseignée")
+                && !lower.contains("adresse de reception")
+                && !lower.contains("adresse de réception")
+                && !lower.contains("position a renseigner")
+                && !lower.contains("position à renseigner");
     }
 
     // getters and setters
@@ -81,6 +151,45 @@ public class RideRequest {
 
     public void setDestination(String destination) {
         this.destination = destination;
+        this.destinationResolved = null;
+    }
+
+    public Double getOriginLatitude() {
+        return originLatitude;
+    }
+
+    public void setOriginLatitude(Double originLatitude) {
+        this.originLatitude = originLatitude;
+    }
+
+    public Double getOriginLongitude() {
+        return originLongitude;
+    }
+
+    public void setOriginLongitude(Double originLongitude) {
+        this.originLongitude = originLongitude;
+    }
+
+    public Double getDestinationLatitude() {
+        return destinationLatitude;
+    }
+
+    public void setDestinationLatitude(Double destinationLatitude) {
+        this.destinationLatitude = destinationLatitude;
+        this.destinationResolved = null;
+    }
+
+    public Double getDestinationLongitude() {
+        return destinationLongitude;
+    }
+
+    public void setDestinationLongitude(Double destinationLongitude) {
+        this.destinationLongitude = destinationLongitude;
+        this.destinationResolved = null;
+    }
+
+    public Boolean getDestinationResolved() {
+        return destinationResolved;
     }
 
     public Utilisateur getClient() {
@@ -210,4 +319,28 @@ public class RideRequest {
     public void setValidationTokenUsedAt(LocalDateTime validationTokenUsedAt) {
         this.validationTokenUsedAt = validationTokenUsedAt;
     }
+
+    public Integer getTravelledMeters() {
+        return travelledMeters;
+    }
+
+    public void setTravelledMeters(Integer travelledMeters) {
+        this.travelledMeters = travelledMeters;
+    }
+
+    public Long getOfferedDriverId() {
+        return offeredDriverId;
+    }
+
+    public void setOfferedDriverId(Long offeredDriverId) {
+        this.offeredDriverId = offeredDriverId;
+    }
+
+    public LocalDateTime getOfferExpiresAt() {
+        return offerExpiresAt;
+    }
+
+    public void setOfferExpiresAt(LocalDateTime offerExpiresAt) {
+        this.offerExpiresAt = offerExpiresAt;
+    }
 }
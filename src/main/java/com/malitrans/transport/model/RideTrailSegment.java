@@ -0,0 +1,82 @@
+package com.malitrans.transport.model;
+
+import jakarta.persistence.*;
+import java.time.Instant;
+
+/**
+ * Segment append-only de la trace GPS d'une course : un lot de positions encodé par TrailCodec.
+ * Écrit par RideTrailService en tâche de fond (inserts JDBC groupés grâce à la séquence).
+ */
+@Entity
+@Table(name = "ride_trail_segment",
+        indexes = @Index(name = "idx_ride_trail_segment_ride", columnList = "ride_id, first_fix_at"))
+public class RideTrailSegment {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "ride_trail_segment_seq")
+    @SequenceGenerator(name = "ride_trail_segment_seq", sequenceName = "ride_trail_segment_seq", allocationSize = 50)
+    private Long id;
+
+    @Column(name = "ride_id", nullable = false)
+    private Long rideId;
+
+    @Column(name = "point_count", nullable = false)
+    private int pointCount;
+
+    @Column(name = "first_fix_at", nullable = false)
+    private Instant firstFixAt;
+
+    @Column(name = "last_fix_at", nullable = false)
+    private Instant lastFixAt;
+
+    @Column(name = "data", nullable = false, length = 65536)
+    private byte[] data;
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Long getRideId() {
+        return rideId;
+    }
+
+    public void setRideId(Long rideId) {
+        this.rideId = rideId;
+    }
+
+    public int getPointCount() {
+        return pointCount;
+    }
+
+    public void setPointCount(int pointCount) {
+        this.pointCount = pointCount;
+    }
+
+    public Instant getFirstFixAt() {
+        return firstFixAt;
+    }
+
+    public void setFirstFixAt(Instant firstFixAt) {
+        this.firstFixAt = firstFixAt;
+    }
+
+    public Instant getLastFixAt() {
+        return lastFixAt;
+    }
+
+    public void setLastFixAt(Instant lastFixAt) {
+        this.lastFixAt = lastFixAt;
+    }
+
+    public byte[] getData() {
+        return data;
+    }
+
+    public void setData(byte[] data) {
+        this.data = data;
+    }
+}
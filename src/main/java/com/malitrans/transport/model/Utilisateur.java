@@ -37,6 +37,8 @@ public class Utilisateur {
 
     private boolean enabled = true;
 
+    private Boolean registrationPending; // true de l'inscription jusqu'à la vérification OTP (renvoi du code possible)
+
     private Boolean isOnline = false;
 
     public Boolean getIsOnline() {
@@ -47,6 +49,14 @@ public class Utilisateur {
         this.isOnline = isOnline;
     }
 
+    public Boolean getRegistrationPending() {
+        return registrationPending;
+    }
+
+    public void setRegistrationPending(Boolean registrationPending) {
+        this.registrationPending = registrationPending;
+    }
+
     // getters and setters
     public Long getId() {
         return id;
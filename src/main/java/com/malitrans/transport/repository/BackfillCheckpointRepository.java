@@ -0,0 +1,7 @@
+package com.malitrans.transport.repository;
+
+import com.malitrans.transport.model.BackfillCheckpoint;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface BackfillCheckpointRepository extends JpaRepository<BackfillCheckpoint, String> {
+}
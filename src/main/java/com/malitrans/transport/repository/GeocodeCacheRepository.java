@@ -0,0 +1,7 @@
+package com.malitrans.transport.repository;
+
+import com.malitrans.transport.model.GeocodeCacheEntry;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface GeocodeCacheRepository extends JpaRepository<GeocodeCacheEntry, String> {
+}
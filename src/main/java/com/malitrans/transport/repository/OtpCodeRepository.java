@@ -4,14 +4,29 @@ import com.malitrans.transport.model.OtpCode;
 import com.malitrans.transport.model.OtpType;
 import com.malitrans.transport.model.Utilisateur;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Instant;
 import java.util.Optional;
 
 public interface OtpCodeRepository extends JpaRepository<OtpCode, Long> {
 
-    Optional<OtpCode> findByCodeAndType(String code, OtpType type);
+    /**
+     * Recherche indexée (contrainte unique phone + type) du code actif d'un numéro.
+     */
+    Optional<OtpCode> findByPhoneAndType(String phone, OtpType type);
 
     void deleteByUser(Utilisateur user);
 
-    void deleteByUserAndType(Utilisateur user, OtpType type);
+    /**
+     * Supprime en une seule requête tous les codes expirés avant l'instant donné.
+     * @return Nombre de lignes supprimées
+     */
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM OtpCode o WHERE o.expiryDate < :now")
+    int deleteExpiredBefore(@Param("now") Instant now);
 }
@@ -0,0 +1,18 @@
+package com.malitrans.transport.repository;
+
+import com.malitrans.transport.model.RideLastLocation;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+
+public interface RideLastLocationRepository extends JpaRepository<RideLastLocation, Long> {
+
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM RideLastLocation l WHERE l.updatedAt < :cutoff")
+    int deleteUpdatedBefore(@Param("cutoff") Instant cutoff);
+}
@@ -6,9 +6,12 @@ import com.malitrans.transport.model.Utilisateur;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 
@@ -56,4 +59,119 @@ public interface RideRequestRepository extends JpaRepository<RideRequest, Long>
     List<RideRequest> findActiveByChauffeurOrderByCreatedAtDesc(
             @Param("chauffeur") Utilisateur chauffeur,
             @Param("statuses") List<ValidationStatus> statuses);
+
+    /**
+     * Courses d'un statut dont la destination est exploitable (index statut + destination_resolved), sans offre
+     * exclusive en cours ou offertes au chauffeur donné.
+     * Les anciennes lignes sans indicateur (null) sont renvoyées et vérifiées par l'appelant.
+     */
+    @Query("SELECT r FROM RideRequest r WHERE r.validationStatus = :status " +
+           "AND (r.destinationResolved = true OR r.destinationResolved IS NULL) " +
+           "AND (r.offeredDriverId IS NULL OR r.offeredDriverId = :driverId) " +
+           "ORDER BY r.createdAt DESC")
+    List<RideRequest> findWithResolvedDestinationByStatus(@Param("status") ValidationStatus status,
+                                                          @Param("driverId") Long driverId);
+
+    /**
+     * Courses d'un statut dont le point de collecte est dans le rectangle donné (index statut + position), sans
+     * offre exclusive en cours ou offertes au chauffeur donné.
+     * Préfiltre de la recherche par rayon : la distance exacte est vérifiée par l'appelant.
+     */
+    @Query("SELECT r FROM RideRequest r WHERE r.validationStatus = :status " +
+           "AND r.originLatitude BETWEEN :minLatitude AND :maxLatitude " +
+           "AND r.originLongitude BETWEEN :minLongitude AND :maxLongitude " +
+           "AND (r.destinationResolved = true OR r.destinationResolved IS NULL) " +
+           "AND (r.offeredDriverId IS NULL OR r.offeredDriverId = :driverId)")
+    List<RideRequest> findByStatusWithOriginInBox(@Param("status") ValidationStatus status,
+                                                  @Param("driverId") Long driverId,
+                                                  @Param("minLatitude") double minLatitude,
+                                                  @Param("maxLatitude") double maxLatitude,
+                                                  @Param("minLongitude") double minLongitude,
+                                                  @Param("maxLongitude") double maxLongitude);
+
+    /**
+     * Identifiants seuls (pas d'entité chargée) : alimente l'index des courses actives par chauffeur.
+     */
+    @Query("SELECT r.id FROM RideRequest r WHERE r.chauffeur.id = :chauffeurId " +
+           "AND r.validationStatus IN :statuses")
+    List<Long> findIdsByChauffeurIdAndStatusIn(
+            @Param("chauffeurId") Long chauffeurId,
+            @Param("statuses") List<ValidationStatus> statuses);
+
+    /**
+     * Remplace la destination seulement si elle vaut toujours expectedDestination (enrichissement asynchrone).
+     * @return 1 si la destination a été remplacée, 0 sinon
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE RideRequest r SET r.destination = :destination " +
+           "WHERE r.id = :id AND r.destination = :expectedDestination")
+    int updateDestinationIfUnchanged(@Param("id") Long id,
+                                     @Param("expectedDestination") String expectedDestination,
+                                     @Param("destination") String destination);
+
+    /**
+     * Passe l'offre exclusive au chauffeur donné (driverId null : offre retirée, course ouverte à tous),
+     * par compare-and-set sur l'état lu par l'appelant : la course est toujours dans le statut attendu et son offre
+     * est toujours (expectedHolder, expectedExpiry). expectedHolder null : course sans offre (ni détenteur ni échéance).
+     * Une offre acceptée (échéance effacée par claimOffer) ou reprise par un autre nœud ne correspond plus.
+     * @return 1 si l'offre a été mise à jour, 0 si elle a changé entre-temps ou si la course n'est plus à proposer
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE RideRequest r SET r.offeredDriverId = :driverId, r.offerExpiresAt = :expiresAt " +
+           "WHERE r.id = :id AND r.validationStatus = :status " +
+           "AND ((:expectedHolder IS NULL AND r.offeredDriverId IS NULL AND r.offerExpiresAt IS NULL) " +
+           "OR (r.offeredDriverId = :expectedHolder AND r.offerExpiresAt = :expectedExpiry))")
+    int updateOfferIfOpen(@Param("id") Long id,
+                          @Param("status") ValidationStatus status,
+                          @Param("expectedHolder") Long expectedHolder,
+                          @Param("expectedExpiry") LocalDateTime expectedExpiry,
+                          @Param("driverId") Long driverId,
+                          @Param("expiresAt") LocalDateTime expiresAt);
+
+    /**
+     * Offres exclusives des courses d'un statut échues avant la date donnée sans passer au candidat suivant.
+     */
+    @Query("SELECT r.id AS id, r.offeredDriverId AS offeredDriverId, r.offerExpiresAt AS offerExpiresAt " +
+           "FROM RideRequest r WHERE r.validationStatus = :status AND r.offerExpiresAt < :before")
+    List<OfferRow> findOffersExpiredBefore(@Param("status") ValidationStatus status,
+                                           @Param("before") LocalDateTime before);
+
+    /**
+     * Acceptation atomique de l'offre par son détenteur avant l'échéance : efface l'échéance, ce qui interdit
+     * tout passage de l'offre au candidat suivant.
+     * @return 1 si l'offre a été acceptée, 0 si elle a expiré ou appartient à un autre chauffeur
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE RideRequest r SET r.offerExpiresAt = NULL " +
+           "WHERE r.id = :id AND r.validationStatus = :status " +
+           "AND r.offeredDriverId = :driverId AND r.offerExpiresAt > :now")
+    int claimOffer(@Param("id") Long id,
+                   @Param("status") ValidationStatus status,
+                   @Param("driverId") Long driverId,
+                   @Param("now") LocalDateTime now);
+
+    /**
+     * Page suivante (par id croissant, après afterId) des destinations pouvant être des coordonnées brutes "lat,lng".
+     * Pagination par clé : pas d'OFFSET, coût constant quelle que soit la position dans la table.
+     */
+    @Query("SELECT r.id AS id, r.destination AS destination FROM RideRequest r " +
+           "WHERE r.id > :afterId AND r.destination LIKE '%,%' ORDER BY r.id")
+    List<DestinationRow> findDestinationsAfter(@Param("afterId") Long afterId, Pageable pageable);
+
+    interface DestinationRow {
+        Long getId();
+
+        String getDestination();
+    }
+
+    interface OfferRow {
+        Long getId();
+
+        Long getOfferedDriverId();
+
+        LocalDateTime getOfferExpiresAt();
+    }
 }
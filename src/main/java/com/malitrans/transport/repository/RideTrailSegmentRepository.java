@@ -0,0 +1,11 @@
+package com.malitrans.transport.repository;
+
+import com.malitrans.transport.model.RideTrailSegment;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.util.List;
+
+public interface RideTrailSegmentRepository extends JpaRepository<RideTrailSegment, Long> {
+
+    List<RideTrailSegment> findByRideIdOrderByFirstFixAtAscIdAsc(Long rideId);
+}
@@ -0,0 +1,229 @@
+package com.malitrans.transport.security;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.malitrans.transport.util.PhoneUtil;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Limitation de débit des endpoints d'authentification coûteux (BCrypt / OTP) :
+ * POST /auth/login, /auth/register, /auth/verify-registration et /auth/resend-registration-otp.
+ * Deux token buckets doivent accorder un jeton : un par IP cliente et un par identifiant (username / téléphone).
+ * L'IP cliente est l'adresse de la connexion ; X-Forwarded-For n'est lu que si cette connexion vient d'un proxy
+ * de confiance (app.rate-limit.auth.trusted-proxies), sinon l'en-tête, modifiable à chaque requête, est ignoré.
+ * Le corps est toujours lu (au plus 8 Ko, y compris en transfert chunked) : au-delà, la requête est refusée (413).
+ * Enregistré comme filtre servlet avant la chaîne Spring Security, donc avant AuthController.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 20)
+public class AuthRateLimitFilter extends OncePerRequestFilter {
+
+    private static final Logger logger = LoggerFactory.getLogger(AuthRateLimitFilter.class);
+    private static final int MAX_BUFFERED_BODY_BYTES = 8 * 1024;
+    private static final int STRIPES = 64;
+
+    /** Endpoint protégé → champ JSON portant l'identifiant. */
+    private static final Map<String, String> PROTECTED_ENDPOINTS = Map.of(
+            "/auth/login", "username",
+            "/auth/register", "phone",
+            "/auth/verify-registration", "phone",
+            "/auth/resend-registration-otp", "phone");
+
+    private final boolean enabled;
+    private final TokenBucketRateLimiter ipLimiter;
+    private final TokenBucketRateLimiter identifierLimiter;
+    private final ObjectMapper objectMapper;
+    private final PhoneUtil phoneUtil;
+    private final Set<String> trustedProxies;
+    private final Map<String, EndpointMeters> meters = new HashMap<>();
+
+    public AuthRateLimitFilter(ObjectMapper objectMapper,
+                               PhoneUtil phoneUtil,
+                               MeterRegistry meterRegistry,
+                               @Value("${app.rate-limit.auth.enabled:true}") boolean enabled,
+                               @Value("${app.rate-limit.auth.ip.capacity:30}") long ipCapacity,
+                               @Value("${app.rate-limit.auth.ip.refill-per-minute:30}") long ipRefillPerMinute,
+                               @Value("${app.rate-limit.auth.identifier.capacity:5}") long identifierCapacity,
+                               @Value("${app.rate-limit.auth.identifier.refill-per-minute:5}") long identifierRefillPerMinute,
+                               @Value("${app.rate-limit.auth.max-keys:100000}") int maxKeys,
+                               @Value("${app.rate-limit.auth.trusted-proxies:}") String trustedProxies) {
+        this.objectMapper = objectMapper;
+        this.phoneUtil = phoneUtil;
+        this.enabled = enabled;
+        this.trustedProxies = Arrays.stream(trustedProxies.split(","))
+                .map(String::trim)
+                .filter(proxy -> !proxy.isEmpty())
+                .collect(Collectors.toUnmodifiableSet());
+        int maxKeysPerStripe = Math.max(1, maxKeys / STRIPES);
+        this.ipLimiter = new TokenBucketRateLimiter(ipCapacity, ipRefillPerMinute, 1, TimeUnit.MINUTES,
+                STRIPES, maxKeysPerStripe);
+        this.identifierLimiter = new TokenBucketRateLimiter(identifierCapacity, identifierRefillPerMinute, 1,
+                TimeUnit.MINUTES, STRIPES, maxKeysPerStripe);
+
+        for (String endpoint : PROTECTED_ENDPOINTS.keySet()) {
+            meters.put(endpoint, new EndpointMeters(meterRegistry, endpoint));
+        }
+        Gauge.builder("auth.rate_limit.tracked_keys", ipLimiter, TokenBucketRateLimiter::trackedKeys)
+                .tag("limit", "ip")
+                .register(meterRegistry);
+        Gauge.builder("auth.rate_limit.tracked_keys", identifierLimiter, TokenBucketRateLimiter::trackedKeys)
+                .tag("limit", "identifier")
+                .register(meterRegistry);
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !enabled
+                || !"POST".equalsIgnoreCase(request.getMethod())
+                || !PROTECTED_ENDPOINTS.containsKey(pathWithinApplication(request));
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        String endpoint = pathWithinApplication(request);
+        EndpointMeters endpointMeters = meters.get(endpoint);
+
+        long waitNanos = ipLimiter.tryAcquire("ip:" + resolveClientIp(request));
+        if (waitNanos > 0) {
+            endpointMeters.rejectedByIp.increment();
+            reject(request, response, endpoint, "ip", waitNanos);
+            return;
+        }
+
+        // Longueur annoncée ignorée (absente en chunked) : lecture d'au plus MAX_BUFFERED_BODY_BYTES + 1 octets
+        byte[] body = request.getContentLengthLong() > MAX_BUFFERED_BODY_BYTES
+                ? null : request.getInputStream().readNBytes(MAX_BUFFERED_BODY_BYTES + 1);
+        if (body == null || body.length > MAX_BUFFERED_BODY_BYTES) {
+            endpointMeters.rejectedBySize.increment();
+            response.setStatus(HttpStatus.PAYLOAD_TOO_LARGE.value());
+            response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+            response.setCharacterEncoding("UTF-8");
+            objectMapper.writeValue(response.getOutputStream(), Map.of("error", "Request body too large"));
+            return;
+        }
+        CachedBodyHttpServletRequest cached = new CachedBodyHttpServletRequest(request, body);
+
+        String identifier = extractIdentifier(body, PROTECTED_ENDPOINTS.get(endpoint));
+        if (identifier != null) {
+            waitNanos = identifierLimiter.tryAcquire("id:" + identifier);
+            if (waitNanos > 0) {
+                endpointMeters.rejectedByIdentifier.increment();
+                reject(request, response, endpoint, "identifier", waitNanos);
+                return;
+            }
+        }
+
+        endpointMeters.allowed.increment();
+        filterChain.doFilter(cached, response);
+    }
+
+    private void reject(HttpServletRequest request, HttpServletResponse response, String endpoint, String limit,
+                        long waitNanos) throws IOException {
+        long retryAfterSeconds = Math.max(1, TimeUnit.NANOSECONDS.toSeconds(waitNanos + 999_999_999L));
+        logger.warn("Rate limit ({}) exceeded on {} from {}", limit, endpoint, resolveClientIp(request));
+        response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+        response.setHeader("Retry-After", Long.toString(retryAfterSeconds));
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setCharacterEncoding("UTF-8");
+        objectMapper.writeValue(response.getOutputStream(), Map.of(
+                "error", "Too many requests. Please retry later.",
+                "retryAfterSeconds", retryAfterSeconds));
+    }
+
+    private String extractIdentifier(byte[] body, String field) {
+        if (body.length == 0) {
+            return null;
+        }
+        try {
+            JsonNode value = objectMapper.readTree(body).path(field);
+            if (!value.isTextual() || value.asText().isBlank()) {
+                return null;
+            }
+            String raw = value.asText().trim();
+            if ("phone".equals(field)) {
+                String normalized = phoneUtil.toInternational(raw);
+                return normalized != null ? normalized : raw;
+            }
+            return raw.toLowerCase(Locale.ROOT);
+        } catch (IOException e) {
+            // Corps invalide : le contrôleur renverra l'erreur, seule la limite IP s'applique
+            return null;
+        }
+    }
+
+    private String pathWithinApplication(HttpServletRequest request) {
+        String uri = request.getRequestURI();
+        String contextPath = request.getContextPath();
+        if (contextPath != null && !contextPath.isEmpty() && uri.startsWith(contextPath)) {
+            return uri.substring(contextPath.length());
+        }
+        return uri;
+    }
+
+    /**
+     * Adresse de la connexion ; derrière un proxy de confiance, dernière adresse de X-Forwarded-For qui n'est pas
+     * elle-même un proxy de confiance (les valeurs plus à gauche sont fournies par le client).
+     */
+    String resolveClientIp(HttpServletRequest request) {
+        String remoteAddr = request.getRemoteAddr();
+        String forwardedFor = request.getHeader("X-Forwarded-For");
+        if (!trustedProxies.contains(remoteAddr) || forwardedFor == null || forwardedFor.isBlank()) {
+            return remoteAddr;
+        }
+        String[] hops = forwardedFor.split(",");
+        for (int i = hops.length - 1; i >= 0; i--) {
+            String hop = hops[i].trim();
+            if (!hop.isEmpty() && !trustedProxies.contains(hop)) {
+                return hop;
+            }
+        }
+        return remoteAddr;
+    }
+
+    private static final class EndpointMeters {
+        private final Counter allowed;
+        private final Counter rejectedByIp;
+        private final Counter rejectedByIdentifier;
+        private final Counter rejectedBySize;
+
+        private EndpointMeters(MeterRegistry registry, String endpoint) {
+            this.allowed = Counter.builder("auth.rate_limit.requests")
+                    .tag("endpoint", endpoint).tag("outcome", "allowed").tag("limit", "none")
+                    .register(registry);
+            this.rejectedByIp = Counter.builder("auth.rate_limit.requests")
+                    .tag("endpoint", endpoint).tag("outcome", "rejected").tag("limit", "ip")
+                    .register(registry);
+            this.rejectedByIdentifier = Counter.builder("auth.rate_limit.requests")
+                    .tag("endpoint", endpoint).tag("outcome", "rejected").tag("limit", "identifier")
+                    .register(registry);
+            this.rejectedBySize = Counter.builder("auth.rate_limit.requests")
+                    .tag("endpoint", endpoint).tag("outcome", "rejected").tag("limit", "body_size")
+                    .register(registry);
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package com.malitrans.transport.security;
+
+import com.malitrans.transport.exception.PasswordHashingOverloadedException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * PasswordEncoder qui exécute le hachage (encode / matches) sur un pool dédié et borné
+ * au lieu des threads Tomcat. Utilisé par AuthServiceImpl.register et par le
+ * DaoAuthenticationProvider derrière authenticationManager.authenticate.
+ * Si la file du pool est pleine, ou si l'attente dépasse le délai configuré, on échoue
+ * immédiatement avec PasswordHashingOverloadedException (HTTP 503).
+ */
+public class BoundedPasswordEncoder implements PasswordEncoder {
+
+    private final PasswordEncoder delegate;
+    private final ThreadPoolExecutor executor;
+    private final long waitTimeoutMillis;
+    private final OperationMeters encodeMeters;
+    private final OperationMeters matchesMeters;
+    private final Counter rejectedQueueFull;
+    private final Counter rejectedTimeout;
+
+    public BoundedPasswordEncoder(PasswordEncoder delegate, ThreadPoolExecutor executor, long waitTimeoutMillis,
+                                  MeterRegistry meterRegistry) {
+        this.delegate = delegate;
+        this.executor = executor;
+        this.waitTimeoutMillis = waitTimeoutMillis;
+        this.encodeMeters = new OperationMeters(meterRegistry, "encode");
+        this.matchesMeters = new OperationMeters(meterRegistry, "matches");
+        this.rejectedQueueFull = Counter.builder("auth.password_hash.rejected")
+                .tag("reason", "queue_full")
+                .register(meterRegistry);
+        this.rejectedTimeout = Counter.builder("auth.password_hash.rejected")
+                .tag("reason", "timeout")
+                .register(meterRegistry);
+        Gauge.builder("auth.password_hash.queue_depth", executor, e -> e.getQueue().size())
+                .register(meterRegistry);
+        Gauge.builder("auth.password_hash.active", executor, ThreadPoolExecutor::getActiveCount)
+                .register(meterRegistry);
+    }
+
+    @Override
+    public String encode(CharSequence rawPassword) {
+        return runBounded(encodeMeters, () -> delegate.encode(rawPassword));
+    }
+
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        return runBounded(matchesMeters, () -> delegate.matches(rawPassword, encodedPassword));
+    }
+
+    @Override
+    public boolean upgradeEncoding(String encodedPassword) {
+        return delegate.upgradeEncoding(encodedPassword);
+    }
+
+    private <T> T runBounded(OperationMeters meters, Supplier<T> task) {
+        long submittedAt = System.nanoTime();
+        Future<T> future;
+        try {
+            future = executor.submit(() -> {
+                long startedAt = System.nanoTime();
+                meters.queueWait.record(startedAt - submittedAt, TimeUnit.NANOSECONDS);
+                try {
+                    return task.get();
+                } finally {
+                    meters.hashTime.record(System.nanoTime() - startedAt, TimeUnit.NANOSECONDS);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            rejectedQueueFull.increment();
+            throw new PasswordHashingOverloadedException("Password hashing queue is full");
+        }
+
+        try {
+            return future.get(waitTimeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            rejectedTimeout.increment();
+            throw new PasswordHashingOverloadedException("Password hashing timed out");
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new PasswordHashingOverloadedException("Password hashing interrupted");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            if (cause instanceof Error error) {
+                throw error;
+            }
+            throw new IllegalStateException("Password hashing failed", cause);
+        }
+    }
+
+    private static final class OperationMeters {
+        private final Timer queueWait;
+        private final Timer hashTime;
+
+        private OperationMeters(MeterRegistry registry, String operation) {
+            this.queueWait = Timer.builder("auth.password_hash.queue_wait")
+                    .tag("operation", operation)
+                    .register(registry);
+            this.hashTime = Timer.builder("auth.password_hash.duration")
+                    .tag("operation", operation)
+                    .register(registry);
+        }
+    }
+}
@@ -0,0 +1,220 @@
+package com.malitrans.transport.security;
+
+import com.google.api.client.googleapis.auth.oauth2.GoogleIdToken;
+import com.google.api.client.googleapis.auth.oauth2.GoogleIdTokenVerifier;
+import com.google.api.client.googleapis.auth.oauth2.GooglePublicKeysManager;
+import com.google.api.client.googleapis.javanet.GoogleNetHttpTransport;
+import com.google.api.client.http.HttpTransport;
+import com.google.api.client.json.gson.GsonFactory;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Vérification des Google ID tokens avec :
+ * - clés publiques Google préchargées et rafraîchies en arrière-plan (aucun fetch sur le chemin de la requête),
+ * - rafraîchissement forcé (borné dans le temps) quand une signature échoue, pour absorber la rotation des clés,
+ * - cache des vérifications réussies, indexé par SHA-256 du token, valable jusqu'à l'expiration du token.
+ * L'URL des certificats est configurable (google.auth.public-certs-url) pour pointer vers un serveur local en test.
+ */
+@Component
+public class GoogleTokenVerifier {
+
+    private static final Logger logger = LoggerFactory.getLogger(GoogleTokenVerifier.class);
+
+    private final GooglePublicKeysManager publicKeysManager;
+    private final GoogleIdTokenVerifier verifier;
+    private final boolean prefetchEnabled;
+    private final int cacheMaxEntries;
+    private final long minForcedRefreshIntervalMillis;
+    private final Map<String, CachedVerification> verifiedTokens = new ConcurrentHashMap<>();
+    private final AtomicLong lastRefreshMillis = new AtomicLong();
+
+    private final Timer cacheHitTimer;
+    private final Timer validTimer;
+    private final Timer invalidTimer;
+    private final Counter scheduledRefreshSuccess;
+    private final Counter scheduledRefreshFailure;
+    private final Counter forcedRefreshSuccess;
+    private final Counter forcedRefreshFailure;
+
+    public GoogleTokenVerifier(@Value("${google.client-id:}") String googleClientId,
+                               @Value("${google.auth.public-certs-url:https://www.googleapis.com/oauth2/v1/certs}") String publicCertsUrl,
+                               @Value("${google.auth.key-prefetch-enabled:true}") boolean prefetchEnabled,
+                               @Value("${google.auth.verification-cache-size:10000}") int cacheMaxEntries,
+                               @Value("${google.auth.min-forced-refresh-interval-ms:60000}") long minForcedRefreshIntervalMillis,
+                               MeterRegistry meterRegistry) {
+        this.prefetchEnabled = prefetchEnabled;
+        this.cacheMaxEntries = cacheMaxEntries;
+        this.minForcedRefreshIntervalMillis = minForcedRefreshIntervalMillis;
+
+        if (googleClientId == null || googleClientId.isBlank()) {
+            this.publicKeysManager = null;
+            this.verifier = null;
+        } else {
+            try {
+                HttpTransport transport = GoogleNetHttpTransport.newTrustedTransport();
+                this.publicKeysManager = new GooglePublicKeysManager.Builder(transport, GsonFactory.getDefaultInstance())
+                        .setPublicCertsEncodedUrl(publicCertsUrl)
+                        .build();
+                this.verifier = new GoogleIdTokenVerifier.Builder(publicKeysManager)
+                        .setAudience(List.of(googleClientId))
+                        .build();
+            } catch (GeneralSecurityException | IOException e) {
+                throw new IllegalStateException("Impossible d'initialiser Google Sign-In.", e);
+            }
+        }
+
+        this.cacheHitTimer = verifyTimer(meterRegistry, "hit", "valid");
+        this.validTimer = verifyTimer(meterRegistry, "miss", "valid");
+        this.invalidTimer = verifyTimer(meterRegistry, "miss", "invalid");
+        this.scheduledRefreshSuccess = refreshCounter(meterRegistry, "scheduled", "success");
+        this.scheduledRefreshFailure = refreshCounter(meterRegistry, "scheduled", "failure");
+        this.forcedRefreshSuccess = refreshCounter(meterRegistry, "forced", "success");
+        this.forcedRefreshFailure = refreshCounter(meterRegistry, "forced", "failure");
+        Gauge.builder("auth.google.verification_cache.size", verifiedTokens, Map::size)
+                .register(meterRegistry);
+    }
+
+    public boolean isConfigured() {
+        return verifier != null;
+    }
+
+    /**
+     * Vérifie un Google ID token (signature, audience, émetteur, expiration).
+     * @param idTokenString Token brut envoyé par l'application
+     * @return Le payload si le token est valide, null sinon
+     */
+    public GoogleIdToken.Payload verify(String idTokenString) throws GeneralSecurityException, IOException {
+        if (verifier == null) {
+            throw new IllegalStateException("Google client ID non configure.");
+        }
+        long start = System.nanoTime();
+        String cacheKey = digest(idTokenString);
+
+        CachedVerification cached = verifiedTokens.get(cacheKey);
+        if (cached != null) {
+            if (cached.expiresAtMillis > System.currentTimeMillis()) {
+                cacheHitTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                return cached.payload;
+            }
+            verifiedTokens.remove(cacheKey, cached);
+        }
+
+        GoogleIdToken idToken = verifier.verify(idTokenString);
+        if (idToken == null && forceRefreshIfAllowed()) {
+            // Signature inconnue possible après une rotation des clés Google : un seul nouvel essai
+            idToken = verifier.verify(idTokenString);
+        }
+
+        if (idToken == null) {
+            invalidTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            return null;
+        }
+
+        GoogleIdToken.Payload payload = idToken.getPayload();
+        cache(cacheKey, payload);
+        validTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        return payload;
+    }
+
+    /**
+     * Préchargement au démarrage puis rafraîchissement périodique des clés publiques Google,
+     * bien avant leur expiration (max-age Google de plusieurs heures).
+     */
+    @Scheduled(fixedDelayString = "${google.auth.key-refresh-interval-ms:1800000}")
+    public void refreshPublicKeys() {
+        if (!prefetchEnabled || publicKeysManager == null) {
+            return;
+        }
+        try {
+            publicKeysManager.refresh();
+            lastRefreshMillis.set(System.currentTimeMillis());
+            scheduledRefreshSuccess.increment();
+        } catch (GeneralSecurityException | IOException e) {
+            scheduledRefreshFailure.increment();
+            logger.warn("Unable to refresh Google public keys: {}", e.getMessage());
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${google.auth.verification-cache-purge-interval-ms:60000}")
+    public void purgeExpiredVerifications() {
+        long now = System.currentTimeMillis();
+        verifiedTokens.entrySet().removeIf(entry -> entry.getValue().expiresAtMillis <= now);
+    }
+
+    private boolean forceRefreshIfAllowed() {
+        long now = System.currentTimeMillis();
+        long last = lastRefreshMillis.get();
+        if (now - last < minForcedRefreshIntervalMillis || !lastRefreshMillis.compareAndSet(last, now)) {
+            return false;
+        }
+        try {
+            publicKeysManager.refresh();
+            forcedRefreshSuccess.increment();
+            return true;
+        } catch (GeneralSecurityException | IOException e) {
+            forcedRefreshFailure.increment();
+            logger.warn("Forced refresh of Google public keys failed: {}", e.getMessage());
+            return false;
+        }
+    }
+
+    private void cache(String cacheKey, GoogleIdToken.Payload payload) {
+        Long expirationSeconds = payload.getExpirationTimeSeconds();
+        if (expirationSeconds == null) {
+            return;
+        }
+        if (verifiedTokens.size() >= cacheMaxEntries) {
+            purgeExpiredVerifications();
+            if (verifiedTokens.size() >= cacheMaxEntries) {
+                return;
+            }
+        }
+        verifiedTokens.put(cacheKey, new CachedVerification(payload, TimeUnit.SECONDS.toMillis(expirationSeconds)));
+    }
+
+    private static String digest(String token) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 algorithm is not available", e);
+        }
+    }
+
+    private static Timer verifyTimer(MeterRegistry registry, String cache, String result) {
+        return Timer.builder("auth.google.verify")
+                .tag("cache", cache)
+                .tag("result", result)
+                .register(registry);
+    }
+
+    private static Counter refreshCounter(MeterRegistry registry, String trigger, String outcome) {
+        return Counter.builder("auth.google.keys.refresh")
+                .tag("trigger", trigger)
+                .tag("outcome", outcome)
+                .register(registry);
+    }
+
+    private record CachedVerification(GoogleIdToken.Payload payload, long expiresAtMillis) {
+    }
+}
@@ -1,5 +1,7 @@
 package com.malitrans.transport.security;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.authentication.AuthenticationManager;
@@ -13,9 +15,13 @@ import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
 import org.springframework.web.cors.CorsConfiguration;
 import org.springframework.web.cors.CorsConfigurationSource;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
 import org.springframework.web.cors.UrlBasedCorsConfigurationSource;
 
 import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 @Configuration
 @EnableMethodSecurity
@@ -27,9 +33,27 @@ public class SecurityConfig {
         this.jwtAuthenticationFilter = jwtAuthenticationFilter;
     }
 
+    /**
+     * Pool dédié au hachage BCrypt, dimensionné sur le nombre de coeurs (threads = 0).
+     * La file est bornée : au-delà, les demandes échouent immédiatement (HTTP 503).
+     */
+    @Bean(destroyMethod = "shutdown")
+    public ThreadPoolExecutor passwordHashingExecutor(
+            @Value("${app.password-hashing.threads:0}") int threads,
+            @Value("${app.password-hashing.queue-capacity:64}") int queueCapacity) {
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("password-hash-");
+        threadFactory.setDaemon(true);
+        return new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), threadFactory, new ThreadPoolExecutor.AbortPolicy());
+    }
+
     @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    public PasswordEncoder passwordEncoder(ThreadPoolExecutor passwordHashingExecutor,
+                                           MeterRegistry meterRegistry,
+                                           @Value("${app.password-hashing.wait-timeout-ms:5000}") long waitTimeoutMs) {
+        return new BoundedPasswordEncoder(new BCryptPasswordEncoder(), passwordHashingExecutor, waitTimeoutMs,
+                meterRegistry);
     }
 
     @Bean
@@ -65,6 +89,7 @@ public class SecurityConfig {
                         .requestMatchers("/public/**").permitAll() // Public endpoints: /public/companies
                         .requestMatchers("/health").permitAll() // Koyeb health check: /api/health
                         .requestMatchers("/ws-tracking/**").permitAll() // WebSockets tracking (pas de JWT)
+                        .requestMatchers("/ws-tracking-native/**").permitAll() // WebSocket natif (trames binaires)
                         .requestMatchers("/test-tracking.html", "/validate.html").permitAll() // Pages statiques
                         .requestMatchers("/ride/validate-info").permitAll() // Infos publiques via token uniquement
                         .requestMatchers("/config/maps-key").permitAll() // Clé API Google Maps public
@@ -0,0 +1,278 @@
+package com.malitrans.transport.security;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.malitrans.transport.model.Role;
+import com.malitrans.transport.model.Utilisateur;
+import com.malitrans.transport.repository.UtilisateurRepository;
+import com.malitrans.transport.service.ActiveRideIndex;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessageDeliveryException;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.MessageHeaderAccessor;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Contrôle d'accès du canal STOMP entrant, avant tout traitement applicatif et avant le broker :
+ * - CONNECT : authentification par le JWT existant (en-tête natif "Authorization: Bearer ..."),
+ *   une connexion sans token reste anonyme (abonnement aux positions uniquement) ;
+ * - SEND vers /app/driver/** : chauffeur authentifié, token bucket par session,
+ *   et pour les positions par course, la course doit faire partie de ses courses actives (ActiveRideIndex) ;
+ * - SEND direct vers /topic/** : interdit (seul le serveur publie sur le broker) ;
+ * - SUBSCRIBE à /topic/fleet/{companyId} : administrateur, ou manager de cette entreprise ; un abonnement
+ *   /topic à motif (caractères génériques du broker simple ou de RabbitMQ, segments vides ou relatifs) pourrait
+ *   couvrir la carte de flotte : réservé aux administrateurs.
+ * Les messages refusés sont supprimés silencieusement (compteur tracking.stomp.inbound).
+ */
+@Component
+public class StompAuthChannelInterceptor implements ChannelInterceptor {
+
+    private static final Logger logger = LoggerFactory.getLogger(StompAuthChannelInterceptor.class);
+
+    public static final String USER_ID_ATTRIBUTE = "tracking.userId";
+    private static final String DRIVER_ATTRIBUTE = "tracking.driver";
+    private static final String ADMIN_ATTRIBUTE = "tracking.admin";
+    private static final String MANAGED_COMPANY_ATTRIBUTE = "tracking.managedCompanyId";
+    private static final String TOPIC_PREFIX = "/topic";
+    private static final String FLEET_TOPIC_PREFIX = "/topic/fleet/";
+    // AntPathMatcher (broker simple) : * ? {} ; RabbitMQ : * #
+    private static final String WILDCARD_CHARACTERS = "*?#{}";
+    private static final String RIDE_LOCATION = "/app/driver/location";
+    private static final String RIDE_LOCATION_FRAME = "/app/driver/location.bin";
+    private static final Set<String> DRIVER_DESTINATIONS =
+            Set.of(RIDE_LOCATION, RIDE_LOCATION_FRAME, "/app/driver/position");
+
+    private final JwtTokenUtil jwtTokenUtil;
+    private final UtilisateurRepository utilisateurRepository;
+    private final ActiveRideIndex activeRideIndex;
+    private final ObjectMapper objectMapper;
+    private final TokenBucketRateLimiter sessionLimiter;
+
+    private final Counter accepted;
+    private final Counter unauthenticated;
+    private final Counter forbidden;
+    private final Counter rateLimited;
+
+    public StompAuthChannelInterceptor(JwtTokenUtil jwtTokenUtil,
+                                       UtilisateurRepository utilisateurRepository,
+                                       ActiveRideIndex activeRideIndex,
+                                       ObjectMapper objectMapper,
+                                       MeterRegistry meterRegistry,
+                                       @Value("${app.tracking.stomp.rate-limit.capacity:20}") long capacity,
+                                       @Value("${app.tracking.stomp.rate-limit.refill-per-second:5}") long refillPerSecond,
+                                       @Value("${app.tracking.stomp.rate-limit.max-sessions:100000}") int maxSessions) {
+        this.jwtTokenUtil = jwtTokenUtil;
+        this.utilisateurRepository = utilisateurRepository;
+        this.activeRideIndex = activeRideIndex;
+        this.objectMapper = objectMapper;
+        this.sessionLimiter = new TokenBucketRateLimiter(capacity, refillPerSecond, 1, TimeUnit.SECONDS,
+                64, Math.max(1, maxSessions / 64));
+
+        this.accepted = inboundCounter(meterRegistry, "accepted");
+        this.unauthenticated = inboundCounter(meterRegistry, "unauthenticated");
+        this.forbidden = inboundCounter(meterRegistry, "forbidden");
+        this.rateLimited = inboundCounter(meterRegistry, "rate_limited");
+        Gauge.builder("tracking.stomp.rate_limit.sessions", sessionLimiter, TokenBucketRateLimiter::trackedKeys)
+                .register(meterRegistry);
+    }
+
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        MessageHeaders headers = message.getHeaders();
+        SimpMessageType type = SimpMessageHeaderAccessor.getMessageType(headers);
+        if (type == SimpMessageType.CONNECT) {
+            authenticate(message);
+        } else if (type == SimpMessageType.MESSAGE) {
+            return filterSend(message, headers);
+        } else if (type == SimpMessageType.SUBSCRIBE) {
+            return filterSubscribe(message, headers);
+        } else if (type == SimpMessageType.DISCONNECT) {
+            String sessionId = SimpMessageHeaderAccessor.getSessionId(headers);
+            if (sessionId != null) {
+                sessionLimiter.forget(sessionId);
+            }
+        }
+        return message;
+    }
+
+    private void authenticate(Message<?> message) {
+        StompHeaderAccessor accessor = MessageHeaderAccessor.getAccessor(message, StompHeaderAccessor.class);
+        if (accessor == null) {
+            return;
+        }
+        String header = accessor.getFirstNativeHeader("Authorization");
+        if (header == null || header.isBlank()) {
+            return; // Connexion anonyme : abonnements publics uniquement
+        }
+        String token = header.startsWith("Bearer ") ? header.substring(7) : header;
+        if (!jwtTokenUtil.validateToken(token)) {
+            throw new MessageDeliveryException(message, "Invalid or expired token");
+        }
+
+        String username = jwtTokenUtil.getUsernameFromToken(token);
+        Utilisateur user = utilisateurRepository.findByUsername(username)
+                .filter(Utilisateur::isEnabled)
+                .orElseThrow(() -> new MessageDeliveryException(message, "Unknown or disabled user"));
+        List<String> roles = jwtTokenUtil.getRolesFromToken(token);
+        List<SimpleGrantedAuthority> authorities = roles.stream().map(SimpleGrantedAuthority::new).toList();
+
+        UsernamePasswordAuthenticationToken authentication =
+                new UsernamePasswordAuthenticationToken(username, null, authorities);
+        authentication.setDetails(user.getId());
+        accessor.setUser(authentication);
+
+        Map<String, Object> attributes = accessor.getSessionAttributes();
+        if (attributes != null) {
+            attributes.put(USER_ID_ATTRIBUTE, user.getId());
+            attributes.put(DRIVER_ATTRIBUTE, roles.contains(Role.CHAUFFEUR.name()));
+            attributes.put(ADMIN_ATTRIBUTE, roles.contains(Role.ADMIN.name()));
+            if (roles.contains(Role.COMPANY_MANAGER.name()) && user.getCompany() != null) {
+                attributes.put(MANAGED_COMPANY_ATTRIBUTE, user.getCompany().getId());
+            }
+        }
+    }
+
+    /**
+     * Carte de flotte réservée aux administrateurs et au manager de l'entreprise concernée ;
+     * abonnements /topic à motif réservés aux administrateurs.
+     */
+    private Message<?> filterSubscribe(Message<?> message, MessageHeaders headers) {
+        String destination = SimpMessageHeaderAccessor.getDestination(headers);
+        if (destination == null || !destination.startsWith(TOPIC_PREFIX)) {
+            return message;
+        }
+        boolean pattern = isPattern(destination);
+        if (!pattern && !destination.startsWith(FLEET_TOPIC_PREFIX)) {
+            return message;
+        }
+        Map<String, Object> attributes = SimpMessageHeaderAccessor.getSessionAttributes(headers);
+        if (attributes == null || attributes.get(USER_ID_ATTRIBUTE) == null) {
+            unauthenticated.increment();
+            return null;
+        }
+        if (Boolean.TRUE.equals(attributes.get(ADMIN_ATTRIBUTE))) {
+            return message;
+        }
+        Object managedCompanyId = attributes.get(MANAGED_COMPANY_ATTRIBUTE);
+        if (pattern || managedCompanyId == null
+                || !destination.equals(FLEET_TOPIC_PREFIX + managedCompanyId)) {
+            forbidden.increment();
+            return null;
+        }
+        return message;
+    }
+
+    /**
+     * @return true si la destination n'est pas un nom exact : caractère générique, ou segment vide / "." / ".."
+     *         (ignorés par AntPathMatcher, "/topic//fleet/1" correspondrait à "/topic/fleet/1")
+     */
+    private static boolean isPattern(String destination) {
+        for (int i = 0; i < destination.length(); i++) {
+            if (WILDCARD_CHARACTERS.indexOf(destination.charAt(i)) >= 0) {
+                return true;
+            }
+        }
+        for (String segment : destination.substring(1).split("/", -1)) {
+            if (segment.isEmpty() || segment.equals(".") || segment.equals("..")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private Message<?> filterSend(Message<?> message, MessageHeaders headers) {
+        String destination = SimpMessageHeaderAccessor.getDestination(headers);
+        if (destination == null) {
+            return message;
+        }
+        if (destination.startsWith("/topic")) {
+            forbidden.increment();
+            return null;
+        }
+        if (!DRIVER_DESTINATIONS.contains(destination)) {
+            return message;
+        }
+
+        Map<String, Object> attributes = SimpMessageHeaderAccessor.getSessionAttributes(headers);
+        Object userId = attributes != null ? attributes.get(USER_ID_ATTRIBUTE) : null;
+        if (!(userId instanceof Long driverId) || !Boolean.TRUE.equals(attributes.get(DRIVER_ATTRIBUTE))) {
+            unauthenticated.increment();
+            return null;
+        }
+
+        String sessionId = SimpMessageHeaderAccessor.getSessionId(headers);
+        if (sessionId != null && sessionLimiter.tryAcquire(sessionId) > 0) {
+            rateLimited.increment();
+            return null;
+        }
+
+        if (RIDE_LOCATION.equals(destination) || RIDE_LOCATION_FRAME.equals(destination)) {
+            Long rideId = extractRideId(message.getPayload(), RIDE_LOCATION_FRAME.equals(destination));
+            if (rideId == null || !activeRideIndex.isActiveRide(driverId, rideId)) {
+                forbidden.increment();
+                return null;
+            }
+        }
+        accepted.increment();
+        return message;
+    }
+
+    /**
+     * Lit uniquement le rideId : 8 premiers octets d'une trame binaire, ou premier champ "rideId" du JSON
+     * (lecture en flux, sans construire l'objet).
+     */
+    private Long extractRideId(Object payload, boolean binaryFrame) {
+        if (!(payload instanceof byte[] bytes)) {
+            return null;
+        }
+        if (binaryFrame) {
+            return bytes.length >= Long.BYTES ? ByteBuffer.wrap(bytes).getLong() : null;
+        }
+        try (JsonParser parser = objectMapper.getFactory().createParser(bytes)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                return null;
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken value = parser.nextToken();
+                if ("rideId".equals(field)) {
+                    if (value == JsonToken.VALUE_NUMBER_INT) {
+                        return parser.getLongValue();
+                    }
+                    return value == JsonToken.VALUE_STRING ? Long.valueOf(parser.getText().trim()) : null;
+                }
+                parser.skipChildren();
+            }
+        } catch (IOException | NumberFormatException e) {
+            logger.debug("Unreadable location payload: {}", e.getMessage());
+        }
+        return null;
+    }
+
+    private static Counter inboundCounter(MeterRegistry registry, String outcome) {
+        return Counter.builder("tracking.stomp.inbound")
+                .tag("outcome", outcome)
+                .register(registry);
+    }
+}
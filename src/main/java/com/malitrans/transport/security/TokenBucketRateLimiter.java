@@ -0,0 +1,122 @@
+package com.malitrans.transport.security;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Limiteur de débit en mémoire (token bucket), une file de jetons par clé.
+ * Les clés sont réparties sur des "stripes" verrouillées indépendamment pour limiter la contention,
+ * et chaque stripe est bornée (LRU) : un bucket évincé est simplement recréé plein.
+ */
+public class TokenBucketRateLimiter {
+
+    private final long capacity;
+    private final double tokensPerNano;
+    private final int maxKeysPerStripe;
+    private final LongSupplier nanoClock;
+    private final Stripe[] stripes;
+
+    /**
+     * @param capacity        Nombre maximum de jetons (rafale autorisée)
+     * @param refillTokens    Jetons ajoutés par période
+     * @param refillPeriod    Durée de la période de recharge
+     * @param refillUnit      Unité de la période
+     * @param stripeCount     Nombre de stripes (puissance de 2 recommandée)
+     * @param maxKeysPerStripe Nombre maximum de clés suivies par stripe
+     */
+    public TokenBucketRateLimiter(long capacity, long refillTokens, long refillPeriod, TimeUnit refillUnit,
+                                  int stripeCount, int maxKeysPerStripe) {
+        this(capacity, refillTokens, refillPeriod, refillUnit, stripeCount, maxKeysPerStripe, System::nanoTime);
+    }
+
+    TokenBucketRateLimiter(long capacity, long refillTokens, long refillPeriod, TimeUnit refillUnit,
+                           int stripeCount, int maxKeysPerStripe, LongSupplier nanoClock) {
+        if (capacity < 1 || refillTokens < 1 || refillPeriod < 1 || stripeCount < 1 || maxKeysPerStripe < 1) {
+            throw new IllegalArgumentException("Rate limiter settings must be positive");
+        }
+        this.capacity = capacity;
+        this.tokensPerNano = (double) refillTokens / refillUnit.toNanos(refillPeriod);
+        this.maxKeysPerStripe = maxKeysPerStripe;
+        this.nanoClock = nanoClock;
+        this.stripes = new Stripe[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            stripes[i] = new Stripe();
+        }
+    }
+
+    /**
+     * Tente de consommer un jeton pour la clé.
+     * @param key Clé de limitation (ex: "ip:1.2.3.4")
+     * @return 0 si le jeton est accordé, sinon le délai (nanosecondes) avant qu'un jeton soit disponible
+     */
+    public long tryAcquire(String key) {
+        Stripe stripe = stripes[Math.floorMod(key.hashCode(), stripes.length)];
+        long now = nanoClock.getAsLong();
+        synchronized (stripe) {
+            Bucket bucket = stripe.buckets.get(key);
+            if (bucket == null) {
+                bucket = new Bucket(capacity, now);
+                stripe.buckets.put(key, bucket);
+            } else {
+                bucket.refill(now, capacity, tokensPerNano);
+            }
+            if (bucket.tokens >= 1.0) {
+                bucket.tokens -= 1.0;
+                return 0L;
+            }
+            return (long) Math.ceil((1.0 - bucket.tokens) / tokensPerNano);
+        }
+    }
+
+    /**
+     * Oublie le bucket d'une clé (ex: session fermée).
+     */
+    public void forget(String key) {
+        Stripe stripe = stripes[Math.floorMod(key.hashCode(), stripes.length)];
+        synchronized (stripe) {
+            stripe.buckets.remove(key);
+        }
+    }
+
+    /**
+     * Nombre de clés actuellement suivies (toutes stripes confondues).
+     */
+    public int trackedKeys() {
+        int total = 0;
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                total += stripe.buckets.size();
+            }
+        }
+        return total;
+    }
+
+    private final class Stripe {
+        private final Map<String, Bucket> buckets = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Bucket> eldest) {
+                return size() > maxKeysPerStripe;
+            }
+        };
+    }
+
+    private static final class Bucket {
+        private double tokens;
+        private long lastRefillNanos;
+
+        private Bucket(long capacity, long now) {
+            this.tokens = capacity;
+            this.lastRefillNanos = now;
+        }
+
+        private void refill(long now, long capacity, double tokensPerNano) {
+            long elapsed = now - lastRefillNanos;
+            if (elapsed > 0) {
+                tokens = Math.min(capacity, tokens + elapsed * tokensPerNano);
+                lastRefillNanos = now;
+            }
+        }
+    }
+}
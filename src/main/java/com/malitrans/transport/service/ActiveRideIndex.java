@@ -0,0 +1,92 @@
+package com.malitrans.transport.service;
+
+import com.malitrans.transport.model.ValidationStatus;
+import com.malitrans.transport.repository.RideRequestRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Index en mémoire chauffeur → courses actives (DRIVER_ACCEPTED / IN_TRANSIT), utilisé pour diffuser
+ * une position chauffeur unique sur toutes ses courses sans requête SQL par message.
+ * Les entrées expirent après un TTL et sont invalidées par RideRequestService à chaque changement d'affectation.
+ */
+@Service
+public class ActiveRideIndex {
+
+    static final List<ValidationStatus> ACTIVE_STATUSES =
+            List.of(ValidationStatus.DRIVER_ACCEPTED, ValidationStatus.IN_TRANSIT);
+
+    private final RideRequestRepository rideRequestRepository;
+    private final long ttlMillis;
+    private final Map<Long, Entry> entries = new ConcurrentHashMap<>();
+    private final AtomicLong invalidations = new AtomicLong();
+
+    private final Counter hits;
+    private final Counter misses;
+
+    public ActiveRideIndex(RideRequestRepository rideRequestRepository,
+                           MeterRegistry meterRegistry,
+                           @Value("${app.tracking.active-rides.ttl-ms:30000}") long ttlMillis) {
+        this.rideRequestRepository = rideRequestRepository;
+        this.ttlMillis = ttlMillis;
+        this.hits = Counter.builder("tracking.active_rides.lookups").tag("cache", "hit").register(meterRegistry);
+        this.misses = Counter.builder("tracking.active_rides.lookups").tag("cache", "miss").register(meterRegistry);
+        Gauge.builder("tracking.active_rides.drivers", entries, Map::size).register(meterRegistry);
+    }
+
+    /**
+     * @return Identifiants des courses actives du chauffeur (tableau vide si aucune)
+     */
+    public long[] activeRideIds(Long chauffeurId) {
+        long now = System.currentTimeMillis();
+        Entry entry = entries.get(chauffeurId);
+        if (entry != null && now - entry.loadedAtMillis < ttlMillis) {
+            hits.increment();
+            return entry.rideIds;
+        }
+        misses.increment();
+        long generation = invalidations.get();
+        long[] rideIds = rideRequestRepository.findIdsByChauffeurIdAndStatusIn(chauffeurId, ACTIVE_STATUSES)
+                .stream().mapToLong(Long::longValue).toArray();
+        entries.put(chauffeurId, new Entry(rideIds, now));
+        if (invalidations.get() != generation) {
+            // Invalidation concurrente : la lecture a pu précéder le commit, on ne la garde pas en cache
+            entries.remove(chauffeurId);
+        }
+        return rideIds;
+    }
+
+    public boolean isActiveRide(Long chauffeurId, long rideId) {
+        for (long activeRideId : activeRideIds(chauffeurId)) {
+            if (activeRideId == rideId) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public void invalidate(Long chauffeurId) {
+        if (chauffeurId != null) {
+            invalidations.incrementAndGet();
+            entries.remove(chauffeurId);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.tracking.active-rides.ttl-ms:30000}")
+    public void purgeExpired() {
+        long now = System.currentTimeMillis();
+        entries.values().removeIf(entry -> now - entry.loadedAtMillis >= ttlMillis);
+    }
+
+    private record Entry(long[] rideIds, long loadedAtMillis) {
+    }
+}
@@ -7,6 +7,7 @@ import com.malitrans.transport.dto.RegisterDTO;
 public interface AuthService {
     void register(RegisterDTO registerDTO);
     AuthResponse verifyRegistration(String phone, String code);
+    void resendRegistrationOtp(String phone);
     AuthResponse login(String username, String password);
     AuthResponse refreshToken(RefreshTokenRequest request);
 }
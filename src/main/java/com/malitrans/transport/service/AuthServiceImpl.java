@@ -3,6 +3,7 @@ package com.malitrans.transport.service;
 import com.malitrans.transport.dto.AuthResponse;
 import com.malitrans.transport.dto.RefreshTokenRequest;
 import com.malitrans.transport.dto.RegisterDTO;
+import com.malitrans.transport.exception.PasswordHashingOverloadedException;
 import com.malitrans.transport.model.DeliveryCompany;
 import com.malitrans.transport.model.RefreshToken;
 import com.malitrans.transport.model.Role;
@@ -13,6 +14,7 @@ import com.malitrans.transport.security.JwtTokenUtil;
 import com.malitrans.transport.util.PhoneUtil;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.authentication.InternalAuthenticationServiceException;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.crypto.password.PasswordEncoder;
@@ -94,6 +96,7 @@ public class AuthServiceImpl implements AuthService {
         utilisateur.setEmail(registerDTO.getEmail()); // Nouveau champ email
         utilisateur.setRole(role);
         utilisateur.setEnabled(false); // Activé après vérification OTP via POST /auth/verify-registration
+        utilisateur.setRegistrationPending(true); // Code renvoyable via POST /auth/resend-registration-otp
 
         if (role == Role.CHAUFFEUR) {
             if (registerDTO.getCompanyId() == null) {
@@ -124,6 +127,11 @@ public class AuthServiceImpl implements AuthService {
                 utilisateur.getId());
     }
 
+    @Override
+    public void resendRegistrationOtp(String phone) {
+        otpService.resendRegistrationOtp(phone);
+    }
+
     @Override
     public AuthResponse login(String identifier, String password) {
         try {
@@ -152,6 +160,14 @@ public class AuthServiceImpl implements AuthService {
             // Return response with access token, refresh token, username, role, and userId
             return new AuthResponse(accessToken, refreshToken.getToken(), utilisateur.getUsername(), roleString,
                     utilisateur.getId());
+        } catch (PasswordHashingOverloadedException e) {
+            // Surcharge du pool BCrypt : ne pas masquer en "Invalid credentials" (503 côté contrôleur)
+            throw e;
+        } catch (InternalAuthenticationServiceException e) {
+            if (e.getCause() instanceof PasswordHashingOverloadedException overloaded) {
+                throw overloaded;
+            }
+            throw new BadCredentialsException("Invalid credentials", e);
         } catch (Exception e) {
             throw new BadCredentialsException("Invalid credentials", e);
         }
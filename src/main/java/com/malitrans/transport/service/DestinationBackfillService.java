@@ -0,0 +1,246 @@
+package com.malitrans.transport.service;
+
+import com.malitrans.transport.model.BackfillCheckpoint;
+import com.malitrans.transport.repository.BackfillCheckpointRepository;
+import com.malitrans.transport.repository.RideRequestRepository;
+import com.malitrans.transport.security.TokenBucketRateLimiter;
+import com.malitrans.transport.util.GeoUtil;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Statement;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Rattrapage des anciennes courses dont la destination est restée en coordonnées brutes ("lat,lng").
+ * Parcours par id croissant, par lots de chunk-size courses :
+ * - chaque cellule de coordonnées n'est géocodée qu'une fois par lot (dédoublonnage),
+ * - le gazetteer local répond sans limite ; les cellules qu'il ne connaît pas passent par le cache, puis par
+ *   Google (disjoncteur) sous une limite de débit globale qui ne s'applique qu'aux appels distants,
+ * - les adresses (et les coordonnées structurées manquantes) sont écrites en un batch JDBC conditionnel
+ *   (destination inchangée) et le point de reprise est enregistré dans la même transaction courte :
+ *   le traitement peut être interrompu et relancé à tout moment.
+ * Prévu pour tourner sur un seul nœud à la fois (déclenché depuis l'administration).
+ */
+@Service
+public class DestinationBackfillService {
+
+    private static final Logger logger = LoggerFactory.getLogger(DestinationBackfillService.class);
+
+    static final String JOB_NAME = "destination-geocoding";
+    private static final String RATE_LIMIT_KEY = "google";
+
+    private final RideRequestRepository rideRequestRepository;
+    private final BackfillCheckpointRepository checkpointRepository;
+    private final GazetteerGeocoder gazetteerGeocoder;
+    private final ReverseGeocodingService reverseGeocodingService;
+    private final PublicRideSnapshotService publicRideSnapshotService;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final TokenBucketRateLimiter remoteRateLimiter;
+    private final int chunkSize;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+    private final AtomicBoolean stopRequested = new AtomicBoolean();
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "destination-backfill");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final Counter updatedCounter;
+    private final Counter unresolvedCounter;
+    private final Counter supersededCounter;
+
+    public DestinationBackfillService(RideRequestRepository rideRequestRepository,
+                                      BackfillCheckpointRepository checkpointRepository,
+                                      GazetteerGeocoder gazetteerGeocoder,
+                                      ReverseGeocodingService reverseGeocodingService,
+                                      PublicRideSnapshotService publicRideSnapshotService,
+                                      JdbcTemplate jdbcTemplate,
+                                      PlatformTransactionManager transactionManager,
+                                      MeterRegistry meterRegistry,
+                                      @Value("${app.geocoding.backfill.chunk-size:200}") int chunkSize,
+                                      @Value("${app.geocoding.backfill.remote-lookups-per-second:5}") int remoteLookupsPerSecond) {
+        this.rideRequestRepository = rideRequestRepository;
+        this.checkpointRepository = checkpointRepository;
+        this.gazetteerGeocoder = gazetteerGeocoder;
+        this.reverseGeocodingService = reverseGeocodingService;
+        this.publicRideSnapshotService = publicRideSnapshotService;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.chunkSize = Math.max(1, chunkSize);
+        int rate = Math.max(1, remoteLookupsPerSecond);
+        this.remoteRateLimiter = new TokenBucketRateLimiter(rate, rate, 1, TimeUnit.SECONDS, 1, 1);
+
+        this.updatedCounter = backfillCounter(meterRegistry, "updated");
+        this.unresolvedCounter = backfillCounter(meterRegistry, "unresolved");
+        this.supersededCounter = backfillCounter(meterRegistry, "superseded");
+    }
+
+    /**
+     * Lance le rattrapage en arrière-plan.
+     * @param restart true pour repartir du début au lieu du dernier point de reprise
+     * @return false si un rattrapage est déjà en cours
+     */
+    public boolean start(boolean restart) {
+        if (!running.compareAndSet(false, true)) {
+            return false;
+        }
+        stopRequested.set(false);
+        executor.execute(() -> {
+            try {
+                run(restart);
+            } catch (RuntimeException e) {
+                logger.error("Destination backfill stopped on error: {}", e.getMessage(), e);
+            } finally {
+                running.set(false);
+            }
+        });
+        return true;
+    }
+
+    /**
+     * Demande l'arrêt après le lot en cours (le point de reprise est conservé).
+     */
+    public void stop() {
+        stopRequested.set(true);
+    }
+
+    public Map<String, Object> status() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("job", JOB_NAME);
+        status.put("running", running.get());
+        checkpointRepository.findById(JOB_NAME).ifPresent(checkpoint -> {
+            status.put("lastId", checkpoint.getLastId());
+            status.put("scanned", checkpoint.getScanned());
+            status.put("updated", checkpoint.getUpdated());
+            status.put("checkpointAt", checkpoint.getUpdatedAt());
+        });
+        return status;
+    }
+
+    /**
+     * Traitement synchrone, lot par lot, jusqu'à la fin de la table ou une demande d'arrêt.
+     */
+    void run(boolean restart) {
+        BackfillCheckpoint checkpoint = restart
+                ? new BackfillCheckpoint(JOB_NAME)
+                : checkpointRepository.findById(JOB_NAME).orElseGet(() -> new BackfillCheckpoint(JOB_NAME));
+        logger.info("Destination backfill starting after ride id {}", checkpoint.getLastId());
+
+        while (!stopRequested.get()) {
+            List<RideRequestRepository.DestinationRow> rows =
+                    rideRequestRepository.findDestinationsAfter(checkpoint.getLastId(), PageRequest.of(0, chunkSize));
+            if (rows.isEmpty()) {
+                break;
+            }
+            checkpoint = processChunk(checkpoint, rows);
+        }
+        logger.info("Destination backfill {} at ride id {} ({} scanned, {} updated)",
+                stopRequested.get() ? "stopped" : "finished",
+                checkpoint.getLastId(), checkpoint.getScanned(), checkpoint.getUpdated());
+    }
+
+    private BackfillCheckpoint processChunk(BackfillCheckpoint checkpoint, List<RideRequestRepository.DestinationRow> rows) {
+        // Géocodage hors transaction, une seule résolution par cellule du lot
+        Map<String, Optional<String>> addressByCell = new HashMap<>();
+        List<Object[]> updates = new ArrayList<>();
+        List<Long> rideIds = new ArrayList<>();
+        for (RideRequestRepository.DestinationRow row : rows) {
+            double[] coordinates = GeoUtil.parseCoordinates(row.getDestination());
+            if (coordinates == null) {
+                continue;
+            }
+            String cell = reverseGeocodingService.cellKey(coordinates[0], coordinates[1]);
+            Optional<String> address = addressByCell.computeIfAbsent(cell, key -> resolve(coordinates[0], coordinates[1]));
+            if (address.isEmpty()) {
+                unresolvedCounter.increment();
+                continue;
+            }
+            updates.add(new Object[]{address.get(), coordinates[0], coordinates[1], row.getId(), row.getDestination()});
+            rideIds.add(row.getId());
+        }
+
+        long lastId = rows.get(rows.size() - 1).getId();
+        BackfillCheckpoint saved = transactionTemplate.execute(status -> {
+            int updated = 0;
+            if (!updates.isEmpty()) {
+                int[] counts = jdbcTemplate.batchUpdate(
+                        "UPDATE ride_request SET destination = ?, destination_resolved = TRUE, " +
+                        "destination_latitude = COALESCE(destination_latitude, ?), " +
+                        "destination_longitude = COALESCE(destination_longitude, ?) " +
+                        "WHERE id = ? AND destination = ?", updates);
+                for (int count : counts) {
+                    // SUCCESS_NO_INFO (-2) : le pilote n'indique pas le nombre de lignes, on compte la mise à jour
+                    updated += count > 0 || count == Statement.SUCCESS_NO_INFO ? 1 : 0;
+                }
+            }
+            checkpoint.setLastId(lastId);
+            checkpoint.setScanned(checkpoint.getScanned() + rows.size());
+            checkpoint.setUpdated(checkpoint.getUpdated() + updated);
+            checkpoint.setUpdatedAt(Instant.now());
+            updatedCounter.increment(updated);
+            supersededCounter.increment(updates.size() - updated);
+            return checkpointRepository.save(checkpoint);
+        });
+        rideIds.forEach(publicRideSnapshotService::invalidate);
+        return saved != null ? saved : checkpoint;
+    }
+
+    private Optional<String> resolve(double latitude, double longitude) {
+        Optional<String> local = gazetteerGeocoder.reverseGeocode(latitude, longitude);
+        if (local.isPresent()) {
+            return local;
+        }
+        // Cellule inconnue du gazetteer : cache, puis Google sous la limite de débit globale
+        return reverseGeocodingService.reverseGeocodeRemote(latitude, longitude, this::awaitRemoteLookup);
+    }
+
+    /**
+     * Attend un jeton de la limite de débit, pris seulement quand un appel à Google va réellement partir.
+     * @return false si le thread est interrompu (arrêt)
+     */
+    private boolean awaitRemoteLookup() {
+        long waitNanos;
+        while ((waitNanos = remoteRateLimiter.tryAcquire(RATE_LIMIT_KEY)) > 0) {
+            LockSupport.parkNanos(waitNanos);
+            if (Thread.currentThread().isInterrupted()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        stopRequested.set(true);
+        executor.shutdownNow();
+    }
+
+    private static Counter backfillCounter(MeterRegistry registry, String outcome) {
+        return Counter.builder("geocoding.backfill.rides")
+                .tag("outcome", outcome)
+                .register(registry);
+    }
+}
@@ -0,0 +1,115 @@
+package com.malitrans.transport.service;
+
+import com.malitrans.transport.repository.RideRequestRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Enrichissement asynchrone de la destination validée par le destinataire : la course est enregistrée
+ * immédiatement avec les coordonnées brutes ("lat,lng"), puis un worker borné la géocode hors transaction
+ * et remplace la destination si elle n'a pas changé entre-temps.
+ * Le changement est poussé sur /topic/ride/{id}/destination et invalide l'instantané public.
+ * File pleine : la destination reste en coordonnées (rattrapée plus tard par le backfill).
+ */
+@Service
+public class DestinationEnrichmentService {
+
+    private static final Logger logger = LoggerFactory.getLogger(DestinationEnrichmentService.class);
+
+    private final Geocoder geocoder;
+    private final RideRequestRepository rideRequestRepository;
+    private final PublicRideSnapshotService publicRideSnapshotService;
+    private final SimpMessagingTemplate messagingTemplate;
+    private final ThreadPoolExecutor executor;
+
+    private final Counter enriched;
+    private final Counter unresolved;
+    private final Counter superseded;
+    private final Counter rejected;
+
+    public DestinationEnrichmentService(Geocoder geocoder,
+                                        RideRequestRepository rideRequestRepository,
+                                        PublicRideSnapshotService publicRideSnapshotService,
+                                        SimpMessagingTemplate messagingTemplate,
+                                        MeterRegistry meterRegistry,
+                                        @Value("${app.geocoding.enrichment.threads:2}") int threads,
+                                        @Value("${app.geocoding.enrichment.queue-capacity:1000}") int queueCapacity) {
+        this.geocoder = geocoder;
+        this.rideRequestRepository = rideRequestRepository;
+        this.publicRideSnapshotService = publicRideSnapshotService;
+        this.messagingTemplate = messagingTemplate;
+
+        AtomicInteger threadCounter = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+                    Thread thread = new Thread(runnable, "destination-enrichment-" + threadCounter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.AbortPolicy());
+
+        this.enriched = enrichmentCounter(meterRegistry, "enriched");
+        this.unresolved = enrichmentCounter(meterRegistry, "unresolved");
+        this.superseded = enrichmentCounter(meterRegistry, "superseded");
+        this.rejected = enrichmentCounter(meterRegistry, "rejected");
+        Gauge.builder("geocoding.enrichment.queue_depth", executor, e -> e.getQueue().size()).register(meterRegistry);
+    }
+
+    /**
+     * Planifie le géocodage de la destination d'une course (à appeler après commit).
+     * @param rawDestination Destination enregistrée, remplacée seulement si elle est toujours identique
+     */
+    public void enqueue(Long rideId, double latitude, double longitude, String rawDestination) {
+        try {
+            executor.execute(() -> enrich(rideId, latitude, longitude, rawDestination));
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            logger.warn("Destination enrichment queue is full; ride {} keeps coordinates", rideId);
+        }
+    }
+
+    private void enrich(Long rideId, double latitude, double longitude, String rawDestination) {
+        try {
+            String address = geocoder.reverseGeocode(latitude, longitude).orElse(null);
+            if (address == null) {
+                unresolved.increment();
+                return;
+            }
+            if (rideRequestRepository.updateDestinationIfUnchanged(rideId, rawDestination, address) == 0) {
+                superseded.increment();
+                return;
+            }
+            enriched.increment();
+            publicRideSnapshotService.invalidate(rideId);
+            messagingTemplate.convertAndSend("/topic/ride/" + rideId + "/destination",
+                    Map.of("rideId", rideId, "destination", address));
+        } catch (RuntimeException e) {
+            unresolved.increment();
+            logger.warn("Destination enrichment failed for ride {}: {}", rideId, e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private static Counter enrichmentCounter(MeterRegistry registry, String outcome) {
+        return Counter.builder("geocoding.enrichment")
+                .tag("outcome", outcome)
+                .register(registry);
+    }
+}
@@ -0,0 +1,405 @@
+package com.malitrans.transport.service;
+
+import com.malitrans.transport.model.RideRequest;
+import com.malitrans.transport.model.Role;
+import com.malitrans.transport.model.UserStatus;
+import com.malitrans.transport.model.Utilisateur;
+import com.malitrans.transport.model.ValidationStatus;
+import com.malitrans.transport.repository.RideRequestRepository;
+import com.malitrans.transport.repository.UtilisateurRepository;
+import com.malitrans.transport.util.GeoUtil;
+import com.malitrans.transport.util.HashedTimingWheel;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+
+/**
+ * Dispatch exclusif (app.dispatch.mode=exclusive), alternative à la diffusion d'une course prête à tous les chauffeurs :
+ * - les chauffeurs actifs et libres sont classés par distance de leur dernière position au point de collecte,
+ * - la course est proposée à un seul chauffeur à la fois pendant window-ms ; l'échéance est gérée par une roue
+ *   temporelle hachée avancée toutes les tick-ms, un refus passe immédiatement au candidat suivant,
+ * - le détenteur de l'offre est enregistré sur la course (offered_driver_id, offer_expires_at) : assignDriver
+ *   n'accepte que lui, par une mise à jour conditionnelle, ce qui supprime la course au verrou de la ligne,
+ * - chaque passage d'offre est un compare-and-set sur le détenteur et l'échéance lus précédemment : une séquence
+ *   dont l'offre a été acceptée ou reprise par un autre nœud s'arrête au premier passage refusé,
+ * - candidats épuisés : l'offre est retirée et la course est diffusée à tous comme en mode broadcast.
+ * Les offres sont pilotées par le nœud qui a démarré le dispatch ; une offre restée échue (nœud arrêté) est
+ * relancée par le balayage des offres abandonnées, qui la reprend par une mise à jour conditionnelle : un seul nœud
+ * la relance.
+ */
+@Service
+public class ExclusiveDispatchService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ExclusiveDispatchService.class);
+
+    private final RideRequestRepository rideRequestRepository;
+    private final UtilisateurRepository utilisateurRepository;
+    private final NotificationService notificationService;
+    private final FleetFeedService fleetFeedService;
+    private final ActiveRideIndex activeRideIndex;
+    private final boolean exclusive;
+    private final long windowMillis;
+    private final int maxCandidates;
+    private final long abandonedAfterMillis;
+    private final LongSupplier clock;
+
+    private final HashedTimingWheel<OfferTimeout> wheel;
+    private final Map<Long, Offer> offers = new ConcurrentHashMap<>();
+    private final ThreadPoolExecutor executor;
+
+    private final Counter offered;
+    private final Counter accepted;
+    private final Counter declined;
+    private final Counter expired;
+    private final Counter exhausted;
+    private final Counter assignRejected;
+    private final Counter queueRejected;
+
+    @Autowired
+    public ExclusiveDispatchService(RideRequestRepository rideRequestRepository,
+                                    UtilisateurRepository utilisateurRepository,
+                                    NotificationService notificationService,
+                                    FleetFeedService fleetFeedService,
+                                    ActiveRideIndex activeRideIndex,
+                                    MeterRegistry meterRegistry,
+                                    @Value("${app.dispatch.mode:broadcast}") String mode,
+                                    @Value("${app.dispatch.exclusive.window-ms:20000}") long windowMillis,
+                                    @Value("${app.dispatch.exclusive.tick-ms:250}") long tickMillis,
+                                    @Value("${app.dispatch.exclusive.wheel-size:512}") int wheelSize,
+                                    @Value("${app.dispatch.exclusive.max-candidates:10}") int maxCandidates,
+                                    @Value("${app.dispatch.exclusive.threads:1}") int threads,
+                                    @Value("${app.dispatch.exclusive.queue-capacity:1000}") int queueCapacity) {
+        this(rideRequestRepository, utilisateurRepository, notificationService, fleetFeedService, activeRideIndex,
+                meterRegistry, mode, windowMillis, tickMillis, wheelSize, maxCandidates, threads, queueCapacity,
+                System::currentTimeMillis);
+    }
+
+    ExclusiveDispatchService(RideRequestRepository rideRequestRepository,
+                             UtilisateurRepository utilisateurRepository,
+                             NotificationService notificationService,
+                             FleetFeedService fleetFeedService,
+                             ActiveRideIndex activeRideIndex,
+                             MeterRegistry meterRegistry,
+                             String mode, long windowMillis, long tickMillis, int wheelSize, int maxCandidates,
+                             int threads, int queueCapacity, LongSupplier clock) {
+        if (windowMillis < tickMillis || maxCandidates < 1) {
+            throw new IllegalArgumentException("Exclusive dispatch needs window-ms >= tick-ms and max-candidates >= 1");
+        }
+        this.rideRequestRepository = rideRequestRepository;
+        this.utilisateurRepository = utilisateurRepository;
+        this.notificationService = notificationService;
+        this.fleetFeedService = fleetFeedService;
+        this.activeRideIndex = activeRideIndex;
+        this.exclusive = "exclusive".equalsIgnoreCase(mode);
+        this.windowMillis = windowMillis;
+        this.maxCandidates = maxCandidates;
+        this.abandonedAfterMillis = 2 * windowMillis;
+        this.clock = clock;
+        this.wheel = new HashedTimingWheel<>(wheelSize, tickMillis, clock.getAsLong());
+
+        AtomicInteger threadCounter = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+                    Thread thread = new Thread(runnable, "exclusive-dispatch-" + threadCounter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.AbortPolicy());
+
+        this.offered = outcome(meterRegistry, "offered");
+        this.accepted = outcome(meterRegistry, "accepted");
+        this.declined = outcome(meterRegistry, "declined");
+        this.expired = outcome(meterRegistry, "expired");
+        this.exhausted = outcome(meterRegistry, "exhausted");
+        this.assignRejected = Counter.builder("dispatch.assign_rejected").register(meterRegistry);
+        this.queueRejected = Counter.builder("dispatch.queue_rejected").register(meterRegistry);
+        Gauge.builder("dispatch.open_offers", offers, Map::size).register(meterRegistry);
+    }
+
+    private static Counter outcome(MeterRegistry meterRegistry, String outcome) {
+        return Counter.builder("dispatch.offers").tag("outcome", outcome).register(meterRegistry);
+    }
+
+    public boolean isExclusive() {
+        return exclusive;
+    }
+
+    /**
+     * Course passée en READY_FOR_PICKUP (après commit) : démarre la séquence d'offres hors du thread appelant.
+     */
+    public void start(Long rideId) {
+        submit(() -> begin(rideId));
+    }
+
+    /**
+     * Rejet en mémoire, sans lecture de la course, d'une acceptation par un autre chauffeur que le détenteur
+     * de l'offre connu de ce nœud. La vérification qui fait foi reste claimOffer.
+     */
+    public boolean rejectsAssign(Long rideId, Long driverId) {
+        Offer offer = offers.get(rideId);
+        if (offer == null) {
+            return false;
+        }
+        long holder = offer.driverId;
+        if (holder == 0 || holder == driverId) {
+            return false;
+        }
+        assignRejected.increment();
+        return true;
+    }
+
+    /**
+     * Refus de l'offre par son détenteur : passage immédiat au candidat suivant.
+     * @return false si ce chauffeur ne détient pas d'offre en cours pour cette course sur ce nœud
+     */
+    public boolean decline(Long rideId, Long driverId) {
+        Offer offer = offers.get(rideId);
+        if (offer == null || driverId == null) {
+            return false;
+        }
+        int index;
+        synchronized (offer) {
+            if (offer.closed || offer.driverId != driverId) {
+                return false;
+            }
+            index = offer.index;
+            wheel.cancel(offer.timeout);
+        }
+        declined.increment();
+        submit(() -> advance(offer, index));
+        return true;
+    }
+
+    /**
+     * Offre acceptée par son détenteur (après commit de l'affectation).
+     */
+    public void offerAccepted(Long rideId) {
+        accepted.increment();
+        closed(rideId);
+    }
+
+    /**
+     * Course affectée hors offre, annulée ou terminée : la séquence d'offres s'arrête.
+     */
+    public void closed(Long rideId) {
+        Offer offer = offers.remove(rideId);
+        if (offer != null) {
+            synchronized (offer) {
+                offer.closed = true;
+                wheel.cancel(offer.timeout);
+            }
+        }
+    }
+
+    @Scheduled(fixedRateString = "${app.dispatch.exclusive.tick-ms:250}")
+    public void advanceTimeouts() {
+        for (OfferTimeout timeout : wheel.advance(clock.getAsLong())) {
+            Offer offer = offers.get(timeout.rideId());
+            if (offer != null) {
+                expired.increment();
+                submit(() -> advance(offer, timeout.index()));
+            }
+        }
+    }
+
+    /**
+     * Relance les offres échues depuis plus de deux fenêtres sans successeur (nœud pilote arrêté).
+     */
+    @Scheduled(fixedDelayString = "${app.dispatch.exclusive.abandoned-check-interval-ms:60000}")
+    public void restartAbandonedOffers() {
+        if (!exclusive) {
+            return;
+        }
+        long now = clock.getAsLong();
+        LocalDateTime before = toLocalDateTime(now - abandonedAfterMillis);
+        for (RideRequestRepository.OfferRow row
+                : rideRequestRepository.findOffersExpiredBefore(ValidationStatus.READY_FOR_PICKUP, before)) {
+            // Reprise : l'échéance passe à maintenant, le nœud dont la mise à jour aboutit relance seul la séquence
+            if (rideRequestRepository.updateOfferIfOpen(row.getId(), ValidationStatus.READY_FOR_PICKUP,
+                    row.getOfferedDriverId(), row.getOfferExpiresAt(),
+                    row.getOfferedDriverId(), toLocalDateTime(now)) == 1) {
+                logger.info("Restarting abandoned exclusive offer for ride {}", row.getId());
+                closed(row.getId());
+                start(row.getId());
+            }
+        }
+    }
+
+    int openOffers() {
+        return offers.size();
+    }
+
+    void begin(long rideId) {
+        RideRequest ride = rideRequestRepository.findById(rideId).orElse(null);
+        if (ride == null || ride.getValidationStatus() != ValidationStatus.READY_FOR_PICKUP) {
+            return;
+        }
+        Offer offer = new Offer(rideId, ride, rankCandidates(ride, clock.getAsLong()));
+        if (offers.putIfAbsent(rideId, offer) == null) {
+            advance(offer, -1);
+        }
+    }
+
+    /**
+     * Passe l'offre au candidat qui suit celui d'index fromIndex ; sans effet si l'offre a déjà avancé
+     * (refus et échéance concurrents) ou a été fermée.
+     */
+    void advance(Offer offer, int fromIndex) {
+        Utilisateur driver;
+        try {
+            synchronized (offer) {
+                if (offer.closed || offer.index != fromIndex) {
+                    return;
+                }
+                offer.index++;
+                if (offer.index >= offer.candidates.size()) {
+                    exhaust(offer);
+                    return;
+                }
+                driver = offer.candidates.get(offer.index);
+                long now = clock.getAsLong();
+                LocalDateTime expiresAt = toLocalDateTime(now + windowMillis);
+                if (rideRequestRepository.updateOfferIfOpen(offer.rideId, ValidationStatus.READY_FOR_PICKUP,
+                        offer.offeredDriverId, offer.offerExpiresAt, driver.getId(), expiresAt) == 0) {
+                    close(offer); // Acceptée, annulée ou reprise par un autre nœud
+                    return;
+                }
+                offer.offeredDriverId = driver.getId();
+                offer.offerExpiresAt = expiresAt;
+                offer.driverId = driver.getId();
+                offer.timeout = wheel.schedule(new OfferTimeout(offer.rideId, offer.index), windowMillis, now);
+            }
+        } catch (RuntimeException e) {
+            logger.warn("Exclusive offer for ride {} failed, falling back to broadcast: {}", offer.rideId, e.getMessage());
+            synchronized (offer) {
+                close(offer);
+                broadcastIfOpen(offer);
+            }
+            return;
+        }
+        offered.increment();
+        notificationService.notifyDriverOfOffer(offer.ride, driver, windowMillis / 1000);
+    }
+
+    private void exhaust(Offer offer) {
+        exhausted.increment();
+        close(offer);
+        broadcastIfOpen(offer);
+    }
+
+    private void broadcastIfOpen(Offer offer) {
+        try {
+            if (rideRequestRepository.updateOfferIfOpen(offer.rideId, ValidationStatus.READY_FOR_PICKUP,
+                    offer.offeredDriverId, offer.offerExpiresAt, null, null) == 1) {
+                notificationService.notifyDriversOfReadyRequest(offer.ride);
+            }
+        } catch (RuntimeException e) {
+            logger.warn("Broadcast fallback failed for ride {}: {}", offer.rideId, e.getMessage());
+        }
+    }
+
+    private void close(Offer offer) {
+        offer.closed = true;
+        offer.driverId = 0;
+        offers.remove(offer.rideId, offer);
+    }
+
+    /**
+     * Chauffeurs actifs joignables et sans course en cours, du plus proche au plus éloigné du point de collecte ;
+     * ceux dont la position est inconnue sur ce nœud viennent en dernier.
+     */
+    List<Utilisateur> rankCandidates(RideRequest ride, long now) {
+        Double pickupLatitude = ride.getOriginLatitude();
+        Double pickupLongitude = ride.getOriginLongitude();
+        List<Ranked> ranked = new ArrayList<>();
+        for (Utilisateur driver : utilisateurRepository.findByRole(Role.CHAUFFEUR)) {
+            if (!driver.isEnabled() || driver.getStatus() != UserStatus.ACTIVE
+                    || driver.getFcmToken() == null || driver.getFcmToken().isBlank()) {
+                continue;
+            }
+            double[] position = fleetFeedService.lastPosition(driver.getId(), now);
+            double distance = position != null && pickupLatitude != null && pickupLongitude != null
+                    ? GeoUtil.haversineMeters(position[0], position[1], pickupLatitude, pickupLongitude)
+                    : Double.POSITIVE_INFINITY;
+            ranked.add(new Ranked(driver, distance));
+        }
+        ranked.sort(Comparator.comparingDouble(Ranked::distanceMeters));
+
+        List<Utilisateur> candidates = new ArrayList<>(Math.min(maxCandidates, ranked.size()));
+        for (Ranked entry : ranked) {
+            if (candidates.size() == maxCandidates) {
+                break;
+            }
+            if (activeRideIndex.activeRideIds(entry.driver().getId()).length == 0) {
+                candidates.add(entry.driver());
+            }
+        }
+        return candidates;
+    }
+
+    private void submit(Runnable task) {
+        try {
+            executor.execute(task);
+        } catch (RejectedExecutionException e) {
+            queueRejected.increment();
+            logger.warn("Exclusive dispatch queue is full; task dropped (abandoned offers are restarted later)");
+        }
+    }
+
+    private static LocalDateTime toLocalDateTime(long epochMillis) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(epochMillis), ZoneId.systemDefault());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    record OfferTimeout(long rideId, int index) {
+    }
+
+    private record Ranked(Utilisateur driver, double distanceMeters) {
+    }
+
+    static final class Offer {
+        private final long rideId;
+        private final RideRequest ride;
+        private final List<Utilisateur> candidates;
+        private int index = -1;
+        private volatile long driverId;
+        private boolean closed;
+        private HashedTimingWheel.Timeout<OfferTimeout> timeout;
+        // État de l'offre sur la course attendu par le prochain compare-and-set
+        private Long offeredDriverId;
+        private LocalDateTime offerExpiresAt;
+
+        private Offer(long rideId, RideRequest ride, List<Utilisateur> candidates) {
+            this.rideId = rideId;
+            this.ride = ride;
+            this.candidates = candidates;
+            this.offeredDriverId = ride.getOfferedDriverId();
+            this.offerExpiresAt = ride.getOfferExpiresAt();
+        }
+    }
+}
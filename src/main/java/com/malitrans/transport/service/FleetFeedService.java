@@ -0,0 +1,294 @@
+package com.malitrans.transport.service;
+
+import com.malitrans.transport.dto.FleetSnapshotDTO;
+import com.malitrans.transport.model.Utilisateur;
+import com.malitrans.transport.repository.UtilisateurRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Carte de flotte en direct pour les administrateurs et managers d'entreprise, sans abonnement par course :
+ * - chaque position chauffeur reçue met à jour sa dernière position (écrasement, O(1)),
+ * - à chaque tick, les positions récentes sont regroupées par entreprise dans une grille de pas cell-degrees ;
+ *   tant que l'entreprise occupe plus de max-cells cellules, le pas est doublé (cellules fusionnées 2×2),
+ *   ce qui borne la taille du message quelle que soit la taille de la flotte,
+ * - l'instantané (centroïde et effectif par cellule) est publié sur /topic/fleet/{companyId}, seulement pour
+ *   les entreprises écoutées sur ce nœud (broker simple) ; avec le broker relay, les abonnés pouvant être sur
+ *   un autre nœud, chaque nœud publie à chaque tick les chauffeurs qu'il reçoit, identifiés par le champ node
+ *   (fusion côté client : cf. FleetSnapshotDTO).
+ * L'entreprise d'un chauffeur est chargée par lots hors du chemin des positions et relue périodiquement.
+ */
+@Service
+public class FleetFeedService {
+
+    private static final long UNRESOLVED = -1;
+    private static final long NO_COMPANY = 0;
+    private static final int MAX_DRIVERS_PER_BATCH = 500;
+    private static final double COORDINATE_SCALE = 1e5;
+
+    private final SimpMessagingTemplate messagingTemplate;
+    private final UtilisateurRepository utilisateurRepository;
+    private final FleetSubscriptions subscriptions;
+    private final boolean localBroker;
+    private final String node = UUID.randomUUID().toString().substring(0, 8);
+    private final double cellDegrees;
+    private final int maxCells;
+    private final long staleAfterMillis;
+    private final long idleTtlMillis;
+    private final long companyRefreshMillis;
+
+    private final Map<Long, DriverState> drivers = new ConcurrentHashMap<>();
+    private final Queue<Long> pendingDrivers = new ConcurrentLinkedQueue<>();
+
+    private final Counter snapshots;
+
+    public FleetFeedService(SimpMessagingTemplate messagingTemplate,
+                            UtilisateurRepository utilisateurRepository,
+                            FleetSubscriptions subscriptions,
+                            MeterRegistry meterRegistry,
+                            @Value("${app.tracking.broker.mode:simple}") String brokerMode,
+                            @Value("${app.tracking.fleet.cell-degrees:0.01}") double cellDegrees,
+                            @Value("${app.tracking.fleet.max-cells:256}") int maxCells,
+                            @Value("${app.tracking.fleet.stale-after-ms:120000}") long staleAfterMillis,
+                            @Value("${app.tracking.fleet.idle-ttl-ms:900000}") long idleTtlMillis,
+                            @Value("${app.tracking.fleet.company-refresh-ms:600000}") long companyRefreshMillis) {
+        if (cellDegrees <= 0 || maxCells < 1) {
+            throw new IllegalArgumentException("Fleet grid needs cell-degrees > 0 and max-cells >= 1");
+        }
+        this.messagingTemplate = messagingTemplate;
+        this.utilisateurRepository = utilisateurRepository;
+        this.subscriptions = subscriptions;
+        this.localBroker = !"relay".equalsIgnoreCase(brokerMode);
+        this.cellDegrees = cellDegrees;
+        this.maxCells = maxCells;
+        this.staleAfterMillis = staleAfterMillis;
+        this.idleTtlMillis = idleTtlMillis;
+        this.companyRefreshMillis = companyRefreshMillis;
+
+        this.snapshots = Counter.builder("tracking.fleet.snapshots").register(meterRegistry);
+        Gauge.builder("tracking.fleet.drivers", drivers, Map::size).register(meterRegistry);
+    }
+
+    /**
+     * Dernière position connue d'un chauffeur (les fixes plus anciens que le dernier reçu sont ignorés).
+     */
+    public void onDriverFix(Long driverId, double latitude, double longitude, long fixMillis, long nowMillis) {
+        if (driverId == null) {
+            return;
+        }
+        DriverState state = drivers.get(driverId);
+        if (state == null) {
+            DriverState created = new DriverState();
+            state = drivers.putIfAbsent(driverId, created);
+            if (state == null) {
+                state = created;
+                pendingDrivers.add(driverId);
+            }
+        }
+        state.update(latitude, longitude, fixMillis, nowMillis);
+    }
+
+    /**
+     * @return {latitude, longitude} de la dernière position récente du chauffeur sur ce nœud, null si inconnue ou périmée
+     */
+    public double[] lastPosition(Long driverId, long nowMillis) {
+        DriverState state = driverId != null ? drivers.get(driverId) : null;
+        if (state == null) {
+            return null;
+        }
+        synchronized (state) {
+            if (state.fixMillis == Long.MIN_VALUE || nowMillis - state.fixMillis > staleAfterMillis) {
+                return null;
+            }
+            return new double[]{state.latitude, state.longitude};
+        }
+    }
+
+    /**
+     * Charge par lots l'entreprise des chauffeurs apparus (ou à relire) depuis le dernier passage.
+     */
+    @Scheduled(fixedDelayString = "${app.tracking.fleet.resolve-interval-ms:1000}")
+    public void resolvePendingDrivers() {
+        Set<Long> batch = new HashSet<>();
+        Long driverId;
+        while (batch.size() < MAX_DRIVERS_PER_BATCH && (driverId = pendingDrivers.poll()) != null) {
+            batch.add(driverId);
+        }
+        if (batch.isEmpty()) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        Set<Long> missing = new HashSet<>(batch);
+        for (Utilisateur driver : utilisateurRepository.findAllById(batch)) {
+            missing.remove(driver.getId());
+            DriverState state = drivers.get(driver.getId());
+            if (state != null) {
+                state.resolved(driver.getCompany() != null ? driver.getCompany().getId() : NO_COMPANY, now);
+            }
+        }
+        for (Long id : missing) {
+            DriverState state = drivers.get(id);
+            if (state != null) {
+                state.resolved(NO_COMPANY, now);
+            }
+        }
+    }
+
+    /**
+     * Regroupe et publie les instantanés des entreprises écoutées.
+     */
+    @Scheduled(fixedRateString = "${app.tracking.fleet.tick-ms:2000}")
+    public void publishSnapshots() {
+        long now = System.currentTimeMillis();
+        String timestamp = Instant.ofEpochMilli(now).toString();
+        for (Map.Entry<Long, Map<Long, Cell>> entry : aggregate(now).entrySet()) {
+            messagingTemplate.convertAndSend("/topic/fleet/" + entry.getKey(),
+                    snapshot(entry.getKey(), entry.getValue(), timestamp));
+            snapshots.increment();
+        }
+    }
+
+    /**
+     * Cellules de base par entreprise à publier ; purge au passage les chauffeurs inactifs.
+     * Les entreprises écoutées sans chauffeur récent reçoivent un instantané vide.
+     */
+    Map<Long, Map<Long, Cell>> aggregate(long now) {
+        Map<Long, Map<Long, Cell>> cellsByCompany = new HashMap<>();
+        if (localBroker) {
+            subscriptions.watchedCompanies().forEach(companyId -> cellsByCompany.put(companyId, new HashMap<>()));
+        }
+        Iterator<Map.Entry<Long, DriverState>> iterator = drivers.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<Long, DriverState> entry = iterator.next();
+            DriverState state = entry.getValue();
+            double latitude;
+            double longitude;
+            long companyId;
+            synchronized (state) {
+                if (now - state.touchedMillis > idleTtlMillis) {
+                    iterator.remove();
+                    continue;
+                }
+                if (state.companyId != UNRESOLVED && !state.refreshQueued
+                        && now - state.resolvedAtMillis > companyRefreshMillis) {
+                    state.refreshQueued = true;
+                    pendingDrivers.add(entry.getKey());
+                }
+                if (state.companyId == UNRESOLVED || state.companyId == NO_COMPANY
+                        || now - state.fixMillis > staleAfterMillis) {
+                    continue;
+                }
+                latitude = state.latitude;
+                longitude = state.longitude;
+                companyId = state.companyId;
+            }
+            Map<Long, Cell> cells = localBroker ? cellsByCompany.get(companyId)
+                    : cellsByCompany.computeIfAbsent(companyId, id -> new HashMap<>());
+            if (cells == null) {
+                continue; // Entreprise non écoutée sur ce nœud
+            }
+            long x = (long) Math.floor(longitude / cellDegrees);
+            long y = (long) Math.floor(latitude / cellDegrees);
+            cells.computeIfAbsent(cellKey(x, y), key -> new Cell(x, y)).add(latitude, longitude, 1);
+        }
+        return cellsByCompany;
+    }
+
+    FleetSnapshotDTO snapshot(long companyId, Map<Long, Cell> baseCells, String timestamp) {
+        Map<Long, Cell> cells = baseCells;
+        double degrees = cellDegrees;
+        while (cells.size() > maxCells) {
+            // Grille deux fois plus grossière : les cellules 2×2 voisines fusionnent
+            Map<Long, Cell> coarser = new HashMap<>();
+            for (Cell cell : cells.values()) {
+                long x = Math.floorDiv(cell.x, 2);
+                long y = Math.floorDiv(cell.y, 2);
+                coarser.computeIfAbsent(cellKey(x, y), key -> new Cell(x, y))
+                        .add(cell.sumLatitudes, cell.sumLongitudes, cell.count);
+            }
+            cells = coarser;
+            degrees *= 2;
+        }
+
+        List<Cell> ordered = new ArrayList<>(cells.values());
+        double[] latitudes = new double[ordered.size()];
+        double[] longitudes = new double[ordered.size()];
+        int[] counts = new int[ordered.size()];
+        int total = 0;
+        for (int i = 0; i < ordered.size(); i++) {
+            Cell cell = ordered.get(i);
+            latitudes[i] = Math.round(cell.sumLatitudes / cell.count * COORDINATE_SCALE) / COORDINATE_SCALE;
+            longitudes[i] = Math.round(cell.sumLongitudes / cell.count * COORDINATE_SCALE) / COORDINATE_SCALE;
+            counts[i] = cell.count;
+            total += cell.count;
+        }
+        return new FleetSnapshotDTO(companyId, node, timestamp, degrees, total, latitudes, longitudes, counts);
+    }
+
+    private static long cellKey(long x, long y) {
+        return (y << 32) ^ (x & 0xFFFFFFFFL);
+    }
+
+    static final class Cell {
+        private final long x;
+        private final long y;
+        private double sumLatitudes;
+        private double sumLongitudes;
+        private int count;
+
+        private Cell(long x, long y) {
+            this.x = x;
+            this.y = y;
+        }
+
+        private void add(double latitudes, double longitudes, int drivers) {
+            sumLatitudes += latitudes;
+            sumLongitudes += longitudes;
+            count += drivers;
+        }
+    }
+
+    private static final class DriverState {
+        private double latitude;
+        private double longitude;
+        private long fixMillis = Long.MIN_VALUE;
+        private long touchedMillis;
+        private long companyId = UNRESOLVED;
+        private long resolvedAtMillis;
+        private boolean refreshQueued;
+
+        private synchronized void update(double latitude, double longitude, long fix, long now) {
+            touchedMillis = now;
+            if (fix <= fixMillis) {
+                return;
+            }
+            this.latitude = latitude;
+            this.longitude = longitude;
+            this.fixMillis = fix;
+        }
+
+        private synchronized void resolved(long companyId, long now) {
+            this.companyId = companyId;
+            this.resolvedAtMillis = now;
+            this.refreshQueued = false;
+        }
+    }
+}
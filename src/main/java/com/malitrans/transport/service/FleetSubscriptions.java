@@ -0,0 +1,65 @@
+package com.malitrans.transport.service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Compteurs d'abonnements STOMP à la carte de flotte (/topic/fleet/{companyId}), par entreprise.
+ * Alimenté par TrackingSubscriptionInterceptor (cf. TrackingSubscriptions) ; permet à FleetFeedService
+ * de n'agréger et publier que les entreprises réellement écoutées sur ce nœud.
+ */
+@Component
+public class FleetSubscriptions {
+
+    private final Map<Long, AtomicInteger> countsByCompany = new ConcurrentHashMap<>();
+    private final Map<String, Map<String, Long>> subscriptionsBySession = new ConcurrentHashMap<>();
+
+    public FleetSubscriptions(MeterRegistry meterRegistry) {
+        Gauge.builder("tracking.fleet.watched_companies", countsByCompany, Map::size).register(meterRegistry);
+    }
+
+    public void subscribed(String sessionId, String subscriptionId, long companyId) {
+        Long previous = subscriptionsBySession
+                .computeIfAbsent(sessionId, id -> new ConcurrentHashMap<>())
+                .put(subscriptionId, companyId);
+        if (previous != null) {
+            release(previous);
+        }
+        countsByCompany.computeIfAbsent(companyId, id -> new AtomicInteger()).incrementAndGet();
+    }
+
+    public void unsubscribed(String sessionId, String subscriptionId) {
+        Map<String, Long> subscriptions = subscriptionsBySession.get(sessionId);
+        if (subscriptions == null) {
+            return;
+        }
+        Long companyId = subscriptions.remove(subscriptionId);
+        if (companyId != null) {
+            release(companyId);
+        }
+    }
+
+    public void disconnected(String sessionId) {
+        Map<String, Long> subscriptions = subscriptionsBySession.remove(sessionId);
+        if (subscriptions != null) {
+            subscriptions.values().forEach(this::release);
+        }
+    }
+
+    /**
+     * @return Entreprises ayant au moins un abonné sur ce nœud
+     */
+    public Set<Long> watchedCompanies() {
+        return countsByCompany.keySet();
+    }
+
+    private void release(long companyId) {
+        countsByCompany.computeIfPresent(companyId, (id, count) -> count.decrementAndGet() <= 0 ? null : count);
+    }
+}
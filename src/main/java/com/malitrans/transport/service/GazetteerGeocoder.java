@@ -0,0 +1,139 @@
+package com.malitrans.transport.service;
+
+import com.malitrans.transport.util.KdTree;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Géocodage inverse hors ligne à partir d'un gazetteer du Mali embarqué (villes, localités, quartiers de Bamako),
+ * chargé au démarrage dans un KdTree par type de lieu. Réponse en mémoire, en quelques microsecondes, sans réseau.
+ * Le quartier le plus proche est préféré s'il est à moins de son rayon, puis la localité, puis la ville ;
+ * au-delà, aucune adresse n'est proposée (secours Google ou coordonnées brutes).
+ */
+@Service
+public class GazetteerGeocoder implements Geocoder {
+
+    private static final Logger logger = LoggerFactory.getLogger(GazetteerGeocoder.class);
+
+    /**
+     * Types de lieux du gazetteer, du plus précis au plus large, avec leur rayon de correspondance.
+     */
+    enum Kind {
+        QUARTIER(3_000),
+        LOCALITE(10_000),
+        VILLE(20_000);
+
+        private final double radiusMeters;
+
+        Kind(double radiusMeters) {
+            this.radiusMeters = radiusMeters;
+        }
+    }
+
+    private final Map<Kind, Index> indexes = new EnumMap<>(Kind.class);
+    private final Counter hits;
+    private final Counter misses;
+
+    public GazetteerGeocoder(MeterRegistry meterRegistry,
+                             @Value("${app.geocoding.gazetteer.resource:geo/mali-gazetteer.csv}") String resource) {
+        this.hits = lookupCounter(meterRegistry, "hit");
+        this.misses = lookupCounter(meterRegistry, "miss");
+        load(resource);
+    }
+
+    @Override
+    public Optional<String> reverseGeocode(double latitude, double longitude) {
+        for (Kind kind : Kind.values()) {
+            Index index = indexes.get(kind);
+            if (index == null) {
+                continue;
+            }
+            int nearest = index.tree.nearest(latitude, longitude, kind.radiusMeters);
+            if (nearest >= 0) {
+                hits.increment();
+                return Optional.of(index.labels[nearest]);
+            }
+        }
+        misses.increment();
+        return Optional.empty();
+    }
+
+    public int size() {
+        int size = 0;
+        for (Index index : indexes.values()) {
+            size += index.tree.size();
+        }
+        return size;
+    }
+
+    private void load(String resource) {
+        Map<Kind, List<String[]>> rows = new EnumMap<>(Kind.class);
+        ClassPathResource classPathResource = new ClassPathResource(resource);
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(classPathResource.getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            int lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                // nom;type;latitude;longitude;rattachement
+                String[] fields = line.split(";", -1);
+                try {
+                    Kind kind = Kind.valueOf(fields[1].trim());
+                    Double.parseDouble(fields[2].trim());
+                    Double.parseDouble(fields[3].trim());
+                    rows.computeIfAbsent(kind, k -> new ArrayList<>()).add(fields);
+                } catch (RuntimeException e) {
+                    logger.warn("Skipping malformed gazetteer line {} in {}: {}", lineNumber, resource, line);
+                }
+            }
+        } catch (IOException e) {
+            // Sans gazetteer, le géocodage repose sur Google ou garde les coordonnées
+            logger.warn("Unable to load gazetteer {}: {}", resource, e.getMessage());
+            return;
+        }
+
+        rows.forEach((kind, places) -> {
+            double[] latitudes = new double[places.size()];
+            double[] longitudes = new double[places.size()];
+            String[] labels = new String[places.size()];
+            for (int i = 0; i < places.size(); i++) {
+                String[] fields = places.get(i);
+                latitudes[i] = Double.parseDouble(fields[2].trim());
+                longitudes[i] = Double.parseDouble(fields[3].trim());
+                String name = fields[0].trim();
+                String parent = fields.length > 4 ? fields[4].trim() : "";
+                labels[i] = parent.isEmpty() || parent.equals(name) ? name : name + ", " + parent;
+            }
+            indexes.put(kind, new Index(new KdTree(latitudes, longitudes), labels));
+        });
+        logger.info("Gazetteer {} loaded: {} places", resource, size());
+    }
+
+    private static Counter lookupCounter(MeterRegistry registry, String result) {
+        return Counter.builder("geocoding.gazetteer.lookups")
+                .tag("result", result)
+                .register(registry);
+    }
+
+    private record Index(KdTree tree, String[] labels) {
+    }
+}
@@ -0,0 +1,14 @@
+package com.malitrans.transport.service;
+
+import java.util.Optional;
+
+/**
+ * Géocodage inverse : coordonnées → adresse lisible.
+ */
+public interface Geocoder {
+
+    /**
+     * @return Adresse lisible, ou vide si aucune n'est disponible (l'appelant garde les coordonnées)
+     */
+    Optional<String> reverseGeocode(double latitude, double longitude);
+}
@@ -1,14 +1,12 @@
 package com.malitrans.transport.service;
 
 import com.google.api.client.googleapis.auth.oauth2.GoogleIdToken;
-import com.google.api.client.googleapis.auth.oauth2.GoogleIdTokenVerifier;
-import com.google.api.client.googleapis.javanet.GoogleNetHttpTransport;
-import com.google.api.client.json.gson.GsonFactory;
 import com.malitrans.transport.model.RefreshToken;
 import com.malitrans.transport.model.Role;
 import com.malitrans.transport.model.UserStatus;
 import com.malitrans.transport.model.Utilisateur;
 import com.malitrans.transport.repository.UtilisateurRepository;
+import com.malitrans.transport.security.GoogleTokenVerifier;
 import com.malitrans.transport.security.JwtTokenUtil;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.authentication.BadCredentialsException;
@@ -32,19 +30,20 @@ public class GoogleAuthService {
     private final JwtTokenUtil jwtTokenUtil;
     private final RefreshTokenService refreshTokenService;
     private final String googleClientId;
-    private final GoogleIdTokenVerifier googleIdTokenVerifier;
+    private final GoogleTokenVerifier googleTokenVerifier;
 
     public GoogleAuthService(UtilisateurRepository utilisateurRepository,
                              PasswordEncoder passwordEncoder,
                              JwtTokenUtil jwtTokenUtil,
                              RefreshTokenService refreshTokenService,
+                             GoogleTokenVerifier googleTokenVerifier,
                              @Value("${google.client-id:}") String googleClientId) {
         this.utilisateurRepository = utilisateurRepository;
         this.passwordEncoder = passwordEncoder;
         this.jwtTokenUtil = jwtTokenUtil;
         this.refreshTokenService = refreshTokenService;
+        this.googleTokenVerifier = googleTokenVerifier;
         this.googleClientId = googleClientId;
-        this.googleIdTokenVerifier = buildVerifier(googleClientId);
     }
 
     @Transactional
@@ -91,32 +90,16 @@ public class GoogleAuthService {
 
     private GoogleIdToken.Payload verify(String idTokenString) {
         try {
-            GoogleIdToken idToken = googleIdTokenVerifier.verify(idTokenString);
-            if (idToken == null) {
+            GoogleIdToken.Payload payload = googleTokenVerifier.verify(idTokenString);
+            if (payload == null) {
                 throw new BadCredentialsException("Token Google invalide.");
             }
-            return idToken.getPayload();
+            return payload;
         } catch (GeneralSecurityException | IOException e) {
             throw new BadCredentialsException("Impossible de verifier le token Google.", e);
         }
     }
 
-    private GoogleIdTokenVerifier buildVerifier(String clientId) {
-        if (clientId == null || clientId.isBlank()) {
-            return null;
-        }
-
-        try {
-            return new GoogleIdTokenVerifier.Builder(
-                    GoogleNetHttpTransport.newTrustedTransport(),
-                    GsonFactory.getDefaultInstance())
-                    .setAudience(List.of(clientId))
-                    .build();
-        } catch (GeneralSecurityException | IOException e) {
-            throw new IllegalStateException("Impossible d'initialiser Google Sign-In.", e);
-        }
-    }
-
     private Utilisateur findOrCreateGoogleUser(String googleId, String email, String name, String firstName,
                                                String lastName) {
         Optional<Utilisateur> byGoogleId = utilisateurRepository.findByGoogleId(googleId);
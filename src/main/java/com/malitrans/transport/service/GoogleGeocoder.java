@@ -0,0 +1,185 @@
+package com.malitrans.transport.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.malitrans.transport.util.CircuitBreaker;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Géocodage inverse via l'API Google Geocoding (appel réseau, facturé).
+ * Utilisé seulement en secours du gazetteer local, derrière le cache de ReverseGeocodingService.
+ * Isolation des pannes Google :
+ * - bulkhead : au plus max-concurrent-calls requêtes simultanées, les suivantes sont refusées sans attendre,
+ * - disjoncteur : ouvert quand trop de requêtes échouent ou dépassent slow-call-ms ; pendant ce temps
+ *   la réponse est vide immédiatement (l'appelant garde les coordonnées).
+ */
+@Service
+public class GoogleGeocoder implements Geocoder {
+
+    private static final Logger logger = LoggerFactory.getLogger(GoogleGeocoder.class);
+
+    // Statuts Google qui ne signalent pas une panne (ZERO_RESULTS : simplement aucune adresse)
+    private static final Set<String> HEALTHY_STATUSES = Set.of("OK", "ZERO_RESULTS");
+
+    private final String googleMapsApiKey;
+    private final Duration timeout;
+    private final long slowCallNanos;
+    private final Semaphore bulkhead;
+    private final CircuitBreaker circuitBreaker;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final HttpClient httpClient;
+
+    private final Timer success;
+    private final Timer failure;
+    private final Counter rejectedCircuitOpen;
+    private final Counter rejectedBulkheadFull;
+
+    public GoogleGeocoder(MeterRegistry meterRegistry,
+                          @Value("${google.maps.api-key:}") String googleMapsApiKey,
+                          @Value("${app.geocoding.google.timeout-ms:2000}") long timeoutMillis,
+                          @Value("${app.geocoding.google.slow-call-ms:1500}") long slowCallMillis,
+                          @Value("${app.geocoding.google.max-concurrent-calls:4}") int maxConcurrentCalls,
+                          @Value("${app.geocoding.google.circuit.window-size:20}") int windowSize,
+                          @Value("${app.geocoding.google.circuit.minimum-calls:10}") int minimumCalls,
+                          @Value("${app.geocoding.google.circuit.failure-rate-threshold:0.5}") double failureRateThreshold,
+                          @Value("${app.geocoding.google.circuit.open-duration-ms:30000}") long openDurationMillis) {
+        this.googleMapsApiKey = googleMapsApiKey != null ? googleMapsApiKey.trim() : "";
+        this.timeout = Duration.ofMillis(timeoutMillis);
+        this.slowCallNanos = TimeUnit.MILLISECONDS.toNanos(slowCallMillis);
+        this.bulkhead = new Semaphore(maxConcurrentCalls);
+        this.circuitBreaker = new CircuitBreaker(windowSize, minimumCalls, failureRateThreshold,
+                openDurationMillis, TimeUnit.MILLISECONDS);
+        this.httpClient = HttpClient.newBuilder().connectTimeout(timeout).build();
+
+        this.success = requestTimer(meterRegistry, "success");
+        this.failure = requestTimer(meterRegistry, "failure");
+        this.rejectedCircuitOpen = rejectedCounter(meterRegistry, "circuit_open");
+        this.rejectedBulkheadFull = rejectedCounter(meterRegistry, "bulkhead_full");
+        Gauge.builder("geocoding.google.circuit.state", circuitBreaker, breaker -> breaker.state().ordinal())
+                .description("0 = closed, 1 = half-open, 2 = open")
+                .register(meterRegistry);
+        Gauge.builder("geocoding.google.in_flight", bulkhead, b -> maxConcurrentCalls - b.availablePermits())
+                .register(meterRegistry);
+    }
+
+    public boolean isConfigured() {
+        return !googleMapsApiKey.isBlank();
+    }
+
+    @Override
+    public Optional<String> reverseGeocode(double latitude, double longitude) {
+        if (!isConfigured()) {
+            logger.warn("GOOGLE_MAPS_API_KEY is missing; keeping destination as coordinates");
+            return Optional.empty();
+        }
+        if (!bulkhead.tryAcquire()) {
+            rejectedBulkheadFull.increment();
+            return Optional.empty();
+        }
+        try {
+            if (!circuitBreaker.tryAcquire()) {
+                rejectedCircuitOpen.increment();
+                return Optional.empty();
+            }
+            return fetch(latitude, longitude);
+        } finally {
+            bulkhead.release();
+        }
+    }
+
+    private Optional<String> fetch(double latitude, double longitude) {
+        long start = System.nanoTime();
+        try {
+            String latLng = latitude + "," + longitude;
+            String encodedLatLng = URLEncoder.encode(latLng, StandardCharsets.UTF_8);
+            String encodedKey = URLEncoder.encode(googleMapsApiKey, StandardCharsets.UTF_8);
+            URI uri = URI.create(
+                    "https://maps.googleapis.com/maps/api/geocode/json?latlng="
+                            + encodedLatLng
+                            + "&language=fr&key="
+                            + encodedKey);
+
+            HttpRequest httpRequest = HttpRequest.newBuilder(uri)
+                    .timeout(timeout)
+                    .GET()
+                    .build();
+
+            HttpResponse<String> response = httpClient.send(httpRequest, HttpResponse.BodyHandlers.ofString());
+            if (response.statusCode() < 200 || response.statusCode() >= 300) {
+                logger.warn("Google reverse geocoding failed with HTTP status {}", response.statusCode());
+                recordFailure(start);
+                return Optional.empty();
+            }
+
+            JsonNode root = objectMapper.readTree(response.body());
+            String status = root.path("status").asText();
+            JsonNode results = root.path("results");
+            if (!HEALTHY_STATUSES.contains(status)) {
+                logger.warn("Google reverse geocoding returned status {}", status);
+                recordFailure(start);
+                return Optional.empty();
+            }
+            recordSuccess(start);
+            if (!results.isArray() || results.isEmpty()) {
+                return Optional.empty();
+            }
+
+            String formattedAddress = results.get(0).path("formatted_address").asText("").trim();
+            return formattedAddress.isEmpty() ? Optional.empty() : Optional.of(formattedAddress);
+        } catch (Exception e) {
+            if (e instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            }
+            recordFailure(start);
+            logger.warn("Unable to reverse geocode recipient location: {}", e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    private void recordSuccess(long start) {
+        long elapsed = System.nanoTime() - start;
+        success.record(elapsed, TimeUnit.NANOSECONDS);
+        // Une réponse trop lente compte comme un échec : c'est la lenteur qui épuise les threads appelants
+        if (elapsed > slowCallNanos) {
+            circuitBreaker.onFailure();
+        } else {
+            circuitBreaker.onSuccess();
+        }
+    }
+
+    private void recordFailure(long start) {
+        failure.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        circuitBreaker.onFailure();
+    }
+
+    private static Timer requestTimer(MeterRegistry registry, String outcome) {
+        return Timer.builder("geocoding.google.requests")
+                .tag("outcome", outcome)
+                .register(registry);
+    }
+
+    private static Counter rejectedCounter(MeterRegistry registry, String reason) {
+        return Counter.builder("geocoding.google.rejected")
+                .tag("reason", reason)
+                .register(registry);
+    }
+}
@@ -0,0 +1,115 @@
+package com.malitrans.transport.service;
+
+import com.malitrans.transport.dto.LocationMessage;
+import com.malitrans.transport.util.StripedLongTable;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Dernière position connue par course, bornée en nombre d'entrées et expirant après un TTL.
+ * Stockage primitif (rideId, lat, lng, epoch ms) dans une {@link StripedLongTable}, sans objet par entrée :
+ * l'empreinte mémoire est fixée au démarrage par app.tracking.last-location.max-entries.
+ * Quand une stripe est pleine, on purge les entrées expirées puis, si besoin, la moins récemment mise à jour.
+ */
+@Component
+public class LastLocationStore {
+
+    private final StripedLongTable<Positions> table;
+
+    private final Counter evictedRideEnded;
+
+    public LastLocationStore(MeterRegistry meterRegistry,
+                             @Value("${app.tracking.last-location.max-entries:50000}") int maxEntries,
+                             @Value("${app.tracking.last-location.ttl-ms:21600000}") long ttlMillis) {
+        this.table = new StripedLongTable<>(maxEntries, ttlMillis, Positions::new);
+
+        evictionCounter(meterRegistry, "expired", StripedLongTable::expiredEvictions);
+        evictionCounter(meterRegistry, "capacity", StripedLongTable::capacityEvictions);
+        this.evictedRideEnded = Counter.builder("tracking.last_location.evictions")
+                .tag("reason", "ride_ended")
+                .register(meterRegistry);
+        Gauge.builder("tracking.last_location.entries", this, LastLocationStore::size).register(meterRegistry);
+    }
+
+    public void put(long rideId, double latitude, double longitude, long fixMillis, long nowMillis) {
+        StripedLongTable.Stripe<Positions> stripe = table.stripe(rideId);
+        synchronized (stripe) {
+            int slot = stripe.find(rideId, nowMillis);
+            if (slot < 0) {
+                slot = stripe.insert(rideId, nowMillis);
+            } else {
+                stripe.touch(slot, nowMillis);
+            }
+            Positions positions = stripe.columns();
+            positions.latitudes[slot] = latitude;
+            positions.longitudes[slot] = longitude;
+            positions.fixMillis[slot] = fixMillis;
+        }
+    }
+
+    /**
+     * @return La dernière position de la course, ou null si inconnue ou expirée
+     */
+    public LocationMessage get(long rideId, long nowMillis) {
+        StripedLongTable.Stripe<Positions> stripe = table.stripe(rideId);
+        synchronized (stripe) {
+            int slot = stripe.find(rideId, nowMillis);
+            if (slot < 0) {
+                return null;
+            }
+            Positions positions = stripe.columns();
+            return new LocationMessage(rideId, positions.latitudes[slot], positions.longitudes[slot],
+                    Instant.ofEpochMilli(positions.fixMillis[slot]).toString());
+        }
+    }
+
+    /**
+     * Éviction explicite (course terminée ou annulée).
+     */
+    public void remove(long rideId) {
+        if (table.remove(rideId)) {
+            evictedRideEnded.increment();
+        }
+    }
+
+    public int purgeExpired(long nowMillis) {
+        return table.purgeIdle(nowMillis);
+    }
+
+    public int size() {
+        return table.size();
+    }
+
+    private void evictionCounter(MeterRegistry registry, String reason,
+                                 ToDoubleFunction<StripedLongTable<Positions>> count) {
+        FunctionCounter.builder("tracking.last_location.evictions", table, count)
+                .tag("reason", reason)
+                .register(registry);
+    }
+
+    private static final class Positions implements StripedLongTable.Columns {
+        private final double[] latitudes;
+        private final double[] longitudes;
+        private final long[] fixMillis;
+
+        private Positions(int tableSize) {
+            this.latitudes = new double[tableSize];
+            this.longitudes = new double[tableSize];
+            this.fixMillis = new long[tableSize];
+        }
+
+        @Override
+        public void move(int from, int to) {
+            latitudes[to] = latitudes[from];
+            longitudes[to] = longitudes[from];
+            fixMillis[to] = fixMillis[from];
+        }
+    }
+}
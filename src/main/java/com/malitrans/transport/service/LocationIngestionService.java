@@ -0,0 +1,178 @@
+package com.malitrans.transport.service;
+
+import com.malitrans.transport.util.GeoUtil;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Étape d'ingestion des positions chauffeur, par course, avant diffusion sur /topic/ride/{id} :
+ * - rejette les positions plus anciennes que la dernière reçue (ordre par timestamp du fix),
+ * - supprime les déplacements sous un seuil de distance (bande morte), avec un "heartbeat" périodique,
+ * - regroupe les rafales : au plus une diffusion par intervalle, la position la plus récente en attente
+ *   étant diffusée par {@link #drainDue} à l'échéance.
+ */
+@Service
+public class LocationIngestionService {
+
+    public enum Decision {
+        FORWARD,
+        OUT_OF_ORDER,
+        STATIONARY,
+        COALESCED
+    }
+
+    /**
+     * Destinataire d'une position à diffuser (valeurs primitives, sans DTO intermédiaire).
+     */
+    @FunctionalInterface
+    public interface FixPublisher {
+        void publish(long rideId, double latitude, double longitude, long fixMillis);
+    }
+
+    private final double minDistanceMeters;
+    private final long minPublishIntervalMillis;
+    private final long heartbeatIntervalMillis;
+    private final long idleStateTtlMillis;
+    private final Map<Long, RideState> states = new ConcurrentHashMap<>();
+
+    private final Counter forwarded;
+    private final Counter flushed;
+    private final Counter outOfOrder;
+    private final Counter stationary;
+    private final Counter superseded;
+
+    public LocationIngestionService(MeterRegistry meterRegistry,
+                                    @Value("${app.tracking.min-distance-meters:10}") double minDistanceMeters,
+                                    @Value("${app.tracking.min-publish-interval-ms:1000}") long minPublishIntervalMillis,
+                                    @Value("${app.tracking.heartbeat-interval-ms:30000}") long heartbeatIntervalMillis,
+                                    @Value("${app.tracking.idle-state-ttl-ms:900000}") long idleStateTtlMillis) {
+        this.minDistanceMeters = minDistanceMeters;
+        this.minPublishIntervalMillis = minPublishIntervalMillis;
+        this.heartbeatIntervalMillis = heartbeatIntervalMillis;
+        this.idleStateTtlMillis = idleStateTtlMillis;
+
+        this.forwarded = ingestCounter(meterRegistry, "forwarded");
+        this.flushed = ingestCounter(meterRegistry, "flushed");
+        this.outOfOrder = ingestCounter(meterRegistry, "out_of_order");
+        this.stationary = ingestCounter(meterRegistry, "stationary");
+        this.superseded = ingestCounter(meterRegistry, "superseded");
+        Gauge.builder("tracking.ingest.rides", states, Map::size).register(meterRegistry);
+    }
+
+    /**
+     * Soumet une position.
+     * @param fixMillis    Horodatage du fix (epoch ms)
+     * @param nowMillis    Horloge serveur (epoch ms)
+     * @return FORWARD si la position doit être diffusée immédiatement, sinon la raison de la non-diffusion
+     */
+    public Decision offer(long rideId, double latitude, double longitude, long fixMillis, long nowMillis) {
+        RideState state = states.computeIfAbsent(rideId, id -> new RideState());
+        synchronized (state) {
+            state.lastSeenMillis = nowMillis;
+
+            if (fixMillis <= state.lastFixMillis) {
+                outOfOrder.increment();
+                return Decision.OUT_OF_ORDER;
+            }
+            state.lastFixMillis = fixMillis;
+
+            if (state.hasPublished) {
+                double refLat = state.hasPending ? state.pendingLat : state.publishedLat;
+                double refLng = state.hasPending ? state.pendingLng : state.publishedLng;
+                boolean belowDeadBand = GeoUtil.haversineMeters(refLat, refLng, latitude, longitude) < minDistanceMeters;
+                boolean heartbeatDue = nowMillis - state.publishedAtMillis >= heartbeatIntervalMillis;
+                if (belowDeadBand && !heartbeatDue) {
+                    stationary.increment();
+                    return Decision.STATIONARY;
+                }
+
+                if (nowMillis - state.publishedAtMillis < minPublishIntervalMillis) {
+                    if (state.hasPending) {
+                        superseded.increment();
+                    }
+                    state.hasPending = true;
+                    state.pendingLat = latitude;
+                    state.pendingLng = longitude;
+                    state.pendingFixMillis = fixMillis;
+                    return Decision.COALESCED;
+                }
+            }
+
+            state.markPublished(latitude, longitude, nowMillis);
+            forwarded.increment();
+            return Decision.FORWARD;
+        }
+    }
+
+    /**
+     * Diffuse les positions regroupées dont l'intervalle minimal est écoulé, et oublie les courses inactives.
+     */
+    public void drainDue(long nowMillis, FixPublisher publisher) {
+        List<PendingFix> due = new ArrayList<>();
+        Iterator<Map.Entry<Long, RideState>> it = states.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<Long, RideState> entry = it.next();
+            RideState state = entry.getValue();
+            synchronized (state) {
+                if (state.hasPending && nowMillis - state.publishedAtMillis >= minPublishIntervalMillis) {
+                    due.add(new PendingFix(entry.getKey(), state.pendingLat, state.pendingLng, state.pendingFixMillis));
+                    state.markPublished(state.pendingLat, state.pendingLng, nowMillis);
+                    flushed.increment();
+                } else if (!state.hasPending && nowMillis - state.lastSeenMillis > idleStateTtlMillis) {
+                    it.remove();
+                }
+            }
+        }
+        for (PendingFix fix : due) {
+            publisher.publish(fix.rideId, fix.latitude, fix.longitude, fix.fixMillis);
+        }
+    }
+
+    /**
+     * Oublie l'état d'ingestion d'une course (fin de course).
+     */
+    public void forget(Long rideId) {
+        if (rideId != null) {
+            states.remove(rideId);
+        }
+    }
+
+    private static Counter ingestCounter(MeterRegistry registry, String outcome) {
+        return Counter.builder("tracking.ingest.messages")
+                .tag("outcome", outcome)
+                .register(registry);
+    }
+
+    private static final class RideState {
+        private long lastFixMillis = Long.MIN_VALUE;
+        private long lastSeenMillis;
+        private boolean hasPublished;
+        private double publishedLat;
+        private double publishedLng;
+        private long publishedAtMillis;
+        private boolean hasPending;
+        private double pendingLat;
+        private double pendingLng;
+        private long pendingFixMillis;
+
+        private void markPublished(double latitude, double longitude, long nowMillis) {
+            hasPublished = true;
+            publishedLat = latitude;
+            publishedLng = longitude;
+            publishedAtMillis = nowMillis;
+            hasPending = false;
+        }
+    }
+
+    private record PendingFix(long rideId, double latitude, double longitude, long fixMillis) {
+    }
+}
@@ -1,6 +1,7 @@
 package com.malitrans.transport.service;
 
 import com.malitrans.transport.model.RideRequest;
+import com.malitrans.transport.model.Utilisateur;
 
 /**
  * Service interface for handling notifications.
@@ -38,5 +39,19 @@ public interface NotificationService {
      * @param request The ride request accepted by a driver
      */
     void notifyClientOfDriverAccepted(RideRequest request);
-}
 
+    /**
+     * Notify the client that the driver is approaching or has reached the pickup / drop-off point
+     * @param request The ride request being tracked
+     * @param event The geofence event detected from the driver's location stream
+     */
+    void notifyClientOfArrival(RideRequest request, RideGeofenceEngine.Event event);
+
+    /**
+     * Notify a single driver that a ride is offered exclusively to them (exclusive dispatch mode)
+     * @param request The ride request being offered
+     * @param driver The driver holding the offer
+     * @param windowSeconds Acceptance window before the offer moves to the next driver
+     */
+    void notifyDriverOfOffer(RideRequest request, Utilisateur driver, long windowSeconds);
+}
@@ -179,4 +179,64 @@ public class NotificationServiceImpl implements NotificationService {
             logger.info("Notified client {} that driver accepted request id={}", client.getId(), request.getId());
         }
     }
+
+    @Override
+    public void notifyClientOfArrival(RideRequest request, RideGeofenceEngine.Event event) {
+        Utilisateur client = request.getClient();
+        if (client == null) {
+            logger.debug("No client on request id={}, skipping arrival FCM", request.getId());
+            return;
+        }
+        String fcmToken = client.getFcmToken();
+        if (fcmToken == null || fcmToken.isBlank()) {
+            logger.debug("Client {} has no FCM token, skipping arrival push", client.getId());
+            return;
+        }
+
+        String place = event.isPickup() ? "au point de collecte" : "a destination";
+        String title = event.isArrived() ? "Livreur arrive" : "Livreur en approche";
+        String body = event.isArrived()
+                ? "Le livreur est arrive " + place + " pour la course #" + request.getId() + "."
+                : "Le livreur approche " + (event.isPickup() ? "du point de collecte" : "de la destination")
+                        + " pour la course #" + request.getId() + ".";
+
+        Map<String, String> data = new HashMap<>();
+        data.put("rideId", request.getId().toString());
+        data.put("type", "ARRIVAL");
+        data.put("fence", event.fence());
+        data.put("stage", event.stage());
+
+        boolean sent = fcmService.sendToToken(fcmToken, title, body, data);
+        if (!sent) {
+            logger.warn("FCM send failed for client {} on {} rideId={}", client.getId(), event, request.getId());
+        } else {
+            logger.info("Notified client {} of {} for request id={}", client.getId(), event, request.getId());
+        }
+    }
+
+    @Override
+    public void notifyDriverOfOffer(RideRequest request, Utilisateur driver, long windowSeconds) {
+        String fcmToken = driver.getFcmToken();
+        if (fcmToken == null || fcmToken.isBlank()) {
+            logger.debug("Driver {} has no FCM token, skipping offer push", driver.getId());
+            return;
+        }
+
+        String origin = request.getOrigin() != null ? request.getOrigin() : "?";
+        String destination = request.getDestination() != null ? request.getDestination() : "?";
+        String title = "Course proposee pour vous";
+        String body = "De " + origin + " vers " + destination + ". Acceptez dans les " + windowSeconds + " secondes.";
+
+        Map<String, String> data = new HashMap<>();
+        data.put("rideId", request.getId().toString());
+        data.put("type", "RIDE_OFFER");
+        data.put("windowSeconds", String.valueOf(windowSeconds));
+
+        boolean sent = fcmService.sendToToken(fcmToken, title, body, data);
+        if (!sent) {
+            logger.warn("FCM send failed for driver {} on offer rideId={}", driver.getId(), request.getId());
+        } else {
+            logger.info("Offered request id={} to driver {}", request.getId(), driver.getId());
+        }
+    }
 }
@@ -1,56 +1,132 @@
 package com.malitrans.transport.service;
 
+import com.malitrans.transport.exception.OtpDeliveryException;
 import com.malitrans.transport.model.OtpCode;
 import com.malitrans.transport.model.OtpType;
 import com.malitrans.transport.model.Utilisateur;
 import com.malitrans.transport.repository.OtpCodeRepository;
+import com.malitrans.transport.repository.UtilisateurRepository;
 import com.malitrans.transport.util.PhoneUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
 import java.time.Instant;
-import java.util.Random;
 
 @Service
 public class OtpService {
 
+    private static final Logger logger = LoggerFactory.getLogger(OtpService.class);
+
     private static final int CODE_LENGTH = 6;
-    private static final Random RANDOM = new Random();
+    private static final int CODE_BOUND = 1_000_000; // 10^CODE_LENGTH
+    private static final SecureRandom RANDOM = new SecureRandom();
 
     @Value("${app.otp.expiration-minutes:5}")
     private int expirationMinutes;
 
     private final OtpCodeRepository otpCodeRepository;
+    private final UtilisateurRepository utilisateurRepository;
     private final SmsService smsService;
     private final PhoneUtil phoneUtil;
+    private final TransactionTemplate otpTransaction;
 
     public OtpService(OtpCodeRepository otpCodeRepository,
+                      UtilisateurRepository utilisateurRepository,
                       SmsService smsService,
-                      PhoneUtil phoneUtil) {
+                      PhoneUtil phoneUtil,
+                      PlatformTransactionManager transactionManager) {
         this.otpCodeRepository = otpCodeRepository;
+        this.utilisateurRepository = utilisateurRepository;
         this.smsService = smsService;
         this.phoneUtil = phoneUtil;
+        this.otpTransaction = new TransactionTemplate(transactionManager);
+        this.otpTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
     }
 
     /**
      * Crée un OTP de type REGISTRATION pour l'utilisateur, l'enregistre (5 min) et envoie le code par SMS (mock console).
-     * Remplace tout OTP REGISTRATION existant pour cet utilisateur.
+     * Remplace tout OTP REGISTRATION existant pour ce numéro (la ligne existante est réutilisée).
+     * Dans une transaction (inscription), l'OTP est écrit dans sa propre transaction après le commit de l'utilisateur :
+     * un conflit sur (téléphone, type) ne peut ainsi pas annuler l'inscription.
+     * @throws OtpDeliveryException si le code n'a pas pu être enregistré ou envoyé (après commit : le compte existe,
+     *         en attente de vérification, et le code peut être redemandé via {@link #resendRegistrationOtp})
      */
-    @Transactional
     public void createOtpForRegistration(Utilisateur user) {
         if (user.getPhone() == null || user.getPhone().isBlank()) {
             throw new IllegalStateException("User phone is required to send registration OTP");
         }
-        deleteExistingRegistrationOtpForUser(user);
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            issueRegistrationOtp(user);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                issueRegistrationOtp(user);
+            }
+        });
+    }
+
+    /**
+     * Renvoie un nouveau code d'inscription au numéro donné si son compte est en attente de vérification OTP
+     * (inscription dont le SMS a échoué ou code expiré). Sans effet pour un numéro inconnu ou un compte déjà vérifié,
+     * afin de ne pas révéler quels numéros sont inscrits.
+     * @throws IllegalArgumentException si le numéro est invalide
+     * @throws OtpDeliveryException si le code n'a pas pu être enregistré ou envoyé
+     */
+    public void resendRegistrationOtp(String phone) {
+        String normalizedPhone = phoneUtil.toInternational(phone);
+        if (normalizedPhone == null) {
+            throw new IllegalArgumentException("Invalid phone number format");
+        }
+        utilisateurRepository.findByPhone(normalizedPhone)
+                .filter(user -> !user.isEnabled() && Boolean.TRUE.equals(user.getRegistrationPending()))
+                .ifPresent(this::issueRegistrationOtp);
+    }
+
+    private void issueRegistrationOtp(Utilisateur user) {
+        try {
+            saveAndSendRegistrationOtp(user);
+        } catch (RuntimeException e) {
+            logger.error("Registration OTP could not be issued for user {}", user.getId(), e);
+            throw new OtpDeliveryException("Registration OTP could not be issued", e);
+        }
+    }
+
+    private void saveAndSendRegistrationOtp(Utilisateur user) {
         String code = generateCode();
-        OtpCode otp = new OtpCode();
+        Instant expiryDate = Instant.now().plusSeconds(expirationMinutes * 60L);
+        try {
+            otpTransaction.executeWithoutResult(status -> saveRegistrationOtp(user, code, expiryDate));
+        } catch (DataIntegrityViolationException e) {
+            // Insertion concurrente pour le même (téléphone, type) : la ligne existe désormais, elle est mise à jour
+            otpTransaction.executeWithoutResult(status -> saveRegistrationOtp(user, code, expiryDate));
+        }
+        smsService.sendOtp(user.getPhone(), code);
+    }
+
+    private void saveRegistrationOtp(Utilisateur user, String code, Instant expiryDate) {
+        OtpCode otp = otpCodeRepository.findByPhoneAndType(user.getPhone(), OtpType.REGISTRATION)
+                .orElseGet(OtpCode::new);
         otp.setCode(code);
-        otp.setExpiryDate(Instant.now().plusSeconds(expirationMinutes * 60L));
+        otp.setExpiryDate(expiryDate);
         otp.setType(OtpType.REGISTRATION);
+        otp.setPhone(user.getPhone());
         otp.setUser(user);
-        otpCodeRepository.save(otp);
-        smsService.sendOtp(user.getPhone(), code);
+        otpCodeRepository.saveAndFlush(otp);
     }
 
     /**
@@ -70,29 +146,50 @@ public class OtpService {
         if (trimmedCode.length() != CODE_LENGTH || !trimmedCode.matches("\\d+")) {
             throw new IllegalArgumentException("Code must be 6 digits");
         }
-        OtpCode otp = otpCodeRepository.findByCodeAndType(trimmedCode, OtpType.REGISTRATION)
+        OtpCode otp = otpCodeRepository.findByPhoneAndType(normalizedPhone, OtpType.REGISTRATION)
                 .orElseThrow(() -> new IllegalArgumentException("Invalid or expired code"));
         if (otp.getExpiryDate().isBefore(Instant.now())) {
             otpCodeRepository.delete(otp);
             throw new IllegalArgumentException("Code has expired");
         }
+        if (!codesMatch(otp.getCode(), trimmedCode)) {
+            throw new IllegalArgumentException("Invalid or expired code");
+        }
         Utilisateur user = otp.getUser();
         String userPhone = user.getPhone();
         if (userPhone == null || !userPhone.equals(normalizedPhone)) {
             throw new IllegalArgumentException("Invalid or expired code");
         }
         user.setEnabled(true);
+        user.setRegistrationPending(false);
         otpCodeRepository.delete(otp);
         return user;
     }
 
-    private void deleteExistingRegistrationOtpForUser(Utilisateur user) {
-        otpCodeRepository.deleteByUserAndType(user, OtpType.REGISTRATION);
+    /**
+     * Purge périodique des codes expirés jamais présentés (une seule requête DELETE par passage).
+     */
+    @Scheduled(initialDelayString = "${app.otp.sweep-interval-ms:300000}",
+               fixedDelayString = "${app.otp.sweep-interval-ms:300000}")
+    public void purgeExpiredCodes() {
+        int deleted = otpCodeRepository.deleteExpiredBefore(Instant.now());
+        if (deleted > 0) {
+            logger.info("Purged {} expired OTP code(s)", deleted);
+        }
+    }
+
+    private boolean codesMatch(String expected, String provided) {
+        if (expected == null) {
+            return false;
+        }
+        // Comparaison à temps constant pour ne pas divulguer le préfixe correct
+        return MessageDigest.isEqual(
+                expected.getBytes(StandardCharsets.US_ASCII),
+                provided.getBytes(StandardCharsets.US_ASCII));
     }
 
     private String generateCode() {
-        int max = (int) Math.pow(10, CODE_LENGTH);
-        int value = RANDOM.nextInt(max);
+        int value = RANDOM.nextInt(CODE_BOUND);
         return String.format("%0" + CODE_LENGTH + "d", value);
     }
 }
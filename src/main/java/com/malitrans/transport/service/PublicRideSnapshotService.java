@@ -0,0 +1,416 @@
+package com.malitrans.transport.service;
+
+import com.malitrans.transport.dto.LocationMessage;
+import com.malitrans.transport.model.RideRequest;
+import com.malitrans.transport.model.ValidationStatus;
+import com.malitrans.transport.repository.RideRequestRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Instantané public d'une course (page destinataire validate.html), construit en une seule lecture SQL
+ * et mis en cache par identifiant de course et par token de validation.
+ * Invalidé par RideRequestService après commit de chaque transition d'état ; un TTL court borne
+ * la fraîcheur quand la transition a eu lieu sur un autre nœud.
+ * L'ETag combine le contenu de l'instantané et la dernière position connue : les clients peuvent
+ * interroger avec If-None-Match, ou attendre un changement ({@link #awaitChange}) ; les réponses différées sont
+ * construites sur un pool borné dédié ({@link #longPollExecutor}), jamais sur le pool commun.
+ * Seule source des informations publiques d'une course : la page destinataire et /ride/validate-info s'en servent.
+ */
+@Service
+public class PublicRideSnapshotService {
+
+    private final RideRequestRepository repository;
+    private final TrackingService trackingService;
+    private final RideEtaEstimator etaEstimator;
+    private final long ttlMillis;
+    private final int maxEntries;
+    private final Map<Long, Snapshot> byRideId = new ConcurrentHashMap<>();
+    private final Map<String, Long> rideIdByToken = new ConcurrentHashMap<>();
+    private final Map<Long, Queue<Waiter>> waiters = new ConcurrentHashMap<>();
+    private final AtomicLong invalidations = new AtomicLong();
+    private final AtomicInteger waiting = new AtomicInteger();
+
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter longPollRejected;
+    private final ThreadPoolExecutor longPollExecutor;
+
+    public PublicRideSnapshotService(RideRequestRepository repository,
+                                     TrackingService trackingService,
+                                     RideEtaEstimator etaEstimator,
+                                     MeterRegistry meterRegistry,
+                                     @Value("${app.public-tracking.snapshot-ttl-ms:15000}") long ttlMillis,
+                                     @Value("${app.public-tracking.max-snapshots:20000}") int maxEntries,
+                                     @Value("${app.public-tracking.long-poll-threads:2}") int longPollThreads,
+                                     @Value("${app.public-tracking.long-poll-queue-capacity:1000}") int longPollQueueCapacity) {
+        this.repository = repository;
+        this.trackingService = trackingService;
+        this.etaEstimator = etaEstimator;
+        this.ttlMillis = ttlMillis;
+        this.maxEntries = maxEntries;
+        this.hits = Counter.builder("tracking.public_snapshot.lookups").tag("cache", "hit").register(meterRegistry);
+        this.misses = Counter.builder("tracking.public_snapshot.lookups").tag("cache", "miss").register(meterRegistry);
+        Gauge.builder("tracking.public_snapshot.entries", byRideId, Map::size).register(meterRegistry);
+        Gauge.builder("tracking.public_snapshot.waiters", waiting, AtomicInteger::get).register(meterRegistry);
+        this.longPollRejected = Counter.builder("tracking.public_snapshot.long_poll_rejected").register(meterRegistry);
+
+        AtomicInteger threadCounter = new AtomicInteger();
+        this.longPollExecutor = new ThreadPoolExecutor(longPollThreads, longPollThreads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(longPollQueueCapacity), runnable -> {
+                    Thread thread = new Thread(runnable, "public-long-poll-" + threadCounter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    /**
+     * Exécuteur des réponses différées (lecture éventuelle de la course). File pleine : la tâche est abandonnée,
+     * la requête se termine à l'expiration de son attente.
+     */
+    public Executor longPollExecutor() {
+        return task -> {
+            try {
+                longPollExecutor.execute(task);
+            } catch (RejectedExecutionException e) {
+                longPollRejected.increment();
+            }
+        };
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        longPollExecutor.shutdownNow();
+    }
+
+    public Optional<Snapshot> findByRideId(Long rideId) {
+        if (rideId == null) {
+            return Optional.empty();
+        }
+        Snapshot cached = fresh(byRideId.get(rideId));
+        if (cached != null) {
+            hits.increment();
+            return Optional.of(cached);
+        }
+        misses.increment();
+        long generation = invalidations.get();
+        return repository.findById(rideId).map(request -> store(request, generation));
+    }
+
+    public Optional<Snapshot> findByToken(String token) {
+        if (token == null || token.isBlank()) {
+            return Optional.empty();
+        }
+        Long rideId = rideIdByToken.get(token);
+        Snapshot cached = rideId != null ? fresh(byRideId.get(rideId)) : null;
+        if (cached != null && token.equals(cached.validationToken)) {
+            hits.increment();
+            return Optional.of(cached);
+        }
+        misses.increment();
+        long generation = invalidations.get();
+        return repository.findByValidationToken(token).map(request -> store(request, generation));
+    }
+
+    /**
+     * Informations affichées au destinataire avant validation.
+     * @throws RideRequestService.LinkExpiredException si le lien est inconnu, déjà utilisé, expiré, ou si la course
+     * n'attend plus le destinataire
+     */
+    public Map<String, Object> recipientValidationInfo(String token) {
+        return findByToken(token)
+                .filter(Snapshot::isRecipientLinkUsable)
+                .map(Snapshot::recipientValidationInfo)
+                .orElseThrow(RideRequestService.LinkExpiredException::new);
+    }
+
+    /**
+     * Instantané d'une course déjà chargée (après une transition), mis en cache pour les lectures suivantes.
+     */
+    public Snapshot snapshotOf(RideRequest request) {
+        return store(request, invalidations.get());
+    }
+
+    /**
+     * Informations publiques de suivi : instantané + dernière position connue et ETA (course en cours).
+     */
+    public Map<String, Object> publicInfo(Snapshot snapshot) {
+        Map<String, Object> response = new HashMap<>(snapshot.info);
+        currentLocation(snapshot.rideId).ifPresent(location -> response.put("lastLocation", toLocationMap(location)));
+        int etaSeconds = etaEstimator.etaSeconds(snapshot.rideId);
+        if (etaSeconds != RideEtaEstimator.UNKNOWN && Boolean.TRUE.equals(snapshot.info.get("trackingEnabled"))) {
+            Map<String, Object> eta = new HashMap<>();
+            eta.put("etaSeconds", etaSeconds);
+            eta.put("remainingMeters", etaEstimator.remainingMeters(snapshot.rideId));
+            eta.put("estimatedArrival", Instant.now().plusSeconds(etaSeconds).toString());
+            response.put("eta", eta);
+        }
+        return response;
+    }
+
+    public String etag(Snapshot snapshot) {
+        int locationHash = currentLocation(snapshot.rideId)
+                .map(location -> Objects.hash(location.getLatitude(), location.getLongitude(), location.getTimestamp()))
+                .orElse(0);
+        return "\"" + Integer.toHexString(snapshot.contentHash) + "-" + Integer.toHexString(locationHash) + "\"";
+    }
+
+    /**
+     * Futur complété dès que l'ETag de la course diffère de celui connu du client
+     * (transition d'état immédiatement, nouvelle position au prochain passage de {@link #notifyLocationChanges}).
+     */
+    public CompletableFuture<Void> awaitChange(long rideId, String knownEtag) {
+        Waiter waiter = new Waiter(knownEtag);
+        waiters.computeIfAbsent(rideId, id -> new ConcurrentLinkedQueue<>()).add(waiter);
+        waiting.incrementAndGet();
+        waiter.future.whenComplete((ignored, error) -> {
+            waiting.decrementAndGet();
+            Queue<Waiter> queue = waiters.get(rideId);
+            if (queue != null) {
+                queue.remove(waiter);
+                if (queue.isEmpty()) {
+                    waiters.remove(rideId, queue);
+                }
+            }
+        });
+        return waiter.future;
+    }
+
+    /**
+     * Transition d'état (ou nouveau token) : supprime l'instantané et réveille les clients en attente.
+     */
+    public void invalidate(Long rideId) {
+        if (rideId == null) {
+            return;
+        }
+        invalidations.incrementAndGet();
+        Snapshot removed = byRideId.remove(rideId);
+        if (removed != null && removed.validationToken != null) {
+            rideIdByToken.remove(removed.validationToken, rideId);
+        }
+        Queue<Waiter> queue = waiters.get(rideId);
+        if (queue != null) {
+            queue.forEach(waiter -> waiter.future.complete(null));
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.public-tracking.long-poll-check-interval-ms:1000}")
+    public void notifyLocationChanges() {
+        waiters.forEach((rideId, queue) -> {
+            Snapshot snapshot = byRideId.get(rideId);
+            if (snapshot == null) {
+                queue.forEach(waiter -> waiter.future.complete(null));
+                return;
+            }
+            String current = etag(snapshot);
+            queue.forEach(waiter -> {
+                if (!current.equals(waiter.knownEtag)) {
+                    waiter.future.complete(null);
+                }
+            });
+        });
+    }
+
+    @Scheduled(fixedDelayString = "${app.public-tracking.purge-interval-ms:60000}")
+    public void purgeExpired() {
+        long now = System.currentTimeMillis();
+        byRideId.entrySet().removeIf(entry -> {
+            Snapshot snapshot = entry.getValue();
+            if (waiters.containsKey(entry.getKey()) || now - snapshot.loadedAtMillis < ttlMillis) {
+                return false;
+            }
+            if (snapshot.validationToken != null) {
+                rideIdByToken.remove(snapshot.validationToken, entry.getKey());
+            }
+            return true;
+        });
+    }
+
+    private Snapshot fresh(Snapshot snapshot) {
+        if (snapshot == null || System.currentTimeMillis() - snapshot.loadedAtMillis >= ttlMillis) {
+            return null;
+        }
+        return snapshot;
+    }
+
+    private Snapshot store(RideRequest request, long generation) {
+        Snapshot snapshot = new Snapshot(request, System.currentTimeMillis());
+        if (byRideId.size() >= maxEntries) {
+            purgeExpired();
+            if (byRideId.size() >= maxEntries) {
+                return snapshot;
+            }
+        }
+        Snapshot previous = byRideId.put(snapshot.rideId, snapshot);
+        if (previous != null && previous.validationToken != null
+                && !previous.validationToken.equals(snapshot.validationToken)) {
+            rideIdByToken.remove(previous.validationToken, snapshot.rideId);
+        }
+        if (snapshot.validationToken != null) {
+            rideIdByToken.put(snapshot.validationToken, snapshot.rideId);
+        }
+        if (invalidations.get() != generation) {
+            // Invalidation concurrente : la lecture a pu précéder le commit, on ne la garde pas en cache
+            byRideId.remove(snapshot.rideId, snapshot);
+        }
+        return snapshot;
+    }
+
+    private Optional<LocationMessage> currentLocation(long rideId) {
+        return trackingService.getLastLocation(rideId);
+    }
+
+    private static Map<String, Object> toLocationMap(LocationMessage location) {
+        Map<String, Object> map = new HashMap<>();
+        map.put("rideId", location.getRideId());
+        map.put("latitude", location.getLatitude());
+        map.put("longitude", location.getLongitude());
+        map.put("timestamp", location.getTimestamp());
+        return map;
+    }
+
+    /**
+     * Vue figée d'une course, sans référence à l'entité JPA.
+     */
+    public static final class Snapshot {
+        private final long rideId;
+        private final String validationToken;
+        private final boolean validationTokenUsed;
+        private final LocalDateTime validationTokenExpiresAt;
+        private final ValidationStatus status;
+        private final String qrCodeDelivery;
+        private final Map<String, Object> info;
+        private final int contentHash;
+        private final long loadedAtMillis;
+
+        private Snapshot(RideRequest request, long loadedAtMillis) {
+            this.rideId = request.getId();
+            this.validationToken = request.getValidationToken();
+            this.validationTokenUsed = request.getValidationTokenUsedAt() != null;
+            LocalDateTime createdAt = request.getValidationTokenCreatedAt() != null
+                    ? request.getValidationTokenCreatedAt()
+                    : request.getCreatedAt();
+            this.validationTokenExpiresAt = createdAt != null
+                    ? createdAt.plus(RideRequestService.RECIPIENT_VALIDATION_TOKEN_TTL)
+                    : null;
+            this.status = request.getValidationStatus();
+            this.qrCodeDelivery = request.getQrCodeDelivery();
+            this.info = Collections.unmodifiableMap(buildInfo(request));
+            this.contentHash = info.hashCode();
+            this.loadedAtMillis = loadedAtMillis;
+        }
+
+        public long getRideId() {
+            return rideId;
+        }
+
+        public ValidationStatus getStatus() {
+            return status;
+        }
+
+        /**
+         * Le lien destinataire n'est utilisable qu'une fois, pendant son TTL, en attente de validation.
+         */
+        public boolean isRecipientLinkUsable() {
+            return !validationTokenUsed
+                    && validationTokenExpiresAt != null
+                    && !validationTokenExpiresAt.isBefore(LocalDateTime.now())
+                    && status == ValidationStatus.WAITING_RECIPIENT_VALIDATION;
+        }
+
+        public boolean matchesTrackingCode(String code) {
+            return qrCodeDelivery != null && qrCodeDelivery.equals(code);
+        }
+
+        /**
+         * Informations affichées avant validation du destinataire (sans codes de livraison).
+         */
+        public Map<String, Object> recipientValidationInfo() {
+            Map<String, Object> response = new HashMap<>(info);
+            response.remove("qrCodeDelivery");
+            response.remove("trackingToken");
+            response.put("canValidateLocation", true);
+            response.put("trackingEnabled", false);
+            return response;
+        }
+
+        private static Map<String, Object> buildInfo(RideRequest request) {
+            ValidationStatus status = request.getValidationStatus();
+            boolean waitingForRecipient = status == ValidationStatus.WAITING_RECIPIENT_VALIDATION;
+            boolean terminal = status == ValidationStatus.COMPLETED || status == ValidationStatus.CANCELED;
+
+            Map<String, Object> response = new HashMap<>();
+            response.put("rideId", request.getId());
+            response.put("validationStatus", status != null ? status.name() : null);
+            response.put("canValidateLocation", waitingForRecipient);
+            response.put("trackingEnabled", !waitingForRecipient && !terminal);
+            response.put("driverAssigned", request.getChauffeur() != null);
+            response.put("price", request.getPrice());
+            response.put("packageDescription", request.getPackageDescription() != null
+                    ? request.getPackageDescription()
+                    : "Colis sans description");
+            response.put("origin", request.getOrigin());
+            response.put("destination", request.getDestination());
+            response.put("senderName", resolveSenderName(request));
+            response.put("recipientName", resolveRecipientName(request));
+            response.put("qrCodeDelivery", request.getQrCodeDelivery());
+            response.put("trackingToken", request.getQrCodeDelivery());
+            return response;
+        }
+
+        private static String resolveSenderName(RideRequest request) {
+            if (Boolean.FALSE.equals(request.getIsSenderClient())) {
+                if (request.getOtherPartyName() != null && !request.getOtherPartyName().isBlank()) {
+                    return request.getOtherPartyName();
+                }
+                if (request.getSupplier() != null) {
+                    return request.getSupplier().getFullName();
+                }
+            }
+            return request.getClient() != null ? request.getClient().getFullName() : "Woyo Client";
+        }
+
+        private static String resolveRecipientName(RideRequest request) {
+            if (Boolean.TRUE.equals(request.getIsSenderClient())) {
+                if (request.getOtherPartyName() != null && !request.getOtherPartyName().isBlank()) {
+                    return request.getOtherPartyName();
+                }
+                return "Destinataire";
+            }
+            return request.getClient() != null ? request.getClient().getFullName() : "Destinataire";
+        }
+    }
+
+    private static final class Waiter {
+        private final String knownEtag;
+        private final CompletableFuture<Void> future = new CompletableFuture<>();
+
+        private Waiter(String knownEtag) {
+            this.knownEtag = knownEtag;
+        }
+    }
+}
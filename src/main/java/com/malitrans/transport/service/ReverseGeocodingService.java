@@ -0,0 +1,200 @@
+package com.malitrans.transport.service;
+
+import com.malitrans.transport.model.GeocodeCacheEntry;
+import com.malitrans.transport.repository.GeocodeCacheRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Primary;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Géocodage inverse (coordonnées → adresse lisible) utilisé par l'application :
+ * d'abord le gazetteer local (GazetteerGeocoder, hors ligne), puis, si app.geocoding.google-fallback.enabled,
+ * Google derrière un cache à deux niveaux indexé par les coordonnées arrondies à app.geocoding.cache.precision
+ * décimales (4 ≈ 11 m) :
+ * - LRU en mémoire (réponse en microsecondes pour les cellules déjà vues),
+ * - table geocode_cache partagée entre les nœuds et conservée entre les redémarrages.
+ * Au-delà du TTL une entrée est rafraîchie auprès de Google ; si Google échoue, l'adresse périmée reste servie.
+ * L'écriture en table se fait dans sa propre transaction : un conflit avec un autre nœud n'affecte pas
+ * la transaction de l'appelant (validation de course).
+ */
+@Service
+@Primary
+public class ReverseGeocodingService implements Geocoder {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReverseGeocodingService.class);
+
+    private final GazetteerGeocoder gazetteerGeocoder;
+    private final GoogleGeocoder googleGeocoder;
+    private final GeocodeCacheRepository cacheRepository;
+    private final TransactionTemplate cacheTransaction;
+    private final boolean googleFallbackEnabled;
+    private final int precision;
+    private final double scale;
+    private final long ttlMillis;
+    private final int memoryMaxEntries;
+    private final Map<String, CachedAddress> memory;
+
+    private final Counter memoryHits;
+    private final Counter memoryMisses;
+    private final Counter databaseHits;
+    private final Counter databaseMisses;
+    private final Counter staleServed;
+
+    public ReverseGeocodingService(GazetteerGeocoder gazetteerGeocoder,
+                                   GoogleGeocoder googleGeocoder,
+                                   GeocodeCacheRepository cacheRepository,
+                                   PlatformTransactionManager transactionManager,
+                                   MeterRegistry meterRegistry,
+                                   @Value("${app.geocoding.google-fallback.enabled:true}") boolean googleFallbackEnabled,
+                                   @Value("${app.geocoding.cache.precision:4}") int precision,
+                                   @Value("${app.geocoding.cache.ttl-hours:720}") long ttlHours,
+                                   @Value("${app.geocoding.cache.memory-max-entries:10000}") int memoryMaxEntries) {
+        this.gazetteerGeocoder = gazetteerGeocoder;
+        this.googleGeocoder = googleGeocoder;
+        this.cacheRepository = cacheRepository;
+        this.cacheTransaction = new TransactionTemplate(transactionManager);
+        this.cacheTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.googleFallbackEnabled = googleFallbackEnabled;
+        this.precision = precision;
+        this.scale = Math.pow(10, precision);
+        this.ttlMillis = TimeUnit.HOURS.toMillis(ttlHours);
+        this.memoryMaxEntries = memoryMaxEntries;
+        this.memory = new LinkedHashMap<>(256, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedAddress> eldest) {
+                return size() > ReverseGeocodingService.this.memoryMaxEntries;
+            }
+        };
+
+        this.memoryHits = lookupCounter(meterRegistry, "memory", "hit");
+        this.memoryMisses = lookupCounter(meterRegistry, "memory", "miss");
+        this.databaseHits = lookupCounter(meterRegistry, "database", "hit");
+        this.databaseMisses = lookupCounter(meterRegistry, "database", "miss");
+        this.staleServed = lookupCounter(meterRegistry, "database", "stale");
+        Gauge.builder("geocoding.cache.memory.entries", this, ReverseGeocodingService::memorySize).register(meterRegistry);
+    }
+
+    @Override
+    public Optional<String> reverseGeocode(double latitude, double longitude) {
+        Optional<String> local = gazetteerGeocoder.reverseGeocode(latitude, longitude);
+        if (local.isPresent()) {
+            return local;
+        }
+        return reverseGeocodeRemote(latitude, longitude, () -> true);
+    }
+
+    /**
+     * Résolution par le cache puis Google, pour un appelant qui a déjà consulté le gazetteer.
+     * @param beforeRemoteCall Appelé juste avant un appel à Google (cellule absente ou périmée), par exemple pour
+     *                         prendre un jeton de limite de débit ; false renonce à l'appel
+     */
+    public Optional<String> reverseGeocodeRemote(double latitude, double longitude, BooleanSupplier beforeRemoteCall) {
+        if (!googleFallbackEnabled) {
+            return Optional.empty();
+        }
+
+        String key = cellKey(latitude, longitude);
+        long now = System.currentTimeMillis();
+
+        CachedAddress cached;
+        synchronized (memory) {
+            cached = memory.get(key);
+        }
+        if (cached != null && now - cached.resolvedAtMillis < ttlMillis) {
+            memoryHits.increment();
+            return Optional.of(cached.address);
+        }
+        memoryMisses.increment();
+
+        if (cached == null) {
+            GeocodeCacheEntry stored = cacheRepository.findById(key).orElse(null);
+            if (stored != null) {
+                cached = new CachedAddress(stored.getAddress(), stored.getResolvedAt().toEpochMilli());
+                if (now - cached.resolvedAtMillis < ttlMillis) {
+                    databaseHits.increment();
+                    remember(key, cached);
+                    return Optional.of(cached.address);
+                }
+            } else {
+                databaseMisses.increment();
+            }
+        }
+
+        // Cellule inconnue ou périmée : résolution au centre de la cellule, partagée par tous ses points
+        Optional<String> resolved = beforeRemoteCall.getAsBoolean()
+                ? googleGeocoder.reverseGeocode(cellCenter(latitude), cellCenter(longitude))
+                : Optional.empty();
+        if (resolved.isPresent()) {
+            CachedAddress fresh = new CachedAddress(resolved.get(), now);
+            remember(key, fresh);
+            store(key, fresh);
+            return resolved;
+        }
+        if (cached != null) {
+            staleServed.increment();
+            remember(key, cached);
+            return Optional.of(cached.address);
+        }
+        return Optional.empty();
+    }
+
+    String cellKey(double latitude, double longitude) {
+        return precision + ":" + Math.round(latitude * scale) + ":" + Math.round(longitude * scale);
+    }
+
+    private double cellCenter(double coordinate) {
+        return Math.round(coordinate * scale) / scale;
+    }
+
+    private int memorySize() {
+        synchronized (memory) {
+            return memory.size();
+        }
+    }
+
+    private void remember(String key, CachedAddress address) {
+        synchronized (memory) {
+            memory.put(key, address);
+        }
+    }
+
+    /**
+     * Écrit la cellule dans une transaction distincte (REQUIRES_NEW) : sans cela l'insertion rejoindrait la
+     * transaction de l'appelant et un doublon ne serait détecté qu'à son commit, en annulant la course.
+     */
+    private void store(String key, CachedAddress address) {
+        GeocodeCacheEntry entry = new GeocodeCacheEntry(key, address.address, Instant.ofEpochMilli(address.resolvedAtMillis));
+        try {
+            cacheTransaction.executeWithoutResult(status -> cacheRepository.saveAndFlush(entry));
+        } catch (DataIntegrityViolationException e) {
+            // Même cellule insérée au même moment par un autre nœud : son adresse vaut la nôtre
+            logger.debug("Geocode cache entry {} already stored by another node", key);
+        }
+    }
+
+    private static Counter lookupCounter(MeterRegistry registry, String tier, String result) {
+        return Counter.builder("geocoding.cache.lookups")
+                .tag("tier", tier)
+                .tag("result", result)
+                .register(registry);
+    }
+
+    private record CachedAddress(String address, long resolvedAtMillis) {
+    }
+}
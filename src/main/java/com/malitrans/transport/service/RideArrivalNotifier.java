@@ -0,0 +1,98 @@
+package com.malitrans.transport.service;
+
+import com.malitrans.transport.repository.RideRequestRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Diffusion des événements d'approche / d'arrivée détectés par RideGeofenceEngine :
+ * - immédiatement sur /topic/ride/{id}/arrival (application client et page publique du destinataire),
+ * - en push FCM au client, via un worker borné : la lecture de la course et l'appel FCM restent hors du
+ *   chemin des fixes. File pleine : le push est abandonné, l'événement STOMP a déjà été publié.
+ */
+@Service
+public class RideArrivalNotifier {
+
+    private static final Logger logger = LoggerFactory.getLogger(RideArrivalNotifier.class);
+
+    private final SimpMessagingTemplate messagingTemplate;
+    private final RideRequestRepository rideRequestRepository;
+    private final NotificationService notificationService;
+    private final ThreadPoolExecutor executor;
+
+    private final Map<RideGeofenceEngine.Event, Counter> eventCounters = new EnumMap<>(RideGeofenceEngine.Event.class);
+    private final Counter rejected;
+
+    public RideArrivalNotifier(SimpMessagingTemplate messagingTemplate,
+                               RideRequestRepository rideRequestRepository,
+                               NotificationService notificationService,
+                               MeterRegistry meterRegistry,
+                               @Value("${app.tracking.geofence.notify-threads:1}") int threads,
+                               @Value("${app.tracking.geofence.notify-queue-capacity:1000}") int queueCapacity) {
+        this.messagingTemplate = messagingTemplate;
+        this.rideRequestRepository = rideRequestRepository;
+        this.notificationService = notificationService;
+
+        AtomicInteger threadCounter = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+                    Thread thread = new Thread(runnable, "ride-arrival-notifier-" + threadCounter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.AbortPolicy());
+
+        for (RideGeofenceEngine.Event event : RideGeofenceEngine.Event.values()) {
+            eventCounters.put(event, Counter.builder("tracking.geofence.events")
+                    .tag("fence", event.fence())
+                    .tag("stage", event.stage())
+                    .register(meterRegistry));
+        }
+        this.rejected = Counter.builder("tracking.geofence.push_rejected").register(meterRegistry);
+        Gauge.builder("tracking.geofence.push_queue_depth", executor, e -> e.getQueue().size()).register(meterRegistry);
+    }
+
+    public void publish(long rideId, RideGeofenceEngine.Event event, long fixMillis) {
+        eventCounters.get(event).increment();
+        messagingTemplate.convertAndSend("/topic/ride/" + rideId + "/arrival", Map.of(
+                "rideId", rideId,
+                "fence", event.fence(),
+                "stage", event.stage(),
+                "timestamp", Instant.ofEpochMilli(fixMillis).toString()));
+        try {
+            executor.execute(() -> push(rideId, event));
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            logger.warn("Arrival push queue is full; {} for ride {} not pushed", event, rideId);
+        }
+    }
+
+    private void push(long rideId, RideGeofenceEngine.Event event) {
+        try {
+            rideRequestRepository.findById(rideId)
+                    .ifPresent(request -> notificationService.notifyClientOfArrival(request, event));
+        } catch (RuntimeException e) {
+            logger.warn("Arrival push failed for ride {}: {}", rideId, e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,274 @@
+package com.malitrans.transport.service;
+
+import com.malitrans.transport.model.RideRequest;
+import com.malitrans.transport.repository.RideRequestRepository;
+import com.malitrans.transport.util.GeoUtil;
+import com.malitrans.transport.util.StripedLongTable;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Estimation d'heure d'arrivée par course, alimentée par le flux de positions diffusées.
+ * Pour chaque course : vitesse lissée (moyenne exponentielle pondérée par l'intervalle entre fixes)
+ * et distance restante jusqu'à la destination, quand celle-ci est enregistrée sous forme de coordonnées.
+ * Mise à jour en O(1) par fix, sans allocation : valeurs en tableaux primitifs dans une {@link StripedLongTable}.
+ * Les destinations des nouvelles courses sont chargées hors du chemin des fixes, par lots planifiés.
+ */
+@Service
+public class RideEtaEstimator {
+
+    public static final int UNKNOWN = -1;
+
+    private static final byte DESTINATION_PENDING = 0;
+    private static final byte DESTINATION_NONE = 1;
+    private static final byte DESTINATION_KNOWN = 2;
+    private static final int MAX_DESTINATIONS_PER_BATCH = 500;
+
+    private final RideRequestRepository rideRequestRepository;
+    private final StripedLongTable<Estimates> table;
+    private final Queue<Long> pendingDestinations = new ConcurrentLinkedQueue<>();
+    private final double speedTimeConstantSeconds;
+    private final double defaultSpeedMetersPerSecond;
+    private final double minSpeedMetersPerSecond;
+    private final double maxSpeedMetersPerSecond;
+    private final double routeFactor;
+    private final double arrivalRadiusMeters;
+
+    private final Counter destinationsWithCoordinates;
+    private final Counter destinationsWithoutCoordinates;
+
+    public RideEtaEstimator(RideRequestRepository rideRequestRepository,
+                            MeterRegistry meterRegistry,
+                            @Value("${app.tracking.eta.max-rides:20000}") int maxRides,
+                            @Value("${app.tracking.eta.speed-time-constant-seconds:60}") double speedTimeConstantSeconds,
+                            @Value("${app.tracking.eta.default-speed-kmh:25}") double defaultSpeedKmh,
+                            @Value("${app.tracking.eta.min-speed-kmh:8}") double minSpeedKmh,
+                            @Value("${app.tracking.eta.max-speed-kmh:130}") double maxSpeedKmh,
+                            @Value("${app.tracking.eta.route-factor:1.3}") double routeFactor,
+                            @Value("${app.tracking.eta.arrival-radius-meters:50}") double arrivalRadiusMeters,
+                            @Value("${app.tracking.eta.idle-ttl-ms:900000}") long idleTtlMillis) {
+        this.rideRequestRepository = rideRequestRepository;
+        this.speedTimeConstantSeconds = speedTimeConstantSeconds;
+        this.defaultSpeedMetersPerSecond = defaultSpeedKmh / 3.6;
+        this.minSpeedMetersPerSecond = minSpeedKmh / 3.6;
+        this.maxSpeedMetersPerSecond = maxSpeedKmh / 3.6;
+        this.routeFactor = routeFactor;
+        this.arrivalRadiusMeters = arrivalRadiusMeters;
+        this.table = new StripedLongTable<>(maxRides, idleTtlMillis, Estimates::new);
+
+        this.destinationsWithCoordinates = Counter.builder("tracking.eta.destinations")
+                .tag("outcome", "coordinates").register(meterRegistry);
+        this.destinationsWithoutCoordinates = Counter.builder("tracking.eta.destinations")
+                .tag("outcome", "none").register(meterRegistry);
+        Gauge.builder("tracking.eta.rides", this, RideEtaEstimator::size).register(meterRegistry);
+        Gauge.builder("tracking.eta.pending_destinations", pendingDestinations, Queue::size).register(meterRegistry);
+    }
+
+    /**
+     * Intègre un fix diffusé (les fixes plus anciens que le dernier reçu sont ignorés).
+     * @return ETA en secondes, ou {@link #UNKNOWN} si la destination n'est pas connue en coordonnées
+     */
+    public int onFix(long rideId, double latitude, double longitude, long fixMillis, long nowMillis) {
+        StripedLongTable.Stripe<Estimates> stripe = table.stripe(rideId);
+        synchronized (stripe) {
+            Estimates estimates = stripe.columns();
+            int slot = stripe.find(rideId);
+            if (slot < 0) {
+                slot = stripe.insert(rideId, nowMillis);
+                estimates.speeds[slot] = Double.NaN;
+                estimates.destinationStates[slot] = DESTINATION_PENDING;
+                estimates.remaining[slot] = Double.NaN;
+                pendingDestinations.add(rideId);
+            } else {
+                stripe.touch(slot, nowMillis);
+                if (fixMillis <= estimates.fixMillis[slot]) {
+                    return eta(estimates, slot);
+                }
+                updateSpeed(estimates, slot, latitude, longitude, (fixMillis - estimates.fixMillis[slot]) / 1000.0);
+            }
+            estimates.latitudes[slot] = latitude;
+            estimates.longitudes[slot] = longitude;
+            estimates.fixMillis[slot] = fixMillis;
+            updateRemaining(estimates, slot);
+            return eta(estimates, slot);
+        }
+    }
+
+    /**
+     * @return ETA en secondes, ou {@link #UNKNOWN}
+     */
+    public int etaSeconds(long rideId) {
+        StripedLongTable.Stripe<Estimates> stripe = table.stripe(rideId);
+        synchronized (stripe) {
+            int slot = stripe.find(rideId);
+            return slot < 0 ? UNKNOWN : eta(stripe.columns(), slot);
+        }
+    }
+
+    /**
+     * @return Distance restante estimée (mètres, corrigée du facteur de détour routier), ou {@link #UNKNOWN}
+     */
+    public int remainingMeters(long rideId) {
+        StripedLongTable.Stripe<Estimates> stripe = table.stripe(rideId);
+        synchronized (stripe) {
+            int slot = stripe.find(rideId);
+            if (slot < 0 || Double.isNaN(stripe.columns().remaining[slot])) {
+                return UNKNOWN;
+            }
+            return (int) Math.min(stripe.columns().remaining[slot], Integer.MAX_VALUE);
+        }
+    }
+
+    public void setDestination(long rideId, double latitude, double longitude) {
+        StripedLongTable.Stripe<Estimates> stripe = table.stripe(rideId);
+        synchronized (stripe) {
+            int slot = stripe.find(rideId);
+            if (slot < 0) {
+                return;
+            }
+            Estimates estimates = stripe.columns();
+            estimates.destinationStates[slot] = DESTINATION_KNOWN;
+            estimates.destinationLatitudes[slot] = latitude;
+            estimates.destinationLongitudes[slot] = longitude;
+            updateRemaining(estimates, slot);
+        }
+    }
+
+    public void forget(long rideId) {
+        table.remove(rideId);
+    }
+
+    public int size() {
+        return table.size();
+    }
+
+    /**
+     * Charge par lots les destinations des courses apparues depuis le dernier passage.
+     */
+    @Scheduled(fixedDelayString = "${app.tracking.eta.destination-resolve-interval-ms:1000}")
+    public void resolvePendingDestinations() {
+        Set<Long> batch = new HashSet<>();
+        Long rideId;
+        while (batch.size() < MAX_DESTINATIONS_PER_BATCH && (rideId = pendingDestinations.poll()) != null) {
+            batch.add(rideId);
+        }
+        if (batch.isEmpty()) {
+            return;
+        }
+        List<Long> unresolved = new ArrayList<>(batch);
+        for (RideRequest ride : rideRequestRepository.findAllById(batch)) {
+            double[] destination = ride.getDestinationLatitude() != null && ride.getDestinationLongitude() != null
+                    ? new double[]{ride.getDestinationLatitude(), ride.getDestinationLongitude()}
+                    : GeoUtil.parseCoordinates(ride.getDestination());
+            if (destination != null) {
+                setDestination(ride.getId(), destination[0], destination[1]);
+                destinationsWithCoordinates.increment();
+                unresolved.remove(ride.getId());
+            }
+        }
+        for (Long id : unresolved) {
+            markNoDestination(id);
+            destinationsWithoutCoordinates.increment();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.tracking.eta.purge-interval-ms:60000}")
+    public void purgeIdle() {
+        table.purgeIdle(System.currentTimeMillis());
+    }
+
+    private void markNoDestination(long rideId) {
+        StripedLongTable.Stripe<Estimates> stripe = table.stripe(rideId);
+        synchronized (stripe) {
+            int slot = stripe.find(rideId);
+            if (slot >= 0 && stripe.columns().destinationStates[slot] == DESTINATION_PENDING) {
+                stripe.columns().destinationStates[slot] = DESTINATION_NONE;
+            }
+        }
+    }
+
+    /**
+     * Lissage exponentiel à constante de temps fixe : alpha = 1 - e^(-dt/tau), indépendant de la fréquence des fixes.
+     * Les vitesses instantanées aberrantes (saut GPS) sont ignorées.
+     */
+    private void updateSpeed(Estimates estimates, int slot, double latitude, double longitude, double elapsedSeconds) {
+        double distance = GeoUtil.haversineMeters(estimates.latitudes[slot], estimates.longitudes[slot],
+                latitude, longitude);
+        double instantSpeed = distance / elapsedSeconds;
+        if (instantSpeed > maxSpeedMetersPerSecond) {
+            return;
+        }
+        double[] speeds = estimates.speeds;
+        if (Double.isNaN(speeds[slot])) {
+            speeds[slot] = instantSpeed;
+        } else {
+            double alpha = 1 - Math.exp(-elapsedSeconds / speedTimeConstantSeconds);
+            speeds[slot] += alpha * (instantSpeed - speeds[slot]);
+        }
+    }
+
+    private void updateRemaining(Estimates estimates, int slot) {
+        if (estimates.destinationStates[slot] != DESTINATION_KNOWN) {
+            return;
+        }
+        estimates.remaining[slot] = routeFactor * GeoUtil.haversineMeters(estimates.latitudes[slot],
+                estimates.longitudes[slot], estimates.destinationLatitudes[slot], estimates.destinationLongitudes[slot]);
+    }
+
+    private int eta(Estimates estimates, int slot) {
+        double meters = estimates.remaining[slot];
+        if (Double.isNaN(meters)) {
+            return UNKNOWN;
+        }
+        if (meters <= arrivalRadiusMeters) {
+            return 0;
+        }
+        double speed = Double.isNaN(estimates.speeds[slot]) ? defaultSpeedMetersPerSecond : estimates.speeds[slot];
+        return (int) Math.min(meters / Math.max(speed, minSpeedMetersPerSecond), Integer.MAX_VALUE);
+    }
+
+    private static final class Estimates implements StripedLongTable.Columns {
+        private final double[] latitudes;
+        private final double[] longitudes;
+        private final long[] fixMillis;
+        private final double[] speeds;
+        private final byte[] destinationStates;
+        private final double[] destinationLatitudes;
+        private final double[] destinationLongitudes;
+        private final double[] remaining;
+
+        private Estimates(int tableSize) {
+            this.latitudes = new double[tableSize];
+            this.longitudes = new double[tableSize];
+            this.fixMillis = new long[tableSize];
+            this.speeds = new double[tableSize];
+            this.destinationStates = new byte[tableSize];
+            this.destinationLatitudes = new double[tableSize];
+            this.destinationLongitudes = new double[tableSize];
+            this.remaining = new double[tableSize];
+        }
+
+        @Override
+        public void move(int from, int to) {
+            latitudes[to] = latitudes[from];
+            longitudes[to] = longitudes[from];
+            fixMillis[to] = fixMillis[from];
+            speeds[to] = speeds[from];
+            destinationStates[to] = destinationStates[from];
+            destinationLatitudes[to] = destinationLatitudes[from];
+            destinationLongitudes[to] = destinationLongitudes[from];
+            remaining[to] = remaining[from];
+        }
+    }
+}
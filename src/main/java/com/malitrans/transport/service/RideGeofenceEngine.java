@@ -0,0 +1,354 @@
+package com.malitrans.transport.service;
+
+import com.malitrans.transport.model.RideRequest;
+import com.malitrans.transport.model.ValidationStatus;
+import com.malitrans.transport.repository.RideRequestRepository;
+import com.malitrans.transport.util.GeoUtil;
+import com.malitrans.transport.util.StripedLongTable;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Détection d'approche et d'arrivée, évaluée sur chaque position diffusée contre la zone de la course
+ * en cours de phase : point de collecte tant que le chauffeur n'a pas validé le ramassage, puis destination.
+ * Coût O(1) par fix, sans allocation (état par course en tableaux primitifs dans une {@link StripedLongTable}) :
+ * - chaque zone est rattachée à une cellule d'une grille de pas arriving-radius-meters (hachage spatial,
+ *   projection locale à la latitude de la zone) ; un fix hors des 9 cellules voisines est écarté sans calcul
+ *   trigonométrique, ce qui est le cas de l'immense majorité des fixes,
+ * - seuls les fixes proches donnent lieu à un calcul haversine.
+ * Chaque zone passe au plus une fois par ARRIVING puis ARRIVED, après confirm-fixes fixes consécutifs sous le
+ * rayon (un saut GPS isolé ne déclenche rien). Zones chargées par lots hors du chemin des fixes (cf. RideEtaEstimator) ;
+ * quand le chauffeur quitte le point de collecte, la phase est relue en base (ramassage validé sur un autre nœud).
+ */
+@Service
+public class RideGeofenceEngine {
+
+    /**
+     * Événements émis, au plus une fois chacun par course.
+     */
+    public enum Event {
+        PICKUP_ARRIVING("PICKUP", "ARRIVING"),
+        PICKUP_ARRIVED("PICKUP", "ARRIVED"),
+        DROPOFF_ARRIVING("DROPOFF", "ARRIVING"),
+        DROPOFF_ARRIVED("DROPOFF", "ARRIVED");
+
+        private final String fence;
+        private final String stage;
+
+        Event(String fence, String stage) {
+            this.fence = fence;
+            this.stage = stage;
+        }
+
+        public String fence() {
+            return fence;
+        }
+
+        public String stage() {
+            return stage;
+        }
+
+        public boolean isPickup() {
+            return this == PICKUP_ARRIVING || this == PICKUP_ARRIVED;
+        }
+
+        public boolean isArrived() {
+            return this == PICKUP_ARRIVED || this == DROPOFF_ARRIVED;
+        }
+    }
+
+    private static final int MAX_RIDES_PER_BATCH = 500;
+    private static final double METERS_PER_DEGREE = GeoUtil.EARTH_RADIUS_METERS * Math.PI / 180;
+
+    private static final byte PHASE_PENDING = 0;
+    private static final byte PHASE_PICKUP = 1;
+    private static final byte PHASE_DROPOFF = 2;
+    private static final byte PHASE_IDLE = 3;
+
+    private static final int FENCE_PICKUP = 0;
+    private static final int FENCE_DROPOFF = 1;
+
+    private static final byte OUTSIDE = 0;
+    private static final byte ARRIVING = 1;
+    private static final byte ARRIVED = 2;
+
+    private final RideRequestRepository rideRequestRepository;
+    private final StripedLongTable<Fences> table;
+    private final Queue<Long> pendingRides = new ConcurrentLinkedQueue<>();
+    private final double arrivingRadiusMeters;
+    private final double arrivedRadiusMeters;
+    private final int confirmFixes;
+
+    public RideGeofenceEngine(RideRequestRepository rideRequestRepository,
+                              MeterRegistry meterRegistry,
+                              @Value("${app.tracking.geofence.max-rides:20000}") int maxRides,
+                              @Value("${app.tracking.geofence.arriving-radius-meters:500}") double arrivingRadiusMeters,
+                              @Value("${app.tracking.geofence.arrived-radius-meters:50}") double arrivedRadiusMeters,
+                              @Value("${app.tracking.geofence.confirm-fixes:2}") int confirmFixes,
+                              @Value("${app.tracking.geofence.idle-ttl-ms:900000}") long idleTtlMillis) {
+        if (arrivedRadiusMeters <= 0 || arrivingRadiusMeters < arrivedRadiusMeters) {
+            throw new IllegalArgumentException("Geofence radii must satisfy 0 < arrived <= arriving");
+        }
+        this.rideRequestRepository = rideRequestRepository;
+        this.arrivingRadiusMeters = arrivingRadiusMeters;
+        this.arrivedRadiusMeters = arrivedRadiusMeters;
+        this.confirmFixes = Math.max(1, confirmFixes);
+        this.table = new StripedLongTable<>(maxRides, idleTtlMillis, Fences::new);
+
+        Gauge.builder("tracking.geofence.rides", this, RideGeofenceEngine::size).register(meterRegistry);
+        Gauge.builder("tracking.geofence.pending_rides", pendingRides, Queue::size).register(meterRegistry);
+    }
+
+    /**
+     * Évalue un fix diffusé (les fixes plus anciens que le dernier reçu sont ignorés).
+     * @return Événement franchi par ce fix, ou null
+     */
+    public Event onFix(long rideId, double latitude, double longitude, long fixMillis, long nowMillis) {
+        StripedLongTable.Stripe<Fences> stripe = table.stripe(rideId);
+        synchronized (stripe) {
+            Fences fences = stripe.columns();
+            int slot = stripe.find(rideId);
+            if (slot < 0) {
+                slot = stripe.insert(rideId, nowMillis);
+                fences.phases[slot] = PHASE_PENDING;
+                fences.reloadRequested[slot] = false;
+                fences.lastFixMillis[slot] = fixMillis;
+                for (int fence = slot * 2; fence < slot * 2 + 2; fence++) {
+                    fences.known[fence] = false;
+                    fences.states[fence] = OUTSIDE;
+                    fences.streaks[fence] = 0;
+                }
+                pendingRides.add(rideId);
+                return null;
+            }
+            stripe.touch(slot, nowMillis);
+            if (fixMillis <= fences.lastFixMillis[slot]) {
+                return null;
+            }
+            fences.lastFixMillis[slot] = fixMillis;
+
+            if (fences.phases[slot] == PHASE_PICKUP) {
+                return evaluate(rideId, fences, slot, FENCE_PICKUP, latitude, longitude);
+            }
+            if (fences.phases[slot] == PHASE_DROPOFF) {
+                return evaluate(rideId, fences, slot, FENCE_DROPOFF, latitude, longitude);
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Ramassage validé sur ce nœud : la destination devient la zone surveillée sans attendre la relecture.
+     */
+    public void pickedUp(long rideId) {
+        setPhase(rideId, PHASE_DROPOFF);
+    }
+
+    public void forget(long rideId) {
+        table.remove(rideId);
+    }
+
+    public int size() {
+        return table.size();
+    }
+
+    /**
+     * Charge par lots les zones (et la phase) des courses apparues ou à relire depuis le dernier passage.
+     */
+    @Scheduled(fixedDelayString = "${app.tracking.geofence.resolve-interval-ms:1000}")
+    public void resolvePendingRides() {
+        Set<Long> batch = new HashSet<>();
+        Long rideId;
+        while (batch.size() < MAX_RIDES_PER_BATCH && (rideId = pendingRides.poll()) != null) {
+            batch.add(rideId);
+        }
+        if (batch.isEmpty()) {
+            return;
+        }
+        List<Long> missing = new ArrayList<>(batch);
+        for (RideRequest ride : rideRequestRepository.findAllById(batch)) {
+            missing.remove(ride.getId());
+            double[] pickup = ride.getOriginLatitude() != null && ride.getOriginLongitude() != null
+                    ? new double[]{ride.getOriginLatitude(), ride.getOriginLongitude()}
+                    : GeoUtil.parseCoordinates(ride.getOrigin());
+            double[] dropoff = ride.getDestinationLatitude() != null && ride.getDestinationLongitude() != null
+                    ? new double[]{ride.getDestinationLatitude(), ride.getDestinationLongitude()}
+                    : GeoUtil.parseCoordinates(ride.getDestination());
+            load(ride.getId(), phaseOf(ride.getValidationStatus()), pickup, dropoff);
+        }
+        for (Long id : missing) {
+            setPhase(id, PHASE_IDLE);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.tracking.geofence.purge-interval-ms:60000}")
+    public void purgeIdle() {
+        table.purgeIdle(System.currentTimeMillis());
+    }
+
+    private static byte phaseOf(ValidationStatus status) {
+        if (status == ValidationStatus.DRIVER_ACCEPTED) {
+            return PHASE_PICKUP;
+        }
+        if (status == ValidationStatus.IN_TRANSIT || status == ValidationStatus.IN_PROGRESS) {
+            return PHASE_DROPOFF;
+        }
+        return PHASE_IDLE;
+    }
+
+    private Event evaluate(long rideId, Fences fences, int slot, int fenceIndex, double latitude, double longitude) {
+        int fence = slot * 2 + fenceIndex;
+        if (!fences.known[fence]) {
+            return null;
+        }
+        double distance = distance(fences, fence, latitude, longitude);
+        byte state = fences.states[fence];
+        if (state == ARRIVED) {
+            if (fenceIndex == FENCE_PICKUP && distance > arrivingRadiusMeters && !fences.reloadRequested[slot]) {
+                // Le chauffeur repart du point de collecte : le ramassage a pu être validé ailleurs
+                fences.reloadRequested[slot] = true;
+                pendingRides.add(rideId);
+            }
+            return null;
+        }
+        double radius = state == OUTSIDE ? arrivingRadiusMeters : arrivedRadiusMeters;
+        if (distance > radius) {
+            fences.streaks[fence] = 0;
+            return null;
+        }
+        if (++fences.streaks[fence] < confirmFixes) {
+            return null;
+        }
+        fences.streaks[fence] = 0;
+        if (distance <= arrivedRadiusMeters) {
+            fences.states[fence] = ARRIVED;
+            return fenceIndex == FENCE_PICKUP ? Event.PICKUP_ARRIVED : Event.DROPOFF_ARRIVED;
+        }
+        fences.states[fence] = ARRIVING;
+        return fenceIndex == FENCE_PICKUP ? Event.PICKUP_ARRIVING : Event.DROPOFF_ARRIVING;
+    }
+
+    /**
+     * Distance haversine, ou +∞ si le fix est hors des cellules voisines de la zone (donc à plus d'un rayon).
+     */
+    private double distance(Fences fences, int fence, double latitude, double longitude) {
+        long cellY = cellY(latitude);
+        long cellX = cellX(longitude, fences.cosLatitudes[fence]);
+        if (Math.abs(cellY - fences.cellsY[fence]) > 1 || Math.abs(cellX - fences.cellsX[fence]) > 1) {
+            return Double.POSITIVE_INFINITY;
+        }
+        return GeoUtil.haversineMeters(fences.latitudes[fence], fences.longitudes[fence], latitude, longitude);
+    }
+
+    private void load(long rideId, byte phase, double[] pickup, double[] dropoff) {
+        StripedLongTable.Stripe<Fences> stripe = table.stripe(rideId);
+        synchronized (stripe) {
+            int slot = stripe.find(rideId);
+            if (slot < 0) {
+                return;
+            }
+            Fences fences = stripe.columns();
+            // Une relecture ne fait pas reculer la phase (ramassage déjà constaté sur ce nœud)
+            if (fences.phases[slot] != PHASE_DROPOFF || phase == PHASE_IDLE) {
+                fences.phases[slot] = phase;
+            }
+            fences.reloadRequested[slot] = false;
+            setFence(fences, slot * 2 + FENCE_PICKUP, pickup);
+            setFence(fences, slot * 2 + FENCE_DROPOFF, dropoff);
+        }
+    }
+
+    private void setFence(Fences fences, int fence, double[] coordinates) {
+        if (coordinates == null) {
+            fences.known[fence] = false;
+            return;
+        }
+        double cosLatitude = Math.cos(Math.toRadians(coordinates[0]));
+        fences.known[fence] = true;
+        fences.latitudes[fence] = coordinates[0];
+        fences.longitudes[fence] = coordinates[1];
+        fences.cosLatitudes[fence] = cosLatitude;
+        fences.cellsY[fence] = cellY(coordinates[0]);
+        fences.cellsX[fence] = cellX(coordinates[1], cosLatitude);
+    }
+
+    private void setPhase(long rideId, byte phase) {
+        StripedLongTable.Stripe<Fences> stripe = table.stripe(rideId);
+        synchronized (stripe) {
+            int slot = stripe.find(rideId);
+            if (slot >= 0) {
+                stripe.columns().phases[slot] = phase;
+                stripe.columns().reloadRequested[slot] = false;
+            }
+        }
+    }
+
+    /**
+     * État par course d'une stripe ; les deux zones d'une course occupent les indices
+     * slot * 2 + FENCE_PICKUP / FENCE_DROPOFF.
+     */
+    private static final class Fences implements StripedLongTable.Columns {
+        private final byte[] phases;
+        private final boolean[] reloadRequested;
+        private final long[] lastFixMillis;
+        private final boolean[] known;
+        private final double[] latitudes;
+        private final double[] longitudes;
+        private final double[] cosLatitudes;
+        private final long[] cellsX;
+        private final long[] cellsY;
+        private final byte[] states;
+        private final int[] streaks;
+
+        private Fences(int tableSize) {
+            this.phases = new byte[tableSize];
+            this.reloadRequested = new boolean[tableSize];
+            this.lastFixMillis = new long[tableSize];
+            this.known = new boolean[tableSize * 2];
+            this.latitudes = new double[tableSize * 2];
+            this.longitudes = new double[tableSize * 2];
+            this.cosLatitudes = new double[tableSize * 2];
+            this.cellsX = new long[tableSize * 2];
+            this.cellsY = new long[tableSize * 2];
+            this.states = new byte[tableSize * 2];
+            this.streaks = new int[tableSize * 2];
+        }
+
+        @Override
+        public void move(int from, int to) {
+            phases[to] = phases[from];
+            reloadRequested[to] = reloadRequested[from];
+            lastFixMillis[to] = lastFixMillis[from];
+            for (int fence = 0; fence < 2; fence++) {
+                int source = from * 2 + fence;
+                int target = to * 2 + fence;
+                known[target] = known[source];
+                latitudes[target] = latitudes[source];
+                longitudes[target] = longitudes[source];
+                cosLatitudes[target] = cosLatitudes[source];
+                cellsX[target] = cellsX[source];
+                cellsY[target] = cellsY[source];
+                states[target] = states[source];
+                streaks[target] = streaks[source];
+            }
+        }
+    }
+
+    private long cellY(double latitude) {
+        return (long) Math.floor(latitude * METERS_PER_DEGREE / arrivingRadiusMeters);
+    }
+
+    private long cellX(double longitude, double cosLatitude) {
+        return (long) Math.floor(longitude * METERS_PER_DEGREE * cosLatitude / arrivingRadiusMeters);
+    }
+}
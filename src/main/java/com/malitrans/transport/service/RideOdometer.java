@@ -0,0 +1,195 @@
+package com.malitrans.transport.service;
+
+import com.malitrans.transport.dto.TrailPointDTO;
+import com.malitrans.transport.util.GeoUtil;
+import com.malitrans.transport.util.StripedLongTable;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+
+/**
+ * Compteur kilométrique par course, alimenté par le flux de positions diffusées : somme des distances
+ * (haversine) entre fixes successifs retenus, sans jamais relire la trace.
+ * Rejet du bruit GPS :
+ * - un déplacement de moins de min-segment-meters depuis le dernier point retenu n'est pas compté
+ *   (le point retenu ne bouge pas : un véhicule à l'arrêt n'accumule rien, un déplacement lent finit par compter),
+ * - un saut impliquant une vitesse supérieure à max-speed-kmh est ignoré ; après max-rejected-fixes sauts
+ *   consécutifs, la nouvelle position est adoptée sans compter la distance (recalage).
+ * Totaux en tableaux primitifs dans une {@link StripedLongTable} ;
+ * la distance est enregistrée sur la course à son passage en COMPLETED. Seul un nœud qui n'a reçu aucun fix
+ * de la course (redémarrage, autre nœud) rejoue la trace enregistrée, avec les mêmes règles ({@link #replayMeters}) ;
+ * sinon la trace brute n'est jamais relue.
+ */
+@Service
+public class RideOdometer {
+
+    public static final int UNKNOWN = -1;
+
+    private static final int COUNTED = 0;
+    private static final int STALE = 1;
+    private static final int JITTER = 2;
+    private static final int JUMP = 3;
+
+    private final StripedLongTable<Totals> table;
+    private final double minSegmentMeters;
+    private final double maxSpeedMetersPerSecond;
+    private final int maxRejectedFixes;
+
+    private final Counter rejectedJitter;
+    private final Counter rejectedJumps;
+
+    public RideOdometer(MeterRegistry meterRegistry,
+                        @Value("${app.tracking.odometer.max-rides:20000}") int maxRides,
+                        @Value("${app.tracking.odometer.min-segment-meters:15}") double minSegmentMeters,
+                        @Value("${app.tracking.odometer.max-speed-kmh:150}") double maxSpeedKmh,
+                        @Value("${app.tracking.odometer.max-rejected-fixes:3}") int maxRejectedFixes,
+                        @Value("${app.tracking.odometer.idle-ttl-ms:21600000}") long idleTtlMillis) {
+        this.minSegmentMeters = minSegmentMeters;
+        this.maxSpeedMetersPerSecond = maxSpeedKmh / 3.6;
+        this.maxRejectedFixes = maxRejectedFixes;
+        this.table = new StripedLongTable<>(maxRides, idleTtlMillis, Totals::new);
+
+        this.rejectedJitter = Counter.builder("tracking.odometer.rejected_fixes")
+                .tag("reason", "jitter").register(meterRegistry);
+        this.rejectedJumps = Counter.builder("tracking.odometer.rejected_fixes")
+                .tag("reason", "jump").register(meterRegistry);
+        Gauge.builder("tracking.odometer.rides", this, RideOdometer::size).register(meterRegistry);
+    }
+
+    /**
+     * Intègre un fix diffusé (les fixes plus anciens que le dernier reçu sont ignorés).
+     */
+    public void onFix(long rideId, double latitude, double longitude, long fixMillis, long nowMillis) {
+        StripedLongTable.Stripe<Totals> stripe = table.stripe(rideId);
+        synchronized (stripe) {
+            Totals totals = stripe.columns();
+            int slot = stripe.find(rideId);
+            if (slot < 0) {
+                slot = stripe.insert(rideId, nowMillis);
+                totals.reset(slot, latitude, longitude, fixMillis);
+                return;
+            }
+            stripe.touch(slot, nowMillis);
+            int outcome = advance(totals, slot, latitude, longitude, fixMillis);
+            if (outcome == JITTER) {
+                rejectedJitter.increment();
+            } else if (outcome == JUMP) {
+                rejectedJumps.increment();
+            }
+        }
+    }
+
+    /**
+     * @return Distance parcourue en mètres, ou {@link #UNKNOWN} si aucun fix n'a été reçu par ce nœud
+     */
+    public int distanceMeters(long rideId) {
+        StripedLongTable.Stripe<Totals> stripe = table.stripe(rideId);
+        synchronized (stripe) {
+            int slot = stripe.find(rideId);
+            return slot < 0 ? UNKNOWN
+                    : (int) Math.min(Math.round(stripe.columns().distances[slot]), Integer.MAX_VALUE);
+        }
+    }
+
+    /**
+     * Distance d'une trace enregistrée (points dans l'ordre des fixes), selon les mêmes règles de rejet du bruit
+     * que le flux ; sans effet sur les compteurs de rejet. Repli d'un nœud sans compteur pour la course.
+     * @return Distance en mètres, ou {@link #UNKNOWN} si la trace est vide
+     */
+    public int replayMeters(List<TrailPointDTO> points) {
+        if (points.isEmpty()) {
+            return UNKNOWN;
+        }
+        Totals track = new Totals(1);
+        TrailPointDTO first = points.get(0);
+        track.reset(0, first.getLatitude(), first.getLongitude(), first.getTimestamp());
+        for (int i = 1; i < points.size(); i++) {
+            TrailPointDTO point = points.get(i);
+            advance(track, 0, point.getLatitude(), point.getLongitude(), point.getTimestamp());
+        }
+        return (int) Math.min(Math.round(track.distances[0]), Integer.MAX_VALUE);
+    }
+
+    public void forget(long rideId) {
+        table.remove(rideId);
+    }
+
+    public int size() {
+        return table.size();
+    }
+
+    @Scheduled(fixedDelayString = "${app.tracking.odometer.purge-interval-ms:60000}")
+    public void purgeIdle() {
+        table.purgeIdle(System.currentTimeMillis());
+    }
+
+    private int advance(Totals totals, int slot, double latitude, double longitude, long fixMillis) {
+        if (fixMillis <= totals.lastFixMillis[slot]) {
+            return STALE;
+        }
+        totals.lastFixMillis[slot] = fixMillis;
+
+        double segment = GeoUtil.haversineMeters(totals.anchorLatitudes[slot], totals.anchorLongitudes[slot],
+                latitude, longitude);
+        if (segment < minSegmentMeters) {
+            return JITTER;
+        }
+        double elapsedSeconds = Math.max(1, fixMillis - totals.anchorFixMillis[slot]) / 1000.0;
+        if (segment / elapsedSeconds > maxSpeedMetersPerSecond) {
+            if (++totals.rejectedStreaks[slot] >= maxRejectedFixes) {
+                // Plusieurs fixes cohérents loin du point retenu : c'est lui qui était faux
+                totals.moveAnchor(slot, latitude, longitude, fixMillis);
+            }
+            return JUMP;
+        }
+        totals.distances[slot] += segment;
+        totals.moveAnchor(slot, latitude, longitude, fixMillis);
+        return COUNTED;
+    }
+
+    private static final class Totals implements StripedLongTable.Columns {
+        private final double[] anchorLatitudes;
+        private final double[] anchorLongitudes;
+        private final long[] anchorFixMillis;
+        private final long[] lastFixMillis;
+        private final double[] distances;
+        private final int[] rejectedStreaks;
+
+        private Totals(int tableSize) {
+            this.anchorLatitudes = new double[tableSize];
+            this.anchorLongitudes = new double[tableSize];
+            this.anchorFixMillis = new long[tableSize];
+            this.lastFixMillis = new long[tableSize];
+            this.distances = new double[tableSize];
+            this.rejectedStreaks = new int[tableSize];
+        }
+
+        private void reset(int slot, double latitude, double longitude, long fix) {
+            distances[slot] = 0;
+            lastFixMillis[slot] = fix;
+            moveAnchor(slot, latitude, longitude, fix);
+        }
+
+        private void moveAnchor(int slot, double latitude, double longitude, long fix) {
+            anchorLatitudes[slot] = latitude;
+            anchorLongitudes[slot] = longitude;
+            anchorFixMillis[slot] = fix;
+            rejectedStreaks[slot] = 0;
+        }
+
+        @Override
+        public void move(int from, int to) {
+            anchorLatitudes[to] = anchorLatitudes[from];
+            anchorLongitudes[to] = anchorLongitudes[from];
+            anchorFixMillis[to] = anchorFixMillis[from];
+            lastFixMillis[to] = lastFixMillis[from];
+            distances[to] = distances[from];
+            rejectedStreaks[to] = rejectedStreaks[from];
+        }
+    }
+}
@@ -6,14 +6,13 @@ import com.malitrans.transport.exception.RideAlreadyTakenException;
 import com.malitrans.transport.mapper.RideRequestMapper;
 import com.malitrans.transport.model.FlowType;
 import com.malitrans.transport.model.RideRequest;
+import com.malitrans.transport.model.Role;
 import com.malitrans.transport.model.Utilisateur;
 import com.malitrans.transport.model.ValidationStatus;
 import com.malitrans.transport.repository.RideRequestRepository;
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.malitrans.transport.util.GeoUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
@@ -23,18 +22,12 @@ import org.springframework.transaction.annotation.Transactional;
 import org.springframework.transaction.support.TransactionSynchronization;
 import org.springframework.transaction.support.TransactionSynchronizationManager;
 
-import java.net.URI;
 import java.net.URLEncoder;
-import java.net.http.HttpClient;
-import java.net.http.HttpRequest;
-import java.net.http.HttpResponse;
 import java.nio.charset.StandardCharsets;
 import java.security.SecureRandom;
 import java.time.Duration;
 import java.time.LocalDateTime;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Locale;
 import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
@@ -44,26 +37,36 @@ import java.util.stream.Collectors;
 public class RideRequestService {
 
     private static final Logger logger = LoggerFactory.getLogger(RideRequestService.class);
-    private static final Duration RECIPIENT_VALIDATION_TOKEN_TTL = Duration.ofHours(24);
+    static final Duration RECIPIENT_VALIDATION_TOKEN_TTL = Duration.ofHours(24);
 
     private final RideRequestRepository repository;
     private final UtilisateurService utilisateurService;
     private final RideRequestMapper mapper;
     private final NotificationService notificationService;
-    private final String googleMapsApiKey;
-    private final ObjectMapper objectMapper = new ObjectMapper();
-    private final HttpClient httpClient = HttpClient.newHttpClient();
+    private final TrackingService trackingService;
+    private final ActiveRideIndex activeRideIndex;
+    private final PublicRideSnapshotService publicRideSnapshotService;
+    private final DestinationEnrichmentService destinationEnrichmentService;
+    private final ExclusiveDispatchService exclusiveDispatchService;
 
     public RideRequestService(RideRequestRepository repository, 
                              UtilisateurService utilisateurService, 
                              RideRequestMapper mapper,
                              NotificationService notificationService,
-                             @Value("${google.maps.api-key:}") String googleMapsApiKey) {
+                             TrackingService trackingService,
+                             ActiveRideIndex activeRideIndex,
+                             PublicRideSnapshotService publicRideSnapshotService,
+                             DestinationEnrichmentService destinationEnrichmentService,
+                             ExclusiveDispatchService exclusiveDispatchService) {
         this.repository = repository;
         this.utilisateurService = utilisateurService;
         this.mapper = mapper;
         this.notificationService = notificationService;
-        this.googleMapsApiKey = googleMapsApiKey != null ? googleMapsApiKey.trim() : "";
+        this.trackingService = trackingService;
+        this.activeRideIndex = activeRideIndex;
+        this.publicRideSnapshotService = publicRideSnapshotService;
+        this.destinationEnrichmentService = destinationEnrichmentService;
+        this.exclusiveDispatchService = exclusiveDispatchService;
     }
 
     public static class LinkExpiredException extends RuntimeException {
@@ -90,6 +93,55 @@ public class RideRequestService {
         });
     }
 
+    /**
+     * Course terminée : enregistre la distance du compteur avant que releaseTracking ne libère son état.
+     */
+    private void recordTravelledDistance(RideRequest request) {
+        trackingService.getTravelledMeters(request.getId()).ifPresent(request::setTravelledMeters);
+    }
+
+    /**
+     * Course terminée ou annulée : libère la dernière position et l'état d'ingestion après commit,
+     * et retire la course de l'index des courses actives du chauffeur.
+     */
+    private void releaseTracking(RideRequest request) {
+        Long rideId = request.getId();
+        Long chauffeurId = request.getChauffeur() != null ? request.getChauffeur().getId() : null;
+        runAfterCommit(() -> {
+            trackingService.forgetRide(rideId);
+            activeRideIndex.invalidate(chauffeurId);
+        });
+    }
+
+    /**
+     * Course passée en READY_FOR_PICKUP : diffusée à tous les chauffeurs, ou proposée en exclusivité
+     * chauffeur par chauffeur après commit (app.dispatch.mode=exclusive).
+     */
+    private void announceReadyRequest(RideRequest request) {
+        if (!exclusiveDispatchService.isExclusive()) {
+            notificationService.notifyDriversOfReadyRequest(request);
+            return;
+        }
+        Long rideId = request.getId();
+        runAfterCommit(() -> exclusiveDispatchService.start(rideId));
+    }
+
+    /**
+     * Ramassage validé : la détection d'arrivée surveille la destination dès le commit.
+     */
+    private void markPickedUp(RideRequest request) {
+        Long rideId = request.getId();
+        runAfterCommit(() -> trackingService.markPickedUp(rideId));
+    }
+
+    /**
+     * Toute transition visible sur la page publique : l'instantané en cache est invalidé après commit.
+     */
+    private void publicSnapshotChanged(RideRequest request) {
+        Long rideId = request.getId();
+        runAfterCommit(() -> publicRideSnapshotService.invalidate(rideId));
+    }
+
     /**
      * Create a new ride request according to the P2P (Peer-to-Peer) model
      * For CLIENT_INITIATED: Sets status directly to READY_FOR_PICKUP (no supplier validation needed)
@@ -148,10 +200,19 @@ public class RideRequestService {
             throw new IllegalArgumentException("flowType is required");
         }
         
+        requireCoordinatePair(dto.getOriginLatitude(), dto.getOriginLongitude(), "collecte");
+        requireCoordinatePair(dto.getDestinationLatitude(), dto.getDestinationLongitude(), "livraison");
+        // Destination donnée seulement en coordonnées : texte "lat,lng" en attendant l'adresse (géocodée après commit)
+        boolean destinationFromCoordinates = dto.getDestinationLatitude() != null
+                && !RideRequest.isUsableDestinationText(dto.getDestination());
+        if (destinationFromCoordinates) {
+            entity.setDestination(formatCoordinates(dto.getDestinationLatitude(), dto.getDestinationLongitude()));
+        }
+        
         // Flow initialization logic - P2P Model: Client requests
         if (flowType == FlowType.CLIENT_INITIATED) {
             // Check if destination is provided. If not, it's waiting for recipient validation.
-            boolean hasDestination = hasUsableDestination(dto.getDestination());
+            boolean hasDestination = entity.hasUsableDestination();
             
             if (!hasDestination) {
                 // Destination is unknown, waiting for recipient validation
@@ -172,8 +233,11 @@ public class RideRequestService {
                 
                 RideRequest saved = repository.save(entity);
                 
-                // Notify all drivers immediately
-                notificationService.notifyDriversOfReadyRequest(saved);
+                // Notify drivers immediately
+                announceReadyRequest(saved);
+                if (destinationFromCoordinates) {
+                    enrichDestinationAfterCommit(saved);
+                }
                 
                 return mapper.toDto(saved);
             }
@@ -195,6 +259,9 @@ public class RideRequestService {
             
             // Notify Client for validation
             notificationService.notifyClientForValidation(saved);
+            if (destinationFromCoordinates) {
+                enrichDestinationAfterCommit(saved);
+            }
             
             return mapper.toDto(saved);
         }
@@ -205,15 +272,43 @@ public class RideRequestService {
     /**
      * Get all ride requests ready for pickup (for drivers to see available deliveries)
      * Returns most recent requests first (LIFO - Last In First Out)
+     * En dispatch exclusif, une course offerte à un autre chauffeur n'apparaît pas.
+     * @param driverId Chauffeur qui consulte la liste
      */
-    public List<RideRequestDTO> getReadyForPickupRequests() {
-        return repository.findByValidationStatusOrderByCreatedAtDesc(ValidationStatus.READY_FOR_PICKUP)
+    public List<RideRequestDTO> getReadyForPickupRequests(Long driverId) {
+        return repository.findWithResolvedDestinationByStatus(ValidationStatus.READY_FOR_PICKUP, driverId)
                 .stream()
-                .filter(request -> hasUsableDestination(request.getDestination()))
+                .filter(RideRequest::hasUsableDestination)
                 .map(mapper::toDto)
                 .collect(Collectors.toList());
     }
 
+    /**
+     * Courses prêtes dont le point de collecte est à moins de radiusKm de la position donnée, les plus proches d'abord.
+     * Les courses sans coordonnées de collecte, ou offertes à un autre chauffeur, n'apparaissent pas dans cette recherche.
+     */
+    public List<RideRequestDTO> getReadyForPickupRequestsNear(Long driverId, double latitude, double longitude,
+                                                              double radiusKm) {
+        if (!isValidLatitude(latitude) || !isValidLongitude(longitude) || !(radiusKm > 0)) {
+            throw new IllegalArgumentException("Position ou rayon de recherche invalide");
+        }
+        double radiusMeters = radiusKm * 1000;
+        double latitudeDelta = Math.toDegrees(radiusMeters / GeoUtil.EARTH_RADIUS_METERS);
+        double longitudeDelta = latitudeDelta / Math.max(0.01, Math.cos(Math.toRadians(latitude)));
+
+        return repository.findByStatusWithOriginInBox(ValidationStatus.READY_FOR_PICKUP, driverId,
+                        latitude - latitudeDelta, latitude + latitudeDelta,
+                        longitude - longitudeDelta, longitude + longitudeDelta)
+                .stream()
+                .filter(RideRequest::hasUsableDestination)
+                .map(request -> Map.entry(request, GeoUtil.haversineMeters(latitude, longitude,
+                        request.getOriginLatitude(), request.getOriginLongitude())))
+                .filter(entry -> entry.getValue() <= radiusMeters)
+                .sorted(Map.Entry.comparingByValue())
+                .map(entry -> mapper.toDto(entry.getKey()))
+                .collect(Collectors.toList());
+    }
+
     /**
      * Get a ride request by ID
      * @param id The ride request ID
@@ -224,44 +319,41 @@ public class RideRequestService {
                 .map(mapper::toDto);
     }
     
+    public Optional<RideRequest> getRideRequestEntityById(Long id) {
+        return repository.findById(id);
+    }
+
     /**
-     * Get a ride request by validation token
-     * @param token The validation token String
-     * @return Optional containing the ride request entity if found
+     * Accès au suivi d'une course (trace GPS) : client, fournisseur et chauffeur affecté, administrateurs, et manager
+     * de l'entreprise du chauffeur (même règle que l'abonnement au topic de flotte /topic/fleet/{companyId}).
+     * @return false aussi pour une course inexistante
      */
-    public Optional<RideRequest> getRideRequestByValidationToken(String token) {
-        return repository.findByValidationToken(token);
+    @Transactional(readOnly = true)
+    public boolean canViewTracking(Long rideId, Utilisateur user) {
+        RideRequest request = repository.findById(rideId).orElse(null);
+        if (request == null || user == null || user.getId() == null) {
+            return false;
+        }
+        if (user.getRole() == Role.ADMIN
+                || isUser(request.getClient(), user) || isUser(request.getSupplier(), user)
+                || isUser(request.getChauffeur(), user)) {
+            return true;
+        }
+        Utilisateur driver = request.getChauffeur();
+        return user.getRole() == Role.COMPANY_MANAGER && user.getCompany() != null
+                && driver != null && driver.getCompany() != null
+                && user.getCompany().getId().equals(driver.getCompany().getId());
     }
 
-    public Optional<RideRequest> getRideRequestEntityById(Long id) {
-        return repository.findById(id);
+    private static boolean isUser(Utilisateur participant, Utilisateur user) {
+        return participant != null && user.getId().equals(participant.getId());
     }
 
+    /**
+     * Informations publiques du lien destinataire, construites par l'instantané public (source unique).
+     */
     public Map<String, Object> getRecipientValidationInfo(String token) {
-        RideRequest request = repository.findByValidationToken(token)
-                .orElseThrow(LinkExpiredException::new);
-
-        assertRecipientValidationTokenUsable(request);
-
-        if (request.getValidationStatus() != ValidationStatus.WAITING_RECIPIENT_VALIDATION) {
-            throw new LinkExpiredException();
-        }
-
-        Map<String, Object> response = new HashMap<>();
-        response.put("rideId", request.getId());
-        response.put("validationStatus", request.getValidationStatus() != null ? request.getValidationStatus().name() : null);
-        response.put("canValidateLocation", true);
-        response.put("trackingEnabled", false);
-        response.put("driverAssigned", request.getChauffeur() != null);
-        response.put("price", request.getPrice());
-        response.put("packageDescription", request.getPackageDescription() != null
-                ? request.getPackageDescription()
-                : "Colis sans description");
-        response.put("origin", request.getOrigin());
-        response.put("destination", request.getDestination());
-        response.put("senderName", resolveShareSenderName(request));
-        response.put("recipientName", resolveShareRecipientName(request));
-        return response;
+        return publicRideSnapshotService.recipientValidationInfo(token);
     }
     
     /**
@@ -282,8 +374,11 @@ public class RideRequestService {
             throw new LinkExpiredException();
         }
         
-        // Store a readable address when possible, with coordinates as a safe fallback.
-        request.setDestination(resolveAddressFromCoordinates(latitude, longitude));
+        // Coordonnées brutes tout de suite ; l'adresse lisible est résolue après commit, hors transaction
+        String rawDestination = formatCoordinates(latitude, longitude);
+        request.setDestination(rawDestination);
+        request.setDestinationLatitude(latitude);
+        request.setDestinationLongitude(longitude);
         if (request.getQrCodeDelivery() == null || request.getQrCodeDelivery().isBlank()) {
             request.setQrCodeDelivery(generateQrCode());
         }
@@ -294,61 +389,36 @@ public class RideRequestService {
         // Shift to READY_FOR_PICKUP
         request.setValidationStatus(ValidationStatus.READY_FOR_PICKUP);
         request.setValidationTokenUsedAt(LocalDateTime.now());
+        publicSnapshotChanged(request);
         
         RideRequest saved = repository.save(request);
         
         // Notify drivers that a new ride is available
-        notificationService.notifyDriversOfReadyRequest(saved);
+        announceReadyRequest(saved);
+        runAfterCommit(() -> destinationEnrichmentService.enqueue(saved.getId(), latitude, longitude, rawDestination));
         
         return saved;
     }
 
-    private String resolveAddressFromCoordinates(Double latitude, Double longitude) {
-        String fallback = formatCoordinates(latitude, longitude);
-        if (googleMapsApiKey.isBlank()) {
-            logger.warn("GOOGLE_MAPS_API_KEY is missing; keeping destination as coordinates");
-            return fallback;
-        }
-
-        try {
-            String latLng = latitude + "," + longitude;
-            String encodedLatLng = URLEncoder.encode(latLng, StandardCharsets.UTF_8);
-            String encodedKey = URLEncoder.encode(googleMapsApiKey, StandardCharsets.UTF_8);
-            URI uri = URI.create(
-                    "https://maps.googleapis.com/maps/api/geocode/json?latlng="
-                            + encodedLatLng
-                            + "&language=fr&key="
-                            + encodedKey);
-
-            HttpRequest httpRequest = HttpRequest.newBuilder(uri)
-                    .timeout(Duration.ofSeconds(5))
-                    .GET()
-                    .build();
-
-            HttpResponse<String> response = httpClient.send(httpRequest, HttpResponse.BodyHandlers.ofString());
-            if (response.statusCode() < 200 || response.statusCode() >= 300) {
-                logger.warn("Google reverse geocoding failed with HTTP status {}", response.statusCode());
-                return fallback;
-            }
-
-            JsonNode root = objectMapper.readTree(response.body());
-            String status = root.path("status").asText();
-            JsonNode results = root.path("results");
-            if (!"OK".equals(status) || !results.isArray() || results.isEmpty()) {
-                logger.warn("Google reverse geocoding returned status {}", status);
-                return fallback;
-            }
+    private String formatCoordinates(Double latitude, Double longitude) {
+        return latitude + "," + longitude;
+    }
 
-            String formattedAddress = results.get(0).path("formatted_address").asText("").trim();
-            return formattedAddress.isEmpty() ? fallback : formattedAddress;
-        } catch (Exception e) {
-            logger.warn("Unable to reverse geocode recipient location: {}", e.getMessage());
-            return fallback;
-        }
+    private void enrichDestinationAfterCommit(RideRequest saved) {
+        Long id = saved.getId();
+        double latitude = saved.getDestinationLatitude();
+        double longitude = saved.getDestinationLongitude();
+        String rawDestination = saved.getDestination();
+        runAfterCommit(() -> destinationEnrichmentService.enqueue(id, latitude, longitude, rawDestination));
     }
 
-    private String formatCoordinates(Double latitude, Double longitude) {
-        return latitude + "," + longitude;
+    private void requireCoordinatePair(Double latitude, Double longitude, String label) {
+        if (latitude == null && longitude == null) {
+            return;
+        }
+        if (!isValidLatitude(latitude) || !isValidLongitude(longitude)) {
+            throw new IllegalArgumentException("Coordonnees GPS de " + label + " invalides");
+        }
     }
 
     /**
@@ -382,7 +452,7 @@ public class RideRequestService {
             throw new IllegalStateException("Request cannot be validated. Current status: " + request.getValidationStatus());
         }
         
-        if (!hasUsableDestination(request.getDestination())) {
+        if (!request.hasUsableDestination()) {
             request.setValidationStatus(ValidationStatus.WAITING_RECIPIENT_VALIDATION);
             if (request.getValidationToken() == null || request.getValidationToken().isBlank()) {
                 request.setValidationToken(UUID.randomUUID().toString());
@@ -390,6 +460,7 @@ public class RideRequestService {
             if (request.getQrCodeDelivery() == null || request.getQrCodeDelivery().isBlank()) {
                 request.setQrCodeDelivery(generateQrCode());
             }
+            publicSnapshotChanged(request);
             return mapper.toDto(repository.save(request));
         }
 
@@ -403,11 +474,12 @@ public class RideRequestService {
         if (request.getQrCodeDelivery() == null) {
             request.setQrCodeDelivery(generateQrCode());
         }
+        publicSnapshotChanged(request);
         
         RideRequest saved = repository.save(request);
         
-        // Broadcast to all drivers
-        notificationService.notifyDriversOfReadyRequest(saved);
+        // Broadcast to all drivers (or offer to one driver at a time)
+        announceReadyRequest(saved);
         
         return mapper.toDto(saved);
     }
@@ -443,6 +515,7 @@ public class RideRequestService {
                     throw new IllegalStateException("Pickup can only be validated when status is DRIVER_ACCEPTED. Current status: " + request.getValidationStatus());
                 }
                 request.setValidationStatus(ValidationStatus.IN_TRANSIT);
+                markPickedUp(request);
             }
             
         } else if ("DELIVERY".equalsIgnoreCase(type)) {
@@ -456,12 +529,15 @@ public class RideRequestService {
                 throw new IllegalStateException("Delivery can only be validated when status is IN_TRANSIT. Current status: " + request.getValidationStatus());
             }
             request.setValidationStatus(ValidationStatus.COMPLETED);
+            recordTravelledDistance(request);
+            releaseTracking(request);
             
             // TODO: Trigger completion logic (payment, rating, etc.)
             
         } else {
             throw new IllegalArgumentException("Invalid QR scan type. Must be 'PICKUP' or 'DELIVERY'");
         }
+        publicSnapshotChanged(request);
         
         RideRequest saved = repository.save(request);
         return mapper.toDto(saved);
@@ -482,6 +558,11 @@ public class RideRequestService {
      */
     @Transactional
     public RideRequestDTO assignDriver(Long requestId, Long driverId) {
+        // Exclusive dispatch: ride offered to another driver, rejected without reading the row
+        if (exclusiveDispatchService.rejectsAssign(requestId, driverId)) {
+            throw new RideAlreadyTakenException("Ride request is offered to another driver");
+        }
+
         // Load request within transaction
         RideRequest request = repository.findById(requestId)
                 .orElseThrow(() -> new IllegalArgumentException("Ride request not found with ID: " + requestId));
@@ -507,13 +588,32 @@ public class RideRequestService {
                 ". Please wait for admin validation.");
         }
         
+        // Exclusive offer: only its holder may accept, atomically and before the deadline
+        boolean offerClaimed = false;
+        if (request.getOfferedDriverId() != null) {
+            if (!request.getOfferedDriverId().equals(driverId)
+                    || repository.claimOffer(requestId, ValidationStatus.READY_FOR_PICKUP, driverId, LocalDateTime.now()) == 0) {
+                throw new RideAlreadyTakenException("Ride request is offered to another driver or the offer has expired");
+            }
+            request.setOfferExpiresAt(null);
+            offerClaimed = true;
+        }
+        
         // Assign driver (First-Come-First-Served)
         request.setChauffeur(driver);
         request.setValidationStatus(ValidationStatus.DRIVER_ACCEPTED); // State machine: READY_FOR_PICKUP → DRIVER_ACCEPTED
         
         RideRequest saved = repository.save(request);
         
+        boolean acceptedOffer = offerClaimed;
         runAfterCommit(() -> {
+            if (acceptedOffer) {
+                exclusiveDispatchService.offerAccepted(requestId);
+            } else {
+                exclusiveDispatchService.closed(requestId);
+            }
+            activeRideIndex.invalidate(driverId);
+            publicRideSnapshotService.invalidate(requestId);
             notificationService.notifyDriverOfAssignment(saved);
             notificationService.notifyClientOfDriverAccepted(saved);
         });
@@ -521,6 +621,15 @@ public class RideRequestService {
         return mapper.toDto(saved);
     }
 
+    /**
+     * Refus d'une offre exclusive par le chauffeur qui la détient : l'offre passe au candidat suivant.
+     */
+    public void declineOffer(Long requestId, Long driverId) {
+        if (!exclusiveDispatchService.decline(requestId, driverId)) {
+            throw new IllegalStateException("No pending offer for this driver on ride request " + requestId);
+        }
+    }
+
     /**
      * Validate pickup - transitions from DRIVER_ACCEPTED to IN_TRANSIT
      * @param requestId The ride request ID
@@ -549,6 +658,8 @@ public class RideRequestService {
         
         // Transition: DRIVER_ACCEPTED → IN_TRANSIT
         request.setValidationStatus(ValidationStatus.IN_TRANSIT);
+        markPickedUp(request);
+        publicSnapshotChanged(request);
         
         RideRequest saved = repository.save(request);
         return mapper.toDto(saved);
@@ -575,6 +686,9 @@ public class RideRequestService {
         }
         
         request.setValidationStatus(ValidationStatus.COMPLETED);
+        recordTravelledDistance(request);
+        releaseTracking(request);
+        publicSnapshotChanged(request);
         
         RideRequest saved = repository.save(request);
         return mapper.toDto(saved);
@@ -614,6 +728,9 @@ public class RideRequestService {
         }
         
         request.setValidationStatus(ValidationStatus.COMPLETED);
+        recordTravelledDistance(request);
+        releaseTracking(request);
+        publicSnapshotChanged(request);
         
         RideRequest saved = repository.save(request);
         return mapper.toDto(saved);
@@ -796,6 +913,9 @@ public class RideRequestService {
         }
 
         request.setValidationStatus(ValidationStatus.CANCELED);
+        releaseTracking(request);
+        publicSnapshotChanged(request);
+        runAfterCommit(() -> exclusiveDispatchService.closed(rideId));
         return mapper.toDto(repository.save(request));
     }
 
@@ -821,6 +941,7 @@ public class RideRequestService {
         }
 
         request.setPrice(newPrice);
+        publicSnapshotChanged(request);
         return mapper.toDto(repository.save(request));
     }
     
@@ -836,7 +957,7 @@ public class RideRequestService {
             throw new org.springframework.security.access.AccessDeniedException("Vous n'êtes pas autorisé à obtenir ce lien.");
         }
 
-        boolean missingDestination = !hasUsableDestination(request.getDestination());
+        boolean missingDestination = !request.hasUsableDestination();
         boolean terminalStatus = request.getValidationStatus() == ValidationStatus.COMPLETED ||
                 request.getValidationStatus() == ValidationStatus.CANCELED;
         boolean canAskRecipient = request.getValidationStatus() == ValidationStatus.WAITING_RECIPIENT_VALIDATION ||
@@ -853,6 +974,7 @@ public class RideRequestService {
         request.setValidationToken(UUID.randomUUID().toString());
         request.setValidationTokenCreatedAt(LocalDateTime.now());
         request.setValidationTokenUsedAt(null);
+        publicSnapshotChanged(request);
 
         repository.save(request);
 
@@ -879,28 +1001,6 @@ public class RideRequestService {
         }
     }
 
-    private boolean hasUsableDestination(String destination) {
-        if (destination == null) {
-            return false;
-        }
-        String value = destination.trim();
-        if (value.isEmpty()) {
-            return false;
-        }
-        String lower = value.toLowerCase(Locale.ROOT);
-        return !lower.equals("...")
-                && !lower.equals("-")
-                && !lower.equals("null")
-                && !lower.contains("a confirmer")
-                && !lower.contains("à confirmer")
-                && !lower.contains("destination non renseignee")
-                && !lower.contains("destination non renseignée")
-                && !lower.contains("adresse de reception")
-                && !lower.contains("adresse de réception")
-                && !lower.contains("position a renseigner")
-                && !lower.contains("position à renseigner");
-    }
-
     private void appendQueryParam(StringBuilder link, String key, String value) {
         if (value == null || value.trim().isEmpty()) {
             return;
@@ -922,26 +1022,4 @@ public class RideRequestService {
     private String encodeQueryValue(String value) {
         return URLEncoder.encode(value, StandardCharsets.UTF_8);
     }
-
-    private String resolveShareSenderName(RideRequest request) {
-        if (Boolean.FALSE.equals(request.getIsSenderClient())) {
-            if (request.getOtherPartyName() != null && !request.getOtherPartyName().isBlank()) {
-                return request.getOtherPartyName();
-            }
-            if (request.getSupplier() != null) {
-                return request.getSupplier().getFullName();
-            }
-        }
-        return request.getClient() != null ? request.getClient().getFullName() : "Woyo Client";
-    }
-
-    private String resolveShareRecipientName(RideRequest request) {
-        if (Boolean.TRUE.equals(request.getIsSenderClient())) {
-            if (request.getOtherPartyName() != null && !request.getOtherPartyName().isBlank()) {
-                return request.getOtherPartyName();
-            }
-            return "Destinataire";
-        }
-        return request.getClient() != null ? request.getClient().getFullName() : "Destinataire";
-    }
 }
@@ -0,0 +1,185 @@
+package com.malitrans.transport.service;
+
+import com.malitrans.transport.dto.RideTrailDTO;
+import com.malitrans.transport.dto.TrailPointDTO;
+import com.malitrans.transport.model.RideTrailSegment;
+import com.malitrans.transport.repository.RideTrailSegmentRepository;
+import com.malitrans.transport.util.GeoUtil;
+import com.malitrans.transport.util.TrailCodec;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Historique (trace) des positions diffusées pour chaque course.
+ * Les positions sont mises en tampon en mémoire puis écrites périodiquement, hors du chemin de la requête,
+ * sous forme de segments binaires compressés (TrailCodec) insérés par lots.
+ * La relecture fusionne segments persistés et tampon, puis simplifie la trace (Douglas-Peucker) au budget demandé.
+ */
+@Service
+public class RideTrailService {
+
+    private static final Logger logger = LoggerFactory.getLogger(RideTrailService.class);
+    private static final int MAX_POINTS_PER_SEGMENT = 1000;
+
+    private final RideTrailSegmentRepository segmentRepository;
+    private final int maxBufferedPointsPerRide;
+    private final Map<Long, List<TrailPointDTO>> buffers = new ConcurrentHashMap<>();
+
+    private final Counter bufferedPoints;
+    private final Counter persistedPoints;
+    private final Counter droppedPoints;
+    private final Timer flushTimer;
+
+    public RideTrailService(RideTrailSegmentRepository segmentRepository,
+                            MeterRegistry meterRegistry,
+                            @Value("${app.tracking.trail.max-buffered-points-per-ride:5000}") int maxBufferedPointsPerRide) {
+        this.segmentRepository = segmentRepository;
+        this.maxBufferedPointsPerRide = maxBufferedPointsPerRide;
+        this.bufferedPoints = pointsCounter(meterRegistry, "buffered");
+        this.persistedPoints = pointsCounter(meterRegistry, "persisted");
+        this.droppedPoints = pointsCounter(meterRegistry, "dropped");
+        this.flushTimer = Timer.builder("tracking.trail.flush").register(meterRegistry);
+    }
+
+    /**
+     * Ajoute une position diffusée à la trace de sa course (mémoire uniquement, O(1)).
+     */
+    public void append(Long rideId, double latitude, double longitude, long fixMillis) {
+        if (rideId == null) {
+            return;
+        }
+        TrailPointDTO point = new TrailPointDTO(latitude, longitude, fixMillis);
+        while (true) {
+            List<TrailPointDTO> buffer = buffers.computeIfAbsent(rideId, id -> new ArrayList<>());
+            synchronized (buffer) {
+                if (buffers.get(rideId) != buffer) {
+                    continue; // Tampon libéré par un flush concurrent
+                }
+                if (buffer.size() >= maxBufferedPointsPerRide) {
+                    droppedPoints.increment();
+                    return;
+                }
+                buffer.add(point);
+            }
+            bufferedPoints.increment();
+            return;
+        }
+    }
+
+    /**
+     * Écrit les positions en tampon : un segment par course (découpé au-delà de MAX_POINTS_PER_SEGMENT),
+     * le tout dans un seul saveAll.
+     */
+    @Scheduled(fixedDelayString = "${app.tracking.trail.flush-interval-ms:5000}")
+    public void flushBufferedPoints() {
+        List<RideTrailSegment> segments = new ArrayList<>();
+        for (Long rideId : buffers.keySet()) {
+            List<TrailPointDTO> points = drain(rideId);
+            for (int from = 0; from < points.size(); from += MAX_POINTS_PER_SEGMENT) {
+                segments.add(toSegment(rideId, points.subList(from, Math.min(points.size(), from + MAX_POINTS_PER_SEGMENT))));
+            }
+        }
+        if (segments.isEmpty()) {
+            return;
+        }
+
+        int pointCount = segments.stream().mapToInt(RideTrailSegment::getPointCount).sum();
+        long start = System.nanoTime();
+        try {
+            segmentRepository.saveAll(segments);
+            persistedPoints.increment(pointCount);
+        } catch (RuntimeException e) {
+            droppedPoints.increment(pointCount);
+            logger.warn("Unable to persist {} trail points: {}", pointCount, e.getMessage());
+        } finally {
+            flushTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * Trace d'une course, simplifiée côté serveur.
+     * @param maxPoints       Budget de points renvoyés (extrémités incluses)
+     * @param toleranceMeters Déviation en dessous de laquelle on arrête de raffiner (0 = budget seul)
+     */
+    public RideTrailDTO getTrail(Long rideId, int maxPoints, double toleranceMeters) {
+        List<TrailPointDTO> points = getPoints(rideId);
+
+        int n = points.size();
+        double[] lat = new double[n];
+        double[] lng = new double[n];
+        for (int i = 0; i < n; i++) {
+            lat[i] = points.get(i).getLatitude();
+            lng[i] = points.get(i).getLongitude();
+        }
+        int[] kept = GeoUtil.simplify(lat, lng, Math.max(2, maxPoints), Math.max(0, toleranceMeters));
+        List<TrailPointDTO> simplified = new ArrayList<>(kept.length);
+        for (int index : kept) {
+            simplified.add(points.get(index));
+        }
+        return new RideTrailDTO(rideId, n, simplified);
+    }
+
+    /**
+     * Trace complète d'une course : segments persistés puis tampon de ce nœud
+     * (les points encore en tampon sur un autre nœud n'y figurent qu'après son prochain flush).
+     */
+    public List<TrailPointDTO> getPoints(Long rideId) {
+        List<TrailPointDTO> points = new ArrayList<>();
+        for (RideTrailSegment segment : segmentRepository.findByRideIdOrderByFirstFixAtAscIdAsc(rideId)) {
+            points.addAll(TrailCodec.decode(segment.getData()));
+        }
+        List<TrailPointDTO> buffer = buffers.get(rideId);
+        if (buffer != null) {
+            synchronized (buffer) {
+                points.addAll(buffer);
+            }
+        }
+        return points;
+    }
+
+    private List<TrailPointDTO> drain(Long rideId) {
+        List<TrailPointDTO> buffer = buffers.get(rideId);
+        if (buffer == null) {
+            return List.of();
+        }
+        synchronized (buffer) {
+            if (buffer.isEmpty()) {
+                // Course sans nouvelle position depuis le dernier flush : on libère le tampon
+                buffers.remove(rideId, buffer);
+                return List.of();
+            }
+            List<TrailPointDTO> drained = new ArrayList<>(buffer);
+            buffer.clear();
+            return drained;
+        }
+    }
+
+    private RideTrailSegment toSegment(Long rideId, List<TrailPointDTO> points) {
+        RideTrailSegment segment = new RideTrailSegment();
+        segment.setRideId(rideId);
+        segment.setPointCount(points.size());
+        segment.setFirstFixAt(Instant.ofEpochMilli(points.get(0).getTimestamp()));
+        segment.setLastFixAt(Instant.ofEpochMilli(points.get(points.size() - 1).getTimestamp()));
+        segment.setData(TrailCodec.encode(points));
+        return segment;
+    }
+
+    private static Counter pointsCounter(MeterRegistry registry, String outcome) {
+        return Counter.builder("tracking.trail.points")
+                .tag("outcome", outcome)
+                .register(registry);
+    }
+}
@@ -0,0 +1,158 @@
+package com.malitrans.transport.service;
+
+import com.malitrans.transport.dto.LocationMessage;
+import com.malitrans.transport.model.RideLastLocation;
+import com.malitrans.transport.repository.RideLastLocationRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Dernière position par course partagée entre nœuds via la base (table ride_last_location).
+ * Actif avec app.tracking.last-location.shared=true (déploiement multi-nœuds derrière le broker relay) :
+ * les positions diffusées sont écrites en différé par lots (la plus récente par course),
+ * et la lecture complète le LastLocationStore local avec la valeur écrite par les autres nœuds.
+ * L'écriture est un upsert conditionnel en batch JDBC : une ligne n'est remplacée que par un fix plus récent,
+ * quel que soit le nœud qui l'a écrit ; un lot en échec est remis en attente pour le passage suivant.
+ */
+@Service
+public class SharedLastLocationStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(SharedLastLocationStore.class);
+
+    static final String UPSERT_SQL =
+            "INSERT INTO ride_last_location (ride_id, latitude, longitude, fix_at, updated_at) VALUES (?, ?, ?, ?, ?) " +
+            "ON CONFLICT (ride_id) DO UPDATE SET latitude = EXCLUDED.latitude, longitude = EXCLUDED.longitude, " +
+            "fix_at = EXCLUDED.fix_at, updated_at = EXCLUDED.updated_at " +
+            "WHERE ride_last_location.fix_at < EXCLUDED.fix_at";
+    /** Équivalent pour H2 (tests), qui ne connaît pas ON CONFLICT ... DO UPDATE. */
+    static final String H2_UPSERT_SQL =
+            "MERGE INTO ride_last_location t USING (VALUES (CAST(? AS BIGINT), CAST(? AS DOUBLE PRECISION), " +
+            "CAST(? AS DOUBLE PRECISION), CAST(? AS TIMESTAMP WITH TIME ZONE), CAST(? AS TIMESTAMP WITH TIME ZONE))) " +
+            "s(ride_id, latitude, longitude, fix_at, updated_at) ON t.ride_id = s.ride_id " +
+            "WHEN MATCHED AND t.fix_at < s.fix_at THEN UPDATE SET latitude = s.latitude, longitude = s.longitude, " +
+            "fix_at = s.fix_at, updated_at = s.updated_at " +
+            "WHEN NOT MATCHED THEN INSERT (ride_id, latitude, longitude, fix_at, updated_at) " +
+            "VALUES (s.ride_id, s.latitude, s.longitude, s.fix_at, s.updated_at)";
+
+    private final RideLastLocationRepository repository;
+    private final JdbcTemplate jdbcTemplate;
+    private final boolean enabled;
+    private final long ttlMillis;
+    private final Map<Long, RideLastLocation> dirty = new ConcurrentHashMap<>();
+    private volatile String upsertSql;
+
+    public SharedLastLocationStore(RideLastLocationRepository repository,
+                                   JdbcTemplate jdbcTemplate,
+                                   @Value("${app.tracking.last-location.shared:false}") boolean enabled,
+                                   @Value("${app.tracking.last-location.ttl-ms:21600000}") long ttlMillis) {
+        this.repository = repository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.enabled = enabled;
+        this.ttlMillis = ttlMillis;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void record(long rideId, double latitude, double longitude, long fixMillis) {
+        if (!enabled) {
+            return;
+        }
+        RideLastLocation location = new RideLastLocation();
+        location.setRideId(rideId);
+        location.setLatitude(latitude);
+        location.setLongitude(longitude);
+        location.setFixAt(Instant.ofEpochMilli(fixMillis));
+        location.setUpdatedAt(Instant.now());
+        dirty.merge(rideId, location, SharedLastLocationStore::newer);
+    }
+
+    /**
+     * Valeur écrite en base (tous nœuds confondus) ; les positions de ce nœud non encore écrites
+     * sont déjà dans le LastLocationStore local.
+     */
+    public Optional<LocationMessage> find(long rideId) {
+        if (!enabled) {
+            return Optional.empty();
+        }
+        long cutoff = System.currentTimeMillis() - ttlMillis;
+        return repository.findById(rideId)
+                .filter(l -> l.getUpdatedAt().toEpochMilli() >= cutoff)
+                .map(l -> new LocationMessage(l.getRideId(), l.getLatitude(), l.getLongitude(), l.getFixAt().toString()));
+    }
+
+    public void remove(long rideId) {
+        if (!enabled) {
+            return;
+        }
+        dirty.remove(rideId);
+        repository.deleteById(rideId);
+    }
+
+    @Scheduled(fixedDelayString = "${app.tracking.last-location.shared-flush-interval-ms:1000}")
+    public void flush() {
+        if (!enabled || dirty.isEmpty()) {
+            return;
+        }
+        List<RideLastLocation> batch = new ArrayList<>(dirty.size());
+        List<Object[]> rows = new ArrayList<>(dirty.size());
+        for (Long rideId : dirty.keySet()) {
+            RideLastLocation location = dirty.remove(rideId);
+            if (location != null) {
+                batch.add(location);
+                rows.add(new Object[]{location.getRideId(), location.getLatitude(), location.getLongitude(),
+                        Timestamp.from(location.getFixAt()), Timestamp.from(location.getUpdatedAt())});
+            }
+        }
+        try {
+            jdbcTemplate.batchUpdate(upsertSql(), rows);
+        } catch (RuntimeException e) {
+            logger.warn("Unable to write {} shared last locations, retrying on next flush: {}",
+                    batch.size(), e.getMessage());
+            // Remise en attente, sans écraser un fix plus récent reçu depuis
+            for (RideLastLocation location : batch) {
+                dirty.merge(location.getRideId(), location, SharedLastLocationStore::newer);
+            }
+        }
+    }
+
+    private String upsertSql() {
+        String sql = upsertSql;
+        if (sql == null) {
+            String product = jdbcTemplate.execute((ConnectionCallback<String>) connection ->
+                    connection.getMetaData().getDatabaseProductName());
+            sql = "H2".equalsIgnoreCase(product) ? H2_UPSERT_SQL : UPSERT_SQL;
+            upsertSql = sql;
+        }
+        return sql;
+    }
+
+    int pendingWrites() {
+        return dirty.size();
+    }
+
+    private static RideLastLocation newer(RideLastLocation current, RideLastLocation next) {
+        return next.getFixAt().isAfter(current.getFixAt()) ? next : current;
+    }
+
+    @Scheduled(fixedDelayString = "${app.tracking.last-location.purge-interval-ms:60000}")
+    public void purgeExpired() {
+        if (enabled) {
+            repository.deleteUpdatedBefore(Instant.now().minusMillis(ttlMillis));
+        }
+    }
+}
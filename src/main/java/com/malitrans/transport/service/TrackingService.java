@@ -1,41 +1,230 @@
 package com.malitrans.transport.service;
 
+import com.malitrans.transport.dto.DriverLocationMessage;
 import com.malitrans.transport.dto.LocationMessage;
+import com.malitrans.transport.util.LocationFrameCodec;
+import org.springframework.messaging.MessageHeaders;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.util.MimeTypeUtils;
 
 import java.time.Instant;
+import java.time.format.DateTimeParseException;
 import java.util.Map;
 import java.util.Optional;
-import java.util.concurrent.ConcurrentHashMap;
 
 @Service
 public class TrackingService {
 
+    /** Un fix daté trop loin dans le futur (horloge du téléphone) bloquerait les suivants : heure serveur. */
+    private static final long MAX_CLOCK_SKEW_MILLIS = 60_000;
+    private static final Map<String, Object> BINARY_HEADERS =
+            Map.of(MessageHeaders.CONTENT_TYPE, MimeTypeUtils.APPLICATION_OCTET_STREAM);
+
     private final SimpMessagingTemplate messagingTemplate;
-    private final Map<Long, LocationMessage> lastLocations = new ConcurrentHashMap<>();
+    private final LocationIngestionService ingestionService;
+    private final RideTrailService rideTrailService;
+    private final LastLocationStore lastLocations;
+    private final ActiveRideIndex activeRideIndex;
+    private final TrackingSubscriptions subscriptions;
+    private final SharedLastLocationStore sharedLastLocations;
+    private final RideEtaEstimator etaEstimator;
+    private final RideOdometer odometer;
+    private final RideGeofenceEngine geofenceEngine;
+    private final RideArrivalNotifier arrivalNotifier;
+    private final FleetFeedService fleetFeed;
 
-    public TrackingService(SimpMessagingTemplate messagingTemplate) {
+    public TrackingService(SimpMessagingTemplate messagingTemplate, LocationIngestionService ingestionService,
+                           RideTrailService rideTrailService, LastLocationStore lastLocations,
+                           ActiveRideIndex activeRideIndex, TrackingSubscriptions subscriptions,
+                           SharedLastLocationStore sharedLastLocations, RideEtaEstimator etaEstimator,
+                           RideOdometer odometer, RideGeofenceEngine geofenceEngine,
+                           RideArrivalNotifier arrivalNotifier, FleetFeedService fleetFeed) {
         this.messagingTemplate = messagingTemplate;
+        this.ingestionService = ingestionService;
+        this.rideTrailService = rideTrailService;
+        this.lastLocations = lastLocations;
+        this.activeRideIndex = activeRideIndex;
+        this.subscriptions = subscriptions;
+        this.sharedLastLocations = sharedLastLocations;
+        this.etaEstimator = etaEstimator;
+        this.odometer = odometer;
+        this.geofenceEngine = geofenceEngine;
+        this.arrivalNotifier = arrivalNotifier;
+        this.fleetFeed = fleetFeed;
     }
 
     public void publishDriverLocation(LocationMessage message) {
+        publishDriverLocation(null, message);
+    }
+
+    /**
+     * @param chauffeurId Chauffeur émetteur quand il est authentifié (alimente aussi la carte de flotte), sinon null
+     */
+    public void publishDriverLocation(Long chauffeurId, LocationMessage message) {
         if (message == null || message.getRideId() == null) {
             return;
         }
 
-        if (message.getTimestamp() == null || message.getTimestamp().isBlank()) {
-            message.setTimestamp(Instant.now().toString());
+        long now = System.currentTimeMillis();
+        long fixMillis = parseFixMillis(message.getTimestamp(), now);
+        fleetFeed.onDriverFix(chauffeurId, message.getLatitude(), message.getLongitude(), fixMillis, now);
+        publishFix(message.getRideId(), message.getLatitude(), message.getLongitude(), fixMillis, now);
+    }
+
+    /**
+     * Position reçue en trame binaire (LocationFrameCodec) : aucun parsing de texte.
+     * @param chauffeurId Chauffeur émetteur quand il est authentifié, sinon null
+     */
+    public void publishDriverFrame(Long chauffeurId, byte[] frame) {
+        LocationFrameCodec.Frame decoded = LocationFrameCodec.decode(frame);
+        if (decoded == null) {
+            return;
         }
+        long now = System.currentTimeMillis();
+        long fixMillis = decoded.fixMillis() - now > MAX_CLOCK_SKEW_MILLIS ? now : decoded.fixMillis();
+        fleetFeed.onDriverFix(chauffeurId, decoded.latitude(), decoded.longitude(), fixMillis, now);
+        publishFix(decoded.rideId(), decoded.latitude(), decoded.longitude(), fixMillis, now);
+    }
 
-        lastLocations.put(message.getRideId(), message);
-        messagingTemplate.convertAndSend("/topic/ride/" + message.getRideId(), message);
+    private void publishFix(long rideId, double latitude, double longitude, long fixMillis, long now) {
+        // Positions hors ordre, immobiles ou en rafale : pas de diffusion immédiate
+        if (ingestionService.offer(rideId, latitude, longitude, fixMillis, now)
+                == LocationIngestionService.Decision.FORWARD) {
+            broadcast(rideId, latitude, longitude, fixMillis);
+        }
+    }
+
+    /**
+     * Diffuse une position chauffeur sur chacune de ses courses actives (/topic/ride/{id}) et la carte de flotte.
+     * @return Nombre de courses concernées
+     */
+    public int publishDriverFix(Long chauffeurId, DriverLocationMessage message) {
+        if (chauffeurId == null || message == null) {
+            return 0;
+        }
+        long now = System.currentTimeMillis();
+        // Carte de flotte : position du chauffeur même sans course active
+        fleetFeed.onDriverFix(chauffeurId, message.getLatitude(), message.getLongitude(),
+                parseFixMillis(message.getTimestamp(), now), now);
+        long[] rideIds = activeRideIndex.activeRideIds(chauffeurId);
+        for (long rideId : rideIds) {
+            publishDriverLocation(new LocationMessage(rideId, message.getLatitude(), message.getLongitude(),
+                    message.getTimestamp()));
+        }
+        return rideIds.length;
+    }
+
+    /**
+     * Diffuse les dernières positions regroupées dont l'intervalle minimal de publication est écoulé.
+     */
+    @Scheduled(fixedDelayString = "${app.tracking.flush-interval-ms:250}")
+    public void flushCoalescedLocations() {
+        ingestionService.drainDue(System.currentTimeMillis(), this::broadcast);
+    }
+
+    @Scheduled(fixedDelayString = "${app.tracking.last-location.purge-interval-ms:60000}")
+    public void purgeExpiredLocations() {
+        lastLocations.purgeExpired(System.currentTimeMillis());
     }
 
     public Optional<LocationMessage> getLastLocation(Long rideId) {
         if (rideId == null) {
             return Optional.empty();
         }
-        return Optional.ofNullable(lastLocations.get(rideId));
+        LocationMessage local = lastLocations.get(rideId, System.currentTimeMillis());
+        if (!sharedLastLocations.isEnabled()) {
+            return Optional.ofNullable(local);
+        }
+        // Multi-nœuds : la position la plus récente peut avoir été reçue par un autre nœud
+        Optional<LocationMessage> shared = sharedLastLocations.find(rideId);
+        if (local == null || (shared.isPresent()
+                && Instant.parse(shared.get().getTimestamp()).isAfter(Instant.parse(local.getTimestamp())))) {
+            return shared;
+        }
+        return Optional.of(local);
+    }
+
+    /**
+     * Libère l'état de suivi d'une course arrivée dans un état terminal (COMPLETED / CANCELED).
+     */
+    public void forgetRide(Long rideId) {
+        if (rideId == null) {
+            return;
+        }
+        lastLocations.remove(rideId);
+        sharedLastLocations.remove(rideId);
+        ingestionService.forget(rideId);
+        etaEstimator.forget(rideId);
+        odometer.forget(rideId);
+        geofenceEngine.forget(rideId);
+    }
+
+    /**
+     * Ramassage validé : la détection d'arrivée passe du point de collecte à la destination.
+     */
+    public void markPickedUp(Long rideId) {
+        if (rideId != null) {
+            geofenceEngine.pickedUp(rideId);
+        }
+    }
+
+    /**
+     * Distance parcourue (mètres) selon le compteur de ce nœud. La trace enregistrée n'est rejouée qu'en repli,
+     * quand ce nœud n'a reçu aucun fix de la course (redémarrage, fixes reçus par un autre nœud).
+     * @return Distance, ou vide si aucune position n'est connue
+     */
+    public Optional<Integer> getTravelledMeters(Long rideId) {
+        if (rideId == null) {
+            return Optional.empty();
+        }
+        int meters = odometer.distanceMeters(rideId);
+        if (meters == RideOdometer.UNKNOWN) {
+            meters = odometer.replayMeters(rideTrailService.getPoints(rideId));
+        }
+        return meters == RideOdometer.UNKNOWN ? Optional.empty() : Optional.of(meters);
+    }
+
+    /**
+     * Diffusion dans chaque format écouté : JSON sur /topic/ride/{id} (avec l'ETA quand elle est connue),
+     * trame binaire sur /topic/ride/{id}/bin (format fixe, sans ETA) ; approche et arrivée sur /topic/ride/{id}/arrival.
+     */
+    private void broadcast(long rideId, double latitude, double longitude, long fixMillis) {
+        long now = System.currentTimeMillis();
+        lastLocations.put(rideId, latitude, longitude, fixMillis, now);
+        sharedLastLocations.record(rideId, latitude, longitude, fixMillis);
+        rideTrailService.append(rideId, latitude, longitude, fixMillis);
+        odometer.onFix(rideId, latitude, longitude, fixMillis, now);
+        RideGeofenceEngine.Event arrival = geofenceEngine.onFix(rideId, latitude, longitude, fixMillis, now);
+        if (arrival != null) {
+            arrivalNotifier.publish(rideId, arrival, fixMillis);
+        }
+        int etaSeconds = etaEstimator.onFix(rideId, latitude, longitude, fixMillis, now);
+        if (subscriptions.hasJsonSubscribers(rideId)) {
+            LocationMessage message = new LocationMessage(rideId, latitude, longitude,
+                    Instant.ofEpochMilli(fixMillis).toString());
+            if (etaSeconds != RideEtaEstimator.UNKNOWN) {
+                message.setEtaSeconds(etaSeconds);
+                message.setRemainingMeters(etaEstimator.remainingMeters(rideId));
+            }
+            messagingTemplate.convertAndSend("/topic/ride/" + rideId, message);
+        }
+        if (subscriptions.hasBinarySubscribers(rideId)) {
+            messagingTemplate.convertAndSend("/topic/ride/" + rideId + "/bin",
+                    LocationFrameCodec.encode(rideId, latitude, longitude, fixMillis), BINARY_HEADERS);
+        }
+    }
+
+    private long parseFixMillis(String timestamp, long fallback) {
+        if (timestamp == null || timestamp.isBlank()) {
+            return fallback;
+        }
+        try {
+            long fixMillis = Instant.parse(timestamp).toEpochMilli();
+            return fixMillis - fallback > MAX_CLOCK_SKEW_MILLIS ? fallback : fixMillis;
+        } catch (DateTimeParseException e) {
+            return fallback;
+        }
     }
 }
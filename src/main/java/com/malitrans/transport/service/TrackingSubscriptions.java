@@ -0,0 +1,94 @@
+package com.malitrans.transport.service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Compteurs d'abonnements STOMP aux positions d'une course, par format (JSON sur /topic/ride/{id},
+ * binaire sur /topic/ride/{id}/bin). Alimenté par TrackingSubscriptionInterceptor ; permet à TrackingService
+ * de n'encoder et n'envoyer que les formats réellement écoutés.
+ * Avec le broker relay (app.tracking.broker.mode=relay), les abonnés peuvent être sur d'autres nœuds :
+ * les compteurs locaux ne suffisent plus et tous les formats sont publiés.
+ */
+@Component
+public class TrackingSubscriptions {
+
+    private final boolean localBroker;
+    private final Map<Long, Counts> countsByRide = new ConcurrentHashMap<>();
+    private final Map<String, Map<String, Subscription>> subscriptionsBySession = new ConcurrentHashMap<>();
+
+    public TrackingSubscriptions(MeterRegistry meterRegistry,
+                                 @Value("${app.tracking.broker.mode:simple}") String brokerMode) {
+        this.localBroker = !"relay".equalsIgnoreCase(brokerMode);
+        Gauge.builder("tracking.subscriptions.rides", countsByRide, Map::size).register(meterRegistry);
+    }
+
+    public void subscribed(String sessionId, String subscriptionId, long rideId, boolean binary) {
+        Subscription previous = subscriptionsBySession
+                .computeIfAbsent(sessionId, id -> new ConcurrentHashMap<>())
+                .put(subscriptionId, new Subscription(rideId, binary));
+        if (previous != null) {
+            release(previous);
+        }
+        countsByRide.compute(rideId, (id, counts) -> {
+            Counts updated = counts != null ? counts : new Counts();
+            (binary ? updated.binary : updated.json).incrementAndGet();
+            return updated;
+        });
+    }
+
+    public void unsubscribed(String sessionId, String subscriptionId) {
+        Map<String, Subscription> subscriptions = subscriptionsBySession.get(sessionId);
+        if (subscriptions == null) {
+            return;
+        }
+        Subscription removed = subscriptions.remove(subscriptionId);
+        if (removed != null) {
+            release(removed);
+        }
+    }
+
+    public void disconnected(String sessionId) {
+        Map<String, Subscription> subscriptions = subscriptionsBySession.remove(sessionId);
+        if (subscriptions != null) {
+            subscriptions.values().forEach(this::release);
+        }
+    }
+
+    public boolean hasJsonSubscribers(long rideId) {
+        if (!localBroker) {
+            return true;
+        }
+        Counts counts = countsByRide.get(rideId);
+        return counts != null && counts.json.get() > 0;
+    }
+
+    public boolean hasBinarySubscribers(long rideId) {
+        if (!localBroker) {
+            return true;
+        }
+        Counts counts = countsByRide.get(rideId);
+        return counts != null && counts.binary.get() > 0;
+    }
+
+    private void release(Subscription subscription) {
+        countsByRide.computeIfPresent(subscription.rideId, (id, counts) -> {
+            (subscription.binary ? counts.binary : counts.json).decrementAndGet();
+            return counts.json.get() <= 0 && counts.binary.get() <= 0 ? null : counts;
+        });
+    }
+
+    private record Subscription(long rideId, boolean binary) {
+    }
+
+    private static final class Counts {
+        private final AtomicInteger json = new AtomicInteger();
+        private final AtomicInteger binary = new AtomicInteger();
+    }
+}
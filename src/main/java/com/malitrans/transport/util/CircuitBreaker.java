@@ -0,0 +1,137 @@
+package com.malitrans.transport.util;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Disjoncteur pour une dépendance externe, sur une fenêtre glissante des derniers appels :
+ * - CLOSED : tous les appels passent ; si le taux d'échec de la fenêtre atteint le seuil (après minimumCalls
+ *   appels), le circuit s'ouvre,
+ * - OPEN : les appels sont refusés immédiatement pendant openDuration (l'appelant applique son repli),
+ * - HALF_OPEN : un seul appel d'essai passe ; son succès referme le circuit, son échec le rouvre.
+ * L'appelant doit signaler l'issue de chaque appel autorisé (onSuccess / onFailure).
+ */
+public class CircuitBreaker {
+
+    public enum State {
+        CLOSED, HALF_OPEN, OPEN
+    }
+
+    private final boolean[] window;
+    private final int minimumCalls;
+    private final double failureRateThreshold;
+    private final long openDurationNanos;
+    private final LongSupplier nanoClock;
+
+    private State state = State.CLOSED;
+    private int recorded;
+    private int next;
+    private int failures;
+    private long openedAtNanos;
+    private boolean trialInFlight;
+
+    /**
+     * @param windowSize           Nombre de derniers appels pris en compte
+     * @param minimumCalls         Nombre d'appels requis avant d'évaluer le taux d'échec
+     * @param failureRateThreshold Taux d'échec (0..1) qui ouvre le circuit
+     * @param openDuration         Durée pendant laquelle le circuit reste ouvert
+     * @param openDurationUnit     Unité de openDuration
+     */
+    public CircuitBreaker(int windowSize, int minimumCalls, double failureRateThreshold,
+                          long openDuration, TimeUnit openDurationUnit) {
+        this(windowSize, minimumCalls, failureRateThreshold, openDuration, openDurationUnit, System::nanoTime);
+    }
+
+    CircuitBreaker(int windowSize, int minimumCalls, double failureRateThreshold,
+                   long openDuration, TimeUnit openDurationUnit, LongSupplier nanoClock) {
+        if (windowSize < 1 || minimumCalls < 1 || failureRateThreshold <= 0 || failureRateThreshold > 1
+                || openDuration < 0) {
+            throw new IllegalArgumentException("Invalid circuit breaker settings");
+        }
+        this.window = new boolean[windowSize];
+        this.minimumCalls = Math.min(minimumCalls, windowSize);
+        this.failureRateThreshold = failureRateThreshold;
+        this.openDurationNanos = openDurationUnit.toNanos(openDuration);
+        this.nanoClock = nanoClock;
+    }
+
+    /**
+     * @return true si l'appel peut être tenté, false s'il doit être remplacé tout de suite par le repli
+     */
+    public synchronized boolean tryAcquire() {
+        switch (state) {
+            case CLOSED:
+                return true;
+            case OPEN:
+                if (nanoClock.getAsLong() - openedAtNanos < openDurationNanos) {
+                    return false;
+                }
+                state = State.HALF_OPEN;
+                trialInFlight = true;
+                return true;
+            default:
+                if (trialInFlight) {
+                    return false;
+                }
+                trialInFlight = true;
+                return true;
+        }
+    }
+
+    public synchronized void onSuccess() {
+        if (state == State.HALF_OPEN) {
+            close();
+        } else if (state == State.CLOSED) {
+            record(false);
+        }
+    }
+
+    public synchronized void onFailure() {
+        if (state == State.HALF_OPEN) {
+            open();
+        } else if (state == State.CLOSED) {
+            record(true);
+            if (recorded >= minimumCalls && failures >= failureRateThreshold * recorded) {
+                open();
+            }
+        }
+    }
+
+    public synchronized State state() {
+        return state;
+    }
+
+    private void record(boolean failure) {
+        if (recorded == window.length) {
+            if (window[next]) {
+                failures--;
+            }
+        } else {
+            recorded++;
+        }
+        window[next] = failure;
+        if (failure) {
+            failures++;
+        }
+        next = (next + 1) % window.length;
+    }
+
+    private void open() {
+        state = State.OPEN;
+        openedAtNanos = nanoClock.getAsLong();
+        trialInFlight = false;
+        resetWindow();
+    }
+
+    private void close() {
+        state = State.CLOSED;
+        trialInFlight = false;
+        resetWindow();
+    }
+
+    private void resetWindow() {
+        recorded = 0;
+        next = 0;
+        failures = 0;
+    }
+}
@@ -0,0 +1,125 @@
+package com.malitrans.transport.util;
+
+import java.util.Arrays;
+import java.util.PriorityQueue;
+
+/**
+ * Calculs géographiques simples (sphère terrestre, distances en mètres).
+ */
+public final class GeoUtil {
+
+    public static final double EARTH_RADIUS_METERS = 6_371_008.8;
+
+    private GeoUtil() {
+    }
+
+    /**
+     * Distance orthodromique (formule de haversine) entre deux points.
+     * @return Distance en mètres
+     */
+    public static double haversineMeters(double lat1, double lng1, double lat2, double lng2) {
+        double dLat = Math.toRadians(lat2 - lat1);
+        double dLng = Math.toRadians(lng2 - lng1);
+        double sinLat = Math.sin(dLat / 2);
+        double sinLng = Math.sin(dLng / 2);
+        double a = sinLat * sinLat
+                + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2)) * sinLng * sinLng;
+        return 2 * EARTH_RADIUS_METERS * Math.asin(Math.min(1.0, Math.sqrt(a)));
+    }
+
+    /**
+     * Lit une adresse enregistrée sous forme de coordonnées ("lat,lng", cf. validation destinataire).
+     * @return {latitude, longitude}, ou null si le texte n'est pas un couple de coordonnées valide
+     */
+    public static double[] parseCoordinates(String text) {
+        if (text == null) {
+            return null;
+        }
+        int comma = text.indexOf(',');
+        if (comma < 0 || text.indexOf(',', comma + 1) >= 0) {
+            return null;
+        }
+        try {
+            double latitude = Double.parseDouble(text.substring(0, comma).trim());
+            double longitude = Double.parseDouble(text.substring(comma + 1).trim());
+            if (!Double.isFinite(latitude) || !Double.isFinite(longitude)
+                    || Math.abs(latitude) > 90 || Math.abs(longitude) > 180) {
+                return null;
+            }
+            return new double[]{latitude, longitude};
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Simplification Douglas-Peucker pilotée par un budget de points : on raffine toujours le segment
+     * dont le point le plus éloigné dévie le plus, jusqu'à atteindre maxPoints ou une déviation
+     * inférieure à toleranceMeters. Les extrémités sont toujours conservées.
+     * @return Indices conservés, triés par ordre croissant
+     */
+    public static int[] simplify(double[] lat, double[] lng, int maxPoints, double toleranceMeters) {
+        int n = lat.length;
+        if (n <= 2 || maxPoints >= n) {
+            int[] all = new int[n];
+            Arrays.setAll(all, i -> i);
+            return all;
+        }
+        boolean[] keep = new boolean[n];
+        keep[0] = true;
+        keep[n - 1] = true;
+        int kept = 2;
+
+        PriorityQueue<double[]> queue = new PriorityQueue<>((a, b) -> Double.compare(b[0], a[0]));
+        offerSplit(queue, lat, lng, 0, n - 1);
+        while (kept < maxPoints && !queue.isEmpty()) {
+            double[] split = queue.poll();
+            if (split[0] <= toleranceMeters) {
+                break;
+            }
+            int start = (int) split[1];
+            int index = (int) split[2];
+            int end = (int) split[3];
+            keep[index] = true;
+            kept++;
+            offerSplit(queue, lat, lng, start, index);
+            offerSplit(queue, lat, lng, index, end);
+        }
+
+        int[] result = new int[kept];
+        for (int i = 0, j = 0; i < n; i++) {
+            if (keep[i]) {
+                result[j++] = i;
+            }
+        }
+        return result;
+    }
+
+    private static void offerSplit(PriorityQueue<double[]> queue, double[] lat, double[] lng, int start, int end) {
+        if (end - start < 2) {
+            return;
+        }
+        // Projection équirectangulaire locale (mètres) autour du début du segment : suffisante à l'échelle d'une course
+        double cosLat = Math.cos(Math.toRadians(lat[start]));
+        double metersPerDegree = Math.toRadians(EARTH_RADIUS_METERS);
+        double bx = (lng[end] - lng[start]) * cosLat * metersPerDegree;
+        double by = (lat[end] - lat[start]) * metersPerDegree;
+        double lengthSquared = bx * bx + by * by;
+
+        double maxDistance = -1;
+        int maxIndex = start + 1;
+        for (int i = start + 1; i < end; i++) {
+            double px = (lng[i] - lng[start]) * cosLat * metersPerDegree;
+            double py = (lat[i] - lat[start]) * metersPerDegree;
+            double t = lengthSquared == 0 ? 0 : Math.max(0, Math.min(1, (px * bx + py * by) / lengthSquared));
+            double dx = px - t * bx;
+            double dy = py - t * by;
+            double distance = Math.sqrt(dx * dx + dy * dy);
+            if (distance > maxDistance) {
+                maxDistance = distance;
+                maxIndex = i;
+            }
+        }
+        queue.add(new double[]{maxDistance, start, maxIndex, end});
+    }
+}
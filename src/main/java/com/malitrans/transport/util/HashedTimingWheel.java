@@ -0,0 +1,146 @@
+package com.malitrans.transport.util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Roue temporelle hachée pour un grand nombre d'échéances courtes (délais d'acceptation, expirations) :
+ * wheelSize seaux de tickMillis ; une échéance est rangée dans le seau de son tick, avec le nombre de tours
+ * restants si elle dépasse un tour de roue.
+ * Planification et annulation en O(1) (listes doublement chaînées intrusives) ; chaque tick ne parcourt que son seau.
+ * Pas de thread propre : la roue est avancée par l'appelant (tâche planifiée), l'horloge est passée en paramètre ;
+ * la précision est d'un tick (une échéance expire au plus tickMillis après son heure).
+ */
+public final class HashedTimingWheel<T> {
+
+    /**
+     * Échéance planifiée, à conserver pour pouvoir l'annuler.
+     */
+    public static final class Timeout<T> {
+        private final T payload;
+        private final long deadlineTick;
+        private long remainingRounds;
+        private int bucket;
+        private Timeout<T> previous;
+        private Timeout<T> next;
+        private boolean pending = true;
+
+        private Timeout(T payload, long deadlineTick, long remainingRounds, int bucket) {
+            this.payload = payload;
+            this.deadlineTick = deadlineTick;
+            this.remainingRounds = remainingRounds;
+            this.bucket = bucket;
+        }
+
+        public T payload() {
+            return payload;
+        }
+    }
+
+    private final Timeout<T>[] buckets;
+    private final int mask;
+    private final long tickMillis;
+    private final long startMillis;
+    private long currentTick;
+    private int size;
+
+    /**
+     * @param wheelSize   Nombre de seaux (arrondi à la puissance de 2 supérieure)
+     * @param tickMillis  Durée d'un tick
+     * @param startMillis Instant de référence du tick 0
+     */
+    @SuppressWarnings("unchecked")
+    public HashedTimingWheel(int wheelSize, long tickMillis, long startMillis) {
+        if (wheelSize < 1 || tickMillis < 1) {
+            throw new IllegalArgumentException("wheelSize and tickMillis must be positive");
+        }
+        int size = wheelSize == 1 ? 1 : Integer.highestOneBit(wheelSize - 1) << 1;
+        this.buckets = (Timeout<T>[]) new Timeout[size];
+        this.mask = size - 1;
+        this.tickMillis = tickMillis;
+        this.startMillis = startMillis;
+    }
+
+    /**
+     * Planifie une échéance à nowMillis + delayMillis (au plus tôt au tick suivant).
+     */
+    public synchronized Timeout<T> schedule(T payload, long delayMillis, long nowMillis) {
+        long deadline = nowMillis + Math.max(0, delayMillis) - startMillis;
+        long deadlineTick = Math.max(currentTick + 1, (deadline + tickMillis - 1) / tickMillis);
+        long ticksAhead = deadlineTick - currentTick;
+        int bucket = (int) (deadlineTick & mask);
+        Timeout<T> timeout = new Timeout<>(payload, deadlineTick, (ticksAhead - 1) / buckets.length, bucket);
+        link(timeout);
+        size++;
+        return timeout;
+    }
+
+    /**
+     * @return true si l'échéance était en attente (elle n'expirera pas), false si déjà expirée ou annulée
+     */
+    public synchronized boolean cancel(Timeout<T> timeout) {
+        if (timeout == null || !timeout.pending) {
+            return false;
+        }
+        unlink(timeout);
+        timeout.pending = false;
+        size--;
+        return true;
+    }
+
+    /**
+     * Avance la roue jusqu'à nowMillis.
+     * @return Charges utiles des échéances expirées, dans l'ordre des ticks (à traiter hors de la roue)
+     */
+    public synchronized List<T> advance(long nowMillis) {
+        long targetTick = (nowMillis - startMillis) / tickMillis;
+        List<T> expired = null;
+        while (currentTick < targetTick) {
+            currentTick++;
+            Timeout<T> timeout = buckets[(int) (currentTick & mask)];
+            while (timeout != null) {
+                Timeout<T> next = timeout.next;
+                if (timeout.remainingRounds > 0) {
+                    timeout.remainingRounds--;
+                } else if (timeout.deadlineTick <= currentTick) {
+                    unlink(timeout);
+                    timeout.pending = false;
+                    size--;
+                    if (expired == null) {
+                        expired = new ArrayList<>();
+                    }
+                    expired.add(timeout.payload);
+                }
+                timeout = next;
+            }
+        }
+        return expired != null ? expired : Collections.emptyList();
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    private void link(Timeout<T> timeout) {
+        Timeout<T> head = buckets[timeout.bucket];
+        timeout.next = head;
+        if (head != null) {
+            head.previous = timeout;
+        }
+        buckets[timeout.bucket] = timeout;
+    }
+
+    private void unlink(Timeout<T> timeout) {
+        if (timeout.previous != null) {
+            timeout.previous.next = timeout.next;
+        } else {
+            buckets[timeout.bucket] = timeout.next;
+        }
+        if (timeout.next != null) {
+            timeout.next.previous = timeout.previous;
+        }
+        timeout.previous = null;
+        timeout.next = null;
+    }
+}
@@ -0,0 +1,132 @@
+package com.malitrans.transport.util;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * Index statique de plus proche voisin sur la sphère (arbre k-d en 3 dimensions).
+ * Chaque point est projeté sur la sphère unité (x, y, z) : la distance euclidienne (corde) y est
+ * strictement croissante avec la distance orthodromique, donc l'élagage est exact, sans approximation
+ * de projection plane ni problème d'antiméridien.
+ * Construction en O(n log² n), requête en O(log n) en moyenne ; immuable donc sûr en lecture concurrente.
+ */
+public final class KdTree {
+
+    private static final int DIMENSIONS = 3;
+
+    // Points dans l'ordre de l'arbre implicite : le nœud d'une plage [lo, hi) est au milieu
+    private final double[] coordinates;
+    private final int[] ids;
+
+    /**
+     * @param latitudes  Latitudes des points, en degrés
+     * @param longitudes Longitudes des points, en degrés (même longueur que latitudes)
+     */
+    public KdTree(double[] latitudes, double[] longitudes) {
+        if (latitudes.length != longitudes.length) {
+            throw new IllegalArgumentException("latitudes and longitudes must have the same length");
+        }
+        int n = latitudes.length;
+        double[] points = new double[n * DIMENSIONS];
+        for (int i = 0; i < n; i++) {
+            toUnitVector(latitudes[i], longitudes[i], points, i * DIMENSIONS);
+        }
+
+        Integer[] order = new Integer[n];
+        Arrays.setAll(order, i -> i);
+        build(order, points, 0, n, 0);
+
+        this.coordinates = new double[n * DIMENSIONS];
+        this.ids = new int[n];
+        for (int i = 0; i < n; i++) {
+            ids[i] = order[i];
+            System.arraycopy(points, order[i] * DIMENSIONS, coordinates, i * DIMENSIONS, DIMENSIONS);
+        }
+    }
+
+    public int size() {
+        return ids.length;
+    }
+
+    /**
+     * @param maxMeters Distance maximale acceptée
+     * @return Indice (dans les tableaux d'origine) du point le plus proche, ou -1 si aucun n'est à moins de maxMeters
+     */
+    public int nearest(double latitude, double longitude, double maxMeters) {
+        if (ids.length == 0 || maxMeters < 0) {
+            return -1;
+        }
+        double[] query = new double[DIMENSIONS];
+        toUnitVector(latitude, longitude, query, 0);
+        // Corde correspondant à maxMeters (angle plafonné à π : au-delà, tout point convient)
+        double angle = Math.min(Math.PI, maxMeters / GeoUtil.EARTH_RADIUS_METERS);
+        double chord = 2 * Math.sin(angle / 2);
+
+        Search search = new Search(query, chord * chord * (1 + 1e-12));
+        search(search, 0, ids.length, 0);
+        return search.best >= 0 ? ids[search.best] : -1;
+    }
+
+    private void search(Search search, int lo, int hi, int depth) {
+        if (lo >= hi) {
+            return;
+        }
+        int mid = (lo + hi) >>> 1;
+        int axis = depth % DIMENSIONS;
+        int offset = mid * DIMENSIONS;
+
+        double dx = coordinates[offset] - search.query[0];
+        double dy = coordinates[offset + 1] - search.query[1];
+        double dz = coordinates[offset + 2] - search.query[2];
+        double distance = dx * dx + dy * dy + dz * dz;
+        if (distance <= search.bestDistance) {
+            search.bestDistance = distance;
+            search.best = mid;
+        }
+
+        double delta = search.query[axis] - coordinates[offset + axis];
+        // Côté de la requête d'abord ; l'autre seulement si le plan séparateur est plus proche que le meilleur
+        if (delta < 0) {
+            search(search, lo, mid, depth + 1);
+            if (delta * delta <= search.bestDistance) {
+                search(search, mid + 1, hi, depth + 1);
+            }
+        } else {
+            search(search, mid + 1, hi, depth + 1);
+            if (delta * delta <= search.bestDistance) {
+                search(search, lo, mid, depth + 1);
+            }
+        }
+    }
+
+    private static void build(Integer[] order, double[] points, int lo, int hi, int depth) {
+        if (hi - lo <= 1) {
+            return;
+        }
+        int axis = depth % DIMENSIONS;
+        Arrays.sort(order, lo, hi, Comparator.comparingDouble(i -> points[i * DIMENSIONS + axis]));
+        int mid = (lo + hi) >>> 1;
+        build(order, points, lo, mid, depth + 1);
+        build(order, points, mid + 1, hi, depth + 1);
+    }
+
+    private static void toUnitVector(double latitude, double longitude, double[] target, int offset) {
+        double lat = Math.toRadians(latitude);
+        double lng = Math.toRadians(longitude);
+        double cosLat = Math.cos(lat);
+        target[offset] = cosLat * Math.cos(lng);
+        target[offset + 1] = cosLat * Math.sin(lng);
+        target[offset + 2] = Math.sin(lat);
+    }
+
+    private static final class Search {
+        private final double[] query;
+        private double bestDistance;
+        private int best = -1;
+
+        private Search(double[] query, double maxDistance) {
+            this.query = query;
+            this.bestDistance = maxDistance;
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.malitrans.transport.util;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Trame binaire de position à largeur fixe (22 octets, big-endian), alternative compacte au JSON LocationMessage :
+ * rideId (int64), latitude et longitude en 1e-7 degré (int32, ~1 cm), horodatage du fix en secondes epoch (uint32)
+ * suivi des millisecondes (uint16), pour que deux fixes d'une même seconde restent ordonnés.
+ * Transportée en STOMP avec content-type application/octet-stream, sur l'endpoint WebSocket natif uniquement
+ * (SockJS ne transporte que du texte).
+ */
+public final class LocationFrameCodec {
+
+    public static final int FRAME_BYTES = 22;
+    private static final double E7 = 10_000_000d;
+
+    private LocationFrameCodec() {
+    }
+
+    public static byte[] encode(long rideId, double latitude, double longitude, long fixMillis) {
+        return ByteBuffer.allocate(FRAME_BYTES)
+                .putLong(rideId)
+                .putInt((int) Math.round(latitude * E7))
+                .putInt((int) Math.round(longitude * E7))
+                .putInt((int) Math.floorDiv(fixMillis, 1000))
+                .putShort((short) Math.floorMod(fixMillis, 1000))
+                .array();
+    }
+
+    /**
+     * @return La trame décodée, ou null si la taille ne correspond pas
+     */
+    public static Frame decode(byte[] data) {
+        if (data == null || data.length != FRAME_BYTES) {
+            return null;
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(data);
+        long rideId = buffer.getLong();
+        double latitude = buffer.getInt() / E7;
+        double longitude = buffer.getInt() / E7;
+        long fixMillis = Integer.toUnsignedLong(buffer.getInt()) * 1000 + Short.toUnsignedInt(buffer.getShort());
+        return new Frame(rideId, latitude, longitude, fixMillis);
+    }
+
+    public record Frame(long rideId, double latitude, double longitude, long fixMillis) {
+    }
+}
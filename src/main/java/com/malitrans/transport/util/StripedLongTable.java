@@ -0,0 +1,256 @@
+package com.malitrans.transport.util;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntFunction;
+
+/**
+ * Table à clé long, bornée en nombre d'entrées, pour l'état par course tenu en mémoire sur le chemin des fixes.
+ * Répartie sur des stripes verrouillées ; chaque stripe est une table à sondage linéaire (facteur de charge ≤ 0,5)
+ * avec suppression par décalage arrière (sans tombstones).
+ * La table ne gère que les clés et l'instant du dernier accès : les valeurs vivent dans des tableaux primitifs
+ * fournis par l'appelant (C, un jeu par stripe, indexé par emplacement), sans objet par entrée.
+ * Une entrée non touchée depuis plus de idleTtlMillis est expirée (relecture ou purge) ; quand une stripe est
+ * pleine, on purge les entrées expirées puis, si besoin, la moins récemment touchée.
+ * Les accès par emplacement (find, insert, touch, columns) se font sous le verrou de la stripe :
+ * {@code synchronized (stripe) { ... }}.
+ */
+public final class StripedLongTable<C extends StripedLongTable.Columns> {
+
+    /**
+     * Valeurs d'une stripe, en tableaux parallèles aux clés (taille {@link Stripe#tableSize()}).
+     */
+    public interface Columns {
+        /**
+         * Recopie l'entrée de l'emplacement from vers to (décalage arrière après une suppression).
+         */
+        void move(int from, int to);
+    }
+
+    private static final int STRIPES = 16;
+    private static final long EMPTY = Long.MIN_VALUE;
+
+    private final Stripe<C>[] stripes;
+    private final long idleTtlMillis;
+    private final LongAdder expiredEvictions = new LongAdder();
+    private final LongAdder capacityEvictions = new LongAdder();
+
+    /**
+     * @param maxEntries     Nombre maximal d'entrées (réparti également entre les stripes)
+     * @param idleTtlMillis  Durée sans accès au-delà de laquelle une entrée expire
+     * @param columnsFactory Alloue les valeurs d'une stripe pour une taille de table donnée
+     */
+    @SuppressWarnings("unchecked")
+    public StripedLongTable(int maxEntries, long idleTtlMillis, IntFunction<C> columnsFactory) {
+        this.idleTtlMillis = idleTtlMillis;
+        this.stripes = (Stripe<C>[]) new Stripe[STRIPES];
+        int capacityPerStripe = Math.max(1, (maxEntries + STRIPES - 1) / STRIPES);
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Stripe<>(this, capacityPerStripe, columnsFactory);
+        }
+    }
+
+    /**
+     * @return La stripe de la clé, à verrouiller pour les accès par emplacement
+     */
+    public Stripe<C> stripe(long key) {
+        return stripes[(int) (mix(key) >>> 60) & (STRIPES - 1)];
+    }
+
+    public boolean remove(long key) {
+        return stripe(key).remove(key);
+    }
+
+    /**
+     * @return Nombre d'entrées expirées supprimées
+     */
+    public int purgeIdle(long nowMillis) {
+        int removed = 0;
+        for (Stripe<C> stripe : stripes) {
+            removed += stripe.purgeIdle(nowMillis);
+        }
+        return removed;
+    }
+
+    public int size() {
+        int size = 0;
+        for (Stripe<C> stripe : stripes) {
+            size += stripe.size();
+        }
+        return size;
+    }
+
+    /**
+     * @return Nombre cumulé d'entrées supprimées pour inactivité (relecture, purge ou place à faire)
+     */
+    public long expiredEvictions() {
+        return expiredEvictions.sum();
+    }
+
+    /**
+     * @return Nombre cumulé d'entrées encore actives supprimées faute de place
+     */
+    public long capacityEvictions() {
+        return capacityEvictions.sum();
+    }
+
+    private static long mix(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return h ^ (h >>> 29);
+    }
+
+    public static final class Stripe<C extends Columns> {
+        private final StripedLongTable<C> table;
+        private final int capacity;
+        private final int mask;
+        private final long[] keys;
+        private final long[] touchedMillis;
+        private final C columns;
+        private int size;
+
+        private Stripe(StripedLongTable<C> table, int capacity, IntFunction<C> columnsFactory) {
+            this.table = table;
+            this.capacity = capacity;
+            int tableSize = Integer.highestOneBit(Math.max(2, capacity * 2 - 1)) << 1;
+            this.mask = tableSize - 1;
+            this.keys = new long[tableSize];
+            this.touchedMillis = new long[tableSize];
+            this.columns = columnsFactory.apply(tableSize);
+            Arrays.fill(keys, EMPTY);
+        }
+
+        public int tableSize() {
+            return mask + 1;
+        }
+
+        public C columns() {
+            return columns;
+        }
+
+        /**
+         * @return L'emplacement de la clé, ou -1 si elle est absente (une entrée expirée reste visible jusqu'à la purge)
+         */
+        public synchronized int find(long key) {
+            int slot = slotOf(key);
+            return slot < 0 ? -1 : slot;
+        }
+
+        /**
+         * @return L'emplacement de la clé, ou -1 si elle est absente ou expirée (elle est alors supprimée)
+         */
+        public synchronized int find(long key, long nowMillis) {
+            int slot = find(key);
+            if (slot < 0) {
+                return -1;
+            }
+            if (nowMillis - touchedMillis[slot] > table.idleTtlMillis) {
+                deleteAt(slot);
+                table.expiredEvictions.increment();
+                return -1;
+            }
+            return slot;
+        }
+
+        /**
+         * Insère une clé absente (après {@link #find}), en faisant de la place si la stripe est pleine.
+         * Les valeurs de l'emplacement retourné sont celles d'une entrée supprimée : à initialiser par l'appelant.
+         */
+        public synchronized int insert(long key, long nowMillis) {
+            if (size >= capacity) {
+                makeRoom(nowMillis);
+            }
+            int slot = ~slotOf(key);
+            keys[slot] = key;
+            touchedMillis[slot] = nowMillis;
+            size++;
+            return slot;
+        }
+
+        public synchronized void touch(int slot, long nowMillis) {
+            touchedMillis[slot] = nowMillis;
+        }
+
+        public synchronized long key(int slot) {
+            return keys[slot];
+        }
+
+        public synchronized boolean remove(long key) {
+            int slot = slotOf(key);
+            if (slot < 0) {
+                return false;
+            }
+            deleteAt(slot);
+            return true;
+        }
+
+        public synchronized int size() {
+            return size;
+        }
+
+        private synchronized int purgeIdle(long now) {
+            int removed = 0;
+            int i = 0;
+            while (i <= mask) {
+                if (keys[i] != EMPTY && now - touchedMillis[i] > table.idleTtlMillis) {
+                    deleteAt(i);
+                    removed++;
+                    // Le décalage arrière a pu ramener une autre entrée sur i : on la réexamine
+                } else {
+                    i++;
+                }
+            }
+            if (removed > 0) {
+                table.expiredEvictions.add(removed);
+            }
+            return removed;
+        }
+
+        private void makeRoom(long now) {
+            if (purgeIdle(now) > 0) {
+                return;
+            }
+            int oldest = -1;
+            for (int i = 0; i <= mask; i++) {
+                if (keys[i] != EMPTY && (oldest < 0 || touchedMillis[i] < touchedMillis[oldest])) {
+                    oldest = i;
+                }
+            }
+            deleteAt(oldest);
+            table.capacityEvictions.increment();
+        }
+
+        /**
+         * @return L'index de la clé, ou ~index du premier emplacement libre de sa séquence de sondage
+         */
+        private int slotOf(long key) {
+            int slot = (int) mix(key) & mask;
+            while (keys[slot] != EMPTY) {
+                if (keys[slot] == key) {
+                    return slot;
+                }
+                slot = (slot + 1) & mask;
+            }
+            return ~slot;
+        }
+
+        private void deleteAt(int hole) {
+            int next = hole;
+            while (true) {
+                next = (next + 1) & mask;
+                if (keys[next] == EMPTY) {
+                    break;
+                }
+                int home = (int) mix(keys[next]) & mask;
+                boolean homeBetween = hole <= next ? (hole < home && home <= next) : (hole < home || home <= next);
+                if (!homeBetween) {
+                    keys[hole] = keys[next];
+                    touchedMillis[hole] = touchedMillis[next];
+                    columns.move(next, hole);
+                    hole = next;
+                }
+            }
+            keys[hole] = EMPTY;
+            size--;
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package com.malitrans.transport.util;
+
+import com.malitrans.transport.dto.TrailPointDTO;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Encodage binaire compact d'un segment de trace GPS.
+ * Format (v1) : version, nombre de points, puis pour chaque point les deltas (zigzag + varint)
+ * de latitude / longitude en micro-degrés (~0,11 m) et de l'horodatage en ms par rapport au point précédent.
+ * Un point à 1 s / quelques mètres du précédent tient en 4 à 6 octets.
+ */
+public final class TrailCodec {
+
+    private static final byte VERSION = 1;
+    private static final double E6 = 1_000_000d;
+
+    private TrailCodec() {
+    }
+
+    public static byte[] encode(List<TrailPointDTO> points) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(8 + points.size() * 6);
+        out.write(VERSION);
+        writeVarLong(out, points.size());
+        long prevLat = 0;
+        long prevLng = 0;
+        long prevTime = 0;
+        for (TrailPointDTO point : points) {
+            long lat = Math.round(point.getLatitude() * E6);
+            long lng = Math.round(point.getLongitude() * E6);
+            writeVarLong(out, zigzag(lat - prevLat));
+            writeVarLong(out, zigzag(lng - prevLng));
+            writeVarLong(out, zigzag(point.getTimestamp() - prevTime));
+            prevLat = lat;
+            prevLng = lng;
+            prevTime = point.getTimestamp();
+        }
+        return out.toByteArray();
+    }
+
+    public static List<TrailPointDTO> decode(byte[] data) {
+        Reader in = new Reader(data);
+        int version = in.data[in.pos++];
+        if (version != VERSION) {
+            throw new IllegalArgumentException("Unsupported trail segment version: " + version);
+        }
+        int count = (int) in.readVarLong();
+        List<TrailPointDTO> points = new ArrayList<>(count);
+        long lat = 0;
+        long lng = 0;
+        long time = 0;
+        for (int i = 0; i < count; i++) {
+            lat += unzigzag(in.readVarLong());
+            lng += unzigzag(in.readVarLong());
+            time += unzigzag(in.readVarLong());
+            points.add(new TrailPointDTO(lat / E6, lng / E6, time));
+        }
+        return points;
+    }
+
+    private static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static void writeVarLong(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    private static final class Reader {
+        private final byte[] data;
+        private int pos;
+
+        private Reader(byte[] data) {
+            this.data = data;
+        }
+
+        private long readVarLong() {
+            long result = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                byte b = data[pos++];
+                result |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return result;
+                }
+            }
+            throw new IllegalArgumentException("Malformed varint in trail segment");
+        }
+    }
+}
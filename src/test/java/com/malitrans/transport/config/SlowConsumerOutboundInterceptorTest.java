@@ -0,0 +1,74 @@
+package com.malitrans.transport.config;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.web.socket.messaging.SessionConnectedEvent;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SlowConsumerOutboundInterceptorTest {
+
+    private static final String SESSION = "s1";
+
+    private SlowConsumerOutboundInterceptor interceptor;
+
+    @BeforeEach
+    void setUp() {
+        TrackingOutboundProperties properties = new TrackingOutboundProperties(1, 1, 10, 10_000, 1024, 1024, 3);
+        interceptor = new SlowConsumerOutboundInterceptor(properties, new SimpleMeterRegistry());
+        interceptor.onConnected(new SessionConnectedEvent(this, frame(SimpMessageType.CONNECT_ACK, null, null)));
+    }
+
+    @Test
+    void supersededLocationFrameIsDroppedBeforeWrite() {
+        Message<?> older = frame(SimpMessageType.MESSAGE, "/topic/ride/1", "sub-0");
+        Message<?> newer = frame(SimpMessageType.MESSAGE, "/topic/ride/1", "sub-0");
+        Message<?> otherRide = frame(SimpMessageType.MESSAGE, "/topic/ride/2", "sub-1");
+        assertSame(older, interceptor.preSend(older, null));
+        assertSame(newer, interceptor.preSend(newer, null));
+        assertSame(otherRide, interceptor.preSend(otherRide, null));
+
+        assertNull(interceptor.beforeHandle(older, null, null));
+        assertSame(newer, interceptor.beforeHandle(newer, null, null));
+        assertSame(otherRide, interceptor.beforeHandle(otherRide, null, null));
+        interceptor.afterMessageHandled(newer, null, null, null);
+        interceptor.afterMessageHandled(otherRide, null, null, null);
+        assertEquals(0, interceptor.maxPendingFrames());
+    }
+
+    @Test
+    void locationFramesBeyondBacklogAreDroppedButControlFramesPass() {
+        for (int i = 0; i < 3; i++) {
+            assertNotNull(interceptor.preSend(frame(SimpMessageType.MESSAGE, "/topic/ride/1", "sub-" + i), null));
+        }
+        assertNull(interceptor.preSend(frame(SimpMessageType.MESSAGE, "/topic/ride/1", "sub-9"), null));
+        assertNotNull(interceptor.preSend(frame(SimpMessageType.OTHER, null, null), null));
+        assertEquals(4, interceptor.maxPendingFrames());
+    }
+
+    @Test
+    void rideEventFramesAreNeverSuperseded() {
+        Message<?> arriving = frame(SimpMessageType.MESSAGE, "/topic/ride/1/arrival", "sub-a");
+        Message<?> arrived = frame(SimpMessageType.MESSAGE, "/topic/ride/1/arrival", "sub-a");
+        interceptor.preSend(arriving, null);
+        interceptor.preSend(arrived, null);
+
+        assertSame(arriving, interceptor.beforeHandle(arriving, null, null));
+        assertSame(arrived, interceptor.beforeHandle(arrived, null, null));
+        assertTrue(SlowConsumerOutboundInterceptor.isLocationDestination("/topic/ride/1/bin"));
+        assertFalse(SlowConsumerOutboundInterceptor.isLocationDestination("/topic/ride/1/destination"));
+    }
+
+    private static Message<byte[]> frame(SimpMessageType type, String destination, String subscriptionId) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(type);
+        accessor.setSessionId(SESSION);
+        accessor.setDestination(destination);
+        accessor.setSubscriptionId(subscriptionId);
+        return MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders());
+    }
+}
@@ -0,0 +1,108 @@
+package com.malitrans.transport.controller;
+
+import com.malitrans.transport.dto.RideTrailDTO;
+import com.malitrans.transport.model.DeliveryCompany;
+import com.malitrans.transport.model.RideRequest;
+import com.malitrans.transport.model.Role;
+import com.malitrans.transport.model.Utilisateur;
+import com.malitrans.transport.repository.RideRequestRepository;
+import com.malitrans.transport.repository.UtilisateurRepository;
+import com.malitrans.transport.service.RideTrailService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.when;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.authentication;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class TrackingControllerSecurityTest {
+
+    private static final long RIDE_ID = 42L;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    private RideRequestRepository rideRequestRepository;
+
+    @MockBean
+    private UtilisateurRepository utilisateurRepository;
+
+    @MockBean
+    private RideTrailService rideTrailService;
+
+    @BeforeEach
+    void setUp() {
+        DeliveryCompany company = company(1L);
+        Utilisateur client = user(10L, "client", Role.CLIENT, null);
+        Utilisateur driver = user(11L, "driver", Role.CHAUFFEUR, company);
+        user(12L, "admin", Role.ADMIN, null);
+        user(13L, "manager", Role.COMPANY_MANAGER, company);
+        user(14L, "otherManager", Role.COMPANY_MANAGER, company(2L));
+        user(15L, "stranger", Role.CLIENT, null);
+
+        RideRequest ride = new RideRequest();
+        ride.setId(RIDE_ID);
+        ride.setClient(client);
+        ride.setChauffeur(driver);
+        when(rideRequestRepository.findById(RIDE_ID)).thenReturn(Optional.of(ride));
+        when(rideTrailService.getTrail(eq(RIDE_ID), anyInt(), anyDouble()))
+                .thenReturn(new RideTrailDTO(RIDE_ID, 0, List.of()));
+    }
+
+    @Test
+    void participantsAdminsAndTheDriversCompanyManagerGetTheTrail() throws Exception {
+        for (String username : List.of("client", "driver", "admin", "manager")) {
+            mockMvc.perform(get("/tracking/{rideId}/trail", RIDE_ID).with(authentication(auth(username))))
+                    .andExpect(status().isOk());
+        }
+    }
+
+    @Test
+    void anyoneElseIsForbidden() throws Exception {
+        for (String username : List.of("stranger", "otherManager")) {
+            mockMvc.perform(get("/tracking/{rideId}/trail", RIDE_ID).with(authentication(auth(username))))
+                    .andExpect(status().isForbidden())
+                    .andExpect(jsonPath("$.error").exists());
+        }
+        mockMvc.perform(get("/tracking/{rideId}/trail", RIDE_ID + 1).with(authentication(auth("client"))))
+                .andExpect(status().isForbidden());
+    }
+
+    private Utilisateur user(long id, String username, Role role, DeliveryCompany company) {
+        Utilisateur user = new Utilisateur();
+        user.setId(id);
+        user.setUsername(username);
+        user.setRole(role);
+        user.setCompany(company);
+        user.setEnabled(true);
+        when(utilisateurRepository.findByUsername(username)).thenReturn(Optional.of(user));
+        return user;
+    }
+
+    private static DeliveryCompany company(long id) {
+        DeliveryCompany company = new DeliveryCompany();
+        company.setId(id);
+        return company;
+    }
+
+    private static UsernamePasswordAuthenticationToken auth(String username) {
+        return new UsernamePasswordAuthenticationToken(username, null,
+                Collections.singletonList(new SimpleGrantedAuthority("CLIENT")));
+    }
+}
@@ -0,0 +1,124 @@
+package com.malitrans.transport.repository;
+
+import com.malitrans.transport.model.RideRequest;
+import com.malitrans.transport.model.ValidationStatus;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+class RideRequestRepositoryTest {
+
+    @Autowired
+    private RideRequestRepository repository;
+
+    @Test
+    void destinationResolvedFlagIsStoredOnWrite() {
+        RideRequest placeholder = ride("A confirmer", null, null);
+        RideRequest address = ride("Badalabougou, Bamako", null, null);
+        RideRequest coordinates = ride("", 12.62, -7.99);
+        repository.saveAllAndFlush(List.of(placeholder, address, coordinates));
+
+        assertFalse(placeholder.getDestinationResolved());
+        assertTrue(address.getDestinationResolved());
+        assertTrue(coordinates.getDestinationResolved());
+        assertEquals(Set.of(address.getId(), coordinates.getId()),
+                repository.findWithResolvedDestinationByStatus(ValidationStatus.READY_FOR_PICKUP, 1L).stream()
+                        .map(RideRequest::getId)
+                        .collect(Collectors.toSet()));
+    }
+
+    @Test
+    void boxQueryReturnsOnlyPickupsInsideTheRectangle() {
+        RideRequest inside = ride("Hamdallaye, Bamako", null, null);
+        inside.setOriginLatitude(12.64);
+        inside.setOriginLongitude(-8.03);
+        RideRequest outside = ride("Kati", null, null);
+        outside.setOriginLatitude(12.75);
+        outside.setOriginLongitude(-8.07);
+        RideRequest unknownPickup = ride("Niarela, Bamako", null, null);
+        repository.saveAllAndFlush(List.of(inside, outside, unknownPickup));
+
+        List<RideRequest> found = repository.findByStatusWithOriginInBox(ValidationStatus.READY_FOR_PICKUP, 1L,
+                12.60, 12.68, -8.06, -7.98);
+        assertEquals(List.of(inside.getId()), found.stream().map(RideRequest::getId).toList());
+    }
+
+    @Test
+    void rideOfferedToAnotherDriverIsHiddenFromTheReadyLists() {
+        RideRequest open = ride("Hamdallaye, Bamako", null, null);
+        RideRequest offered = ride("Badalabougou, Bamako", null, null);
+        for (RideRequest ride : List.of(open, offered)) {
+            ride.setOriginLatitude(12.64);
+            ride.setOriginLongitude(-8.03);
+        }
+        repository.saveAllAndFlush(List.of(open, offered));
+        assertEquals(1, repository.updateOfferIfOpen(offered.getId(), ValidationStatus.READY_FOR_PICKUP, null, null,
+                1L, LocalDateTime.now().plusSeconds(20)));
+
+        for (long driverId : new long[]{1L, 2L}) {
+            Set<Long> expected = driverId == 1L ? Set.of(open.getId(), offered.getId()) : Set.of(open.getId());
+            assertEquals(expected, repository.findWithResolvedDestinationByStatus(ValidationStatus.READY_FOR_PICKUP,
+                    driverId).stream().map(RideRequest::getId).collect(Collectors.toSet()));
+            assertEquals(expected, repository.findByStatusWithOriginInBox(ValidationStatus.READY_FOR_PICKUP, driverId,
+                    12.60, 12.68, -8.06, -7.98).stream().map(RideRequest::getId).collect(Collectors.toSet()));
+        }
+    }
+
+    @Test
+    void onlyTheOfferHolderCanClaimAndAClaimedOfferIsNeverPassedOn() {
+        RideRequest offered = repository.saveAndFlush(ride("Badalabougou, Bamako", null, null));
+        Long id = offered.getId();
+        LocalDateTime now = LocalDateTime.now().withNano(0);
+        LocalDateTime expiresAt = now.plusSeconds(20);
+        assertEquals(1, repository.updateOfferIfOpen(id, ValidationStatus.READY_FOR_PICKUP, null, null, 1L, expiresAt));
+
+        assertEquals(0, repository.claimOffer(id, ValidationStatus.READY_FOR_PICKUP, 2L, now));
+        assertEquals(0, repository.claimOffer(id, ValidationStatus.READY_FOR_PICKUP, 1L, now.plusSeconds(30)));
+        assertEquals(1, repository.claimOffer(id, ValidationStatus.READY_FOR_PICKUP, 1L, now));
+
+        assertEquals(0, repository.updateOfferIfOpen(id, ValidationStatus.READY_FOR_PICKUP, 1L, expiresAt,
+                2L, now.plusSeconds(20)));
+        assertEquals(0, repository.updateOfferIfOpen(id, ValidationStatus.READY_FOR_PICKUP, 1L, expiresAt, null, null));
+        assertEquals(0, repository.updateOfferIfOpen(id, ValidationStatus.READY_FOR_PICKUP, null, null, 2L, expiresAt));
+    }
+
+    @Test
+    void offerPassesOnOnlyFromTheStateTheCallerRead() {
+        Long id = repository.saveAndFlush(ride("Badalabougou, Bamako", null, null)).getId();
+        LocalDateTime now = LocalDateTime.now().withNano(0);
+        LocalDateTime first = now.plusSeconds(20);
+        assertEquals(1, repository.updateOfferIfOpen(id, ValidationStatus.READY_FOR_PICKUP, null, null, 1L, first));
+        // Deuxième démarrage concurrent : la course n'est plus sans offre
+        assertEquals(0, repository.updateOfferIfOpen(id, ValidationStatus.READY_FOR_PICKUP, null, null, 3L, first));
+
+        // Reprise par un nœud, puis passage d'offre périmé d'un autre : refusé
+        assertEquals(1, repository.updateOfferIfOpen(id, ValidationStatus.READY_FOR_PICKUP, 1L, first, 1L, now));
+        assertEquals(0, repository.updateOfferIfOpen(id, ValidationStatus.READY_FOR_PICKUP, 1L, first,
+                2L, now.plusSeconds(40)));
+        assertEquals(1, repository.updateOfferIfOpen(id, ValidationStatus.READY_FOR_PICKUP, 1L, now,
+                2L, now.plusSeconds(40)));
+
+        assertEquals(List.of(id), repository.findOffersExpiredBefore(ValidationStatus.READY_FOR_PICKUP,
+                now.plusSeconds(41)).stream().map(RideRequestRepository.OfferRow::getId).toList());
+        assertEquals(1, repository.updateOfferIfOpen(id, ValidationStatus.READY_FOR_PICKUP, 2L, now.plusSeconds(40),
+                null, null));
+        assertTrue(repository.findOffersExpiredBefore(ValidationStatus.READY_FOR_PICKUP, now.plusSeconds(41)).isEmpty());
+    }
+
+    private static RideRequest ride(String destination, Double latitude, Double longitude) {
+        RideRequest ride = new RideRequest();
+        ride.setDestination(destination);
+        ride.setDestinationLatitude(latitude);
+        ride.setDestinationLongitude(longitude);
+        ride.setValidationStatus(ValidationStatus.READY_FOR_PICKUP);
+        return ride;
+    }
+}
@@ -0,0 +1,107 @@
+package com.malitrans.transport.security;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.malitrans.transport.util.PhoneUtil;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AuthRateLimitFilterTest {
+
+    private static final String LOGIN = "{\"username\":\"+22370000001\",\"password\":\"secret\"}";
+
+    @Test
+    void rotatingForwardedForDoesNotBypassTheIpLimit() throws Exception {
+        AuthRateLimitFilter filter = filter(2, 100, "");
+
+        assertEquals(200, login(filter, "198.51.100.7", "203.0.113.1", body("a")).getStatus());
+        assertEquals(200, login(filter, "198.51.100.7", "203.0.113.2", body("b")).getStatus());
+        assertEquals(429, login(filter, "198.51.100.7", "203.0.113.3", body("c")).getStatus());
+    }
+
+    @Test
+    void forwardedForIsHonouredOnlyBehindATrustedProxy() throws Exception {
+        AuthRateLimitFilter filter = filter(1, 100, "10.0.0.1");
+
+        // Derrière le proxy : chaque client a son propre bucket ; la valeur la plus à gauche est ignorée
+        assertEquals(200, login(filter, "10.0.0.1", "1.2.3.4, 203.0.113.1", body("a")).getStatus());
+        assertEquals(200, login(filter, "10.0.0.1", "5.6.7.8, 203.0.113.2", body("b")).getStatus());
+        assertEquals(429, login(filter, "10.0.0.1", "9.9.9.9, 203.0.113.2", body("c")).getStatus());
+    }
+
+    @Test
+    void chunkedBodyIsStillLimitedPerIdentifier() throws Exception {
+        AuthRateLimitFilter filter = filter(100, 1, "");
+
+        MockHttpServletResponse first = login(filter, "198.51.100.7", null, chunked(LOGIN));
+        assertEquals(200, first.getStatus());
+        assertEquals(429, login(filter, "198.51.100.8", null, chunked(LOGIN)).getStatus());
+    }
+
+    @Test
+    void bodyOverTheBufferLimitIsRejected() throws Exception {
+        AuthRateLimitFilter filter = filter(100, 100, "");
+        String padding = "x".repeat(8 * 1024);
+
+        assertEquals(413, login(filter, "198.51.100.7", null,
+                chunked("{\"username\":\"a\",\"pad\":\"" + padding + "\"}")).getStatus());
+        assertEquals(413, login(filter, "198.51.100.7", null,
+                body("{\"username\":\"a\",\"pad\":\"" + padding + "\"}")).getStatus());
+    }
+
+    private static AuthRateLimitFilter filter(long ipCapacity, long identifierCapacity, String trustedProxies) {
+        return new AuthRateLimitFilter(new ObjectMapper(), new PhoneUtil(), new SimpleMeterRegistry(), true,
+                ipCapacity, 1, identifierCapacity, 1, 1_000, trustedProxies);
+    }
+
+    private static MockHttpServletResponse login(AuthRateLimitFilter filter, String remoteAddr, String forwardedFor,
+                                                 MockHttpServletRequest request) throws Exception {
+        request.setMethod("POST");
+        request.setRequestURI("/auth/login");
+        request.setRemoteAddr(remoteAddr);
+        if (forwardedFor != null) {
+            request.addHeader("X-Forwarded-For", forwardedFor);
+        }
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        MockFilterChain chain = new MockFilterChain();
+        filter.doFilter(request, response, chain);
+        if (chain.getRequest() != null) {
+            // Le contrôleur relit le corps mis en tampon par le filtre
+            assertArrayEquals(request.getContentAsByteArray(), chain.getRequest().getInputStream().readAllBytes());
+        }
+        return response;
+    }
+
+    private static MockHttpServletRequest body(String username) {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setContent((username.startsWith("{") ? username : "{\"username\":\"" + username + "\"}")
+                .getBytes(StandardCharsets.UTF_8));
+        return request;
+    }
+
+    /**
+     * Transfert chunked : pas de Content-Length annoncé.
+     */
+    private static MockHttpServletRequest chunked(String json) {
+        MockHttpServletRequest request = new MockHttpServletRequest() {
+            @Override
+            public int getContentLength() {
+                return -1;
+            }
+
+            @Override
+            public long getContentLengthLong() {
+                return -1;
+            }
+        };
+        request.addHeader("Transfer-Encoding", "chunked");
+        request.setContent(json.getBytes(StandardCharsets.UTF_8));
+        return request;
+    }
+}
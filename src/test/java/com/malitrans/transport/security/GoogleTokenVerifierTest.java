@@ -0,0 +1,90 @@
+package com.malitrans.transport.security;
+
+import com.google.api.client.googleapis.auth.oauth2.GoogleIdToken;
+import com.google.api.client.json.gson.GsonFactory;
+import com.google.api.client.json.webtoken.JsonWebSignature;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.security.PrivateKey;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GoogleTokenVerifierTest {
+
+    private static final String CLIENT_ID = "test-client.apps.googleusercontent.com";
+
+    private GoogleCertsStubServer stub;
+    private SimpleMeterRegistry meterRegistry;
+    private GoogleTokenVerifier verifier;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        stub = new GoogleCertsStubServer();
+        stub.serve(Map.of("k1", "cert1.pem"));
+        meterRegistry = new SimpleMeterRegistry();
+        verifier = new GoogleTokenVerifier(CLIENT_ID, stub.certsUrl(), true, 100, 0, meterRegistry);
+    }
+
+    @AfterEach
+    void tearDown() {
+        stub.close();
+    }
+
+    @Test
+    void prefetchedKeysVerifyWithoutFetchOnRequestPathAndCacheResult() throws Exception {
+        verifier.refreshPublicKeys();
+        assertEquals(1, stub.requestCount());
+
+        String token = sign("k1", "key1.pem", "user-1");
+        GoogleIdToken.Payload first = verifier.verify(token);
+        GoogleIdToken.Payload second = verifier.verify(token);
+
+        assertNotNull(first);
+        assertEquals("user-1", first.getSubject());
+        assertSame(first, second);
+        assertEquals(1, stub.requestCount());
+        assertEquals(1, meterRegistry.get("auth.google.verify").tag("cache", "hit").timer().count());
+    }
+
+    @Test
+    void rotatedKeyTriggersSingleForcedRefresh() throws Exception {
+        verifier.refreshPublicKeys();
+        stub.serve(Map.of("k2", "cert2.pem"));
+
+        GoogleIdToken.Payload payload = verifier.verify(sign("k2", "key2.pem", "user-2"));
+
+        assertNotNull(payload);
+        assertEquals(2, stub.requestCount());
+        assertEquals(1, meterRegistry.get("auth.google.keys.refresh")
+                .tag("trigger", "forced").tag("outcome", "success").counter().count());
+    }
+
+    @Test
+    void tokenSignedWithUnknownKeyIsRejected() throws Exception {
+        verifier.refreshPublicKeys();
+
+        assertNull(verifier.verify(sign("k2", "key2.pem", "user-3")));
+        assertEquals(1, meterRegistry.get("auth.google.verify").tag("result", "invalid").timer().count());
+    }
+
+    private String sign(String kid, String keyResource, String subject) throws Exception {
+        PrivateKey privateKey = GoogleCertsStubServer.privateKey(keyResource);
+        long now = System.currentTimeMillis() / 1000;
+        JsonWebSignature.Header header = new JsonWebSignature.Header()
+                .setAlgorithm("RS256")
+                .setKeyId(kid);
+        GoogleIdToken.Payload payload = new GoogleIdToken.Payload()
+                .setIssuer("https://accounts.google.com")
+                .setAudience(CLIENT_ID)
+                .setSubject(subject)
+                .setEmail(subject + "@example.com")
+                .setEmailVerified(true)
+                .setIssuedAtTimeSeconds(now)
+                .setExpirationTimeSeconds(now + 3600);
+        return JsonWebSignature.signUsingRsaSha256(privateKey, GsonFactory.getDefaultInstance(), header, payload);
+    }
+}
@@ -0,0 +1,123 @@
+package com.malitrans.transport.security;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.malitrans.transport.model.DeliveryCompany;
+import com.malitrans.transport.model.Role;
+import com.malitrans.transport.model.Utilisateur;
+import com.malitrans.transport.repository.UtilisateurRepository;
+import com.malitrans.transport.service.ActiveRideIndex;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.MessageBuilder;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class StompAuthChannelInterceptorTest {
+
+    private JwtTokenUtil jwtTokenUtil;
+    private UtilisateurRepository utilisateurRepository;
+    private StompAuthChannelInterceptor interceptor;
+
+    @BeforeEach
+    void setUp() {
+        jwtTokenUtil = mock(JwtTokenUtil.class);
+        utilisateurRepository = mock(UtilisateurRepository.class);
+        interceptor = new StompAuthChannelInterceptor(jwtTokenUtil, utilisateurRepository, mock(ActiveRideIndex.class),
+                new ObjectMapper(), new SimpleMeterRegistry(), 20, 5, 1_000);
+    }
+
+    @Test
+    void adminMaySubscribeToAnyFleetAndToPatterns() {
+        Map<String, Object> session = connect("admin", 1L, Role.ADMIN, null);
+
+        assertTrue(subscribe(session, "/topic/fleet/3"));
+        assertTrue(subscribe(session, "/topic/fleet/*"));
+    }
+
+    @Test
+    void managerMaySubscribeOnlyToTheirOwnCompany() {
+        Map<String, Object> session = connect("manager", 2L, Role.COMPANY_MANAGER, 3L);
+
+        assertTrue(subscribe(session, "/topic/fleet/3"));
+        assertFalse(subscribe(session, "/topic/fleet/4"));
+        assertFalse(subscribe(session, "/topic/fleet/03"));
+    }
+
+    @Test
+    void otherCompanyManagerAndAnonymousSessionsAreRejected() {
+        Map<String, Object> otherManager = connect("other", 5L, Role.COMPANY_MANAGER, 4L);
+        Map<String, Object> anonymous = connect(null, null, null, null);
+
+        assertFalse(subscribe(otherManager, "/topic/fleet/3"));
+        assertFalse(subscribe(anonymous, "/topic/fleet/3"));
+        assertTrue(subscribe(anonymous, "/topic/ride/10"));
+        assertTrue(subscribe(anonymous, "/topic/ride/10/bin"));
+    }
+
+    @Test
+    void patternsThatCouldCoverTheFleetTopicAreRejected() {
+        Map<String, Object> manager = connect("manager", 2L, Role.COMPANY_MANAGER, 3L);
+        Map<String, Object> driver = connect("driver", 6L, Role.CHAUFFEUR, null);
+        Map<String, Object> anonymous = connect(null, null, null, null);
+
+        for (String destination : List.of("/topic/**", "/topic/*/4", "/topic/fleet/{id}", "/topic/fle?t/4",
+                "/topic/#", "/topic/fleet/3/../4", "/topic//fleet/4", "/topic/./fleet/4", "/topic/fleet/4/")) {
+            assertFalse(subscribe(manager, destination), destination);
+            assertFalse(subscribe(driver, destination), destination);
+            assertFalse(subscribe(anonymous, destination), destination);
+        }
+    }
+
+    /**
+     * CONNECT (avec JWT si username != null) ; retourne les attributs de session renseignés par l'intercepteur.
+     */
+    private Map<String, Object> connect(String username, Long userId, Role role, Long companyId) {
+        StompHeaderAccessor accessor = StompHeaderAccessor.create(StompCommand.CONNECT);
+        Map<String, Object> session = new HashMap<>();
+        accessor.setSessionAttributes(session);
+        if (username != null) {
+            String token = "token-" + username;
+            accessor.setNativeHeader("Authorization", "Bearer " + token);
+            Utilisateur user = new Utilisateur();
+            user.setId(userId);
+            user.setUsername(username);
+            user.setEnabled(true);
+            if (companyId != null) {
+                DeliveryCompany company = new DeliveryCompany();
+                company.setId(companyId);
+                user.setCompany(company);
+            }
+            when(jwtTokenUtil.validateToken(token)).thenReturn(true);
+            when(jwtTokenUtil.getUsernameFromToken(token)).thenReturn(username);
+            when(jwtTokenUtil.getRolesFromToken(token)).thenReturn(List.of(role.name()));
+            when(utilisateurRepository.findByUsername(username)).thenReturn(Optional.of(user));
+        }
+        assertNotNull(interceptor.preSend(message(accessor), null));
+        return session;
+    }
+
+    private boolean subscribe(Map<String, Object> session, String destination) {
+        StompHeaderAccessor accessor = StompHeaderAccessor.create(StompCommand.SUBSCRIBE);
+        accessor.setSessionAttributes(session);
+        accessor.setSessionId("s1");
+        accessor.setSubscriptionId("sub-0");
+        accessor.setDestination(destination);
+        return interceptor.preSend(message(accessor), null) != null;
+    }
+
+    private static Message<byte[]> message(StompHeaderAccessor accessor) {
+        // Comme StompSubProtocolHandler : en-têtes laissés modifiables pour les intercepteurs
+        accessor.setLeaveMutable(true);
+        return MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders());
+    }
+}
@@ -0,0 +1,54 @@
+package com.malitrans.transport.security;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TokenBucketRateLimiterTest {
+
+    private final AtomicLong now = new AtomicLong();
+
+    private TokenBucketRateLimiter limiter(long capacity, long refillPerMinute, int maxKeysPerStripe) {
+        return new TokenBucketRateLimiter(capacity, refillPerMinute, 1, TimeUnit.MINUTES, 1, maxKeysPerStripe,
+                now::get);
+    }
+
+    @Test
+    void burstUpToCapacityThenRejectsWithWaitTime() {
+        TokenBucketRateLimiter limiter = limiter(3, 60, 10);
+
+        assertEquals(0, limiter.tryAcquire("ip:1"));
+        assertEquals(0, limiter.tryAcquire("ip:1"));
+        assertEquals(0, limiter.tryAcquire("ip:1"));
+
+        long wait = limiter.tryAcquire("ip:1");
+        assertTrue(wait > 0);
+        assertTrue(wait <= TimeUnit.SECONDS.toNanos(1));
+    }
+
+    @Test
+    void refillsOverTime() {
+        TokenBucketRateLimiter limiter = limiter(1, 60, 10);
+
+        assertEquals(0, limiter.tryAcquire("ip:1"));
+        assertTrue(limiter.tryAcquire("ip:1") > 0);
+
+        now.addAndGet(TimeUnit.SECONDS.toNanos(1));
+        assertEquals(0, limiter.tryAcquire("ip:1"));
+    }
+
+    @Test
+    void keysAreIndependentAndBounded() {
+        TokenBucketRateLimiter limiter = limiter(1, 1, 2);
+
+        assertEquals(0, limiter.tryAcquire("id:a"));
+        assertEquals(0, limiter.tryAcquire("id:b"));
+        assertTrue(limiter.tryAcquire("id:a") > 0);
+
+        limiter.tryAcquire("id:c");
+        assertEquals(2, limiter.trackedKeys());
+    }
+}
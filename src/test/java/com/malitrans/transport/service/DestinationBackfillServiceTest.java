@@ -0,0 +1,118 @@
+package com.malitrans.transport.service;
+
+import com.malitrans.transport.model.BackfillCheckpoint;
+import com.malitrans.transport.repository.BackfillCheckpointRepository;
+import com.malitrans.transport.repository.GeocodeCacheRepository;
+import com.malitrans.transport.repository.RideRequestRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.domain.Pageable;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class DestinationBackfillServiceTest {
+
+    private RideRequestRepository rideRequestRepository;
+    private BackfillCheckpointRepository checkpointRepository;
+    private GazetteerGeocoder gazetteer;
+    private JdbcTemplate jdbcTemplate;
+    private DestinationBackfillService service;
+
+    @BeforeEach
+    void setUp() {
+        rideRequestRepository = mock(RideRequestRepository.class);
+        checkpointRepository = mock(BackfillCheckpointRepository.class);
+        when(checkpointRepository.save(any(BackfillCheckpoint.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        gazetteer = mock(GazetteerGeocoder.class);
+        when(gazetteer.reverseGeocode(anyDouble(), anyDouble())).thenReturn(Optional.of("Badalabougou, Commune V, Bamako"));
+        jdbcTemplate = mock(JdbcTemplate.class);
+        when(jdbcTemplate.batchUpdate(anyString(), anyList())).thenAnswer(invocation ->
+                new int[((List<?>) invocation.getArgument(1)).size()]);
+        PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+        when(transactionManager.getTransaction(any())).thenReturn(mock(TransactionStatus.class));
+
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        ReverseGeocodingService reverseGeocodingService = new ReverseGeocodingService(gazetteer,
+                mock(GoogleGeocoder.class), mock(GeocodeCacheRepository.class), transactionManager, registry, false, 4, 24, 100);
+        service = new DestinationBackfillService(rideRequestRepository, checkpointRepository, gazetteer,
+                reverseGeocodingService, mock(PublicRideSnapshotService.class), jdbcTemplate, transactionManager,
+                registry, 2, 5);
+    }
+
+    @Test
+    void geocodesEachCellOnceAndCheckpointsEveryChunk() {
+        when(rideRequestRepository.findDestinationsAfter(eq(0L), any(Pageable.class)))
+                .thenReturn(List.of(row(1L, "12.6205,-7.9948"), row(2L, "12.62051,-7.99481")));
+        when(rideRequestRepository.findDestinationsAfter(eq(2L), any(Pageable.class)))
+                .thenReturn(List.of(row(3L, "Rue 10, Bamako")));
+        when(rideRequestRepository.findDestinationsAfter(eq(3L), any(Pageable.class))).thenReturn(List.of());
+        when(jdbcTemplate.batchUpdate(anyString(), anyList())).thenReturn(new int[]{1, 0});
+
+        service.run(false);
+
+        verify(gazetteer, times(1)).reverseGeocode(anyDouble(), anyDouble());
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<Object[]>> batch = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate, times(1)).batchUpdate(anyString(), batch.capture());
+        assertEquals(2, batch.getValue().size());
+        assertArrayEquals(new Object[]{"Badalabougou, Commune V, Bamako", 12.6205, -7.9948, 1L, "12.6205,-7.9948"}, batch.getValue().get(0));
+
+        ArgumentCaptor<BackfillCheckpoint> checkpoint = ArgumentCaptor.forClass(BackfillCheckpoint.class);
+        verify(checkpointRepository, times(2)).save(checkpoint.capture());
+        BackfillCheckpoint last = checkpoint.getAllValues().get(1);
+        assertEquals(3L, last.getLastId());
+        assertEquals(3L, last.getScanned());
+        assertEquals(1L, last.getUpdated());
+    }
+
+    @Test
+    void cellUnknownToTheGazetteerIsLookedUpThereOnlyOnce() {
+        when(gazetteer.reverseGeocode(anyDouble(), anyDouble())).thenReturn(Optional.empty());
+        when(rideRequestRepository.findDestinationsAfter(eq(0L), any(Pageable.class)))
+                .thenReturn(List.of(row(1L, "14.4469,-11.4456")));
+        when(rideRequestRepository.findDestinationsAfter(eq(1L), any(Pageable.class))).thenReturn(List.of());
+
+        service.run(false);
+
+        verify(gazetteer, times(1)).reverseGeocode(anyDouble(), anyDouble());
+        verify(jdbcTemplate, never()).batchUpdate(anyString(), anyList());
+    }
+
+    @Test
+    void resumesAfterTheStoredCheckpoint() {
+        BackfillCheckpoint stored = new BackfillCheckpoint(DestinationBackfillService.JOB_NAME);
+        stored.setLastId(40L);
+        when(checkpointRepository.findById(DestinationBackfillService.JOB_NAME)).thenReturn(Optional.of(stored));
+        when(rideRequestRepository.findDestinationsAfter(anyLong(), any(Pageable.class))).thenReturn(List.of());
+
+        service.run(false);
+        verify(rideRequestRepository).findDestinationsAfter(eq(40L), any(Pageable.class));
+
+        service.run(true);
+        verify(rideRequestRepository).findDestinationsAfter(eq(0L), any(Pageable.class));
+    }
+
+    private static RideRequestRepository.DestinationRow row(Long id, String destination) {
+        return new RideRequestRepository.DestinationRow() {
+            @Override
+            public Long getId() {
+                return id;
+            }
+
+            @Override
+            public String getDestination() {
+                return destination;
+            }
+        };
+    }
+}
@@ -0,0 +1,144 @@
+package com.malitrans.transport.service;
+
+import com.malitrans.transport.model.RideRequest;
+import com.malitrans.transport.model.Role;
+import com.malitrans.transport.model.UserStatus;
+import com.malitrans.transport.model.Utilisateur;
+import com.malitrans.transport.model.ValidationStatus;
+import com.malitrans.transport.repository.RideRequestRepository;
+import com.malitrans.transport.repository.UtilisateurRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.*;
+
+class ExclusiveDispatchServiceTest {
+
+    private RideRequestRepository rideRepository;
+    private NotificationService notificationService;
+    private final AtomicLong clock = new AtomicLong(1_700_000_000_000L);
+    private ExclusiveDispatchService dispatch;
+    private RideRequest ride;
+    private Utilisateur near;
+    private Utilisateur far;
+
+    @BeforeEach
+    void setUp() {
+        rideRepository = mock(RideRequestRepository.class);
+        UtilisateurRepository utilisateurRepository = mock(UtilisateurRepository.class);
+        notificationService = mock(NotificationService.class);
+        ActiveRideIndex activeRideIndex = mock(ActiveRideIndex.class);
+        FleetFeedService fleet = new FleetFeedService(mock(SimpMessagingTemplate.class), utilisateurRepository,
+                new FleetSubscriptions(new SimpleMeterRegistry()), new SimpleMeterRegistry(), "simple",
+                0.01, 256, 120_000, 900_000, 600_000);
+
+        ride = new RideRequest();
+        ride.setId(10L);
+        ride.setValidationStatus(ValidationStatus.READY_FOR_PICKUP);
+        ride.setOriginLatitude(12.64);
+        ride.setOriginLongitude(-8.0);
+        when(rideRepository.findById(10L)).thenReturn(Optional.of(ride));
+
+        near = driver(1L, "token-1");
+        far = driver(2L, "token-2");
+        Utilisateur busy = driver(3L, "token-3");
+        Utilisateur unreachable = driver(4L, null);
+        when(utilisateurRepository.findByRole(Role.CHAUFFEUR)).thenReturn(List.of(far, busy, unreachable, near));
+        when(activeRideIndex.activeRideIds(anyLong())).thenReturn(new long[0]);
+        when(activeRideIndex.activeRideIds(3L)).thenReturn(new long[]{99L});
+
+        long now = clock.get();
+        fleet.onDriverFix(1L, 12.641, -8.0, now, now);
+        fleet.onDriverFix(2L, 12.70, -8.0, now, now);
+        fleet.onDriverFix(3L, 12.640, -8.0, now, now);
+
+        dispatch = new ExclusiveDispatchService(rideRepository, utilisateurRepository, notificationService, fleet,
+                activeRideIndex, new SimpleMeterRegistry(), "exclusive", 100, 10, 64, 5, 1, 100, clock::get);
+    }
+
+    @AfterEach
+    void tearDown() {
+        dispatch.shutdown();
+    }
+
+    @Test
+    void offerMovesToNextDriverOnDeclineThenTimeoutAndFallsBackToBroadcast() {
+        when(rideRepository.updateOfferIfOpen(any(), any(), any(), any(), any(), any())).thenReturn(1);
+
+        dispatch.begin(10L);
+        verify(notificationService).notifyDriverOfOffer(ride, near, 0);
+        assertTrue(dispatch.rejectsAssign(10L, 2L));
+        assertFalse(dispatch.rejectsAssign(10L, 1L));
+
+        assertFalse(dispatch.decline(10L, 2L));
+        assertTrue(dispatch.decline(10L, 1L));
+        verify(notificationService, timeout(2_000)).notifyDriverOfOffer(ride, far, 0);
+        verify(rideRepository).updateOfferIfOpen(eq(10L), eq(ValidationStatus.READY_FOR_PICKUP), eq(1L), any(),
+                eq(2L), any());
+
+        // Échéance du dernier candidat (occupé et injoignable exclus) : offre retirée, diffusion à tous
+        clock.addAndGet(90);
+        dispatch.advanceTimeouts();
+        assertEquals(1, dispatch.openOffers());
+        clock.addAndGet(20);
+        dispatch.advanceTimeouts();
+        verify(notificationService, timeout(2_000)).notifyDriversOfReadyRequest(ride);
+        verify(rideRepository).updateOfferIfOpen(eq(10L), eq(ValidationStatus.READY_FOR_PICKUP), eq(2L), any(),
+                isNull(), isNull());
+        assertEquals(0, dispatch.openOffers());
+    }
+
+    @Test
+    void rideTakenElsewhereStopsTheSequence() {
+        when(rideRepository.updateOfferIfOpen(any(), any(), any(), any(), any(), any())).thenReturn(0);
+
+        dispatch.begin(10L);
+        verify(notificationService, never()).notifyDriverOfOffer(any(), any(), anyLong());
+        verify(notificationService, never()).notifyDriversOfReadyRequest(any());
+        assertEquals(0, dispatch.openOffers());
+        assertFalse(dispatch.rejectsAssign(10L, 2L));
+    }
+
+    @Test
+    void onlyTheNodeWhoseTakeoverSucceedsRestartsAnAbandonedOffer() {
+        LocalDateTime expiredAt = LocalDateTime.now().minusMinutes(5).withNano(0);
+        RideRequestRepository.OfferRow row = mock(RideRequestRepository.OfferRow.class);
+        when(row.getId()).thenReturn(10L);
+        when(row.getOfferedDriverId()).thenReturn(7L);
+        when(row.getOfferExpiresAt()).thenReturn(expiredAt);
+        when(rideRepository.findOffersExpiredBefore(eq(ValidationStatus.READY_FOR_PICKUP), any()))
+                .thenReturn(List.of(row));
+
+        // Reprise gagnée par un autre nœud : rien n'est relancé ici
+        when(rideRepository.updateOfferIfOpen(eq(10L), any(), eq(7L), eq(expiredAt), eq(7L), any())).thenReturn(0);
+        dispatch.restartAbandonedOffers();
+        verify(rideRepository, after(200).never()).findById(10L);
+
+        when(rideRepository.updateOfferIfOpen(eq(10L), any(), eq(7L), eq(expiredAt), eq(7L), any())).thenReturn(1);
+        dispatch.restartAbandonedOffers();
+        verify(rideRepository, timeout(2_000)).findById(10L);
+    }
+
+    private static Utilisateur driver(long id, String fcmToken) {
+        Utilisateur driver = new Utilisateur();
+        driver.setId(id);
+        driver.setRole(Role.CHAUFFEUR);
+        driver.setEnabled(true);
+        driver.setStatus(UserStatus.ACTIVE);
+        driver.setFcmToken(fcmToken);
+        return driver;
+    }
+}
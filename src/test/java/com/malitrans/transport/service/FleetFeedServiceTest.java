@@ -0,0 +1,139 @@
+package com.malitrans.transport.service;
+
+import com.malitrans.transport.dto.FleetSnapshotDTO;
+import com.malitrans.transport.model.DeliveryCompany;
+import com.malitrans.transport.model.Utilisateur;
+import com.malitrans.transport.repository.UtilisateurRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class FleetFeedServiceTest {
+
+    private SimpMessagingTemplate messagingTemplate;
+    private UtilisateurRepository repository;
+    private FleetSubscriptions subscriptions;
+    private FleetFeedService feed;
+    private final List<Utilisateur> users = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        messagingTemplate = mock(SimpMessagingTemplate.class);
+        repository = mock(UtilisateurRepository.class);
+        when(repository.findAllById(any())).thenReturn(users);
+        subscriptions = new FleetSubscriptions(new SimpleMeterRegistry());
+        feed = new FleetFeedService(messagingTemplate, repository, subscriptions, new SimpleMeterRegistry(), "simple",
+                0.01, 16, 120_000, 900_000, 600_000);
+    }
+
+    @Test
+    void snapshotStaysBoundedWhateverTheFleetSize() {
+        long now = System.currentTimeMillis();
+        // 2 000 chauffeurs répartis sur ~1° × 1° autour de Bamako
+        for (long id = 1; id <= 2_000; id++) {
+            users.add(driver(id, 7L));
+            feed.onDriverFix(id, 12.1 + (id % 50) * 0.02, -8.5 + (id / 50) * 0.025, now, now);
+        }
+        feed.resolvePendingDrivers();
+        subscriptions.subscribed("s1", "sub-0", 7L);
+
+        FleetSnapshotDTO snapshot = publishOnce(7L);
+        assertEquals(2_000, snapshot.getDrivers());
+        assertEquals(2_000, Arrays.stream(snapshot.getCounts()).sum());
+        assertTrue(snapshot.getCounts().length <= 16, "cells=" + snapshot.getCounts().length);
+        assertTrue(snapshot.getCellDegrees() > 0.01);
+    }
+
+    @Test
+    void onlyWatchedCompaniesAndFreshPositionsArePublished() {
+        long now = System.currentTimeMillis();
+        users.add(driver(1L, 7L));
+        users.add(driver(2L, 7L));
+        users.add(driver(3L, 8L));
+        users.add(driver(4L, null));
+        feed.onDriverFix(1L, 12.6392, -8.0029, now, now);
+        feed.onDriverFix(2L, 12.6395, -8.0031, now - 600_000, now);
+        feed.onDriverFix(3L, 12.6392, -8.0029, now, now);
+        feed.onDriverFix(4L, 12.6392, -8.0029, now, now);
+        feed.resolvePendingDrivers();
+
+        feed.publishSnapshots();
+        verifyNoInteractions(messagingTemplate);
+
+        subscriptions.subscribed("s1", "sub-0", 7L);
+        FleetSnapshotDTO snapshot = publishOnce(7L);
+        assertEquals(1, snapshot.getDrivers());
+        assertEquals(12.6392, snapshot.getLatitudes()[0], 1e-9);
+
+        subscriptions.disconnected("s1");
+        clearInvocations(messagingTemplate);
+        feed.publishSnapshots();
+        verifyNoInteractions(messagingTemplate);
+    }
+
+    @Test
+    void relayNodesEachPublishAPartialSnapshotBoundedByMaxCells() {
+        long now = System.currentTimeMillis();
+        FleetFeedService otherNode = new FleetFeedService(messagingTemplate, repository, subscriptions,
+                new SimpleMeterRegistry(), "relay", 0.01, 16, 120_000, 900_000, 600_000);
+        FleetFeedService node = new FleetFeedService(messagingTemplate, repository, subscriptions,
+                new SimpleMeterRegistry(), "relay", 0.01, 16, 120_000, 900_000, 600_000);
+        // 40 × 40 cellules distinctes de part et d'autre du méridien de Greenwich : plusieurs fusions 2×2
+        for (long id = 1; id <= 1_600; id++) {
+            users.add(driver(id, 7L));
+            FleetFeedService receiver = id % 2 == 0 ? node : otherNode;
+            receiver.onDriverFix(id, 12.0 + (id % 40) * 0.01 + 0.005, -0.2 + (id / 40) * 0.01 + 0.005, now, now);
+        }
+        node.resolvePendingDrivers();
+        otherNode.resolvePendingDrivers();
+
+        // Aucun abonné local : en relay, publié quand même (les abonnés peuvent être sur un autre nœud)
+        List<FleetSnapshotDTO> snapshots = new ArrayList<>();
+        for (FleetFeedService publisher : List.of(node, otherNode)) {
+            clearInvocations(messagingTemplate);
+            publisher.publishSnapshots();
+            ArgumentCaptor<Object> payload = ArgumentCaptor.forClass(Object.class);
+            verify(messagingTemplate).convertAndSend(eq("/topic/fleet/7"), payload.capture());
+            snapshots.add((FleetSnapshotDTO) payload.getValue());
+        }
+
+        assertNotEquals(snapshots.get(0).getNode(), snapshots.get(1).getNode());
+        for (FleetSnapshotDTO snapshot : snapshots) {
+            assertTrue(snapshot.getCounts().length <= 16, "cells=" + snapshot.getCounts().length);
+            assertEquals(800, Arrays.stream(snapshot.getCounts()).sum());
+            assertTrue(snapshot.getCellDegrees() >= 0.08);
+        }
+    }
+
+    private FleetSnapshotDTO publishOnce(long companyId) {
+        clearInvocations(messagingTemplate);
+        feed.publishSnapshots();
+        ArgumentCaptor<Object> payload = ArgumentCaptor.forClass(Object.class);
+        verify(messagingTemplate).convertAndSend(eq("/topic/fleet/" + companyId), payload.capture());
+        verify(messagingTemplate, times(1)).convertAndSend(anyString(), any(Object.class));
+        return (FleetSnapshotDTO) payload.getValue();
+    }
+
+    private static Utilisateur driver(long id, Long companyId) {
+        Utilisateur driver = new Utilisateur();
+        driver.setId(id);
+        if (companyId != null) {
+            DeliveryCompany company = new DeliveryCompany();
+            company.setId(companyId);
+            driver.setCompany(company);
+        }
+        return driver;
+    }
+}
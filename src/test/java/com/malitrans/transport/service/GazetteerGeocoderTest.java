@@ -0,0 +1,37 @@
+package com.malitrans.transport.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GazetteerGeocoderTest {
+
+    private final GazetteerGeocoder geocoder = new GazetteerGeocoder(new SimpleMeterRegistry(), "geo/mali-gazetteer.csv");
+
+    @Test
+    void bundledGazetteerIsLoaded() {
+        assertTrue(geocoder.size() > 100, "places loaded: " + geocoder.size());
+    }
+
+    @Test
+    void prefersNearestQuartierThenLocaliteThenVille() {
+        assertEquals(Optional.of("Badalabougou, Commune V, Bamako"), geocoder.reverseGeocode(12.6205, -7.9948));
+        assertEquals(Optional.of("Kalaban Coro, Koulikoro"), geocoder.reverseGeocode(12.53, -8.02));
+        assertEquals(Optional.of("Ségou"), geocoder.reverseGeocode(13.45, -6.25));
+    }
+
+    @Test
+    void nothingFarFromAnyPlace() {
+        assertTrue(geocoder.reverseGeocode(19.5, -6.0).isEmpty());
+    }
+
+    @Test
+    void missingResourceLeavesAnEmptyIndex() {
+        GazetteerGeocoder missing = new GazetteerGeocoder(new SimpleMeterRegistry(), "geo/absent.csv");
+        assertEquals(0, missing.size());
+        assertTrue(missing.reverseGeocode(12.64, -8.0).isEmpty());
+    }
+}
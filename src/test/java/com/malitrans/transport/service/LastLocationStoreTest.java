@@ -0,0 +1,69 @@
+package com.malitrans.transport.service;
+
+import com.malitrans.transport.dto.LocationMessage;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LastLocationStoreTest {
+
+    @Test
+    void expiresEntriesAfterTtl() {
+        LastLocationStore store = new LastLocationStore(new SimpleMeterRegistry(), 100, 1000);
+        store.put(7L, 12.6392, -8.0029, 1_000L, 0);
+
+        LocationMessage location = store.get(7L, 1000);
+        assertNotNull(location);
+        assertEquals(12.6392, location.getLatitude());
+        assertEquals("1970-01-01T00:00:01Z", location.getTimestamp());
+
+        assertNull(store.get(7L, 1001));
+        assertEquals(0, store.size());
+    }
+
+    @Test
+    void staysBoundedByEvictingLeastRecentlyUpdated() {
+        // 16 stripes x 1 entrée
+        LastLocationStore store = new LastLocationStore(new SimpleMeterRegistry(), 16, 60_000);
+        for (long rideId = 1; rideId <= 10_000; rideId++) {
+            store.put(rideId, 0, 0, rideId, rideId);
+        }
+
+        assertTrue(store.size() <= 16);
+        assertNotNull(store.get(10_000L, 10_000));
+    }
+
+    @Test
+    void matchesHashMapUnderRandomPutRemove() {
+        LastLocationStore store = new LastLocationStore(new SimpleMeterRegistry(), 4096, Long.MAX_VALUE);
+        Map<Long, Double> reference = new HashMap<>();
+        Random random = new Random(42);
+        for (int i = 0; i < 200_000; i++) {
+            long rideId = random.nextInt(2000);
+            if (random.nextInt(3) == 0) {
+                store.remove(rideId);
+                reference.remove(rideId);
+            } else {
+                double lat = random.nextDouble();
+                store.put(rideId, lat, 0, i, 0);
+                reference.put(rideId, lat);
+            }
+        }
+
+        assertEquals(reference.size(), store.size());
+        for (long rideId = 0; rideId < 2000; rideId++) {
+            LocationMessage location = store.get(rideId, 0);
+            Double expected = reference.get(rideId);
+            if (expected == null) {
+                assertNull(location);
+            } else {
+                assertEquals(expected, location.getLatitude());
+            }
+        }
+    }
+}
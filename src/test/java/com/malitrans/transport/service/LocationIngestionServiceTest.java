@@ -0,0 +1,50 @@
+package com.malitrans.transport.service;
+
+import com.malitrans.transport.service.LocationIngestionService.Decision;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LocationIngestionServiceTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final LocationIngestionService ingestion = new LocationIngestionService(registry, 10, 1000, 30000, 60000);
+
+    private Decision offer(double lat, double lng, long fixMillis, long nowMillis) {
+        return ingestion.offer(1L, lat, lng, fixMillis, nowMillis);
+    }
+
+    @Test
+    void dropsOutOfOrderFixes() {
+        assertEquals(Decision.FORWARD, offer(12.6392, -8.0029, 5000, 5000));
+        assertEquals(Decision.OUT_OF_ORDER, offer(12.6500, -8.0029, 4000, 7000));
+        assertEquals(1.0, registry.get("tracking.ingest.messages").tag("outcome", "out_of_order").counter().count());
+    }
+
+    @Test
+    void suppressesMovementBelowDeadBandUntilHeartbeat() {
+        assertEquals(Decision.FORWARD, offer(12.6392, -8.0029, 0, 0));
+        // ~3 m plus loin
+        assertEquals(Decision.STATIONARY, offer(12.63923, -8.0029, 5000, 5000));
+        assertEquals(Decision.FORWARD, offer(12.63923, -8.0029, 30000, 30000));
+    }
+
+    @Test
+    void coalescesBurstsAndFlushesLatestFix() {
+        assertEquals(Decision.FORWARD, offer(12.6392, -8.0029, 0, 0));
+        assertEquals(Decision.COALESCED, offer(12.6400, -8.0029, 200, 200));
+        assertEquals(Decision.COALESCED, offer(12.6410, -8.0029, 400, 400));
+
+        List<Double> published = new ArrayList<>();
+        ingestion.drainDue(500, (rideId, lat, lng, fixMillis) -> published.add(lat));
+        assertTrue(published.isEmpty());
+
+        ingestion.drainDue(1000, (rideId, lat, lng, fixMillis) -> published.add(lat));
+        assertEquals(List.of(12.6410), published);
+        assertEquals(1.0, registry.get("tracking.ingest.messages").tag("outcome", "superseded").counter().count());
+    }
+}
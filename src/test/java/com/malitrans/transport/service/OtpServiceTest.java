@@ -0,0 +1,143 @@
+package com.malitrans.transport.service;
+
+import com.malitrans.transport.exception.OtpDeliveryException;
+import com.malitrans.transport.model.OtpCode;
+import com.malitrans.transport.model.OtpType;
+import com.malitrans.transport.model.Utilisateur;
+import com.malitrans.transport.repository.OtpCodeRepository;
+import com.malitrans.transport.repository.UtilisateurRepository;
+import com.malitrans.transport.util.PhoneUtil;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Instant;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class OtpServiceTest {
+
+    private static final String PHONE = "+22370123456";
+
+    private OtpCodeRepository repository;
+    private UtilisateurRepository utilisateurRepository;
+    private SmsService smsService;
+    private OtpService otpService;
+    private Utilisateur user;
+
+    @BeforeEach
+    void setUp() {
+        repository = mock(OtpCodeRepository.class);
+        utilisateurRepository = mock(UtilisateurRepository.class);
+        smsService = mock(SmsService.class);
+        PhoneUtil phoneUtil = new PhoneUtil();
+        ReflectionTestUtils.setField(phoneUtil, "defaultCountryCode", "+223");
+        otpService = new OtpService(repository, utilisateurRepository, smsService, phoneUtil, mock(PlatformTransactionManager.class));
+        ReflectionTestUtils.setField(otpService, "expirationMinutes", 5);
+
+        user = new Utilisateur();
+        user.setId(1L);
+        user.setPhone(PHONE);
+    }
+
+    @Test
+    void reissuingReusesTheExistingRowForThePhone() {
+        OtpCode existing = otp("111111", Instant.now().plusSeconds(60));
+        when(repository.findByPhoneAndType(PHONE, OtpType.REGISTRATION)).thenReturn(Optional.of(existing));
+
+        otpService.createOtpForRegistration(user);
+
+        verify(repository).saveAndFlush(existing);
+        assertNotEquals("111111", existing.getCode());
+        verify(smsService).sendOtp(PHONE, existing.getCode());
+    }
+
+    @Test
+    void concurrentInsertIsRetriedAsAnUpdate() {
+        OtpCode insertedConcurrently = otp("222222", Instant.now().plusSeconds(60));
+        when(repository.findByPhoneAndType(PHONE, OtpType.REGISTRATION))
+                .thenReturn(Optional.empty())
+                .thenReturn(Optional.of(insertedConcurrently));
+        when(repository.saveAndFlush(any()))
+                .thenThrow(new DataIntegrityViolationException("uk_otp_code_phone_type"))
+                .thenAnswer(invocation -> invocation.getArgument(0));
+
+        otpService.createOtpForRegistration(user);
+
+        ArgumentCaptor<OtpCode> saved = ArgumentCaptor.forClass(OtpCode.class);
+        verify(repository, times(2)).saveAndFlush(saved.capture());
+        assertSame(insertedConcurrently, saved.getAllValues().get(1));
+        verify(smsService).sendOtp(PHONE, insertedConcurrently.getCode());
+    }
+
+    @Test
+    void smsFailureIsReportedInsteadOfSwallowed() {
+        when(repository.findByPhoneAndType(PHONE, OtpType.REGISTRATION)).thenReturn(Optional.empty());
+        doThrow(new IllegalStateException("SMS gateway down")).when(smsService).sendOtp(eq(PHONE), anyString());
+
+        assertThrows(OtpDeliveryException.class, () -> otpService.createOtpForRegistration(user));
+    }
+
+    @Test
+    void codeIsResentOnlyToAnAccountAwaitingVerification() {
+        when(repository.findByPhoneAndType(PHONE, OtpType.REGISTRATION)).thenReturn(Optional.empty());
+        when(utilisateurRepository.findByPhone(PHONE)).thenReturn(Optional.of(user));
+
+        // Compte suspendu par un admin (désactivé mais pas en attente d'inscription) : rien n'est envoyé
+        user.setEnabled(false);
+        otpService.resendRegistrationOtp("70 12 34 56");
+        verify(smsService, never()).sendOtp(anyString(), anyString());
+
+        user.setRegistrationPending(true);
+        otpService.resendRegistrationOtp("70 12 34 56");
+        verify(smsService).sendOtp(eq(PHONE), anyString());
+
+        otpService.resendRegistrationOtp("70 00 00 00");
+        verify(smsService, times(1)).sendOtp(anyString(), anyString());
+        assertThrows(IllegalArgumentException.class, () -> otpService.resendRegistrationOtp("abc"));
+    }
+
+    @Test
+    void verificationLooksUpTheNormalizedPhoneAndConsumesTheCode() {
+        OtpCode otp = otp("123456", Instant.now().plusSeconds(60));
+        when(repository.findByPhoneAndType(PHONE, OtpType.REGISTRATION)).thenReturn(Optional.of(otp));
+
+        assertThrows(IllegalArgumentException.class, () -> otpService.verifyRegistration("70 12 34 56", "654321"));
+        verify(repository, never()).delete(any());
+
+        user.setRegistrationPending(true);
+        Utilisateur verified = otpService.verifyRegistration("70 12 34 56", "123456");
+        assertTrue(verified.isEnabled());
+        assertFalse(verified.getRegistrationPending());
+        verify(repository).delete(otp);
+    }
+
+    @Test
+    void expiredCodeIsDeletedAndRejected() {
+        OtpCode otp = otp("123456", Instant.now().minusSeconds(1));
+        when(repository.findByPhoneAndType(eq(PHONE), any())).thenReturn(Optional.of(otp));
+
+        assertThrows(IllegalArgumentException.class, () -> otpService.verifyRegistration(PHONE, "123456"));
+        verify(repository).delete(otp);
+        verify(smsService, never()).sendOtp(anyString(), anyString());
+    }
+
+    private OtpCode otp(String code, Instant expiryDate) {
+        OtpCode otp = new OtpCode();
+        otp.setCode(code);
+        otp.setExpiryDate(expiryDate);
+        otp.setType(OtpType.REGISTRATION);
+        otp.setPhone(PHONE);
+        otp.setUser(user);
+        user.setEnabled(false);
+        return otp;
+    }
+}
@@ -0,0 +1,105 @@
+package com.malitrans.transport.service;
+
+import com.malitrans.transport.dto.LocationMessage;
+import com.malitrans.transport.model.RideRequest;
+import com.malitrans.transport.model.ValidationStatus;
+import com.malitrans.transport.repository.RideRequestRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class PublicRideSnapshotServiceTest {
+
+    private static final long RIDE_ID = 7L;
+
+    private RideRequestRepository repository;
+    private TrackingService trackingService;
+    private PublicRideSnapshotService service;
+
+    @BeforeEach
+    void setUp() {
+        repository = mock(RideRequestRepository.class);
+        trackingService = mock(TrackingService.class);
+        service = new PublicRideSnapshotService(repository, trackingService, mock(RideEtaEstimator.class),
+                new SimpleMeterRegistry(), 60_000, 100, 1, 10);
+
+        RideRequest ride = new RideRequest();
+        ride.setId(RIDE_ID);
+        ride.setValidationStatus(ValidationStatus.IN_TRANSIT);
+        ride.setQrCodeDelivery("123456");
+        when(repository.findById(RIDE_ID)).thenReturn(Optional.of(ride));
+        when(trackingService.getLastLocation(RIDE_ID)).thenReturn(Optional.empty());
+    }
+
+    @Test
+    void repeatedLookupsHitTheDatabaseOnceUntilInvalidated() {
+        assertTrue(service.findByRideId(RIDE_ID).isPresent());
+        assertTrue(service.findByRideId(RIDE_ID).get().matchesTrackingCode("123456"));
+        verify(repository, times(1)).findById(RIDE_ID);
+
+        service.invalidate(RIDE_ID);
+        service.findByRideId(RIDE_ID);
+        verify(repository, times(2)).findById(RIDE_ID);
+    }
+
+    @Test
+    void etagFollowsLastLocation() {
+        PublicRideSnapshotService.Snapshot snapshot = service.findByRideId(RIDE_ID).orElseThrow();
+        String before = service.etag(snapshot);
+        assertEquals(before, service.etag(snapshot));
+
+        when(trackingService.getLastLocation(RIDE_ID)).thenReturn(
+                Optional.of(new LocationMessage(RIDE_ID, 12.6, -8.0, "2024-01-01T00:00:00Z")));
+        assertNotEquals(before, service.etag(snapshot));
+    }
+
+    @Test
+    void waitersAreReleasedOnTransitionAndOnNewLocation() {
+        PublicRideSnapshotService.Snapshot snapshot = service.findByRideId(RIDE_ID).orElseThrow();
+        String etag = service.etag(snapshot);
+
+        CompletableFuture<Void> onTransition = service.awaitChange(RIDE_ID, etag);
+        service.notifyLocationChanges();
+        assertFalse(onTransition.isDone());
+        service.invalidate(RIDE_ID);
+        assertTrue(onTransition.isDone());
+
+        service.findByRideId(RIDE_ID);
+        CompletableFuture<Void> onLocation = service.awaitChange(RIDE_ID, etag);
+        when(trackingService.getLastLocation(RIDE_ID)).thenReturn(
+                Optional.of(new LocationMessage(RIDE_ID, 12.6, -8.0, "2024-01-01T00:00:00Z")));
+        service.notifyLocationChanges();
+        assertTrue(onLocation.isDone());
+    }
+
+    @Test
+    void recipientValidationInfoIsServedOnlyWhileTheLinkIsUsable() {
+        RideRequest waiting = new RideRequest();
+        waiting.setId(8L);
+        waiting.setValidationToken("token-8");
+        waiting.setValidationTokenCreatedAt(LocalDateTime.now());
+        waiting.setValidationStatus(ValidationStatus.WAITING_RECIPIENT_VALIDATION);
+        waiting.setIsSenderClient(true);
+        waiting.setOtherPartyName("Awa");
+        waiting.setQrCodeDelivery("654321");
+        when(repository.findByValidationToken("token-8")).thenReturn(Optional.of(waiting));
+
+        Map<String, Object> info = service.recipientValidationInfo("token-8");
+        assertEquals("Awa", info.get("recipientName"));
+        assertEquals(true, info.get("canValidateLocation"));
+        assertFalse(info.containsKey("qrCodeDelivery"));
+
+        waiting.setValidationTokenUsedAt(LocalDateTime.now());
+        service.invalidate(8L);
+        assertThrows(RideRequestService.LinkExpiredException.class, () -> service.recipientValidationInfo("token-8"));
+        assertThrows(RideRequestService.LinkExpiredException.class, () -> service.recipientValidationInfo("unknown"));
+    }
+}
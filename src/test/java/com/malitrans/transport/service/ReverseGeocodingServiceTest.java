@@ -0,0 +1,117 @@
+package com.malitrans.transport.service;
+
+import com.malitrans.transport.model.GeocodeCacheEntry;
+import com.malitrans.transport.repository.GeocodeCacheRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+class ReverseGeocodingServiceTest {
+
+    private GazetteerGeocoder gazetteer;
+    private GoogleGeocoder google;
+    private GeocodeCacheRepository repository;
+    private ReverseGeocodingService service;
+
+    @BeforeEach
+    void setUp() {
+        repository = mock(GeocodeCacheRepository.class);
+        when(repository.findById(anyString())).thenReturn(Optional.empty());
+        // Gazetteer sans résultat et Google en échec : seuls les deux niveaux de cache répondent
+        gazetteer = mock(GazetteerGeocoder.class);
+        when(gazetteer.reverseGeocode(anyDouble(), anyDouble())).thenReturn(Optional.empty());
+        google = mock(GoogleGeocoder.class);
+        when(google.reverseGeocode(anyDouble(), anyDouble())).thenReturn(Optional.empty());
+        service = new ReverseGeocodingService(gazetteer, google, repository,
+                mock(PlatformTransactionManager.class), new SimpleMeterRegistry(), true, 4, 24, 100);
+    }
+
+    @Test
+    void nearbyPointsShareTheSameCell() {
+        assertEquals(service.cellKey(12.63921, -8.00012), service.cellKey(12.63919, -8.00009));
+        assertNotEquals(service.cellKey(12.6392, -8.0001), service.cellKey(12.6394, -8.0001));
+    }
+
+    @Test
+    void databaseHitIsPromotedToMemory() {
+        String key = service.cellKey(12.6392, -8.0001);
+        when(repository.findById(key)).thenReturn(Optional.of(
+                new GeocodeCacheEntry(key, "Hamdallaye ACI 2000, Bamako", Instant.now())));
+
+        assertEquals(Optional.of("Hamdallaye ACI 2000, Bamako"), service.reverseGeocode(12.6392, -8.0001));
+        assertEquals(Optional.of("Hamdallaye ACI 2000, Bamako"), service.reverseGeocode(12.63921, -8.00012));
+        verify(repository, times(1)).findById(key);
+    }
+
+    @Test
+    void staleEntryIsServedWhenRefreshFails() {
+        String key = service.cellKey(12.65, -7.99);
+        when(repository.findById(key)).thenReturn(Optional.of(
+                new GeocodeCacheEntry(key, "Badalabougou, Bamako", Instant.now().minus(Duration.ofDays(2)))));
+
+        assertEquals(Optional.of("Badalabougou, Bamako"), service.reverseGeocode(12.65, -7.99));
+        assertTrue(service.reverseGeocode(13.0, -7.0).isEmpty());
+    }
+
+    @Test
+    void gazetteerAnswerSkipsCacheAndGoogle() {
+        when(gazetteer.reverseGeocode(12.62, -7.995)).thenReturn(Optional.of("Badalabougou, Commune V, Bamako"));
+
+        assertEquals(Optional.of("Badalabougou, Commune V, Bamako"), service.reverseGeocode(12.62, -7.995));
+        verifyNoInteractions(repository, google);
+    }
+
+    @Test
+    void googleResultIsCachedWhenGazetteerHasNoPlace() {
+        when(google.reverseGeocode(anyDouble(), anyDouble())).thenReturn(Optional.of("Route de Koulikoro"));
+
+        assertEquals(Optional.of("Route de Koulikoro"), service.reverseGeocode(12.7, -7.8));
+        assertEquals(Optional.of("Route de Koulikoro"), service.reverseGeocode(12.70001, -7.80001));
+        verify(google, times(1)).reverseGeocode(anyDouble(), anyDouble());
+        verify(repository).saveAndFlush(any(GeocodeCacheEntry.class));
+    }
+
+    @Test
+    void cellStoredConcurrentlyByAnotherNodeIsNotAnError() {
+        when(google.reverseGeocode(anyDouble(), anyDouble())).thenReturn(Optional.of("Route de Ségou"));
+        when(repository.saveAndFlush(any(GeocodeCacheEntry.class)))
+                .thenThrow(new DataIntegrityViolationException("geocode_cache_pkey"));
+
+        assertEquals(Optional.of("Route de Ségou"), service.reverseGeocode(12.5, -7.5));
+        assertEquals(Optional.of("Route de Ségou"), service.reverseGeocode(12.50001, -7.50001));
+        verify(google, times(1)).reverseGeocode(anyDouble(), anyDouble());
+    }
+
+    @Test
+    void remoteHookRunsOnlyRightBeforeAGoogleCall() {
+        String cached = service.cellKey(12.6392, -8.0001);
+        when(repository.findById(cached)).thenReturn(Optional.of(
+                new GeocodeCacheEntry(cached, "Hamdallaye ACI 2000, Bamako", Instant.now())));
+        when(google.reverseGeocode(anyDouble(), anyDouble())).thenReturn(Optional.of("Route de Koulikoro"));
+        AtomicInteger permits = new AtomicInteger();
+
+        assertEquals(Optional.of("Hamdallaye ACI 2000, Bamako"),
+                service.reverseGeocodeRemote(12.6392, -8.0001, () -> permits.incrementAndGet() > 0));
+        assertEquals(0, permits.get());
+
+        assertTrue(service.reverseGeocodeRemote(12.7, -7.8, () -> false).isEmpty());
+        verifyNoInteractions(google, gazetteer);
+
+        assertEquals(Optional.of("Route de Koulikoro"),
+                service.reverseGeocodeRemote(12.7, -7.8, () -> permits.incrementAndGet() > 0));
+        assertEquals(1, permits.get());
+    }
+}
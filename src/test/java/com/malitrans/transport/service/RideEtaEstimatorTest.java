@@ -0,0 +1,80 @@
+package com.malitrans.transport.service;
+
+import com.malitrans.transport.model.RideRequest;
+import com.malitrans.transport.repository.RideRequestRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class RideEtaEstimatorTest {
+
+    private static final long T0 = 1_700_000_000_000L;
+
+    private RideRequestRepository repository;
+    private RideEtaEstimator estimator;
+
+    @BeforeEach
+    void setUp() {
+        repository = mock(RideRequestRepository.class);
+        // Détour routier neutre (1.0) pour des valeurs vérifiables à la main
+        estimator = new RideEtaEstimator(repository, new SimpleMeterRegistry(), 64, 60, 36, 3.6, 130, 1.0, 50, 900_000);
+    }
+
+    @Test
+    void etaIsUnknownUntilDestinationIsResolved() {
+        when(repository.findAllById(any())).thenReturn(List.of(ride(1L, "12.6500,-8.0000")));
+
+        assertEquals(RideEtaEstimator.UNKNOWN, estimator.onFix(1L, 12.6400, -8.0, T0, T0));
+        estimator.resolvePendingDestinations();
+
+        // ~1112 m restants à la vitesse par défaut (36 km/h = 10 m/s)
+        int eta = estimator.etaSeconds(1L);
+        assertTrue(eta > 105 && eta < 117, "eta=" + eta);
+        assertTrue(Math.abs(estimator.remainingMeters(1L) - 1112) < 5);
+    }
+
+    @Test
+    void smoothedSpeedDrivesEtaAndArrivalGivesZero() {
+        when(repository.findAllById(any())).thenReturn(List.of(ride(2L, "12.7000,-8.0000")));
+        estimator.onFix(2L, 12.6000, -8.0, T0, T0);
+        estimator.resolvePendingDestinations();
+
+        // 111 m toutes les 10 s ≈ 11,1 m/s, pendant 5 minutes
+        double latitude = 12.6000;
+        long fix = T0;
+        for (int i = 0; i < 30; i++) {
+            latitude += 0.001;
+            fix += 10_000;
+            estimator.onFix(2L, latitude, -8.0, fix, fix);
+        }
+        int remaining = estimator.remainingMeters(2L);
+        int eta = estimator.etaSeconds(2L);
+        assertEquals(remaining / 11.1, eta, remaining / 11.1 * 0.05);
+
+        // Fix plus ancien ignoré
+        assertEquals(eta, estimator.onFix(2L, 12.0, -8.0, T0, fix));
+
+        assertEquals(0, estimator.onFix(2L, 12.7002, -8.0, fix + 10_000, fix + 10_000));
+    }
+
+    @Test
+    void textualDestinationLeavesEtaUnknown() {
+        when(repository.findAllById(any())).thenReturn(List.of(ride(3L, "Marché de Médina Coura, Bamako")));
+        estimator.onFix(3L, 12.64, -8.0, T0, T0);
+        estimator.resolvePendingDestinations();
+        assertEquals(RideEtaEstimator.UNKNOWN, estimator.onFix(3L, 12.65, -8.0, T0 + 10_000, T0 + 10_000));
+    }
+
+    private static RideRequest ride(Long id, String destination) {
+        RideRequest ride = new RideRequest();
+        ride.setId(id);
+        ride.setDestination(destination);
+        return ride;
+    }
+}
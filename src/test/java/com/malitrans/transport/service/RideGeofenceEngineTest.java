@@ -0,0 +1,117 @@
+package com.malitrans.transport.service;
+
+import com.malitrans.transport.model.RideRequest;
+import com.malitrans.transport.model.ValidationStatus;
+import com.malitrans.transport.repository.RideRequestRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class RideGeofenceEngineTest {
+
+    private static final long T0 = 1_700_000_000_000L;
+    private static final double LNG = -8.0;
+
+    private RideRequestRepository repository;
+    private RideGeofenceEngine engine;
+    private long clock;
+
+    @BeforeEach
+    void setUp() {
+        repository = mock(RideRequestRepository.class);
+        engine = new RideGeofenceEngine(repository, new SimpleMeterRegistry(), 64, 500, 50, 2, 900_000);
+        clock = T0;
+    }
+
+    @Test
+    void pickupThenDropoffEventsAreEmittedOnceAfterConfirmation() {
+        // Collecte à 12.6400, destination ~5,5 km plus au nord
+        when(repository.findAllById(any()))
+                .thenReturn(List.of(ride(1L, ValidationStatus.DRIVER_ACCEPTED, 12.6400, 12.6900)));
+        assertNull(fix(1L, 12.6000));
+        engine.resolvePendingRides();
+
+        // ~330 m de la collecte : un seul fix ne suffit pas
+        assertNull(fix(1L, 12.6370));
+        assertEquals(RideGeofenceEngine.Event.PICKUP_ARRIVING, fix(1L, 12.6371));
+        assertNull(fix(1L, 12.6372));
+        assertNull(fix(1L, 12.6398));
+        assertEquals(RideGeofenceEngine.Event.PICKUP_ARRIVED, fix(1L, 12.6399));
+        assertNull(fix(1L, 12.6400));
+
+        engine.pickedUp(1L);
+        assertNull(fix(1L, 12.6880));
+        assertEquals(RideGeofenceEngine.Event.DROPOFF_ARRIVING, fix(1L, 12.6881));
+        assertNull(fix(1L, 12.6899));
+        assertEquals(RideGeofenceEngine.Event.DROPOFF_ARRIVED, fix(1L, 12.6900));
+        assertNull(fix(1L, 12.6900));
+    }
+
+    @Test
+    void isolatedJumpIntoFenceTriggersNothing() {
+        when(repository.findAllById(any()))
+                .thenReturn(List.of(ride(2L, ValidationStatus.IN_TRANSIT, 12.6000, 12.6400)));
+        fix(2L, 12.6000);
+        engine.resolvePendingRides();
+
+        assertNull(fix(2L, 12.6400));
+        assertNull(fix(2L, 12.6100));
+        assertNull(fix(2L, 12.6400));
+        assertNull(fix(2L, 12.6100));
+    }
+
+    @Test
+    void leavingPickupRereadsPhaseValidatedOnAnotherNode() {
+        when(repository.findAllById(any()))
+                .thenReturn(List.of(ride(3L, ValidationStatus.DRIVER_ACCEPTED, 12.6400, 12.6900)));
+        fix(3L, 12.6400);
+        engine.resolvePendingRides();
+        fix(3L, 12.6400);
+        assertEquals(RideGeofenceEngine.Event.PICKUP_ARRIVED, fix(3L, 12.6400));
+
+        // Ramassage validé ailleurs : la relecture bascule sur la destination
+        when(repository.findAllById(any()))
+                .thenReturn(List.of(ride(3L, ValidationStatus.IN_TRANSIT, 12.6400, 12.6900)));
+        assertNull(fix(3L, 12.6600));
+        engine.resolvePendingRides();
+        assertNull(fix(3L, 12.6860));
+        assertEquals(RideGeofenceEngine.Event.DROPOFF_ARRIVING, fix(3L, 12.6861));
+        verify(repository, times(2)).findAllById(any());
+    }
+
+    @Test
+    void forgottenRideStartsOver() {
+        when(repository.findAllById(any()))
+                .thenReturn(List.of(ride(4L, ValidationStatus.IN_TRANSIT, 12.6000, 12.6400)));
+        fix(4L, 12.6400);
+        engine.resolvePendingRides();
+        assertEquals(1, engine.size());
+
+        engine.forget(4L);
+        assertEquals(0, engine.size());
+        assertNull(fix(4L, 12.6400));
+        assertNull(fix(4L, 12.6400));
+    }
+
+    private RideGeofenceEngine.Event fix(long rideId, double latitude) {
+        clock += 5_000;
+        return engine.onFix(rideId, latitude, LNG, clock, clock);
+    }
+
+    private static RideRequest ride(long id, ValidationStatus status, double pickupLatitude, double dropoffLatitude) {
+        RideRequest ride = new RideRequest();
+        ride.setId(id);
+        ride.setValidationStatus(status);
+        ride.setOriginLatitude(pickupLatitude);
+        ride.setOriginLongitude(LNG);
+        ride.setDestinationLatitude(dropoffLatitude);
+        ride.setDestinationLongitude(LNG);
+        return ride;
+    }
+}
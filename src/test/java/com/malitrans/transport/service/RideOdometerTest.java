@@ -0,0 +1,94 @@
+package com.malitrans.transport.service;
+
+import com.malitrans.transport.dto.TrailPointDTO;
+import com.malitrans.transport.util.GeoUtil;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RideOdometerTest {
+
+    private static final long T0 = 1_700_000_000_000L;
+
+    private RideOdometer odometer;
+
+    @BeforeEach
+    void setUp() {
+        odometer = new RideOdometer(new SimpleMeterRegistry(), 64, 15, 150, 3, 900_000);
+    }
+
+    @Test
+    void sumsSegmentsBetweenConsecutiveFixes() {
+        assertEquals(RideOdometer.UNKNOWN, odometer.distanceMeters(1L));
+        double expected = 0;
+        double previousLatitude = 12.6392;
+        odometer.onFix(1L, previousLatitude, -8.0029, T0, T0);
+        for (int i = 1; i <= 10; i++) {
+            double latitude = 12.6392 + i * 0.001;
+            expected += GeoUtil.haversineMeters(previousLatitude, -8.0029, latitude, -8.0029);
+            odometer.onFix(1L, latitude, -8.0029, T0 + i * 10_000L, T0 + i * 10_000L);
+            previousLatitude = latitude;
+        }
+        assertEquals(Math.round(expected), odometer.distanceMeters(1L));
+    }
+
+    @Test
+    void stationaryJitterAddsNothing() {
+        odometer.onFix(2L, 12.6392, -8.0029, T0, T0);
+        for (int i = 1; i <= 50; i++) {
+            // ±5 m autour du même point
+            double offset = (i % 2 == 0 ? 1 : -1) * 0.000045;
+            odometer.onFix(2L, 12.6392 + offset, -8.0029, T0 + i * 2_000L, T0 + i * 2_000L);
+        }
+        assertEquals(0, odometer.distanceMeters(2L));
+    }
+
+    @Test
+    void gpsJumpIsIgnoredAndOutOfOrderFixesAreSkipped() {
+        odometer.onFix(3L, 12.6392, -8.0029, T0, T0);
+        // Saut de ~11 km en 5 s : rejeté
+        odometer.onFix(3L, 12.7392, -8.0029, T0 + 5_000L, T0 + 5_000L);
+        assertEquals(0, odometer.distanceMeters(3L));
+
+        odometer.onFix(3L, 12.6402, -8.0029, T0 + 60_000L, T0 + 60_000L);
+        int afterMove = odometer.distanceMeters(3L);
+        assertEquals(111, afterMove, 1);
+
+        odometer.onFix(3L, 12.6500, -8.0029, T0 + 30_000L, T0 + 70_000L);
+        assertEquals(afterMove, odometer.distanceMeters(3L));
+    }
+
+    @Test
+    void repeatedJumpsResynchroniseWithoutCountingDistance() {
+        odometer.onFix(4L, 12.6392, -8.0029, T0, T0);
+        for (int i = 1; i <= 3; i++) {
+            odometer.onFix(4L, 13.4317 + i * 0.0001, -6.2157, T0 + i * 1_000L, T0 + i * 1_000L);
+        }
+        assertEquals(0, odometer.distanceMeters(4L));
+        odometer.onFix(4L, 13.4327, -6.2157, T0 + 60_000L, T0 + 60_000L);
+        assertTrue(odometer.distanceMeters(4L) > 0 && odometer.distanceMeters(4L) < 200);
+    }
+
+    @Test
+    void replayingTheStoredTrailMatchesTheLiveCount() {
+        List<TrailPointDTO> trail = new ArrayList<>();
+        for (int i = 0; i <= 60; i++) {
+            double latitude = 12.6392 + i * 0.0005 + (i % 3 == 0 ? 0.00003 : 0);
+            // Un saut GPS isolé à mi-course
+            double longitude = i == 30 ? -7.95 : -8.0029;
+            trail.add(new TrailPointDTO(latitude, longitude, T0 + i * 5_000L));
+        }
+        for (TrailPointDTO point : trail) {
+            odometer.onFix(6L, point.getLatitude(), point.getLongitude(), point.getTimestamp(), point.getTimestamp());
+        }
+
+        assertTrue(odometer.distanceMeters(6L) > 0);
+        assertEquals(odometer.distanceMeters(6L), odometer.replayMeters(trail));
+        assertEquals(RideOdometer.UNKNOWN, odometer.replayMeters(List.of()));
+    }
+}
@@ -0,0 +1,75 @@
+package com.malitrans.transport.service;
+
+import com.malitrans.transport.repository.RideLastLocationRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class SharedLastLocationStoreTest {
+
+    private JdbcTemplate jdbcTemplate;
+    private SharedLastLocationStore store;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate = mock(JdbcTemplate.class);
+        when(jdbcTemplate.execute(any(ConnectionCallback.class))).thenReturn("PostgreSQL");
+        store = new SharedLastLocationStore(mock(RideLastLocationRepository.class), jdbcTemplate, true, 60_000);
+    }
+
+    @Test
+    void flushWritesTheLatestFixPerRideInOneGuardedBatch() {
+        store.record(1L, 12.60, -8.00, 2_000);
+        store.record(1L, 12.61, -8.01, 1_000); // Plus ancien : ignoré
+        store.record(2L, 12.70, -8.10, 1_500);
+
+        store.flush();
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<Object[]>> rows = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate).batchUpdate(eq(SharedLastLocationStore.UPSERT_SQL), rows.capture());
+        assertTrue(SharedLastLocationStore.UPSERT_SQL.contains("WHERE ride_last_location.fix_at < EXCLUDED.fix_at"));
+        assertEquals(2, rows.getValue().size());
+        Object[] ride1 = rows.getValue().stream().filter(row -> row[0].equals(1L)).findFirst().orElseThrow();
+        assertEquals(12.60, ride1[1]);
+        assertEquals(Timestamp.from(Instant.ofEpochMilli(2_000)), ride1[3]);
+        assertEquals(0, store.pendingWrites());
+    }
+
+    @Test
+    void failedBatchIsRequeuedWithoutOverwritingANewerFix() {
+        when(jdbcTemplate.batchUpdate(eq(SharedLastLocationStore.UPSERT_SQL), anyList()))
+                .thenAnswer(invocation -> {
+                    // Fix plus récent reçu pendant l'écriture du lot
+                    store.record(1L, 12.65, -8.05, 3_000);
+                    throw new QueryTimeoutException("timeout");
+                })
+                .thenReturn(new int[]{1, 1});
+        store.record(1L, 12.60, -8.00, 2_000);
+        store.record(2L, 12.70, -8.10, 1_500);
+
+        store.flush();
+        assertEquals(2, store.pendingWrites());
+
+        store.flush();
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<Object[]>> rows = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate, times(2)).batchUpdate(eq(SharedLastLocationStore.UPSERT_SQL), rows.capture());
+        Object[] ride1 = rows.getAllValues().get(1).stream().filter(row -> row[0].equals(1L)).findFirst().orElseThrow();
+        assertEquals(Timestamp.from(Instant.ofEpochMilli(3_000)), ride1[3]);
+        assertEquals(0, store.pendingWrites());
+    }
+}
@@ -0,0 +1,189 @@
+package com.malitrans.transport.tracking;
+
+import com.malitrans.transport.MaliTransApplication;
+import com.malitrans.transport.dto.LocationMessage;
+import com.malitrans.transport.model.RideRequest;
+import com.malitrans.transport.model.Role;
+import com.malitrans.transport.model.UserStatus;
+import com.malitrans.transport.model.Utilisateur;
+import com.malitrans.transport.model.ValidationStatus;
+import com.malitrans.transport.repository.RideRequestRepository;
+import com.malitrans.transport.repository.UtilisateurRepository;
+import com.malitrans.transport.security.JwtTokenUtil;
+import com.malitrans.transport.service.TrackingService;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.messaging.converter.MappingJackson2MessageConverter;
+import org.springframework.messaging.simp.stomp.StompFrameHandler;
+import org.springframework.messaging.simp.stomp.StompHeaders;
+import org.springframework.messaging.simp.stomp.StompSession;
+import org.springframework.messaging.simp.stomp.StompSessionHandlerAdapter;
+import org.springframework.web.socket.WebSocketHttpHeaders;
+import org.springframework.web.socket.client.standard.StandardWebSocketClient;
+import org.springframework.web.socket.messaging.WebSocketStompClient;
+
+import java.lang.reflect.Type;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Deux nœuds de l'application derrière un même broker STOMP (mode relay) et une même base :
+ * une position publiée sur le nœud B doit parvenir à un abonné du nœud A,
+ * et la dernière position doit être visible depuis A. Les envois anonymes, directs sur /topic
+ * ou pour une course d'un autre chauffeur sont supprimés avant le broker.
+ */
+class MultiNodeTrackingTest {
+
+    private static final String DRIVER_USERNAME = "+22370009999";
+
+    private static EmbeddedStompBroker broker;
+    private static ConfigurableApplicationContext nodeA;
+    private static ConfigurableApplicationContext nodeB;
+    private static long rideId;
+    private static String driverToken;
+
+    @BeforeAll
+    static void startCluster() throws Exception {
+        broker = new EmbeddedStompBroker();
+        nodeA = startNode("a");
+        nodeB = startNode("b");
+
+        // Chauffeur et course active dans la base partagée
+        Utilisateur driver = new Utilisateur();
+        driver.setUsername(DRIVER_USERNAME);
+        driver.setPhone(DRIVER_USERNAME);
+        driver.setPassword("unused");
+        driver.setRole(Role.CHAUFFEUR);
+        driver.setStatus(UserStatus.ACTIVE);
+        driver.setEnabled(true);
+        driver = nodeA.getBean(UtilisateurRepository.class).save(driver);
+
+        RideRequest ride = new RideRequest();
+        ride.setChauffeur(driver);
+        ride.setValidationStatus(ValidationStatus.IN_TRANSIT);
+        rideId = nodeA.getBean(RideRequestRepository.class).save(ride).getId();
+
+        driverToken = nodeB.getBean(JwtTokenUtil.class).generateToken(DRIVER_USERNAME, List.of(Role.CHAUFFEUR.name()));
+    }
+
+    @AfterAll
+    static void stopCluster() throws Exception {
+        if (nodeA != null) {
+            nodeA.close();
+        }
+        if (nodeB != null) {
+            nodeB.close();
+        }
+        if (broker != null) {
+            broker.close();
+        }
+    }
+
+    private static ConfigurableApplicationContext startNode(String name) {
+        return new SpringApplicationBuilder(MaliTransApplication.class)
+                .properties(
+                        "server.port=0",
+                        "spring.main.banner-mode=off",
+                        "spring.application.name=tracking-node-" + name,
+                        // Base partagée par les deux nœuds (même H2 nommée dans la JVM)
+                        "spring.datasource.url=jdbc:h2:mem:multinode;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE",
+                        "spring.jpa.hibernate.ddl-auto=update",
+                        "app.tracking.broker.mode=relay",
+                        "app.tracking.broker.relay.host=127.0.0.1",
+                        "app.tracking.broker.relay.port=" + broker.getPort(),
+                        "app.tracking.last-location.shared=true",
+                        "app.tracking.last-location.shared-flush-interval-ms=100")
+                .run();
+    }
+
+    @Test
+    void locationPublishedOnOneNodeReachesSubscriberOnAnother() throws Exception {
+        BlockingQueue<LocationMessage> received = subscribe(connect(nodeA, null), rideId);
+
+        StompSession driver = connect(nodeB, driverToken);
+        LocationMessage delivered = null;
+        // L'abonnement relayé vers le broker est asynchrone : on republie (en se déplaçant) jusqu'à réception
+        for (int attempt = 0; attempt < 20 && delivered == null; attempt++) {
+            driver.send("/app/driver/location", new LocationMessage(rideId, 12.60 + attempt * 0.001, -8.0,
+                    Instant.now().toString()));
+            delivered = received.poll(1, TimeUnit.SECONDS);
+        }
+
+        assertNotNull(delivered, "no location relayed from node B to node A");
+        assertEquals(rideId, delivered.getRideId());
+
+        TrackingService trackingOnA = nodeA.getBean(TrackingService.class);
+        Optional<LocationMessage> lastOnA = Optional.empty();
+        for (int attempt = 0; attempt < 50 && lastOnA.isEmpty(); attempt++) {
+            lastOnA = trackingOnA.getLastLocation(rideId);
+            if (lastOnA.isEmpty()) {
+                Thread.sleep(100);
+            }
+        }
+        assertTrue(lastOnA.isPresent(), "last location written by node B is not visible from node A");
+
+        driver.disconnect();
+    }
+
+    @Test
+    void anonymousAndForeignRideLocationsAreDropped() throws Exception {
+        long otherRideId = rideId + 1000;
+        BlockingQueue<LocationMessage> received = subscribe(connect(nodeA, null), rideId);
+        BlockingQueue<LocationMessage> receivedOther = subscribe(connect(nodeA, null), otherRideId);
+        Thread.sleep(500);
+
+        StompSession anonymous = connect(nodeB, null);
+        StompSession driver = connect(nodeB, driverToken);
+        for (int attempt = 0; attempt < 3; attempt++) {
+            anonymous.send("/app/driver/location", new LocationMessage(rideId, 13.0 + attempt * 0.01, -8.0,
+                    Instant.now().toString()));
+            anonymous.send("/topic/ride/" + rideId, new LocationMessage(rideId, 14.0, -8.0, Instant.now().toString()));
+            driver.send("/app/driver/location", new LocationMessage(otherRideId, 13.0 + attempt * 0.01, -8.0,
+                    Instant.now().toString()));
+        }
+
+        assertNull(received.poll(2, TimeUnit.SECONDS), "unauthenticated location was broadcast");
+        assertNull(receivedOther.poll(100, TimeUnit.MILLISECONDS), "location for a ride not assigned to the driver");
+        anonymous.disconnect();
+        driver.disconnect();
+    }
+
+    private static BlockingQueue<LocationMessage> subscribe(StompSession session, long rideId) {
+        BlockingQueue<LocationMessage> received = new LinkedBlockingQueue<>();
+        session.subscribe("/topic/ride/" + rideId, new StompFrameHandler() {
+            @Override
+            public Type getPayloadType(StompHeaders headers) {
+                return LocationMessage.class;
+            }
+
+            @Override
+            public void handleFrame(StompHeaders headers, Object payload) {
+                received.add((LocationMessage) payload);
+            }
+        });
+        return received;
+    }
+
+    private static StompSession connect(ConfigurableApplicationContext node, String token) throws Exception {
+        int port = ((WebServerApplicationContext) node).getWebServer().getPort();
+        WebSocketStompClient client = new WebSocketStompClient(new StandardWebSocketClient());
+        client.setMessageConverter(new MappingJackson2MessageConverter());
+        StompHeaders connectHeaders = new StompHeaders();
+        if (token != null) {
+            connectHeaders.add("Authorization", "Bearer " + token);
+        }
+        return client.connectAsync("ws://localhost:" + port + "/ws-tracking-native", new WebSocketHttpHeaders(),
+                connectHeaders, new StompSessionHandlerAdapter() {
+                }).get(10, TimeUnit.SECONDS);
+    }
+}
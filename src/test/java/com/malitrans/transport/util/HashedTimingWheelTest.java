@@ -0,0 +1,58 @@
+package com.malitrans.transport.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HashedTimingWheelTest {
+
+    private static final long T0 = 1_700_000_000_000L;
+
+    @Test
+    void timeoutsExpireAtTheirTickInDeadlineOrder() {
+        HashedTimingWheel<String> wheel = new HashedTimingWheel<>(8, 100, T0);
+        wheel.schedule("late", 450, T0);
+        wheel.schedule("early", 150, T0);
+
+        assertEquals(List.of(), wheel.advance(T0 + 100));
+        assertEquals(List.of("early"), wheel.advance(T0 + 200));
+        assertEquals(List.of(), wheel.advance(T0 + 400));
+        assertEquals(List.of("late"), wheel.advance(T0 + 500));
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void deadlinesBeyondOneTurnWaitForTheirRound() {
+        HashedTimingWheel<String> wheel = new HashedTimingWheel<>(4, 10, T0);
+        // 4 seaux de 10 ms : 25 ms et 65 ms tombent dans le même seau, à un tour d'écart
+        wheel.schedule("first", 25, T0);
+        wheel.schedule("second", 65, T0);
+
+        assertEquals(List.of("first"), wheel.advance(T0 + 30));
+        assertEquals(List.of(), wheel.advance(T0 + 60));
+        assertEquals(List.of("second"), wheel.advance(T0 + 70));
+    }
+
+    @Test
+    void cancelledTimeoutNeverExpires() {
+        HashedTimingWheel<String> wheel = new HashedTimingWheel<>(8, 100, T0);
+        HashedTimingWheel.Timeout<String> cancelled = wheel.schedule("cancelled", 200, T0);
+        wheel.schedule("kept", 200, T0);
+
+        assertTrue(wheel.cancel(cancelled));
+        assertFalse(wheel.cancel(cancelled));
+        assertEquals(List.of("kept"), wheel.advance(T0 + 300));
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void pastDeadlineExpiresOnNextTick() {
+        HashedTimingWheel<String> wheel = new HashedTimingWheel<>(8, 100, T0);
+        wheel.advance(T0 + 1_000);
+        wheel.schedule("now", 0, T0 + 1_000);
+
+        assertEquals(List.of("now"), wheel.advance(T0 + 1_100));
+    }
+}
@@ -0,0 +1,44 @@
+package com.malitrans.transport.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class KdTreeTest {
+
+    @Test
+    void nearestMatchesBruteForce() {
+        Random random = new Random(42);
+        int n = 2_000;
+        double[] lat = new double[n];
+        double[] lng = new double[n];
+        for (int i = 0; i < n; i++) {
+            lat[i] = 10 + random.nextDouble() * 15;
+            lng[i] = -12 + random.nextDouble() * 16;
+        }
+        KdTree tree = new KdTree(lat, lng);
+
+        for (int q = 0; q < 500; q++) {
+            double qLat = 10 + random.nextDouble() * 15;
+            double qLng = -12 + random.nextDouble() * 16;
+            double expectedDistance = Double.MAX_VALUE;
+            for (int i = 0; i < n; i++) {
+                double distance = GeoUtil.haversineMeters(qLat, qLng, lat[i], lng[i]);
+                expectedDistance = Math.min(expectedDistance, distance);
+            }
+            int found = tree.nearest(qLat, qLng, Double.MAX_VALUE);
+            assertEquals(expectedDistance, GeoUtil.haversineMeters(qLat, qLng, lat[found], lng[found]), 1e-3);
+
+            // Le rayon maximal exclut le plus proche voisin s'il est au-delà
+            assertNotEquals(-1, tree.nearest(qLat, qLng, expectedDistance + 1));
+            assertEquals(-1, tree.nearest(qLat, qLng, expectedDistance * 0.99));
+        }
+    }
+
+    @Test
+    void emptyTreeHasNoNearestPoint() {
+        assertEquals(-1, new KdTree(new double[0], new double[0]).nearest(12.64, -8.0, 1_000));
+    }
+}
@@ -0,0 +1,35 @@
+package com.malitrans.transport.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LocationFrameCodecTest {
+
+    @Test
+    void roundTripsFixedWidthFrame() {
+        byte[] frame = LocationFrameCodec.encode(4_000_000_123L, 12.6391837, -8.0028734, 1_760_000_000_999L);
+
+        assertEquals(LocationFrameCodec.FRAME_BYTES, frame.length);
+        LocationFrameCodec.Frame decoded = LocationFrameCodec.decode(frame);
+        assertEquals(4_000_000_123L, decoded.rideId());
+        assertEquals(12.6391837, decoded.latitude(), 1e-7);
+        assertEquals(-8.0028734, decoded.longitude(), 1e-7);
+        assertEquals(1_760_000_000_999L, decoded.fixMillis());
+    }
+
+    @Test
+    void fixesWithinTheSameSecondStayOrdered() {
+        long first = LocationFrameCodec.decode(LocationFrameCodec.encode(1L, 12.6, -8.0, 1_760_000_000_100L)).fixMillis();
+        long second = LocationFrameCodec.decode(LocationFrameCodec.encode(1L, 12.6, -8.0, 1_760_000_000_600L)).fixMillis();
+        assertTrue(second > first);
+    }
+
+    @Test
+    void rejectsFramesOfWrongSize() {
+        assertNull(LocationFrameCodec.decode(new byte[19]));
+        assertNull(LocationFrameCodec.decode(new byte[20]));
+        assertNull(LocationFrameCodec.decode(new byte[LocationFrameCodec.FRAME_BYTES + 1]));
+        assertNull(LocationFrameCodec.decode(null));
+    }
+}
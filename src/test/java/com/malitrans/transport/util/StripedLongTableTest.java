@@ -0,0 +1,102 @@
+package com.malitrans.transport.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StripedLongTableTest {
+
+    @Test
+    void valuesFollowTheirKeyThroughBackwardShiftDeletion() {
+        StripedLongTable<Values> table = new StripedLongTable<>(4096, Long.MAX_VALUE, Values::new);
+        Map<Long, Long> reference = new HashMap<>();
+        Random random = new Random(42);
+        for (int i = 0; i < 200_000; i++) {
+            long key = random.nextInt(2000);
+            if (random.nextInt(3) == 0) {
+                assertEquals(reference.remove(key) != null, table.remove(key));
+            } else {
+                put(table, key, i, 0);
+                reference.put(key, (long) i);
+            }
+        }
+
+        assertEquals(reference.size(), table.size());
+        for (long key = 0; key < 2000; key++) {
+            assertEquals(reference.get(key), get(table, key, 0));
+        }
+    }
+
+    @Test
+    void fullStripeEvictsTheLeastRecentlyTouched() {
+        // 16 stripes x 1 entrée : chaque insertion dans une stripe occupée en chasse l'occupant
+        StripedLongTable<Values> table = new StripedLongTable<>(16, 1_000, Values::new);
+        for (long key = 1; key <= 10_000; key++) {
+            put(table, key, key, key);
+        }
+
+        assertTrue(table.size() <= 16);
+        assertEquals(10_000L, get(table, 10_000L, 10_000));
+        assertTrue(table.capacityEvictions() > 0);
+        assertEquals(10_000, table.capacityEvictions() + table.expiredEvictions() + table.size());
+    }
+
+    @Test
+    void idleEntriesExpireOnReadAndOnPurge() {
+        StripedLongTable<Values> table = new StripedLongTable<>(100, 1_000, Values::new);
+        put(table, 1L, 10, 0);
+        put(table, 2L, 20, 0);
+        put(table, 3L, 30, 500);
+
+        assertEquals(10L, get(table, 1L, 1_000));
+        assertNull(get(table, 1L, 1_001));
+        StripedLongTable.Stripe<Values> stripe = table.stripe(2L);
+        synchronized (stripe) {
+            // Sans instant : l'entrée expirée reste visible jusqu'à la purge
+            assertTrue(stripe.find(2L) >= 0);
+        }
+
+        assertEquals(1, table.purgeIdle(1_001));
+        assertEquals(1, table.size());
+        assertEquals(30L, get(table, 3L, 1_001));
+        assertEquals(2, table.expiredEvictions());
+    }
+
+    private static void put(StripedLongTable<Values> table, long key, long value, long now) {
+        StripedLongTable.Stripe<Values> stripe = table.stripe(key);
+        synchronized (stripe) {
+            int slot = stripe.find(key, now);
+            if (slot < 0) {
+                slot = stripe.insert(key, now);
+            } else {
+                stripe.touch(slot, now);
+            }
+            stripe.columns().values[slot] = value;
+        }
+    }
+
+    private static Long get(StripedLongTable<Values> table, long key, long now) {
+        StripedLongTable.Stripe<Values> stripe = table.stripe(key);
+        synchronized (stripe) {
+            int slot = stripe.find(key, now);
+            return slot < 0 ? null : stripe.columns().values[slot];
+        }
+    }
+
+    private static final class Values implements StripedLongTable.Columns {
+        private final long[] values;
+
+        private Values(int tableSize) {
+            this.values = new long[tableSize];
+        }
+
+        @Override
+        public void move(int from, int to) {
+            values[to] = values[from];
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.malitrans.transport.util;
+
+import com.malitrans.transport.dto.TrailPointDTO;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TrailCodecTest {
+
+    @Test
+    void roundTripsPointsAtMicroDegreePrecision() {
+        List<TrailPointDTO> points = new ArrayList<>();
+        long t = 1_760_000_000_000L;
+        for (int i = 0; i < 100; i++) {
+            points.add(new TrailPointDTO(12.6392 + i * 0.00005, -8.0029 - i * 0.00003, t + i * 1000L));
+        }
+
+        byte[] encoded = TrailCodec.encode(points);
+        List<TrailPointDTO> decoded = TrailCodec.decode(encoded);
+
+        assertTrue(encoded.length < points.size() * 8, "encoded size " + encoded.length);
+        assertEquals(points.size(), decoded.size());
+        for (int i = 0; i < points.size(); i++) {
+            assertEquals(points.get(i).getLatitude(), decoded.get(i).getLatitude(), 1e-6);
+            assertEquals(points.get(i).getLongitude(), decoded.get(i).getLongitude(), 1e-6);
+            assertEquals(points.get(i).getTimestamp(), decoded.get(i).getTimestamp());
+        }
+    }
+
+    @Test
+    void simplifyKeepsEndpointsAndCornerWithinBudget() {
+        // L : 50 points vers le nord puis 50 vers l'est
+        double[] lat = new double[100];
+        double[] lng = new double[100];
+        for (int i = 0; i < 100; i++) {
+            lat[i] = 12.6 + Math.min(i, 49) * 0.0001;
+            lng[i] = -8.0 + Math.max(0, i - 49) * 0.0001;
+        }
+
+        int[] kept = GeoUtil.simplify(lat, lng, 3, 0);
+
+        assertArrayEquals(new int[]{0, 49, 99}, kept);
+    }
+}